@@ -0,0 +1,43 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.graphtraversal.CascadePlan;
+import io.improbable.keanu.algorithms.graphtraversal.TopologicalSort;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.vertices.Probabilistic;
+import io.improbable.keanu.vertices.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+public class CascadeBenchmark {
+
+    @Param({"CHAIN", "HIERARCHICAL", "REGRESSION", "DISCRETE_CPT"})
+    public SyntheticGraph graph;
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private CascadePlan cascadePlan;
+    private Vertex source;
+    private Object[] sourceValues;
+    private int step;
+
+    @Setup
+    public void setup() {
+        BayesianNetwork network = graph.create(size);
+        source = TopologicalSort.sort(network.getLatentVertices()).get(0);
+        sourceValues = new Object[]{source.getValue(), ((Probabilistic<?>) source).sample(new KeanuRandom(1))};
+        cascadePlan = CascadePlan.compile(network.getLatentVertices());
+    }
+
+    @Benchmark
+    public Object cascadeUpdate() {
+        source.setValue(sourceValues[step++ & 1]);
+        cascadePlan.cascadeUpdate(source);
+        return source.getValue();
+    }
+}
@@ -0,0 +1,51 @@
+package io.improbable.keanu.benchmarks;
+
+import com.google.common.collect.ImmutableMap;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.graphtraversal.TopologicalSort;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.vertices.Probabilistic;
+import io.improbable.keanu.vertices.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+
+@State(Scope.Benchmark)
+public class LogProbBenchmark {
+
+    @Param({"CHAIN", "HIERARCHICAL", "REGRESSION", "DISCRETE_CPT"})
+    public SyntheticGraph graph;
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private KeanuProbabilisticModel model;
+    private Map<VariableReference, Object>[] proposals;
+    private double logProbBefore;
+    private int step;
+
+    @Setup
+    public void setup() {
+        BayesianNetwork network = graph.create(size);
+        Vertex<?> root = TopologicalSort.sort(network.getLatentVertices()).get(0);
+
+        model = new KeanuProbabilisticModel(network);
+        proposals = new Map[]{
+            ImmutableMap.of(root.getReference(), root.getValue()),
+            ImmutableMap.of(root.getReference(), ((Probabilistic<?>) root).sample(new KeanuRandom(1)))
+        };
+        logProbBefore = model.logProb();
+    }
+
+    @Benchmark
+    public double logProbAfter() {
+        logProbBefore = model.logProbAfter(proposals[step++ & 1], logProbBefore);
+        return logProbBefore;
+    }
+}
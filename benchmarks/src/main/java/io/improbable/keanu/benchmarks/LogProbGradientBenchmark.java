@@ -0,0 +1,36 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.VertexId;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.LogProbGradientCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+
+@State(Scope.Benchmark)
+public class LogProbGradientBenchmark {
+
+    @Param({"CHAIN", "HIERARCHICAL", "REGRESSION"})
+    public SyntheticGraph graph;
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private LogProbGradientCalculator calculator;
+
+    @Setup
+    public void setup() {
+        BayesianNetwork network = graph.create(size);
+        calculator = new LogProbGradientCalculator(network.getLatentOrObservedVertices(), network.getContinuousLatentVertices());
+    }
+
+    @Benchmark
+    public Map<VertexId, DoubleTensor> jointLogProbGradient() {
+        return calculator.getJointLogProbGradientWrtLatents();
+    }
+}
@@ -0,0 +1,53 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.mcmc.MetropolisHastings;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.util.status.StatusBar;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.ReusesValueBuffers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Iterator;
+
+@State(Scope.Benchmark)
+public class MetropolisHastingsBenchmark {
+
+    @Param({"CHAIN", "HIERARCHICAL", "REGRESSION", "DISCRETE_CPT"})
+    public SyntheticGraph graph;
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean reuseValueBuffers;
+
+    private Iterator<NetworkSample> samples;
+
+    @Setup
+    public void setup() {
+        StatusBar.disable();
+
+        BayesianNetwork network = graph.create(size);
+        if (reuseValueBuffers) {
+            ReusesValueBuffers.enableFor(network.getAllVertices());
+        }
+
+        samples = MetropolisHastings.builder()
+            .random(new KeanuRandom(1))
+            .build()
+            .generatePosteriorSamples(new KeanuProbabilisticModel(network), network.getLatentVertices())
+            .stream()
+            .iterator();
+    }
+
+    @Benchmark
+    public NetworkSample step() {
+        return samples.next();
+    }
+}
@@ -0,0 +1,47 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.mcmc.nuts.NUTS;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModelWithGradient;
+import io.improbable.keanu.util.status.StatusBar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Iterator;
+
+@State(Scope.Benchmark)
+public class NUTSBenchmark {
+
+    @Param({"CHAIN", "HIERARCHICAL", "REGRESSION"})
+    public SyntheticGraph graph;
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private Iterator<NetworkSample> samples;
+
+    @Setup
+    public void setup() {
+        StatusBar.disable();
+
+        BayesianNetwork network = graph.create(size);
+
+        samples = NUTS.builder()
+            .random(new KeanuRandom(1))
+            .adaptEnabled(false)
+            .build()
+            .generatePosteriorSamples(new KeanuProbabilisticModelWithGradient(network), network.getLatentVertices())
+            .stream()
+            .iterator();
+    }
+
+    @Benchmark
+    public NetworkSample sample() {
+        return samples.next();
+    }
+}
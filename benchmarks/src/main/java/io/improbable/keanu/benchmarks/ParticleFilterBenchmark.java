@@ -0,0 +1,42 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.particlefiltering.Particle;
+import io.improbable.keanu.algorithms.particlefiltering.ParticleFilter;
+import io.improbable.keanu.vertices.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+@State(Scope.Benchmark)
+public class ParticleFilterBenchmark {
+
+    @Param({"CHAIN", "HIERARCHICAL", "REGRESSION", "DISCRETE_CPT"})
+    public SyntheticGraph graph;
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    @Param({"100"})
+    public int numParticles;
+
+    private List<Vertex> vertices;
+
+    @Setup
+    public void setup() {
+        vertices = graph.create(size).getAllVertices();
+    }
+
+    @Benchmark
+    public Particle filter() {
+        return ParticleFilter.ofGraph(vertices)
+            .withNumParticles(numParticles)
+            .withRandom(new KeanuRandom(1))
+            .build()
+            .getMostProbableParticle();
+    }
+}
@@ -0,0 +1,41 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.util.io.ProtobufLoader;
+import io.improbable.keanu.util.io.ProtobufSaver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * The discrete graph is left out because its conditional probability tables cannot be saved.
+ */
+@State(Scope.Benchmark)
+public class ProtobufRoundTripBenchmark {
+
+    @Param({"CHAIN", "HIERARCHICAL", "REGRESSION"})
+    public SyntheticGraph graph;
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private BayesianNetwork network;
+
+    @Setup
+    public void setup() {
+        network = graph.create(size);
+    }
+
+    @Benchmark
+    public BayesianNetwork saveAndLoad() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new ProtobufSaver(network).save(output, true, null);
+        return new ProtobufLoader().loadNetwork(new ByteArrayInputStream(output.toByteArray()));
+    }
+}
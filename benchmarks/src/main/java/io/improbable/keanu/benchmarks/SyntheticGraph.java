@@ -0,0 +1,148 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.graphtraversal.TopologicalSort;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.plating.PlateBuilder;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.bool.BooleanVertex;
+import io.improbable.keanu.vertices.bool.probabilistic.BernoulliVertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.ConstantDoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import io.improbable.keanu.vertices.generic.nonprobabilistic.ConditionalProbabilityTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generators of synthetic graphs shaped like the models that inference is run on, so that the inference hot paths
+ * can be benchmarked at several sizes. Every graph is built from a fixed seed, starts with a value for every latent
+ * vertex and has some observed vertices.
+ */
+public enum SyntheticGraph {
+
+    /**
+     * A random walk of size Gaussian latents, each with a noisy observation.
+     */
+    CHAIN(true) {
+        @Override
+        Vertex<?> createVertices(int size, KeanuRandom random) {
+            DoubleVertex start = new GaussianVertex(0, 1);
+            DoubleVertex previous = start;
+
+            for (int i = 0; i < size; i++) {
+                DoubleVertex next = new GaussianVertex(previous.times(0.9), 1);
+                new GaussianVertex(next, 0.5).observe(random.nextGaussian());
+                previous = next;
+            }
+
+            return start;
+        }
+    },
+
+    /**
+     * A hierarchical model with one global mean and size group means, each with several observations, i.e. a
+     * wide fan-out from the global mean.
+     */
+    HIERARCHICAL(true) {
+        private static final int OBSERVATIONS_PER_GROUP = 5;
+
+        @Override
+        Vertex<?> createVertices(int size, KeanuRandom random) {
+            DoubleVertex globalMean = new GaussianVertex(0, 10);
+
+            for (int group = 0; group < size; group++) {
+                DoubleVertex groupMean = new GaussianVertex(globalMean, 1);
+                double trueGroupMean = random.nextGaussian();
+
+                for (int i = 0; i < OBSERVATIONS_PER_GROUP; i++) {
+                    new GaussianVertex(groupMean, 0.5).observe(trueGroupMean + 0.5 * random.nextGaussian());
+                }
+            }
+
+            return globalMean;
+        }
+    },
+
+    /**
+     * A linear regression with a plate for each of size data points.
+     */
+    REGRESSION(true) {
+        @Override
+        Vertex<?> createVertices(int size, KeanuRandom random) {
+            DoubleVertex weight = new GaussianVertex(0, 10);
+            DoubleVertex intercept = new GaussianVertex(0, 10);
+
+            new PlateBuilder<>()
+                .count(size)
+                .withFactory(plate -> {
+                    double x = random.nextGaussian();
+                    DoubleVertex y = plate.add(new GaussianVertex(weight.times(new ConstantDoubleVertex(x)).plus(intercept), 1));
+                    y.observe(2 * x + 1 + random.nextGaussian());
+                })
+                .build();
+
+            return weight;
+        }
+    },
+
+    /**
+     * A network of size boolean latents, each depending on the two before it through a conditional probability
+     * table, with every fourth one observed.
+     */
+    DISCRETE_CPT(false) {
+        @Override
+        Vertex<?> createVertices(int size, KeanuRandom random) {
+            List<BooleanVertex> nodes = new ArrayList<>();
+            nodes.add(new BernoulliVertex(0.5));
+            nodes.add(new BernoulliVertex(
+                ConditionalProbabilityTable.of(nodes.get(0)).when(true).then(0.7).orDefault(0.3)
+            ));
+
+            for (int i = 2; i < size; i++) {
+                DoubleVertex probTrue = ConditionalProbabilityTable.of(nodes.get(i - 1), nodes.get(i - 2))
+                    .when(true, true).then(0.9)
+                    .when(true, false).then(0.6)
+                    .when(false, true).then(0.4)
+                    .orDefault(0.1);
+                BernoulliVertex node = new BernoulliVertex(probTrue);
+
+                if (i % 4 == 3) {
+                    node.observe(random.nextDouble() < 0.5);
+                }
+                nodes.add(node);
+            }
+
+            return nodes.get(0);
+        }
+    };
+
+    private static final int SEED = 1;
+
+    private final boolean continuous;
+
+    SyntheticGraph(boolean continuous) {
+        this.continuous = continuous;
+    }
+
+    /**
+     * @return true if every latent vertex of the graph is continuous, so gradient based algorithms can run on it
+     */
+    public boolean isContinuous() {
+        return continuous;
+    }
+
+    /**
+     * @param size the number of repeated units in the graph, e.g. the length of a chain or the number of data points
+     * @return the graph, with a value sampled for every latent vertex
+     */
+    public BayesianNetwork create(int size) {
+        KeanuRandom random = new KeanuRandom(SEED);
+        BayesianNetwork network = new BayesianNetwork(createVertices(size, random).getConnectedGraph());
+        BayesianNetwork.setFromSampleAndCascade(TopologicalSort.sort(network.getLatentVertices()), random);
+        return network;
+    }
+
+    abstract Vertex<?> createVertices(int size, KeanuRandom random);
+}
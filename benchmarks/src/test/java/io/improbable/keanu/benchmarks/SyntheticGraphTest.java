@@ -0,0 +1,40 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.vertices.Vertex;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SyntheticGraphTest {
+
+    @Test
+    public void everyGraphStartsInAPossibleStateWithObservations() {
+        for (SyntheticGraph graph : SyntheticGraph.values()) {
+            BayesianNetwork network = graph.create(10);
+
+            assertFalse(graph.name(), network.isInImpossibleState());
+            assertFalse(graph.name(), network.getObservedVertices().isEmpty());
+            for (Vertex latent : network.getLatentVertices()) {
+                assertTrue(graph.name(), latent.hasValue());
+            }
+            assertEquals(graph.name(), graph.isContinuous(), network.getDiscreteLatentVertices().isEmpty());
+        }
+    }
+
+    @Test
+    public void graphsAreTheSameEveryTimeTheyAreCreated() {
+        for (SyntheticGraph graph : SyntheticGraph.values()) {
+            assertEquals(graph.name(), graph.create(10).getLogOfMasterP(), graph.create(10).getLogOfMasterP(), 1e-10);
+        }
+    }
+
+    @Test
+    public void graphsGrowWithSize() {
+        for (SyntheticGraph graph : SyntheticGraph.values()) {
+            assertTrue(graph.name(), graph.create(20).getVertexCount() > graph.create(10).getVertexCount());
+        }
+    }
+}
@@ -5,17 +5,27 @@ import io.improbable.keanu.distributions.continuous.Laplace;
 import io.improbable.keanu.distributions.discrete.Poisson;
 import io.improbable.keanu.tensor.INDArrayShim;
 import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.dbl.JVMDoubleTensor;
 import io.improbable.keanu.tensor.dbl.Nd4jDoubleTensor;
 import io.improbable.keanu.tensor.dbl.ScalarDoubleTensor;
 import io.improbable.keanu.tensor.intgr.IntegerTensor;
 import io.improbable.keanu.tensor.intgr.Nd4jIntegerTensor;
+import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.random.SynchronizedRandomGenerator;
 import org.nd4j.linalg.api.buffer.DataBuffer;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.api.rng.DefaultRandom;
 import org.nd4j.linalg.api.rng.Random;
 import org.nd4j.linalg.factory.Nd4j;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -44,22 +54,65 @@ public class KeanuRandom {
         DEFAULT_RANDOM.set(new KeanuRandom(seed));
     }
 
-    private final Random nd4jRandom;
+    private MersenneTwister generator;
+    private Random nd4jRandom;
     private final DataBuffer.Type bufferType;
 
     public KeanuRandom() {
-        nd4jRandom = new DefaultRandom();
-        bufferType = DataBuffer.Type.DOUBLE;
+        this(System.currentTimeMillis());
     }
 
     public KeanuRandom(long seed) {
-        nd4jRandom = new DefaultRandom(seed);
+        setGenerator(new MersenneTwister(seed));
         bufferType = DataBuffer.Type.DOUBLE;
     }
 
+    /**
+     * @return the complete state of the underlying generator, from which {@link #setState(byte[])} continues the
+     * same sequence of random numbers, in this or another JVM
+     */
+    public byte[] getState() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        synchronized (generator) {
+            try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+                output.writeObject(generator);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param state a state returned by {@link #getState()}
+     * @throws IllegalArgumentException if the state is not one returned by {@link #getState()}
+     */
+    public void setState(byte[] state) {
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(state))) {
+            setGenerator((MersenneTwister) input.readObject());
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            throw new IllegalArgumentException("Not a valid random state", e);
+        }
+    }
+
+    /**
+     * The generator is wrapped in the same way as by {@link DefaultRandom#DefaultRandom(long)}, so a seed gives the
+     * same sequence of random numbers as it does for ND4J.
+     */
+    private void setGenerator(MersenneTwister generator) {
+        this.generator = generator;
+        this.nd4jRandom = new DefaultRandom(new SynchronizedRandomGenerator(generator));
+    }
+
     public DoubleTensor nextDouble(long[] shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE)) {
             return new ScalarDoubleTensor(nextDouble());
+        } else if (JVMDoubleTensor.isPreferredFor(shape)) {
+            double[] values = new double[TensorShape.getLengthAsInt(shape)];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = nextDouble();
+            }
+            return JVMDoubleTensor.create(values, shape);
         } else {
             return new Nd4jDoubleTensor(doubleNextDouble(shape));
         }
@@ -84,6 +137,12 @@ public class KeanuRandom {
     public DoubleTensor nextGaussian(long[] shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE)) {
             return new ScalarDoubleTensor(nextGaussian());
+        } else if (JVMDoubleTensor.isPreferredFor(shape)) {
+            double[] values = new double[TensorShape.getLengthAsInt(shape)];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = nextGaussian();
+            }
+            return JVMDoubleTensor.create(values, shape);
         } else {
             return new Nd4jDoubleTensor(doubleNextGaussian(shape));
         }
@@ -0,0 +1,360 @@
+package io.improbable.keanu.algorithms;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A list of samples of a single variable that stores double and integer tensors as columns of primitives rather than
+ * as a tensor object per sample.
+ * <p>
+ * The storage is decided by the first sample that is added. If it is a {@link DoubleTensor}, an {@link IntegerTensor}
+ * or a {@link Double}, its shape is stored once and the values of every sample are appended to chunks of primitives.
+ * Each chunk holds a fixed number of samples, so growing the list never copies more than one chunk. If a later sample
+ * has a different type or shape, or the first sample is of any other type, the samples are kept as objects instead.
+ * <p>
+ * Getting a sample creates a new tensor from the stored values.
+ *
+ * @param <T> the type of the samples
+ */
+public class ColumnarSampleList<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final int ELEMENTS_PER_CHUNK = 1 << 16;
+    private static final int INITIAL_CHUNK_SAMPLES = 16;
+
+    private enum Storage {
+        UNDECIDED, DOUBLE_TENSOR, INTEGER_TENSOR, DOUBLE, OBJECT
+    }
+
+    /**
+     * Visits the values of each sample in order. The values of a sample are at
+     * [offset, offset + sample length) of the chunk.
+     */
+    public interface DoubleSampleVisitor {
+        void visit(double[] chunk, int offset);
+    }
+
+    public interface IntegerSampleVisitor {
+        void visit(int[] chunk, int offset);
+    }
+
+    private Storage storage = Storage.UNDECIDED;
+    private long[] sampleShape;
+    private int sampleLength;
+    private int samplesPerChunk;
+
+    private final List<double[]> doubleChunks = new ArrayList<>();
+    private final List<int[]> integerChunks = new ArrayList<>();
+    private List<T> objects;
+
+    private int size;
+
+    public ColumnarSampleList() {
+    }
+
+    /**
+     * @param samples the samples to store
+     * @param <T>     the type of the samples
+     * @return the samples if they are already a columnar list, otherwise a columnar copy of them
+     */
+    public static <T> ColumnarSampleList<T> of(List<T> samples) {
+        if (samples instanceof ColumnarSampleList) {
+            return (ColumnarSampleList<T>) samples;
+        }
+
+        ColumnarSampleList<T> columns = new ColumnarSampleList<>();
+        columns.addAll(samples);
+        return columns;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(T sample) {
+        if (storage == Storage.UNDECIDED) {
+            decideStorage(sample);
+        }
+
+        switch (storage) {
+            case DOUBLE_TENSOR:
+                if (sample instanceof DoubleTensor && Arrays.equals(sampleShape, ((DoubleTensor) sample).getShape())) {
+                    appendDoubles(((DoubleTensor) sample).asFlatDoubleArray());
+                    break;
+                }
+                storeAsObjects();
+                objects.add(sample);
+                break;
+            case INTEGER_TENSOR:
+                if (sample instanceof IntegerTensor && Arrays.equals(sampleShape, ((IntegerTensor) sample).getShape())) {
+                    appendIntegers(((IntegerTensor) sample).asFlatIntegerArray());
+                    break;
+                }
+                storeAsObjects();
+                objects.add(sample);
+                break;
+            case DOUBLE:
+                if (sample instanceof Double) {
+                    appendDoubles(new double[]{(Double) sample});
+                    break;
+                }
+                storeAsObjects();
+                objects.add(sample);
+                break;
+            default:
+                objects.add(sample);
+        }
+
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        int chunk = index / samplesPerChunk;
+        int offset = (index % samplesPerChunk) * sampleLength;
+
+        switch (storage) {
+            case DOUBLE_TENSOR:
+                return (T) DoubleTensor.create(Arrays.copyOfRange(doubleChunks.get(chunk), offset, offset + sampleLength), sampleShape);
+            case INTEGER_TENSOR:
+                return (T) IntegerTensor.create(Arrays.copyOfRange(integerChunks.get(chunk), offset, offset + sampleLength), sampleShape);
+            case DOUBLE:
+                return (T) Double.valueOf(doubleChunks.get(chunk)[offset]);
+            default:
+                return objects.get(index);
+        }
+    }
+
+    /**
+     * @return true if the samples are stored as columns of doubles, i.e. they are all double tensors of the same shape
+     * or all doubles
+     */
+    public boolean isDoubleColumns() {
+        return storage == Storage.DOUBLE_TENSOR || storage == Storage.DOUBLE;
+    }
+
+    /**
+     * @return true if the samples are all integer tensors of the same shape and are stored as columns of integers
+     */
+    public boolean isIntegerColumns() {
+        return storage == Storage.INTEGER_TENSOR;
+    }
+
+    /**
+     * @return the shape of every sample. Only available when the samples are stored as columns.
+     */
+    public long[] getSampleShape() {
+        checkIsColumns();
+        return sampleShape.clone();
+    }
+
+    /**
+     * @return the number of elements in each sample. Only available when the samples are stored as columns.
+     */
+    public int getSampleLength() {
+        checkIsColumns();
+        return sampleLength;
+    }
+
+    public void forEachDoubleSample(DoubleSampleVisitor visitor) {
+        Preconditions.checkState(isDoubleColumns(), "Samples are not stored as columns of doubles");
+        for (int i = 0; i < size; i++) {
+            visitor.visit(doubleChunks.get(i / samplesPerChunk), (i % samplesPerChunk) * sampleLength);
+        }
+    }
+
+    public void forEachIntegerSample(IntegerSampleVisitor visitor) {
+        Preconditions.checkState(isIntegerColumns(), "Samples are not stored as columns of integers");
+        for (int i = 0; i < size; i++) {
+            visitor.visit(integerChunks.get(i / samplesPerChunk), (i % samplesPerChunk) * sampleLength);
+        }
+    }
+
+    /**
+     * @param flatIndex the index of an element in the flattened sample
+     * @return the value of that element in every sample
+     */
+    public double[] getDoubleColumn(int flatIndex) {
+        Preconditions.checkElementIndex(flatIndex, getSampleLength());
+        double[] column = new double[size];
+        int[] i = {0};
+        forEachDoubleSample((chunk, offset) -> column[i[0]++] = chunk[offset + flatIndex]);
+        return column;
+    }
+
+    /**
+     * @return the values of all samples one after the other, i.e. the samples stacked along a new first dimension
+     */
+    public double[] asFlatDoubleArray() {
+        double[] flat = new double[Math.multiplyExact(size, getSampleLength())];
+        int[] i = {0};
+        forEachDoubleSample((chunk, offset) -> {
+            System.arraycopy(chunk, offset, flat, i[0] * sampleLength, sampleLength);
+            i[0]++;
+        });
+        return flat;
+    }
+
+    /**
+     * @return the values of all samples one after the other, i.e. the samples stacked along a new first dimension
+     */
+    public int[] asFlatIntegerArray() {
+        int[] flat = new int[Math.multiplyExact(size, getSampleLength())];
+        int[] i = {0};
+        forEachIntegerSample((chunk, offset) -> {
+            System.arraycopy(chunk, offset, flat, i[0] * sampleLength, sampleLength);
+            i[0]++;
+        });
+        return flat;
+    }
+
+    /**
+     * @param from the index of the first sample to copy
+     * @param to   the index after the last sample to copy
+     * @return a new list with the samples in [from, to)
+     */
+    public ColumnarSampleList<T> copyOfRange(int from, int to) {
+        Preconditions.checkPositionIndexes(from, to, size);
+        return copyOfEvery(from, to, 1);
+    }
+
+    /**
+     * @param interval the interval between copied samples
+     * @return a new list with every interval'th sample, starting with the first
+     */
+    public ColumnarSampleList<T> downSample(int interval) {
+        Preconditions.checkArgument(interval > 0, "Down sample interval of %s is invalid. Sample interval must be positive.", interval);
+        return copyOfEvery(0, size, interval);
+    }
+
+    private ColumnarSampleList<T> copyOfEvery(int from, int to, int interval) {
+        ColumnarSampleList<T> copy = new ColumnarSampleList<>();
+        copy.storage = storage;
+        copy.sampleShape = sampleShape;
+        copy.sampleLength = sampleLength;
+        copy.samplesPerChunk = samplesPerChunk;
+
+        if (storage == Storage.OBJECT) {
+            copy.objects = new ArrayList<>();
+        }
+
+        for (int i = from; i < to; i += interval) {
+            int chunk = i / samplesPerChunk;
+            int offset = (i % samplesPerChunk) * sampleLength;
+
+            switch (storage) {
+                case DOUBLE_TENSOR:
+                case DOUBLE:
+                    copy.appendDoubles(Arrays.copyOfRange(doubleChunks.get(chunk), offset, offset + sampleLength));
+                    break;
+                case INTEGER_TENSOR:
+                    copy.appendIntegers(Arrays.copyOfRange(integerChunks.get(chunk), offset, offset + sampleLength));
+                    break;
+                default:
+                    copy.objects.add(objects.get(i));
+            }
+            copy.size++;
+        }
+
+        return copy;
+    }
+
+    private void decideStorage(T sample) {
+        if (sample instanceof DoubleTensor) {
+            storage = Storage.DOUBLE_TENSOR;
+            sampleShape = ((DoubleTensor) sample).getShape();
+        } else if (sample instanceof IntegerTensor) {
+            storage = Storage.INTEGER_TENSOR;
+            sampleShape = ((IntegerTensor) sample).getShape();
+        } else if (sample instanceof Double) {
+            storage = Storage.DOUBLE;
+            sampleShape = new long[0];
+        } else {
+            storage = Storage.OBJECT;
+            objects = new ArrayList<>();
+            sampleLength = 1;
+            samplesPerChunk = 1;
+            return;
+        }
+
+        sampleLength = Math.toIntExact(TensorShape.getLength(sampleShape));
+        samplesPerChunk = Math.max(1, ELEMENTS_PER_CHUNK / Math.max(1, sampleLength));
+    }
+
+    private void appendDoubles(double[] values) {
+        int offset = (size % samplesPerChunk) * sampleLength;
+        double[] chunk = size % samplesPerChunk == 0 ? newDoubleChunk() : doubleChunks.get(doubleChunks.size() - 1);
+
+        if (chunk.length < offset + sampleLength) {
+            chunk = Arrays.copyOf(chunk, Math.min(2 * chunk.length, samplesPerChunk * sampleLength));
+            doubleChunks.set(doubleChunks.size() - 1, chunk);
+        }
+
+        System.arraycopy(values, 0, chunk, offset, sampleLength);
+    }
+
+    private void appendIntegers(int[] values) {
+        int offset = (size % samplesPerChunk) * sampleLength;
+        int[] chunk = size % samplesPerChunk == 0 ? newIntegerChunk() : integerChunks.get(integerChunks.size() - 1);
+
+        if (chunk.length < offset + sampleLength) {
+            chunk = Arrays.copyOf(chunk, Math.min(2 * chunk.length, samplesPerChunk * sampleLength));
+            integerChunks.set(integerChunks.size() - 1, chunk);
+        }
+
+        System.arraycopy(values, 0, chunk, offset, sampleLength);
+    }
+
+    /**
+     * The first chunk starts small and doubles until it holds samplesPerChunk samples, so that a short run does not
+     * allocate a full chunk per variable. Later chunks are allocated at full size.
+     */
+    private double[] newDoubleChunk() {
+        double[] chunk = new double[initialChunkSamples(doubleChunks.isEmpty()) * sampleLength];
+        doubleChunks.add(chunk);
+        return chunk;
+    }
+
+    private int[] newIntegerChunk() {
+        int[] chunk = new int[initialChunkSamples(integerChunks.isEmpty()) * sampleLength];
+        integerChunks.add(chunk);
+        return chunk;
+    }
+
+    private int initialChunkSamples(boolean isFirstChunk) {
+        return isFirstChunk ? Math.min(INITIAL_CHUNK_SAMPLES, samplesPerChunk) : samplesPerChunk;
+    }
+
+    private void storeAsObjects() {
+        List<T> asObjects = new ArrayList<>(size + 1);
+        for (int i = 0; i < size; i++) {
+            asObjects.add(get(i));
+        }
+
+        storage = Storage.OBJECT;
+        objects = asObjects;
+        samplesPerChunk = 1;
+        sampleLength = 1;
+        doubleChunks.clear();
+        integerChunks.clear();
+    }
+
+    private void checkIsColumns() {
+        Preconditions.checkState(isDoubleColumns() || isIntegerColumns(), "Samples are not stored as columns");
+    }
+}
@@ -0,0 +1,122 @@
+package io.improbable.keanu.algorithms;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The samples of several independent chains. Each chain can be inspected on its own, e.g. for convergence
+ * diagnostics, or all chains can be merged into a single {@link NetworkSamples}.
+ * <p>
+ * As each chain samples from its own copy of a model, the merged samples are keyed by the variables of the first
+ * chain. The variables of every other chain are matched to them by position.
+ */
+public class MultiChainNetworkSamples {
+
+    private final List<NetworkSamples> samplesPerChain;
+    private final List<VariableReference> mergedReferences;
+    private final List<List<VariableReference>> referencesPerChain;
+    private final int[] chainStartIndex;
+
+    public MultiChainNetworkSamples(List<NetworkSamples> samplesPerChain,
+                                    List<? extends List<? extends Variable>> variablesPerChain) {
+        Preconditions.checkArgument(!samplesPerChain.isEmpty(), "No chains provided.");
+        Preconditions.checkArgument(
+            samplesPerChain.size() == variablesPerChain.size(),
+            "Expected variables for each of the %s chains but got %s",
+            samplesPerChain.size(), variablesPerChain.size()
+        );
+
+        this.samplesPerChain = Collections.unmodifiableList(new ArrayList<>(samplesPerChain));
+        this.referencesPerChain = new ArrayList<>(variablesPerChain.size());
+        for (List<? extends Variable> variables : variablesPerChain) {
+            List<VariableReference> references = new ArrayList<>(variables.size());
+            for (Variable variable : variables) {
+                references.add(variable.getReference());
+            }
+            referencesPerChain.add(references);
+        }
+        this.mergedReferences = referencesPerChain.get(0);
+
+        this.chainStartIndex = new int[samplesPerChain.size() + 1];
+        for (int chain = 0; chain < samplesPerChain.size(); chain++) {
+            chainStartIndex[chain + 1] = chainStartIndex[chain] + samplesPerChain.get(chain).size();
+        }
+    }
+
+    public int getChainCount() {
+        return samplesPerChain.size();
+    }
+
+    /**
+     * @param chainIndex the index of the chain
+     * @return the samples of a single chain, keyed by that chain's own variables
+     */
+    public NetworkSamples getChain(int chainIndex) {
+        return samplesPerChain.get(chainIndex);
+    }
+
+    public List<NetworkSamples> getChains() {
+        return samplesPerChain;
+    }
+
+    /**
+     * Finds the chain by a binary search of the offsets of the chains, so it takes O(log chains).
+     *
+     * @param sampleIndex an index into the merged samples
+     * @return the index of the chain that the merged sample came from
+     */
+    public int getChainIndex(int sampleIndex) {
+        Preconditions.checkElementIndex(sampleIndex, size());
+        int low = 0;
+        int high = samplesPerChain.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (chainStartIndex[middle] <= sampleIndex) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the total number of samples across all chains
+     */
+    public int size() {
+        return chainStartIndex[samplesPerChain.size()];
+    }
+
+    /**
+     * @return the samples of every chain concatenated in chain order and keyed by the variables of the first chain.
+     * Use {@link #getChainIndex(int)} to find which chain a merged sample came from.
+     */
+    public NetworkSamples merged() {
+        Map<VariableReference, List<Object>> samplesByVariable = new HashMap<>();
+        List<Double> logOfMasterPForEachSample = new ColumnarSampleList<>();
+
+        for (VariableReference reference : mergedReferences) {
+            samplesByVariable.put(reference, new ColumnarSampleList<>());
+        }
+
+        for (int chain = 0; chain < samplesPerChain.size(); chain++) {
+            NetworkSamples chainSamples = samplesPerChain.get(chain);
+            List<VariableReference> chainReferences = referencesPerChain.get(chain);
+
+            for (int i = 0; i < mergedReferences.size(); i++) {
+                samplesByVariable.get(mergedReferences.get(i)).addAll(chainSamples.get(chainReferences.get(i)).asList());
+            }
+
+            for (int sample = 0; sample < chainSamples.size(); sample++) {
+                logOfMasterPForEachSample.add(chainSamples.getLogOfMasterP(sample));
+            }
+        }
+
+        return new NetworkSamples(samplesByVariable, logOfMasterPForEachSample, size());
+    }
+}
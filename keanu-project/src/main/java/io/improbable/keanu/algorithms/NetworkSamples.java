@@ -23,6 +23,9 @@ import static java.util.stream.Collectors.toMap;
 /**
  * An immutable collection of network samples. A network sample is a collection
  * of values from variables in a network at a given point in time.
+ * <p>
+ * The samples of each variable are usually held in a {@link ColumnarSampleList}, which stores double and integer
+ * tensors as columns of primitives.
  */
 @Slf4j
 public class NetworkSamples {
@@ -39,7 +42,7 @@ public class NetworkSamples {
 
     public static NetworkSamples from(List<NetworkSample> networkSamples) {
         Map<VariableReference, List<?>> samplesByVariable = new HashMap<>();
-        List<Double> logOfMasterPForEachSample = new ArrayList<>();
+        List<Double> logOfMasterPForEachSample = new ColumnarSampleList<>();
 
         networkSamples.forEach(networkSample -> addSamplesForNetworkSample(networkSample, samplesByVariable));
         networkSamples.forEach(networkSample -> logOfMasterPForEachSample.add(networkSample.getLogOfMasterP()));
@@ -53,7 +56,7 @@ public class NetworkSamples {
     }
 
     private static <T> void addSampleForVariable(VariableReference variableReference, T value, Map<VariableReference, List<?>> samples) {
-        List<T> samplesForVertex = (List<T>) samples.computeIfAbsent(variableReference, v -> new ArrayList<T>());
+        List<T> samplesForVertex = (List<T>) samples.computeIfAbsent(variableReference, v -> new ColumnarSampleList<T>());
         samplesForVertex.add(value);
     }
 
@@ -69,6 +72,18 @@ public class NetworkSamples {
         return new Samples<>((List<T>) samplesByVariable.get(variableReference));
     }
 
+    /**
+     * @param variableReference the reference to the variable to get the samples of
+     * @return the samples of the variable as they are stored, usually a {@link ColumnarSampleList}, without copying
+     * them. The list must not be modified.
+     * @throws IllegalArgumentException if there are no samples of the variable
+     */
+    public List<?> getStoredSamples(VariableReference variableReference) {
+        List<?> samples = samplesByVariable.get(variableReference);
+        Preconditions.checkArgument(samples != null, "There are no samples of %s", variableReference);
+        return samples;
+    }
+
     public DoubleVertexSamples getDoubleTensorSamples(Variable<DoubleTensor, ?> variable) {
         return getDoubleTensorSamples(variable.getReference());
     }
@@ -94,9 +109,9 @@ public class NetworkSamples {
         final Map<VariableReference, List<?>> withSamplesDropped = samplesByVariable.entrySet().parallelStream()
             .collect(toMap(
                 Map.Entry::getKey,
-                e -> e.getValue().subList(dropCount, size))
+                e -> drop((List<?>) e.getValue(), dropCount))
             );
-        final List<Double> withLogProbsDropped = logOfMasterPForEachSample.subList(dropCount, size);
+        final List<Double> withLogProbsDropped = drop(logOfMasterPForEachSample, dropCount);
 
         return new NetworkSamples(withSamplesDropped, withLogProbsDropped, size - dropCount);
     }
@@ -115,8 +130,19 @@ public class NetworkSamples {
         return new NetworkSamples(withSamplesDownSampled, withLogProbsDownSampled, size / downSampleInterval);
     }
 
+    private static <T> List<T> drop(final List<T> samples, final int dropCount) {
+        if (samples instanceof ColumnarSampleList) {
+            return ((ColumnarSampleList<T>) samples).copyOfRange(dropCount, samples.size());
+        }
+        return samples.subList(dropCount, samples.size());
+    }
+
     private static <T> List<T> downSample(final List<T> samples, final int downSampleInterval) {
 
+        if (samples instanceof ColumnarSampleList) {
+            return ((ColumnarSampleList<T>) samples).downSample(downSampleInterval);
+        }
+
         List<T> downSampled = new ArrayList<>();
         int i = 0;
 
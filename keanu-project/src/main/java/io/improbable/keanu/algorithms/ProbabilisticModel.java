@@ -19,6 +19,22 @@ public interface ProbabilisticModel {
 
     double logProbAfter(Map<VariableReference, Object> newValues, double logProbBefore);
 
+    /**
+     * Calculates the log prob at many points. This is equivalent to calling {@link #logProb(Map)} for each point, but
+     * implementations may evaluate the points together.
+     *
+     * @param points the values of some latent variables at each point. Variables missing from a point keep their
+     *               current value.
+     * @return the log prob at each point, in the order of the points
+     */
+    default double[] batchLogProb(List<? extends Map<VariableReference, ?>> points) {
+        double[] logProbs = new double[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            logProbs[i] = logProb(points.get(i));
+        }
+        return logProbs;
+    }
+
     default double logLikelihood() {
         return logLikelihood(Collections.emptyMap());
     }
@@ -2,6 +2,8 @@ package io.improbable.keanu.algorithms;
 
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -13,6 +15,20 @@ public interface ProbabilisticModelWithGradient extends ProbabilisticModel {
 
     Map<? extends VariableReference, DoubleTensor> logProbGradients();
 
+    /**
+     * Calculates the gradient of the log prob at many points.
+     *
+     * @param points the values of some latent variables at each point
+     * @return the gradient of the log prob with respect to the latent variables at each point, in the order of the points
+     */
+    default List<Map<? extends VariableReference, DoubleTensor>> batchLogProbGradients(List<? extends Map<VariableReference, ?>> points) {
+        List<Map<? extends VariableReference, DoubleTensor>> gradients = new ArrayList<>(points.size());
+        for (Map<VariableReference, ?> point : points) {
+            gradients.add(logProbGradients(point));
+        }
+        return gradients;
+    }
+
     Map<? extends VariableReference, DoubleTensor> logLikelihoodGradients(Map<VariableReference, ?> inputs);
 
     Map<? extends VariableReference, DoubleTensor> logLikelihoodGradients();
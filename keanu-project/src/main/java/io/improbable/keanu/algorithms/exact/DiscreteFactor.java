@@ -0,0 +1,262 @@
+package io.improbable.keanu.algorithms.exact;
+
+import java.util.Arrays;
+
+/**
+ * A non-negative function of some discrete variables, stored as a dense table of doubles.
+ * <p>
+ * The variables are identified by their index and kept in ascending order. The table is in row-major order, so the
+ * state of the last variable changes fastest. The value of an entry is {@code exp(logScale) * values[i]}, which
+ * keeps the values near one however many factors are multiplied together.
+ */
+final class DiscreteFactor {
+
+    private final int[] variables;
+    private final int[] cardinalities;
+    private final double[] values;
+    private final double logScale;
+
+    DiscreteFactor(int[] variables, int[] cardinalities, double[] values, double logScale) {
+        this.variables = variables;
+        this.cardinalities = cardinalities;
+        this.values = values;
+        this.logScale = logScale;
+    }
+
+    /**
+     * @param variables     the variables of the factor in ascending order
+     * @param cardinalities the number of states of each variable
+     * @return a factor that is one everywhere
+     */
+    static DiscreteFactor unit(int[] variables, int[] cardinalities) {
+        double[] values = new double[sizeOf(cardinalities)];
+        Arrays.fill(values, 1.0);
+        return new DiscreteFactor(variables, cardinalities, values, 0.0);
+    }
+
+    int[] getVariables() {
+        return variables;
+    }
+
+    int[] getCardinalities() {
+        return cardinalities;
+    }
+
+    double[] getValues() {
+        return values;
+    }
+
+    double getLogScale() {
+        return logScale;
+    }
+
+    boolean contains(int variable) {
+        return Arrays.binarySearch(variables, variable) >= 0;
+    }
+
+    /**
+     * @return the log of the sum of every entry
+     */
+    double logSum() {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return Math.log(sum) + logScale;
+    }
+
+    DiscreteFactor times(DiscreteFactor other) {
+        int[] productVariables = union(variables, other.variables);
+        int[] productCardinalities = new int[productVariables.length];
+        int[] strides = new int[productVariables.length];
+        int[] otherStrides = new int[productVariables.length];
+
+        for (int i = 0; i < productVariables.length; i++) {
+            int variable = productVariables[i];
+            int index = Arrays.binarySearch(variables, variable);
+            int otherIndex = Arrays.binarySearch(other.variables, variable);
+            productCardinalities[i] = index >= 0 ? cardinalities[index] : other.cardinalities[otherIndex];
+            strides[i] = index >= 0 ? strideOf(cardinalities, index) : 0;
+            otherStrides[i] = otherIndex >= 0 ? strideOf(other.cardinalities, otherIndex) : 0;
+        }
+
+        double[] product = new double[sizeOf(productCardinalities)];
+        int[] assignment = new int[productVariables.length];
+        int index = 0;
+        int otherIndex = 0;
+        for (int i = 0; i < product.length; i++) {
+            product[i] = values[index] * other.values[otherIndex];
+
+            for (int j = productVariables.length - 1; j >= 0; j--) {
+                assignment[j]++;
+                index += strides[j];
+                otherIndex += otherStrides[j];
+                if (assignment[j] < productCardinalities[j]) {
+                    break;
+                }
+                assignment[j] = 0;
+                index -= strides[j] * productCardinalities[j];
+                otherIndex -= otherStrides[j] * productCardinalities[j];
+            }
+        }
+
+        return new DiscreteFactor(productVariables, productCardinalities, product, logScale + other.logScale).rescaled();
+    }
+
+    /**
+     * @param variable a variable of the factor
+     * @return the factor with the variable summed out
+     */
+    DiscreteFactor sumOut(int variable) {
+        return eliminate(variable, false);
+    }
+
+    /**
+     * @param variable a variable of the factor
+     * @return the factor with the variable maximised out
+     */
+    DiscreteFactor maxOut(int variable) {
+        return eliminate(variable, true);
+    }
+
+    /**
+     * @param keep the variables to keep
+     * @return the factor with every variable that is not kept summed out
+     */
+    DiscreteFactor sumOutAllExcept(int[] keep) {
+        DiscreteFactor result = this;
+        for (int variable : variables) {
+            if (Arrays.binarySearch(keep, variable) < 0) {
+                result = result.sumOut(variable);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param variable   a variable of the factor
+     * @param assignment the states of every variable, indexed by variable
+     * @return the state of the variable with the largest value given the states of the other variables
+     */
+    int argMax(int variable, int[] assignment) {
+        int position = Arrays.binarySearch(variables, variable);
+        int offset = 0;
+        for (int i = 0; i < variables.length; i++) {
+            if (i != position) {
+                offset += assignment[variables[i]] * strideOf(cardinalities, i);
+            }
+        }
+
+        int stride = strideOf(cardinalities, position);
+        int best = 0;
+        for (int state = 1; state < cardinalities[position]; state++) {
+            if (values[offset + state * stride] > values[offset + best * stride]) {
+                best = state;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the entries of a factor of one variable, divided by their sum
+     */
+    double[] normalised() {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        if (!(sum > 0)) {
+            throw new IllegalStateException("The observations have zero probability");
+        }
+
+        double[] normalised = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            normalised[i] = values[i] / sum;
+        }
+        return normalised;
+    }
+
+    private DiscreteFactor eliminate(int variable, boolean max) {
+        int position = Arrays.binarySearch(variables, variable);
+        int[] remainingVariables = new int[variables.length - 1];
+        int[] remainingCardinalities = new int[variables.length - 1];
+        for (int i = 0, j = 0; i < variables.length; i++) {
+            if (i != position) {
+                remainingVariables[j] = variables[i];
+                remainingCardinalities[j] = cardinalities[i];
+                j++;
+            }
+        }
+
+        int cardinality = cardinalities[position];
+        int stride = strideOf(cardinalities, position);
+        int outer = values.length / (cardinality * stride);
+        double[] result = new double[values.length / cardinality];
+
+        for (int o = 0; o < outer; o++) {
+            for (int inner = 0; inner < stride; inner++) {
+                int from = o * cardinality * stride + inner;
+                double accumulated = values[from];
+                for (int state = 1; state < cardinality; state++) {
+                    double value = values[from + state * stride];
+                    accumulated = max ? Math.max(accumulated, value) : accumulated + value;
+                }
+                result[o * stride + inner] = accumulated;
+            }
+        }
+
+        return new DiscreteFactor(remainingVariables, remainingCardinalities, result, logScale).rescaled();
+    }
+
+    private DiscreteFactor rescaled() {
+        double max = 0;
+        for (double value : values) {
+            max = Math.max(max, value);
+        }
+        if (max == 1.0) {
+            return this;
+        }
+        if (max == 0.0) {
+            return new DiscreteFactor(variables, cardinalities, values, Double.NEGATIVE_INFINITY);
+        }
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] /= max;
+        }
+        return new DiscreteFactor(variables, cardinalities, values, logScale + Math.log(max));
+    }
+
+    private static int strideOf(int[] cardinalities, int position) {
+        int stride = 1;
+        for (int i = position + 1; i < cardinalities.length; i++) {
+            stride *= cardinalities[i];
+        }
+        return stride;
+    }
+
+    static int sizeOf(int[] cardinalities) {
+        int size = 1;
+        for (int cardinality : cardinalities) {
+            size = Math.multiplyExact(size, cardinality);
+        }
+        return size;
+    }
+
+    static int[] union(int[] a, int[] b) {
+        int[] union = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                union[k++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                union[k++] = b[j++];
+            } else {
+                union[k++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(union, k);
+    }
+}
@@ -0,0 +1,189 @@
+package io.improbable.keanu.algorithms.exact;
+
+import io.improbable.keanu.algorithms.graphtraversal.VertexValuePropagation;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.vertices.NonProbabilistic;
+import io.improbable.keanu.vertices.Probabilistic;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexState;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A network compiled into one factor per probabilistic vertex, giving the probability of each of its states for each
+ * combination of states of the probabilistic vertices its parameters depend on, and one factor per observed
+ * non-probabilistic vertex, which is one where its calculated value matches the observation and zero elsewhere.
+ * <p>
+ * The factors are filled in by setting the values of the vertices and evaluating the graph, so the parameters of a
+ * vertex may be any non-probabilistic function of discrete vertices, e.g. a {@link
+ * io.improbable.keanu.vertices.generic.nonprobabilistic.CPTVertex}.
+ */
+@Getter
+class DiscreteNetwork {
+
+    private final List<DiscreteVariable> variables;
+    private final List<DiscreteFactor> factors;
+    private final Map<Vertex<?>, DiscreteVariable> variablesByVertex;
+
+    private DiscreteNetwork(List<DiscreteVariable> variables,
+                            List<DiscreteFactor> factors,
+                            Map<Vertex<?>, DiscreteVariable> variablesByVertex) {
+        this.variables = variables;
+        this.factors = factors;
+        this.variablesByVertex = variablesByVertex;
+    }
+
+    /**
+     * Compiles the network as it is observed now. The values of the vertices are restored afterwards.
+     *
+     * @param network a network whose latent vertices are all scalar Bernoulli or Categorical vertices
+     * @return the compiled network
+     * @throws IllegalArgumentException if the network has a vertex that is not supported
+     */
+    static DiscreteNetwork compile(BayesianNetwork network) {
+        List<DiscreteVariable> variables = new ArrayList<>();
+        Map<Vertex<?>, DiscreteVariable> variablesByVertex = new HashMap<>();
+        List<Vertex> observedNonProbabilistic = new ArrayList<>();
+
+        for (Vertex<?> vertex : network.getLatentOrObservedVertices()) {
+            if (vertex.isProbabilistic()) {
+                DiscreteVariable variable = DiscreteVariable.of(variables.size(), vertex);
+                variables.add(variable);
+                variablesByVertex.put(vertex, variable);
+            } else {
+                observedNonProbabilistic.add(vertex);
+            }
+        }
+
+        Map<Vertex<?>, VertexState<?>> originalStates = new HashMap<>();
+        for (DiscreteVariable variable : variables) {
+            originalStates.put(variable.getVertex(), variable.getVertex().getState());
+        }
+
+        List<DiscreteFactor> factors = new ArrayList<>();
+        try {
+            for (DiscreteVariable variable : variables) {
+                Vertex<?> vertex = variable.getVertex();
+                List<DiscreteVariable> scope = scopeOf(vertex, variablesByVertex);
+                scope.add(variable);
+                factors.add(tabulate(scope, () -> ((Probabilistic) vertex).logProb(variable.getVertex().getValue())));
+            }
+            for (Vertex<?> vertex : observedNonProbabilistic) {
+                List<DiscreteVariable> scope = scopeOf(vertex, variablesByVertex);
+                factors.add(tabulate(scope, () ->
+                    ((NonProbabilistic<?>) vertex).contradictsObservation() ? Double.NEGATIVE_INFINITY : 0.0
+                ));
+            }
+        } finally {
+            for (Map.Entry<Vertex<?>, VertexState<?>> original : originalStates.entrySet()) {
+                ((Vertex) original.getKey()).setState(original.getValue());
+            }
+            VertexValuePropagation.cascadeUpdate(originalStates.keySet());
+        }
+
+        return new DiscreteNetwork(variables, factors, variablesByVertex);
+    }
+
+    /**
+     * @param vertex            a vertex
+     * @param variablesByVertex the variables of the network
+     * @return the variables that the value or probability of the vertex depends on through its parents
+     */
+    private static List<DiscreteVariable> scopeOf(Vertex<?> vertex, Map<Vertex<?>, DiscreteVariable> variablesByVertex) {
+        Set<Vertex> visited = new HashSet<>();
+        List<Vertex> toVisit = new ArrayList<>(vertex.getParents());
+        Set<DiscreteVariable> scope = new HashSet<>();
+
+        while (!toVisit.isEmpty()) {
+            Vertex visiting = toVisit.remove(toVisit.size() - 1);
+            if (!visited.add(visiting)) {
+                continue;
+            }
+
+            if (visiting.isProbabilistic()) {
+                DiscreteVariable variable = variablesByVertex.get(visiting);
+                if (variable == null) {
+                    throw new IllegalArgumentException(vertex + " depends on " + visiting + ", which is not in the network");
+                }
+                scope.add(variable);
+            } else if (!visiting.isObserved()) {
+                toVisit.addAll(visiting.getParents());
+            }
+        }
+
+        return new ArrayList<>(scope);
+    }
+
+    private interface LogProbability {
+        double get();
+    }
+
+    /**
+     * Evaluates the log probability at every combination of states of the variables in the scope.
+     */
+    private static DiscreteFactor tabulate(List<DiscreteVariable> scope, LogProbability logProbability) {
+        scope.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+
+        int[] variables = new int[scope.size()];
+        int[] cardinalities = new int[scope.size()];
+        List<Vertex> vertices = new ArrayList<>(scope.size());
+        for (int i = 0; i < scope.size(); i++) {
+            variables[i] = scope.get(i).getIndex();
+            cardinalities[i] = scope.get(i).getCardinality();
+            vertices.add(scope.get(i).getVertex());
+        }
+
+        double[] logValues = new double[DiscreteFactor.sizeOf(cardinalities)];
+        int[] assignment = new int[scope.size()];
+        double maxLogValue = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < logValues.length; i++) {
+            for (int j = 0; j < scope.size(); j++) {
+                vertices.get(j).setValue(scope.get(j).getStates().get(assignment[j]));
+            }
+            VertexValuePropagation.cascadeUpdate(vertices);
+
+            logValues[i] = logProbability.get();
+            maxLogValue = Math.max(maxLogValue, logValues[i]);
+
+            for (int j = scope.size() - 1; j >= 0; j--) {
+                if (++assignment[j] < cardinalities[j]) {
+                    break;
+                }
+                assignment[j] = 0;
+            }
+        }
+
+        if (maxLogValue == Double.NEGATIVE_INFINITY) {
+            return new DiscreteFactor(variables, cardinalities, new double[logValues.length], Double.NEGATIVE_INFINITY);
+        }
+
+        double[] values = new double[logValues.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(logValues[i] - maxLogValue);
+        }
+        return new DiscreteFactor(variables, cardinalities, values, maxLogValue);
+    }
+
+    DiscreteVariable getVariable(Vertex<?> vertex) {
+        DiscreteVariable variable = variablesByVertex.get(vertex);
+        if (variable == null) {
+            throw new IllegalArgumentException(vertex + " is not a probabilistic vertex of the network");
+        }
+        return variable;
+    }
+
+    int[] getCardinalities() {
+        int[] cardinalities = new int[variables.size()];
+        for (DiscreteVariable variable : variables) {
+            cardinalities[variable.getIndex()] = variable.getCardinality();
+        }
+        return cardinalities;
+    }
+}
@@ -0,0 +1,69 @@
+package io.improbable.keanu.algorithms.exact;
+
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.bool.probabilistic.BernoulliVertex;
+import io.improbable.keanu.vertices.generic.probabilistic.discrete.CategoricalVertex;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A probabilistic vertex with a finite number of states. An observed vertex has a single state, its observed value,
+ * which is how observations are taken into account.
+ */
+@Getter
+class DiscreteVariable {
+
+    private final int index;
+    private final Vertex<?> vertex;
+    private final List<?> states;
+
+    private DiscreteVariable(int index, Vertex<?> vertex, List<?> states) {
+        this.index = index;
+        this.vertex = vertex;
+        this.states = states;
+    }
+
+    /**
+     * @param index  the index of the variable in the factors
+     * @param vertex an observed probabilistic vertex, or a latent scalar {@link BernoulliVertex} or
+     *               {@link CategoricalVertex}
+     * @return the variable
+     * @throws IllegalArgumentException if the vertex is latent and not a scalar vertex of a supported distribution
+     */
+    static DiscreteVariable of(int index, Vertex<?> vertex) {
+        if (vertex.isObserved()) {
+            return new DiscreteVariable(index, vertex, Collections.singletonList(vertex.getValue()));
+        }
+
+        if (!(vertex instanceof BernoulliVertex || vertex instanceof CategoricalVertex)) {
+            throw new IllegalArgumentException(
+                "Exact inference only supports latent Bernoulli and Categorical vertices but the network has " + vertex
+            );
+        }
+        if (!Arrays.equals(vertex.getShape(), Tensor.SCALAR_SHAPE)) {
+            throw new IllegalArgumentException(
+                "Exact inference only supports scalar latent vertices but " + vertex + " has shape " + Arrays.toString(vertex.getShape())
+            );
+        }
+
+        if (vertex instanceof BernoulliVertex) {
+            return new DiscreteVariable(index, vertex, Arrays.asList(BooleanTensor.scalar(false), BooleanTensor.scalar(true)));
+        }
+
+        List<Object> states = new ArrayList<>();
+        for (Object category : ((CategoricalVertex<?, ?>) vertex).getSelectableValues().keySet()) {
+            states.add(Tensor.scalar(category));
+        }
+        return new DiscreteVariable(index, vertex, states);
+    }
+
+    int getCardinality() {
+        return states.size();
+    }
+}
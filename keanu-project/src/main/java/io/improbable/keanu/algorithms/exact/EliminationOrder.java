@@ -0,0 +1,111 @@
+package io.improbable.keanu.algorithms.exact;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Chooses the order in which to eliminate the variables of a set of factors.
+ */
+final class EliminationOrder {
+
+    private EliminationOrder() {
+    }
+
+    /**
+     * Greedily eliminates the variable that adds the fewest edges between its neighbours in the graph of the
+     * factors, breaking ties by the size of the factor that eliminating it creates.
+     *
+     * @param cardinalities the number of states of each variable
+     * @param factors       the factors the variables appear in
+     * @return the indices of the variables in the order to eliminate them
+     */
+    static int[] minFill(int[] cardinalities, List<DiscreteFactor> factors) {
+        int variableCount = cardinalities.length;
+        List<Set<Integer>> neighbours = neighboursOf(variableCount, factors);
+        boolean[] eliminated = new boolean[variableCount];
+        int[] order = new int[variableCount];
+
+        for (int position = 0; position < variableCount; position++) {
+            int best = -1;
+            long bestFill = Long.MAX_VALUE;
+            double bestWeight = Double.POSITIVE_INFINITY;
+
+            for (int variable = 0; variable < variableCount; variable++) {
+                if (eliminated[variable]) {
+                    continue;
+                }
+
+                long fill = fillOf(neighbours, variable);
+                double weight = Math.log(cardinalities[variable]);
+                for (int neighbour : neighbours.get(variable)) {
+                    weight += Math.log(cardinalities[neighbour]);
+                }
+
+                if (fill < bestFill || (fill == bestFill && weight < bestWeight)) {
+                    best = variable;
+                    bestFill = fill;
+                    bestWeight = weight;
+                }
+            }
+
+            order[position] = best;
+            eliminated[best] = true;
+            eliminate(neighbours, best);
+        }
+
+        return order;
+    }
+
+    /**
+     * @return the variables that share a factor with each variable
+     */
+    static List<Set<Integer>> neighboursOf(int variableCount, List<DiscreteFactor> factors) {
+        List<Set<Integer>> neighbours = new ArrayList<>(variableCount);
+        for (int i = 0; i < variableCount; i++) {
+            neighbours.add(new HashSet<>());
+        }
+
+        for (DiscreteFactor factor : factors) {
+            for (int a : factor.getVariables()) {
+                for (int b : factor.getVariables()) {
+                    if (a != b) {
+                        neighbours.get(a).add(b);
+                    }
+                }
+            }
+        }
+        return neighbours;
+    }
+
+    /**
+     * Connects the neighbours of the variable to each other and removes the variable from the graph.
+     */
+    static void eliminate(List<Set<Integer>> neighbours, int variable) {
+        Set<Integer> variableNeighbours = neighbours.get(variable);
+        for (int a : variableNeighbours) {
+            neighbours.get(a).remove(variable);
+            for (int b : variableNeighbours) {
+                if (a != b) {
+                    neighbours.get(a).add(b);
+                }
+            }
+        }
+        neighbours.set(variable, new HashSet<>());
+    }
+
+    private static long fillOf(List<Set<Integer>> neighbours, int variable) {
+        long fill = 0;
+        List<Integer> variableNeighbours = new ArrayList<>(neighbours.get(variable));
+        for (int i = 0; i < variableNeighbours.size(); i++) {
+            Set<Integer> neighboursOfI = neighbours.get(variableNeighbours.get(i));
+            for (int j = i + 1; j < variableNeighbours.size(); j++) {
+                if (!neighboursOfI.contains(variableNeighbours.get(j))) {
+                    fill++;
+                }
+            }
+        }
+        return fill;
+    }
+}
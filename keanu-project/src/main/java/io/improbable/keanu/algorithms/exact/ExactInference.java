@@ -0,0 +1,139 @@
+package io.improbable.keanu.algorithms.exact;
+
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.vertices.Vertex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exact inference on a network of discrete vertices, as an alternative to sampling when the network is small or
+ * sparse enough for the joint distribution to be summed over exactly.
+ * <p>
+ * The latent vertices must be scalar {@link io.improbable.keanu.vertices.bool.probabilistic.BernoulliVertex}s or
+ * {@link io.improbable.keanu.vertices.generic.probabilistic.discrete.CategoricalVertex}s, whose parameters can be
+ * any non-probabilistic function of other latent vertices, e.g. a
+ * {@link io.improbable.keanu.vertices.generic.nonprobabilistic.ConditionalProbabilityTable}. Observed vertices can be
+ * of any kind, as long as what they depend on is discrete.
+ * <p>
+ * The network is compiled into a table per vertex when this is created, taking into account the observations at
+ * that time, so create a new one after observing or unobserving a vertex. Marginals come from a junction tree that is
+ * built on the first query and reused after that. The most probable state is found by variable elimination. Both use
+ * a min-fill elimination order.
+ * <p>
+ * Usage:
+ * <pre>
+ * ExactInference inference = ExactInference.of(new BayesianNetwork(fault.getConnectedGraph()));
+ * double probabilityOfFault = inference.getMarginal(fault).get(BooleanTensor.scalar(true));
+ * </pre>
+ */
+public class ExactInference {
+
+    private final DiscreteNetwork network;
+    private final int[] cardinalities;
+    private final int[] eliminationOrder;
+    private JunctionTree junctionTree;
+
+    private ExactInference(DiscreteNetwork network) {
+        this.network = network;
+        this.cardinalities = network.getCardinalities();
+        this.eliminationOrder = EliminationOrder.minFill(cardinalities, network.getFactors());
+    }
+
+    /**
+     * @param network a network whose latent vertices are all scalar Bernoulli or Categorical vertices
+     * @return exact inference on the network with its current observations
+     * @throws IllegalArgumentException if the network has a vertex that is not supported
+     */
+    public static ExactInference of(BayesianNetwork network) {
+        return new ExactInference(DiscreteNetwork.compile(network));
+    }
+
+    /**
+     * @param vertex a probabilistic vertex of the network
+     * @param <T>    the type of the values of the vertex
+     * @return the probability of each value of the vertex given the observations. An observed vertex has its
+     * observed value with probability one.
+     * @throws IllegalArgumentException if the vertex is not a probabilistic vertex of the network
+     * @throws IllegalStateException    if the observations have zero probability
+     */
+    public <T> Map<T, Double> getMarginal(Vertex<T> vertex) {
+        DiscreteVariable variable = network.getVariable(vertex);
+        double[] probabilities = getJunctionTree().marginal(variable.getIndex());
+
+        Map<T, Double> marginal = new LinkedHashMap<>();
+        for (int state = 0; state < probabilities.length; state++) {
+            marginal.put((T) variable.getStates().get(state), probabilities[state]);
+        }
+        return marginal;
+    }
+
+    /**
+     * @return the log of the probability of the observations, summed over every state of the latent vertices. If an
+     * observed vertex is continuous this is a log density.
+     */
+    public double getLogProbOfObservations() {
+        return getJunctionTree().getLogProbOfObservations();
+    }
+
+    /**
+     * @return the most probable state of every probabilistic vertex given the observations, and the log of the joint
+     * probability of that state and the observations
+     * @throws IllegalStateException if the observations have zero probability
+     */
+    public NetworkSample getMostProbableState() {
+        List<DiscreteFactor> factors = new ArrayList<>(network.getFactors());
+        DiscreteFactor[] maximisedOver = new DiscreteFactor[cardinalities.length];
+
+        for (int variable : eliminationOrder) {
+            DiscreteFactor product = null;
+            List<DiscreteFactor> remaining = new ArrayList<>(factors.size());
+            for (DiscreteFactor factor : factors) {
+                if (factor.contains(variable)) {
+                    product = product == null ? factor : product.times(factor);
+                } else {
+                    remaining.add(factor);
+                }
+            }
+
+            if (product == null) {
+                product = DiscreteFactor.unit(new int[]{variable}, new int[]{cardinalities[variable]});
+            }
+            maximisedOver[variable] = product;
+            remaining.add(product.maxOut(variable));
+            factors = remaining;
+        }
+
+        double logOfMasterP = 0;
+        for (DiscreteFactor factor : factors) {
+            logOfMasterP += factor.logSum();
+        }
+        if (logOfMasterP == Double.NEGATIVE_INFINITY) {
+            throw new IllegalStateException("The observations have zero probability");
+        }
+
+        int[] assignment = new int[cardinalities.length];
+        for (int position = eliminationOrder.length - 1; position >= 0; position--) {
+            int variable = eliminationOrder[position];
+            assignment[variable] = maximisedOver[variable].argMax(variable, assignment);
+        }
+
+        Map<VariableReference, Object> state = new HashMap<>();
+        for (DiscreteVariable variable : network.getVariables()) {
+            state.put(variable.getVertex().getReference(), variable.getStates().get(assignment[variable.getIndex()]));
+        }
+        return new NetworkSample(state, logOfMasterP);
+    }
+
+    private JunctionTree getJunctionTree() {
+        if (junctionTree == null) {
+            junctionTree = JunctionTree.calibrate(cardinalities, network.getFactors(), eliminationOrder);
+        }
+        return junctionTree;
+    }
+}
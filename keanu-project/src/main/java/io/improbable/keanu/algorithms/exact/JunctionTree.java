@@ -0,0 +1,164 @@
+package io.improbable.keanu.algorithms.exact;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A junction tree of the factors of a network, calibrated by passing messages up the tree and back down once, so
+ * that the belief of each clique is proportional to the joint probability of its variables and the observations.
+ * <p>
+ * There is one clique per variable: the variable and its neighbours when it is eliminated in the elimination order.
+ * The parent of a clique is the clique of the first variable eliminated after it among those neighbours, which
+ * gives the running intersection property. A network made of unconnected parts gives a forest.
+ */
+final class JunctionTree {
+
+    private final DiscreteFactor[] beliefs;
+    private final int[] cliqueOfVariable;
+    private final double logProbOfObservations;
+
+    private JunctionTree(DiscreteFactor[] beliefs, int[] cliqueOfVariable, double logProbOfObservations) {
+        this.beliefs = beliefs;
+        this.cliqueOfVariable = cliqueOfVariable;
+        this.logProbOfObservations = logProbOfObservations;
+    }
+
+    /**
+     * @param cardinalities    the number of states of each variable
+     * @param factors          the factors of the network
+     * @param eliminationOrder the order to eliminate the variables in
+     * @return the calibrated junction tree
+     */
+    static JunctionTree calibrate(int[] cardinalities, List<DiscreteFactor> factors, int[] eliminationOrder) {
+        int variableCount = cardinalities.length;
+        int[] positionOf = new int[variableCount];
+        for (int position = 0; position < variableCount; position++) {
+            positionOf[eliminationOrder[position]] = position;
+        }
+
+        List<Set<Integer>> neighbours = EliminationOrder.neighboursOf(variableCount, factors);
+        int[][] cliques = new int[variableCount][];
+        int[] parents = new int[variableCount];
+        int[] cliqueOfVariable = new int[variableCount];
+
+        for (int clique = 0; clique < variableCount; clique++) {
+            int variable = eliminationOrder[clique];
+            cliqueOfVariable[variable] = clique;
+
+            int[] cliqueVariables = new int[neighbours.get(variable).size() + 1];
+            int i = 0;
+            int parent = -1;
+            cliqueVariables[i++] = variable;
+            for (int neighbour : neighbours.get(variable)) {
+                cliqueVariables[i++] = neighbour;
+                if (parent == -1 || positionOf[neighbour] < parent) {
+                    parent = positionOf[neighbour];
+                }
+            }
+            Arrays.sort(cliqueVariables);
+            cliques[clique] = cliqueVariables;
+            parents[clique] = parent;
+
+            EliminationOrder.eliminate(neighbours, variable);
+        }
+
+        DiscreteFactor[] potentials = new DiscreteFactor[variableCount];
+        for (int clique = 0; clique < variableCount; clique++) {
+            potentials[clique] = DiscreteFactor.unit(cliques[clique], cardinalitiesOf(cliques[clique], cardinalities));
+        }
+
+        double logProbOfObservations = 0;
+        for (DiscreteFactor factor : factors) {
+            if (factor.getVariables().length == 0) {
+                logProbOfObservations += factor.logSum();
+                continue;
+            }
+
+            int clique = Integer.MAX_VALUE;
+            for (int variable : factor.getVariables()) {
+                clique = Math.min(clique, positionOf[variable]);
+            }
+            potentials[clique] = potentials[clique].times(factor);
+        }
+
+        List<List<Integer>> children = new ArrayList<>(variableCount);
+        for (int clique = 0; clique < variableCount; clique++) {
+            children.add(new ArrayList<>());
+        }
+        for (int clique = 0; clique < variableCount; clique++) {
+            if (parents[clique] != -1) {
+                children.get(parents[clique]).add(clique);
+            }
+        }
+
+        DiscreteFactor[] messagesUp = new DiscreteFactor[variableCount];
+        DiscreteFactor[] messagesDown = new DiscreteFactor[variableCount];
+
+        for (int clique = 0; clique < variableCount; clique++) {
+            DiscreteFactor product = potentials[clique];
+            for (int child : children.get(clique)) {
+                product = product.times(messagesUp[child]);
+            }
+
+            if (parents[clique] == -1) {
+                logProbOfObservations += product.logSum();
+            } else {
+                messagesUp[clique] = product.sumOut(eliminationOrder[clique]);
+            }
+        }
+
+        DiscreteFactor[] beliefs = new DiscreteFactor[variableCount];
+        for (int clique = variableCount - 1; clique >= 0; clique--) {
+            DiscreteFactor fromAbove = potentials[clique];
+            if (messagesDown[clique] != null) {
+                fromAbove = fromAbove.times(messagesDown[clique]);
+            }
+
+            List<Integer> cliqueChildren = children.get(clique);
+            for (int child : cliqueChildren) {
+                DiscreteFactor product = fromAbove;
+                for (int sibling : cliqueChildren) {
+                    if (sibling != child) {
+                        product = product.times(messagesUp[sibling]);
+                    }
+                }
+                messagesDown[child] = product.sumOutAllExcept(messagesUp[child].getVariables());
+            }
+
+            DiscreteFactor belief = fromAbove;
+            for (int child : cliqueChildren) {
+                belief = belief.times(messagesUp[child]);
+            }
+            beliefs[clique] = belief;
+        }
+
+        return new JunctionTree(beliefs, cliqueOfVariable, logProbOfObservations);
+    }
+
+    /**
+     * @param variable the index of a variable
+     * @return the probability of each state of the variable given the observations
+     * @throws IllegalStateException if the observations have zero probability
+     */
+    double[] marginal(int variable) {
+        return beliefs[cliqueOfVariable[variable]].sumOutAllExcept(new int[]{variable}).normalised();
+    }
+
+    /**
+     * @return the log of the probability of the observations, or the log density if some observed vertices are
+     * continuous
+     */
+    double getLogProbOfObservations() {
+        return logProbOfObservations;
+    }
+
+    private static int[] cardinalitiesOf(int[] variables, int[] cardinalities) {
+        int[] cardinalitiesOfVariables = new int[variables.length];
+        for (int i = 0; i < variables.length; i++) {
+            cardinalitiesOfVariables[i] = cardinalities[variables[i]];
+        }
+        return cardinalitiesOfVariables;
+    }
+}
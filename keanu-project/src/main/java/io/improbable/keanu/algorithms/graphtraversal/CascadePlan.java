@@ -0,0 +1,211 @@
+package io.improbable.keanu.algorithms.graphtraversal;
+
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.vertices.Vertex;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A precompiled version of {@link VertexValuePropagation#cascadeUpdate(Collection)} for a fixed set of source
+ * vertices.
+ * <p>
+ * Every vertex that a cascade from any of the sources could touch is stored once in a flat array that is ordered
+ * topologically. Each source then has a plan: the sorted array indices of itself and its non-probabilistic
+ * descendants. Cascading from a single source is a linear walk over its plan. Cascading from several sources merges
+ * their plans using a preallocated scratch buffer, so neither case allocates or hashes.
+ * <p>
+ * A plan describes the graph as it was when it was compiled. It keeps the {@link Vertex#getTopologyVersion() topology
+ * version} of every vertex in it, so {@link #isStale(List)} can find out whether the part of the graph that a cascade
+ * touches has changed since by checking only the vertices of that cascade.
+ */
+public class CascadePlan {
+
+    private final Vertex[] vertices;
+    private final Map<VariableReference, int[]> planBySource;
+    private final long[] compiledTopologyVersions;
+
+    private final int[] visitedStamp;
+    private final int[] mergeBuffer;
+    private int currentStamp;
+
+    private CascadePlan(Vertex[] vertices, Map<VariableReference, int[]> planBySource) {
+        this.vertices = vertices;
+        this.planBySource = planBySource;
+        this.compiledTopologyVersions = new long[vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            compiledTopologyVersions[i] = vertices[i].getTopologyVersion();
+        }
+        this.visitedStamp = new int[vertices.length];
+        this.mergeBuffer = new int[vertices.length];
+        this.currentStamp = 0;
+    }
+
+    /**
+     * @param sources the vertices that cascades will start from
+     * @return a plan that can cascade from any combination of the sources
+     */
+    public static CascadePlan compile(Collection<? extends Vertex> sources) {
+        Map<Vertex, Set<Vertex>> reachableBySource = new HashMap<>();
+        Set<Vertex> allReachable = new HashSet<>();
+        for (Vertex source : sources) {
+            Set<Vertex> reachable = getCascadeReachable(source);
+            reachableBySource.put(source, reachable);
+            allReachable.addAll(reachable);
+        }
+
+        Vertex[] vertices = allReachable.toArray(new Vertex[0]);
+        Arrays.sort(vertices, Comparator.comparing(Vertex::getId, Comparator.naturalOrder()));
+
+        Map<Vertex, Integer> indexOf = new HashMap<>();
+        for (int i = 0; i < vertices.length; i++) {
+            indexOf.put(vertices[i], i);
+        }
+
+        Map<VariableReference, int[]> planBySource = new HashMap<>();
+        for (Map.Entry<Vertex, Set<Vertex>> entry : reachableBySource.entrySet()) {
+            int[] plan = entry.getValue().stream().mapToInt(indexOf::get).sorted().toArray();
+            planBySource.put(entry.getKey().getId(), plan);
+        }
+
+        return new CascadePlan(vertices, planBySource);
+    }
+
+    /**
+     * Mirrors the traversal in {@link VertexValuePropagation#cascadeUpdate(Collection)}: non-probabilistic children
+     * are visited and traversed through, probabilistic children are not.
+     */
+    private static Set<Vertex> getCascadeReachable(Vertex<?> source) {
+        Set<Vertex> reachable = new LinkedHashSet<>();
+        reachable.add(source);
+
+        Deque<Vertex<?>> stack = new ArrayDeque<>();
+        stack.push(source);
+
+        while (!stack.isEmpty()) {
+            Vertex<?> visiting = stack.pop();
+            for (Vertex<?> child : visiting.getChildren()) {
+                if (!child.isProbabilistic() && reachable.add(child)) {
+                    stack.push(child);
+                }
+            }
+        }
+
+        return reachable;
+    }
+
+    /**
+     * @return every vertex that a cascade from any of the sources could change, in topological order
+     */
+    public List<Vertex> getVertices() {
+        return Collections.unmodifiableList(Arrays.asList(vertices));
+    }
+
+    /**
+     * @return true if a vertex that a cascade from any of the sources could change has gained or lost a parent or
+     * child since this plan was compiled
+     */
+    public boolean isStale() {
+        for (int i = 0; i < vertices.length; i++) {
+            if (vertices[i].getTopologyVersion() != compiledTopologyVersions[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Like {@link #isStale()} but only checks the vertices that a cascade from the given sources could change, so it
+     * takes no longer than the cascade.
+     *
+     * @param sources vertices that this plan was compiled with as sources
+     * @return true if the plan of any of the sources is out of date
+     */
+    public boolean isStale(List<? extends Vertex> sources) {
+        for (Vertex<?> source : sources) {
+            for (int index : getPlan(source.getId())) {
+                if (vertices[index].getTopologyVersion() != compiledTopologyVersions[index]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param source a reference to a vertex
+     * @return true if this plan was compiled with the vertex as a source
+     */
+    public boolean canCascadeFrom(VariableReference source) {
+        return planBySource.containsKey(source);
+    }
+
+    /**
+     * The number of vertices that a cascade from the given source will update, including the source itself.
+     *
+     * @param source a reference to a source vertex of this plan
+     * @return the size of the source's plan
+     */
+    public int getCascadeSize(VariableReference source) {
+        return getPlan(source).length;
+    }
+
+    public void cascadeUpdate(Vertex<?> source) {
+        int[] plan = getPlan(source.getId());
+        for (int index : plan) {
+            VertexValuePropagation.updateVertexValue(vertices[index]);
+        }
+    }
+
+    public void cascadeUpdate(List<? extends Vertex> sources) {
+        if (sources.size() == 1) {
+            cascadeUpdate(sources.get(0));
+            return;
+        }
+
+        int stamp = nextStamp();
+        int mergedCount = 0;
+
+        for (Vertex<?> source : sources) {
+            for (int index : getPlan(source.getId())) {
+                if (visitedStamp[index] != stamp) {
+                    visitedStamp[index] = stamp;
+                    mergeBuffer[mergedCount++] = index;
+                }
+            }
+        }
+
+        Arrays.sort(mergeBuffer, 0, mergedCount);
+
+        for (int i = 0; i < mergedCount; i++) {
+            VertexValuePropagation.updateVertexValue(vertices[mergeBuffer[i]]);
+        }
+    }
+
+    private int[] getPlan(VariableReference source) {
+        int[] plan = planBySource.get(source);
+        if (plan == null) {
+            throw new IllegalArgumentException("No cascade plan was compiled for " + source);
+        }
+        return plan;
+    }
+
+    private int nextStamp() {
+        currentStamp++;
+        if (currentStamp == 0) {
+            Arrays.fill(visitedStamp, 0);
+            currentStamp = 1;
+        }
+        return currentStamp;
+    }
+}
@@ -144,7 +144,7 @@ public class VertexValuePropagation {
         return stack;
     }
 
-    private static <T> void updateVertexValue(Vertex<T> vertex) {
+    static <T> void updateVertexValue(Vertex<T> vertex) {
         if (vertex.isProbabilistic()) {
             if (!vertex.hasValue()) {
                 vertex.setValue(((Probabilistic<T>) vertex).sample());
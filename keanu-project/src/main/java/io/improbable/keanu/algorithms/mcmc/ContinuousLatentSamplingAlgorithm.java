@@ -0,0 +1,15 @@
+package io.improbable.keanu.algorithms.mcmc;
+
+import io.improbable.keanu.algorithms.ProbabilisticModel;
+
+/**
+ * An algorithm that can sample the continuous latent variables of a model while other algorithms sample the rest.
+ */
+public interface ContinuousLatentSamplingAlgorithm {
+
+    /**
+     * @param model a model whose values are at a valid starting position
+     * @return a sampler that moves the continuous latent variables of the model and leaves the others as they are
+     */
+    InterleavableSamplingAlgorithm continuousLatentSampler(ProbabilisticModel model);
+}
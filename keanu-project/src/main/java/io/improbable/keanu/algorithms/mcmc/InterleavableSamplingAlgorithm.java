@@ -0,0 +1,26 @@
+package io.improbable.keanu.algorithms.mcmc;
+
+/**
+ * A {@link SamplingAlgorithm} that moves some of the latent variables of a model and can take turns with other
+ * algorithms that move the rest, e.g. in {@link io.improbable.keanu.algorithms.mcmc.gibbs.Gibbs}.
+ * <p>
+ * Between its steps the other algorithms may change the values of the model. They first call
+ * {@link #setModelToCurrentState()} so that the model is at the state this algorithm has reached, and then
+ * {@link #continueFromModel(double)} once they are done so that this algorithm continues from the new values.
+ */
+public interface InterleavableSamplingAlgorithm extends SamplingAlgorithm {
+
+    /**
+     * Sets the variables this algorithm moves to their values at its current state, if the model is not there already.
+     *
+     * @return the log prob of the model at its current state
+     */
+    double setModelToCurrentState();
+
+    /**
+     * Continues from the current values of the model, after other algorithms have changed some of them.
+     *
+     * @param logProb the log prob of the model at its current values
+     */
+    void continueFromModel(double logProb);
+}
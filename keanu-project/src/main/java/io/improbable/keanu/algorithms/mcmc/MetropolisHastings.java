@@ -5,6 +5,9 @@ import io.improbable.keanu.algorithms.NetworkSamples;
 import io.improbable.keanu.algorithms.PosteriorSamplingAlgorithm;
 import io.improbable.keanu.algorithms.ProbabilisticModel;
 import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.mcmc.metrics.MeteredProbabilisticModel;
+import io.improbable.keanu.algorithms.mcmc.metrics.MeteredSamplingAlgorithm;
+import io.improbable.keanu.algorithms.mcmc.metrics.MetricsSink;
 import io.improbable.keanu.algorithms.mcmc.proposal.MHStepVariableSelector;
 import io.improbable.keanu.algorithms.mcmc.proposal.PriorProposalDistribution;
 import io.improbable.keanu.algorithms.mcmc.proposal.ProposalDistribution;
@@ -21,7 +24,7 @@ import static io.improbable.keanu.algorithms.mcmc.proposal.MHStepVariableSelecto
  * Metropolis Hastings is a Markov Chain Monte Carlo method for obtaining samples from a probability distribution
  */
 @AllArgsConstructor
-public class MetropolisHastings implements PosteriorSamplingAlgorithm {
+public class MetropolisHastings implements PosteriorSamplingAlgorithm, ContinuousLatentSamplingAlgorithm {
 
     private static final MHStepVariableSelector DEFAULT_VARIABLE_SELECTOR = SINGLE_VARIABLE_SELECTOR;
 
@@ -39,6 +42,10 @@ public class MetropolisHastings implements PosteriorSamplingAlgorithm {
     @NonNull
     private ProposalRejectionStrategy rejectionStrategy;
 
+    @Getter
+    @NonNull
+    private MetricsSink metricsSink;
+
     public static MetropolisHastingsBuilder builder() {
         return new MetropolisHastingsBuilder();
     }
@@ -64,17 +71,38 @@ public class MetropolisHastings implements PosteriorSamplingAlgorithm {
         return new NetworkSamplesGenerator(setupSampler(model, variablesToSampleFrom), StatusBar::new);
     }
 
+    /**
+     * @param model a probabilistic model containing continuous latent variables
+     * @return a sampler that proposes changes to the continuous latent variables of the model only
+     */
+    @Override
+    public InterleavableSamplingAlgorithm continuousLatentSampler(ProbabilisticModel model) {
+        MetropolisHastingsStep mhStep = new MetropolisHastingsStep(model, proposalDistribution, rejectionStrategy, random);
+        List<? extends Variable> continuousLatentVariables = model.getContinuousLatentVariables();
+
+        return new MetropolisHastingsSampler(
+            continuousLatentVariables, continuousLatentVariables, mhStep, variableSelector, model.logProb(), metricsSink
+        );
+    }
+
     private SamplingAlgorithm setupSampler(final ProbabilisticModel model,
                                            final List<? extends Variable> variablesToSampleFrom) {
 
+        boolean metered = metricsSink != MetricsSink.NONE;
+        ProbabilisticModel steppedModel = metered ? MeteredProbabilisticModel.of(model, metricsSink) : model;
+
         MetropolisHastingsStep mhStep = new MetropolisHastingsStep(
-            model,
+            steppedModel,
             proposalDistribution,
             rejectionStrategy,
             random
         );
 
-        return new MetropolisHastingsSampler(model.getLatentVariables(), variablesToSampleFrom, mhStep, variableSelector, model.logProb());
+        SamplingAlgorithm sampler = new MetropolisHastingsSampler(
+            model.getLatentVariables(), variablesToSampleFrom, mhStep, variableSelector, steppedModel.logProb(), metricsSink
+        );
+
+        return metered ? MeteredSamplingAlgorithm.of(sampler, metricsSink) : sampler;
     }
 
     public static class MetropolisHastingsBuilder {
@@ -82,6 +110,7 @@ public class MetropolisHastings implements PosteriorSamplingAlgorithm {
         private ProposalDistribution proposalDistribution = new PriorProposalDistribution();
         private MHStepVariableSelector variableSelector = DEFAULT_VARIABLE_SELECTOR;
         private ProposalRejectionStrategy rejectionStrategy = new RollBackToCachedValuesOnRejection();
+        private MetricsSink metricsSink = MetricsSink.NONE;
 
         public MetropolisHastingsBuilder random(KeanuRandom random) {
             this.random = random;
@@ -103,12 +132,17 @@ public class MetropolisHastings implements PosteriorSamplingAlgorithm {
             return this;
         }
 
+        public MetropolisHastingsBuilder metricsSink(MetricsSink metricsSink) {
+            this.metricsSink = metricsSink;
+            return this;
+        }
+
         public MetropolisHastings build() {
-            return new MetropolisHastings(random, proposalDistribution, variableSelector, rejectionStrategy);
+            return new MetropolisHastings(random, proposalDistribution, variableSelector, rejectionStrategy, metricsSink);
         }
 
         public String toString() {
-            return "MetropolisHastings.MetropolisHastingsBuilder(random=" + this.random + ", proposalDistribution=" + this.proposalDistribution + ", variableSelector=" + this.variableSelector + ", rejectionStrategy=" + this.rejectionStrategy + ")";
+            return "MetropolisHastings.MetropolisHastingsBuilder(random=" + this.random + ", proposalDistribution=" + this.proposalDistribution + ", variableSelector=" + this.variableSelector + ", rejectionStrategy=" + this.rejectionStrategy + ", metricsSink=" + this.metricsSink + ")";
         }
     }
 }
@@ -1,23 +1,33 @@
 package io.improbable.keanu.algorithms.mcmc;
 
+import io.improbable.keanu.algorithms.ColumnarSampleList;
 import io.improbable.keanu.algorithms.NetworkSample;
 import io.improbable.keanu.algorithms.Variable;
 import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.mcmc.checkpoint.CheckpointValues;
+import io.improbable.keanu.algorithms.mcmc.checkpoint.CheckpointableSamplingAlgorithm;
+import io.improbable.keanu.algorithms.mcmc.metrics.MetricsSink;
+import io.improbable.keanu.algorithms.mcmc.metrics.SamplerMetrics;
 import io.improbable.keanu.algorithms.mcmc.proposal.MHStepVariableSelector;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 @Slf4j
-public class MetropolisHastingsSampler implements SamplingAlgorithm {
+public class MetropolisHastingsSampler implements CheckpointableSamplingAlgorithm, InterleavableSamplingAlgorithm {
 
     private final List<? extends Variable> latentVariables;
     private final List<? extends Variable> variablesToSampleFrom;
     private final MetropolisHastingsStep mhStep;
     private final MHStepVariableSelector variableSelector;
+    private final MetricsSink metricsSink;
+    private final Map<Variable, String[]> proposalCounterNames = new HashMap<>();
 
     private double logProbabilityBeforeStep;
     private int sampleNum;
@@ -27,11 +37,21 @@ public class MetropolisHastingsSampler implements SamplingAlgorithm {
                                      MetropolisHastingsStep mhStep,
                                      MHStepVariableSelector variableSelector,
                                      double logProbabilityBeforeStep) {
+        this(latentVariables, variablesToSampleFrom, mhStep, variableSelector, logProbabilityBeforeStep, MetricsSink.NONE);
+    }
+
+    public MetropolisHastingsSampler(List<? extends Variable> latentVariables,
+                                     List<? extends Variable> variablesToSampleFrom,
+                                     MetropolisHastingsStep mhStep,
+                                     MHStepVariableSelector variableSelector,
+                                     double logProbabilityBeforeStep,
+                                     MetricsSink metricsSink) {
         this.latentVariables = latentVariables;
         this.variablesToSampleFrom = variablesToSampleFrom;
         this.mhStep = mhStep;
         this.variableSelector = variableSelector;
         this.logProbabilityBeforeStep = logProbabilityBeforeStep;
+        this.metricsSink = metricsSink;
         this.sampleNum = 0;
     }
 
@@ -39,10 +59,15 @@ public class MetropolisHastingsSampler implements SamplingAlgorithm {
     public void step() {
         Set<Variable> chosenVariables = variableSelector.select(latentVariables, sampleNum);
 
-        logProbabilityBeforeStep = mhStep.step(
+        MetropolisHastingsStep.StepResult result = mhStep.step(
             chosenVariables,
             logProbabilityBeforeStep
-        ).getLogProbabilityAfterStep();
+        );
+        logProbabilityBeforeStep = result.getLogProbabilityAfterStep();
+
+        if (metricsSink != MetricsSink.NONE) {
+            recordProposalOutcome(chosenVariables, result.isAccepted());
+        }
 
         sampleNum++;
     }
@@ -59,13 +84,76 @@ public class MetropolisHastingsSampler implements SamplingAlgorithm {
         step();
         return new NetworkSample(SamplingAlgorithm.takeSample((List<? extends Variable<Object, ?>>) variablesToSampleFrom), logProbabilityBeforeStep);
     }
+
+    @Override
+    public List<? extends Variable> getSampleFromVariables() {
+        return variablesToSampleFrom;
+    }
+
+    /**
+     * Rejected proposals are rolled back, so the model is always at the current state of the chain.
+     */
+    @Override
+    public double setModelToCurrentState() {
+        return logProbabilityBeforeStep;
+    }
+
+    @Override
+    public void continueFromModel(double logProb) {
+        logProbabilityBeforeStep = logProb;
+    }
+
+    /**
+     * Saves the position of the chain and the state of its source of randomness. The state of the proposal
+     * distribution is not saved, so a proposal distribution that adapts restarts its adaptation on resume.
+     */
+    @Override
+    public void saveState(DataOutput output) throws IOException {
+        output.writeInt(sampleNum);
+        output.writeDouble(logProbabilityBeforeStep);
+        CheckpointValues.writeBytes(output, mhStep.getRandom().getState());
+
+        output.writeInt(latentVariables.size());
+        for (Variable variable : latentVariables) {
+            CheckpointValues.writeValue(output, variable.getValue());
+        }
+    }
+
+    @Override
+    public void loadState(DataInput input) throws IOException {
+        sampleNum = input.readInt();
+        logProbabilityBeforeStep = input.readDouble();
+        mhStep.getRandom().setState(CheckpointValues.readBytes(input));
+
+        int latentCount = input.readInt();
+        if (latentCount != latentVariables.size()) {
+            throw new IOException("Checkpoint has " + latentCount + " latent variables but the model has " + latentVariables.size());
+        }
+
+        Map<VariableReference, Object> latentValues = new HashMap<>();
+        for (Variable variable : latentVariables) {
+            latentValues.put(variable.getReference(), CheckpointValues.readValue(input));
+        }
+        mhStep.setValues(latentValues);
+    }
+
+    private void recordProposalOutcome(Set<Variable> chosenVariables, boolean accepted) {
+        for (Variable variable : chosenVariables) {
+            String[] counterNames = proposalCounterNames.computeIfAbsent(
+                variable,
+                v -> new String[]{SamplerMetrics.accepted(v), SamplerMetrics.rejected(v)}
+            );
+            metricsSink.incrementCounter(accepted ? counterNames[0] : counterNames[1], 1);
+        }
+    }
+
     private static void takeSamples(Map<VariableReference, List<?>> samples, List<? extends Variable> fromVariables) {
         fromVariables.forEach(variable -> addSampleForVariable((Variable<?, ?>) variable, samples));
     }
 
     private static <T> void addSampleForVariable(Variable<T, ?> variable, Map<VariableReference, List<?>> samples) {
-        List<T> samplesForVariable = (List<T>) samples.computeIfAbsent(variable.getReference(), v -> new ArrayList<T>());
-        T value = variable.getValue();
+        List<T> samplesForVariable = (List<T>) samples.computeIfAbsent(variable.getReference(), v -> new ColumnarSampleList<T>());
+        T value = SamplingAlgorithm.sampleValueOf(variable);
         samplesForVariable.add(value);
     }
 
@@ -3,12 +3,14 @@ package io.improbable.keanu.algorithms.mcmc;
 import io.improbable.keanu.KeanuRandom;
 import io.improbable.keanu.algorithms.ProbabilisticModel;
 import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
 import io.improbable.keanu.algorithms.mcmc.proposal.Proposal;
 import io.improbable.keanu.algorithms.mcmc.proposal.ProposalDistribution;
 import io.improbable.keanu.vertices.ProbabilityCalculator;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Map;
 import java.util.Set;
 
 @Slf4j
@@ -39,6 +41,19 @@ public class MetropolisHastingsStep {
         this.random = random;
     }
 
+    KeanuRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * Sets the values of variables of the model and cascades them, e.g. to restore the model from a checkpoint.
+     *
+     * @param values the new values of variables of the model
+     */
+    void setValues(Map<VariableReference, ?> values) {
+        model.logProb(values);
+    }
+
     public StepResult step(final Set<Variable> chosenVariables,
                            final double logProbabilityBeforeStep) {
         return step(chosenVariables, logProbabilityBeforeStep, DEFAULT_TEMPERATURE);
@@ -0,0 +1,156 @@
+package io.improbable.keanu.algorithms.mcmc;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.MultiChainNetworkSamples;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.PosteriorSamplingAlgorithm;
+import io.improbable.keanu.algorithms.ProbabilisticModel;
+import io.improbable.keanu.algorithms.Variable;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs several independent MCMC chains concurrently and merges their samples.
+ * <p>
+ * A {@link io.improbable.keanu.network.BayesianNetwork} holds its values in mutable vertex state, so a network
+ * cannot be shared between chains. Instead, a {@link ChainFactory} is asked to build a fresh model for each chain.
+ * The factory is called on the calling thread, in chain order, so that vertex ids and any randomness used whilst
+ * building the models are reproducible. Each chain is handed its own {@link KeanuRandom} that is seeded from a single
+ * base seed, which makes a run reproducible for a given seed regardless of the number of threads used.
+ */
+public class MultiChainSampler {
+
+    /**
+     * Builds everything that is needed to run a single chain. Implementations must not share vertices between chains.
+     */
+    @FunctionalInterface
+    public interface ChainFactory {
+
+        /**
+         * @param chainIndex the index of the chain being created, from 0 to chainCount - 1
+         * @param random     the random number generator that this chain should use
+         * @return a new, independent chain
+         */
+        Chain create(int chainIndex, KeanuRandom random);
+    }
+
+    /**
+     * A single chain: a model that is not shared with any other chain, the algorithm to sample it with and the
+     * variables to sample from. The variables of every chain must be given in the same order, as samples are
+     * merged by position.
+     */
+    @Value
+    public static class Chain {
+        private final ProbabilisticModel model;
+        private final PosteriorSamplingAlgorithm algorithm;
+        private final List<? extends Variable> variablesToSampleFrom;
+    }
+
+    @Getter
+    private final int chainCount;
+
+    @Getter
+    private final long seed;
+
+    @Getter
+    private final int dropCount;
+
+    @Getter
+    private final int downSampleInterval;
+
+    private final ExecutorService executor;
+
+    /**
+     * @param chainCount         the number of chains to run. Defaults to the number of available processors.
+     * @param seed               chain i is given a {@link KeanuRandom} seeded with seed + i. If no seed is given then
+     *                           one is drawn from the default random.
+     * @param dropCount          the number of samples to drop from the start of each chain. Defaults to 0.
+     * @param downSampleInterval the interval to down-sample each chain by. Defaults to 1.
+     * @param executor           the executor to run chains on. It is not shut down after sampling. If none is given
+     *                           then a fixed thread pool of min(chainCount, available processors) is created for each
+     *                           run.
+     */
+    @Builder
+    private MultiChainSampler(Integer chainCount, Long seed, Integer dropCount, Integer downSampleInterval, ExecutorService executor) {
+        this.chainCount = chainCount != null ? chainCount : Runtime.getRuntime().availableProcessors();
+        Preconditions.checkArgument(this.chainCount > 0, "Chain count of %s is invalid. Must run at least one chain.", this.chainCount);
+        this.seed = seed != null ? seed : KeanuRandom.getDefaultRandom().nextInt(Integer.MAX_VALUE);
+        this.dropCount = dropCount != null ? dropCount : 0;
+        this.downSampleInterval = downSampleInterval != null ? downSampleInterval : 1;
+        this.executor = executor;
+    }
+
+    /**
+     * @param chainFactory creates the model, algorithm and variables for each chain
+     * @param sampleCount  the number of samples to take in each chain, before dropping and down-sampling
+     * @return the samples of every chain, which can also be viewed as a single merged {@link NetworkSamples}
+     */
+    public MultiChainNetworkSamples getPosteriorSamples(ChainFactory chainFactory, int sampleCount) {
+
+        List<NetworkSamplesGenerator> generators = new ArrayList<>(chainCount);
+        List<List<? extends Variable>> variablesPerChain = new ArrayList<>(chainCount);
+
+        for (int chainIndex = 0; chainIndex < chainCount; chainIndex++) {
+            Chain chain = chainFactory.create(chainIndex, new KeanuRandom(seed + chainIndex));
+            checkVariablesMatchFirstChain(variablesPerChain, chain.getVariablesToSampleFrom());
+
+            generators.add(
+                chain.getAlgorithm()
+                    .generatePosteriorSamples(chain.getModel(), chain.getVariablesToSampleFrom())
+                    .dropCount(dropCount)
+                    .downSampleInterval(downSampleInterval)
+            );
+            variablesPerChain.add(chain.getVariablesToSampleFrom());
+        }
+
+        ExecutorService chainExecutor = executor != null ? executor : Executors.newFixedThreadPool(defaultThreadCount());
+        try {
+            List<Future<NetworkSamples>> futures = new ArrayList<>(chainCount);
+            for (NetworkSamplesGenerator generator : generators) {
+                futures.add(chainExecutor.submit(() -> generator.generate(sampleCount)));
+            }
+
+            List<NetworkSamples> samplesPerChain = new ArrayList<>(chainCount);
+            for (Future<NetworkSamples> future : futures) {
+                samplesPerChain.add(future.get());
+            }
+
+            return new MultiChainNetworkSamples(samplesPerChain, variablesPerChain);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted whilst waiting for chains to complete", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A chain failed whilst sampling", e.getCause());
+        } finally {
+            if (executor == null) {
+                chainExecutor.shutdownNow();
+            }
+        }
+    }
+
+    private int defaultThreadCount() {
+        return Math.min(chainCount, Runtime.getRuntime().availableProcessors());
+    }
+
+    private static void checkVariablesMatchFirstChain(List<List<? extends Variable>> variablesPerChain,
+                                                      List<? extends Variable> variables) {
+        if (!variablesPerChain.isEmpty()) {
+            int expectedSize = variablesPerChain.get(0).size();
+            Preconditions.checkArgument(
+                variables.size() == expectedSize,
+                "Every chain must sample from the same number of variables. Expected %s but was %s",
+                expectedSize, variables.size()
+            );
+        }
+    }
+}
@@ -1,18 +1,30 @@
 package io.improbable.keanu.algorithms.mcmc;
 
 import com.google.common.base.Preconditions;
+import io.improbable.keanu.algorithms.ColumnarSampleList;
 import io.improbable.keanu.algorithms.NetworkSample;
 import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.Variable;
 import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.mcmc.checkpoint.CheckpointableSamplingAlgorithm;
+import io.improbable.keanu.algorithms.mcmc.checkpoint.SamplerCheckpoint;
+import io.improbable.keanu.algorithms.statistics.OnlineSampleStatistics;
+import io.improbable.keanu.util.io.SampleFileReader;
+import io.improbable.keanu.util.io.SampleFileWriter;
 import io.improbable.keanu.util.status.PercentageComponent;
 import io.improbable.keanu.util.status.RemainingTimeComponent;
 import io.improbable.keanu.util.status.StatusBar;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
@@ -22,6 +34,8 @@ public class NetworkSamplesGenerator {
 
     private int dropCount = 0;
     private int downSampleInterval = 1;
+    private Path checkpointFile;
+    private int checkpointInterval;
 
     private Supplier<StatusBar> statusBarSupplier;
 
@@ -71,6 +85,32 @@ public class NetworkSamplesGenerator {
         return this;
     }
 
+    /**
+     * Saves the progress of {@link #generate(int)} to a checkpoint file every checkpointInterval steps, including the
+     * steps that are dropped. If the file already exists when generate is called, e.g. because an earlier run on the
+     * same model was interrupted, the run is resumed from it and continues exactly as the interrupted run would have.
+     * The samples are appended to a sample file next to the checkpoint file as they are taken, so that saving a
+     * checkpoint does not take longer as the run goes on. Both files are left in place when the run completes. Delete
+     * the checkpoint file to start a new run.
+     *
+     * @param checkpointFile     the file to save the checkpoints to and resume from
+     * @param checkpointInterval the number of steps between checkpoints
+     * @return this NetworkSamplesGenerator set to save checkpoints
+     * @throws IllegalArgumentException if the sampling algorithm cannot be checkpointed or the interval is not positive
+     */
+    public NetworkSamplesGenerator checkpoint(Path checkpointFile, int checkpointInterval) {
+        Preconditions.checkArgument(algorithm instanceof CheckpointableSamplingAlgorithm,
+            "%s cannot be checkpointed", algorithm.getClass().getSimpleName()
+        );
+        Preconditions.checkArgument(checkpointInterval > 0,
+            "Checkpoint interval of %s is invalid. It must be positive.", checkpointInterval
+        );
+
+        this.checkpointFile = checkpointFile;
+        this.checkpointInterval = checkpointInterval;
+        return this;
+    }
+
     /**
      * @param totalSampleCount The total number of samples to generate. This is the total before any dropping
      *                         or down-sampling is done. If you drop 10 and down sample 2 and request a totalSampleCount
@@ -84,10 +124,196 @@ public class NetworkSamplesGenerator {
             totalSampleCount, dropCount
         );
 
+        Map<VariableReference, List<?>> samplesByVariable = new HashMap<>();
+        List<Double> logOfMasterPForEachSample = new ColumnarSampleList<>();
+
+        try {
+            if (checkpointFile == null) {
+                takeSamples(totalSampleCount, 0, samplesByVariable, logOfMasterPForEachSample, null);
+            } else {
+                generateWithCheckpoints(totalSampleCount, samplesByVariable, logOfMasterPForEachSample);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return new NetworkSamples(samplesByVariable, logOfMasterPForEachSample, logOfMasterPForEachSample.size());
+    }
+
+    private void generateWithCheckpoints(int totalSampleCount,
+                                         Map<VariableReference, List<?>> samplesByVariable,
+                                         List<Double> logOfMasterPForEachSample) throws IOException {
+        List<? extends Variable> variables = ((CheckpointableSamplingAlgorithm) algorithm).getSampleFromVariables();
+        Path samplesFile = SamplerCheckpoint.samplesFileOf(checkpointFile);
+        SamplerCheckpoint checkpoint = Files.exists(checkpointFile) ? loadCheckpoint(totalSampleCount) : null;
+
+        try (SampleFileWriter checkpointSamples = checkpoint == null
+            ? new SampleFileWriter(samplesFile, variables)
+            : SampleFileWriter.resume(samplesFile, variables, checkpoint.getSampleFilePosition(), checkpoint.getSampleCount())) {
+
+            int stepsTaken = 0;
+            if (checkpoint != null) {
+                readCheckpointSamples(samplesFile, variables, checkpoint.getSampleCount(), samplesByVariable, logOfMasterPForEachSample);
+                stepsTaken = checkpoint.getStepsTaken();
+            }
+
+            takeSamples(totalSampleCount, stepsTaken, samplesByVariable, logOfMasterPForEachSample, checkpointSamples);
+        }
+    }
+
+    /**
+     * @param checkpointSamples the sample file to append each sample to and to flush before each checkpoint is
+     *                          saved, or null if no checkpoints are saved
+     */
+    private void takeSamples(int totalSampleCount,
+                             int stepsTaken,
+                             Map<VariableReference, List<?>> samplesByVariable,
+                             List<Double> logOfMasterPForEachSample,
+                             SampleFileWriter checkpointSamples) throws IOException {
         StatusBar statusBar = statusBarSupplier.get();
 
-        Map<VariableReference, List<?>> samplesByVariable = new HashMap<>();
-        List<Double> logOfMasterPForEachSample = new ArrayList<>();
+        dropSamples(stepsTaken, dropCount, statusBar,
+            step -> saveCheckpointIfDue(step, totalSampleCount, checkpointSamples)
+        );
+
+        PercentageComponent statusPercentage = newPercentageComponentAndAddToStatusBar(statusBar);
+        RemainingTimeComponent remainingTimeComponent = new RemainingTimeComponent(totalSampleCount);
+        statusBar.addComponent(remainingTimeComponent);
+        statusBar.setMessage("Sampling...");
+        int samplesLeft = totalSampleCount - dropCount;
+        for (int i = Math.max(stepsTaken - dropCount, 0); i < samplesLeft; i++) {
+            if (i % downSampleInterval == 0) {
+                algorithm.sample(samplesByVariable, logOfMasterPForEachSample);
+                if (checkpointSamples != null) {
+                    checkpointSamples.append(lastSample(samplesByVariable, logOfMasterPForEachSample));
+                }
+            } else {
+                algorithm.step();
+            }
+            remainingTimeComponent.step();
+            statusPercentage.progress((double) (i + 1) / samplesLeft);
+            saveCheckpointIfDue(dropCount + i + 1, totalSampleCount, checkpointSamples);
+        }
+
+        statusBar.finish();
+    }
+
+    private static NetworkSample lastSample(Map<VariableReference, List<?>> samplesByVariable,
+                                            List<Double> logOfMasterPForEachSample) {
+        Map<VariableReference, Object> sample = new HashMap<>();
+        for (Map.Entry<VariableReference, List<?>> samples : samplesByVariable.entrySet()) {
+            sample.put(samples.getKey(), samples.getValue().get(samples.getValue().size() - 1));
+        }
+        return new NetworkSample(sample, logOfMasterPForEachSample.get(logOfMasterPForEachSample.size() - 1));
+    }
+
+    private SamplerCheckpoint loadCheckpoint(int totalSampleCount) throws IOException {
+        SamplerCheckpoint checkpoint = SamplerCheckpoint.load(checkpointFile, (CheckpointableSamplingAlgorithm) algorithm);
+
+        Preconditions.checkArgument(
+            checkpoint.getTotalSampleCount() == totalSampleCount
+                && checkpoint.getDropCount() == dropCount
+                && checkpoint.getDownSampleInterval() == downSampleInterval,
+            "Checkpoint %s was saved by a run of %s samples dropping %s and down-sampling every %s, which cannot be " +
+                "resumed as a run of %s samples dropping %s and down-sampling every %s",
+            checkpointFile, checkpoint.getTotalSampleCount(), checkpoint.getDropCount(), checkpoint.getDownSampleInterval(),
+            totalSampleCount, dropCount, downSampleInterval
+        );
+
+        return checkpoint;
+    }
+
+    private static void readCheckpointSamples(Path samplesFile,
+                                              List<? extends Variable> variables,
+                                              int sampleCount,
+                                              Map<VariableReference, List<?>> samplesByVariable,
+                                              List<Double> logOfMasterPForEachSample) throws IOException {
+        NetworkSamples samples = SampleFileReader.open(samplesFile, variables);
+        if (samples.size() != sampleCount) {
+            throw new IOException(
+                samplesFile + " has " + samples.size() + " samples but the checkpoint was saved after " + sampleCount
+            );
+        }
+        if (sampleCount == 0) {
+            return;
+        }
+
+        for (Variable variable : variables) {
+            List<Object> variableSamples = new ColumnarSampleList<>();
+            variableSamples.addAll(samples.getStoredSamples(variable.getReference()));
+            samplesByVariable.put(variable.getReference(), variableSamples);
+        }
+        for (int i = 0; i < sampleCount; i++) {
+            logOfMasterPForEachSample.add(samples.getLogOfMasterP(i));
+        }
+    }
+
+    private void saveCheckpointIfDue(int stepsTaken, int totalSampleCount, SampleFileWriter checkpointSamples) {
+        if (checkpointSamples == null || stepsTaken % checkpointInterval != 0) {
+            return;
+        }
+
+        try {
+            checkpointSamples.flush();
+            SamplerCheckpoint checkpoint = new SamplerCheckpoint(
+                totalSampleCount, dropCount, downSampleInterval, stepsTaken,
+                Math.toIntExact(checkpointSamples.getSampleCount()), checkpointSamples.getPosition()
+            );
+            checkpoint.save(checkpointFile, (CheckpointableSamplingAlgorithm) algorithm);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Like {@link #generate(int)} but instead of keeping the samples, each one is added to the given statistics and
+     * then discarded. Memory use is therefore independent of the number of samples.
+     *
+     * @param totalSampleCount The total number of samples to generate, before any dropping or down-sampling is done.
+     * @param statistics       the statistics to add each collected sample to
+     * @return the given statistics after every collected sample has been added to them
+     */
+    public OnlineSampleStatistics generateStatistics(final int totalSampleCount, OnlineSampleStatistics statistics) {
+        generateInto(totalSampleCount, statistics);
+        return statistics;
+    }
+
+    /**
+     * Like {@link #generate(int)} but each sample is appended to a sample file as it is taken rather than kept in
+     * memory, so memory use is independent of the number of samples. The samples are then read back lazily from
+     * the file.
+     *
+     * @param totalSampleCount The total number of samples to generate, before any dropping or down-sampling is done.
+     * @param file             the file to write the samples to. It is replaced if it exists.
+     * @param variables        the variables to write the samples of, which must be sampled by the algorithm
+     * @return the samples after dropping and down-sampling, backed by the file
+     * @see SampleFileWriter
+     * @see SampleFileReader
+     */
+    public NetworkSamples generateToFile(final int totalSampleCount, Path file, List<? extends Variable> variables) {
+        try {
+            try (SampleFileWriter writer = new SampleFileWriter(file, variables)) {
+                generateInto(totalSampleCount, sample -> {
+                    try {
+                        writer.append(sample);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            return SampleFileReader.open(file, variables);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void generateInto(final int totalSampleCount, Consumer<NetworkSample> sampleConsumer) {
+        Preconditions.checkArgument(dropCount < totalSampleCount,
+            "Cannot drop more samples than requested or all of the samples. Samples requested %s and dropping %s",
+            totalSampleCount, dropCount
+        );
+
+        StatusBar statusBar = statusBarSupplier.get();
 
         dropSamples(dropCount, statusBar);
 
@@ -95,12 +321,10 @@ public class NetworkSamplesGenerator {
         RemainingTimeComponent remainingTimeComponent = new RemainingTimeComponent(totalSampleCount);
         statusBar.addComponent(remainingTimeComponent);
         statusBar.setMessage("Sampling...");
-        int sampleCount = 0;
         int samplesLeft = totalSampleCount - dropCount;
         for (int i = 0; i < samplesLeft; i++) {
             if (i % downSampleInterval == 0) {
-                algorithm.sample(samplesByVariable, logOfMasterPForEachSample);
-                sampleCount++;
+                sampleConsumer.accept(algorithm.sample());
             } else {
                 algorithm.step();
             }
@@ -109,7 +333,6 @@ public class NetworkSamplesGenerator {
         }
 
         statusBar.finish();
-        return new NetworkSamples(samplesByVariable, logOfMasterPForEachSample, sampleCount);
     }
 
     private PercentageComponent newPercentageComponentAndAddToStatusBar(StatusBar statusBar) {
@@ -145,14 +368,26 @@ public class NetworkSamplesGenerator {
     }
 
     private void dropSamples(int dropCount, StatusBar statusBar) {
-        if (dropCount == 0) {
+        dropSamples(0, dropCount, statusBar, step -> {
+        });
+    }
+
+    /**
+     * @param stepsTaken the number of samples that have already been dropped
+     * @param dropCount  the number of samples to drop in total
+     * @param statusBar  the status bar to show progress on
+     * @param afterStep  called with the number of steps taken after each step
+     */
+    private void dropSamples(int stepsTaken, int dropCount, StatusBar statusBar, IntConsumer afterStep) {
+        if (stepsTaken >= dropCount) {
             return;
         }
         statusBar.setMessage("Dropping samples...");
         PercentageComponent statusPercent = newPercentageComponentAndAddToStatusBar(statusBar);
-        for (int i = 0; i < dropCount; i++) {
+        for (int i = stepsTaken; i < dropCount; i++) {
             algorithm.step();
             statusPercent.progress((i + 1) / (double) dropCount);
+            afterStep.accept(i + 1);
         }
         statusBar.removeComponent(statusPercent);
     }
@@ -1,20 +1,36 @@
 package io.improbable.keanu.algorithms.mcmc;
 
+import io.improbable.keanu.algorithms.Variable;
 import io.improbable.keanu.algorithms.mcmc.proposal.Proposal;
 import io.improbable.keanu.network.LambdaSectionSnapshot;
-import io.improbable.keanu.network.NetworkSnapshot;
 import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexState;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * When a proposal is created, take a snapshot of the vertices' {@link io.improbable.keanu.network.LambdaSection}s
  * When a proposal is rejected, apply the snapshot to reset the Bayes Net to the old values.
  * This is more performant than {@link RollbackAndCascadeOnRejection}
+ * <p>
+ * The vertices affected by each set of proposed variables are found once and the snapshot is kept in arrays that are
+ * reused between steps. Together with vertices that reuse their value buffers
+ * ({@link io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.ReusesValueBuffers}), which write a new value
+ * into a different tensor from the one the snapshot refers to, a step does not need to allocate new value tensors.
+ * The {@link Vertex#getTopologyVersion() topology versions} of the affected vertices are kept with them, and the
+ * cached vertices are found again if a parent or child has since been added to or removed from any of them.
  */
 public class RollBackToCachedValuesOnRejection implements ProposalRejectionStrategy {
-    private final LambdaSectionSnapshot lambdaSectionSnapshot;
-    private NetworkSnapshot networkSnapshot;
+
+    private static final int MAX_CACHED_VARIABLE_SETS = 1024;
+
+    private LambdaSectionSnapshot lambdaSectionSnapshot;
+    private final Map<Set<Variable>, AffectedVertices> affectedVerticesCache = new HashMap<>();
+    private Vertex[] snapshotVertices = new Vertex[0];
+    private VertexState[] snapshotStates = new VertexState[0];
 
     public RollBackToCachedValuesOnRejection() {
         lambdaSectionSnapshot = new LambdaSectionSnapshot();
@@ -22,12 +38,65 @@ public class RollBackToCachedValuesOnRejection implements ProposalRejectionStrat
 
     @Override
     public void onProposalCreated(Proposal proposal) {
-        Set<Vertex> affectedVariables = lambdaSectionSnapshot.getAllVerticesAffectedBy(proposal.getVariablesWithProposal());
-        networkSnapshot = NetworkSnapshot.create(affectedVariables);
+        Vertex[] affectedVertices = getAllVerticesAffectedBy(proposal.getVariablesWithProposal());
+
+        if (snapshotStates.length < affectedVertices.length) {
+            snapshotStates = new VertexState[affectedVertices.length];
+        }
+
+        for (int i = 0; i < affectedVertices.length; i++) {
+            snapshotStates[i] = affectedVertices[i].getState();
+        }
+        snapshotVertices = affectedVertices;
     }
 
     @Override
     public void onProposalRejected(Proposal proposal) {
-        networkSnapshot.apply();
+        for (int i = 0; i < snapshotVertices.length; i++) {
+            snapshotVertices[i].setState(snapshotStates[i]);
+        }
+    }
+
+    private Vertex[] getAllVerticesAffectedBy(Set<Variable> variables) {
+        AffectedVertices affectedVertices = affectedVerticesCache.get(variables);
+
+        if (affectedVertices != null && affectedVertices.isStale()) {
+            lambdaSectionSnapshot = new LambdaSectionSnapshot();
+            affectedVerticesCache.clear();
+            affectedVertices = null;
+        }
+
+        if (affectedVertices == null) {
+            affectedVertices = new AffectedVertices(lambdaSectionSnapshot.getAllVerticesAffectedBy(variables).toArray(new Vertex[0]));
+
+            if (affectedVerticesCache.size() >= MAX_CACHED_VARIABLE_SETS) {
+                affectedVerticesCache.clear();
+            }
+            affectedVerticesCache.put(new HashSet<>(variables), affectedVertices);
+        }
+
+        return affectedVertices.vertices;
+    }
+
+    private static class AffectedVertices {
+        private final Vertex[] vertices;
+        private final long[] topologyVersions;
+
+        AffectedVertices(Vertex[] vertices) {
+            this.vertices = vertices;
+            this.topologyVersions = new long[vertices.length];
+            for (int i = 0; i < vertices.length; i++) {
+                topologyVersions[i] = vertices[i].getTopologyVersion();
+            }
+        }
+
+        boolean isStale() {
+            for (int i = 0; i < vertices.length; i++) {
+                if (vertices[i].getTopologyVersion() != topologyVersions[i]) {
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 }
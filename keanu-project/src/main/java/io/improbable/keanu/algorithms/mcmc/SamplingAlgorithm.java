@@ -3,6 +3,8 @@ package io.improbable.keanu.algorithms.mcmc;
 import io.improbable.keanu.algorithms.NetworkSample;
 import io.improbable.keanu.algorithms.Variable;
 import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.ReusesValueBuffers;
 
 import java.util.List;
 import java.util.Map;
@@ -12,7 +14,21 @@ public interface SamplingAlgorithm {
 
     static Map<VariableReference, ?> takeSample(List<? extends Variable> sampleFromVariables) {
         return sampleFromVariables.stream()
-            .collect(Collectors.toMap(Variable::getReference, Variable::getValue));
+            .collect(Collectors.toMap(Variable::getReference, variable -> sampleValueOf((Variable<?, ?>) variable)));
+    }
+
+    /**
+     * @param variable the variable to take a sample of
+     * @param <T>      the type of the value of the variable
+     * @return the value of the variable, duplicated if the variable reuses its value buffers as the value would
+     * otherwise be overwritten by a later step
+     */
+    static <T> T sampleValueOf(Variable<T, ?> variable) {
+        T value = variable.getValue();
+        if (variable instanceof ReusesValueBuffers && ((ReusesValueBuffers) variable).isReusingValueBuffers()) {
+            return (T) ((DoubleTensor) value).duplicate();
+        }
+        return value;
     }
 
     /**
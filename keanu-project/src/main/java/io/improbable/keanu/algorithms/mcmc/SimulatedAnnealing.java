@@ -110,7 +110,7 @@ public class SimulatedAnnealing {
     }
 
     private static <T> void setSampleForVariable(Variable<T, ?> variable, Map<VariableReference, ?> samples) {
-        ((Map<VariableReference, ? super T>) samples).put(variable.getReference(), variable.getValue());
+        ((Map<VariableReference, ? super T>) samples).put(variable.getReference(), SamplingAlgorithm.sampleValueOf(variable));
     }
 
     /**
@@ -0,0 +1,133 @@
+package io.improbable.keanu.algorithms.mcmc.checkpoint;
+
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import lombok.experimental.UtilityClass;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes and reads the values that make up the state of a sampler in a checkpoint.
+ */
+@UtilityClass
+public class CheckpointValues {
+
+    private static final byte DOUBLE_TENSOR = 0;
+    private static final byte INTEGER_TENSOR = 1;
+    private static final byte BOOLEAN_TENSOR = 2;
+
+    /**
+     * @param output the checkpoint to write to
+     * @param value  a double, integer or boolean tensor
+     * @throws IOException              if the value could not be written
+     * @throws IllegalArgumentException if the value is not a supported tensor
+     */
+    public static void writeValue(DataOutput output, Object value) throws IOException {
+        if (value instanceof DoubleTensor) {
+            output.writeByte(DOUBLE_TENSOR);
+            writeShape(output, (Tensor<?>) value);
+            writeDoubles(output, ((DoubleTensor) value).asFlatDoubleArray());
+        } else if (value instanceof IntegerTensor) {
+            output.writeByte(INTEGER_TENSOR);
+            writeShape(output, (Tensor<?>) value);
+            writeInts(output, ((IntegerTensor) value).asFlatIntegerArray());
+        } else if (value instanceof BooleanTensor) {
+            output.writeByte(BOOLEAN_TENSOR);
+            writeShape(output, (Tensor<?>) value);
+            boolean[] values = ((BooleanTensor) value).asFlatBooleanArray();
+            output.writeInt(values.length);
+            for (boolean element : values) {
+                output.writeBoolean(element);
+            }
+        } else {
+            String type = value == null ? "null" : value.getClass().getSimpleName();
+            throw new IllegalArgumentException("Cannot checkpoint a value of type " + type);
+        }
+    }
+
+    /**
+     * @param input the checkpoint to read from
+     * @return a value written by {@link #writeValue(DataOutput, Object)}
+     * @throws IOException if the value could not be read
+     */
+    public static Object readValue(DataInput input) throws IOException {
+        byte type = input.readByte();
+        long[] shape = readShape(input);
+
+        switch (type) {
+            case DOUBLE_TENSOR:
+                return DoubleTensor.create(readDoubles(input), shape);
+            case INTEGER_TENSOR:
+                return IntegerTensor.create(readInts(input), shape);
+            case BOOLEAN_TENSOR:
+                boolean[] values = new boolean[input.readInt()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = input.readBoolean();
+                }
+                return BooleanTensor.create(values, shape);
+            default:
+                throw new IOException("Unknown value type " + type + " in checkpoint");
+        }
+    }
+
+    public static void writeDoubles(DataOutput output, double[] values) throws IOException {
+        output.writeInt(values.length);
+        for (double value : values) {
+            output.writeDouble(value);
+        }
+    }
+
+    public static double[] readDoubles(DataInput input) throws IOException {
+        double[] values = new double[input.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = input.readDouble();
+        }
+        return values;
+    }
+
+    public static void writeBytes(DataOutput output, byte[] values) throws IOException {
+        output.writeInt(values.length);
+        output.write(values);
+    }
+
+    public static byte[] readBytes(DataInput input) throws IOException {
+        byte[] values = new byte[input.readInt()];
+        input.readFully(values);
+        return values;
+    }
+
+    private static void writeShape(DataOutput output, Tensor<?> tensor) throws IOException {
+        long[] shape = tensor.getShape();
+        output.writeInt(shape.length);
+        for (long dimension : shape) {
+            output.writeLong(dimension);
+        }
+    }
+
+    private static long[] readShape(DataInput input) throws IOException {
+        long[] values = new long[input.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = input.readLong();
+        }
+        return values;
+    }
+
+    private static void writeInts(DataOutput output, int[] values) throws IOException {
+        output.writeInt(values.length);
+        for (int value : values) {
+            output.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(DataInput input) throws IOException {
+        int[] values = new int[input.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = input.readInt();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,41 @@
+package io.improbable.keanu.algorithms.mcmc.checkpoint;
+
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.mcmc.SamplingAlgorithm;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A {@link SamplingAlgorithm} whose state between steps can be saved to a checkpoint and loaded back, so that a run
+ * can be resumed in another JVM and continue exactly as it would have without interruption.
+ * <p>
+ * The state must be loaded into an algorithm that was set up in the same way, on a model with the same structure,
+ * as the one it was saved from. Variables are identified by their position in the lists the algorithm was given
+ * rather than by their references, which differ between JVMs.
+ */
+public interface CheckpointableSamplingAlgorithm extends SamplingAlgorithm {
+
+    /**
+     * @return the variables that samples are taken from, in the order they are stored in a checkpoint
+     */
+    List<? extends Variable> getSampleFromVariables();
+
+    /**
+     * Writes everything needed to continue from the current step, including the state of the source of randomness.
+     *
+     * @param output the checkpoint to write to
+     * @throws IOException if the checkpoint could not be written
+     */
+    void saveState(DataOutput output) throws IOException;
+
+    /**
+     * Replaces the state of the algorithm with one written by {@link #saveState(DataOutput)}.
+     *
+     * @param input the checkpoint to read from
+     * @throws IOException if the checkpoint could not be read
+     */
+    void loadState(DataInput input) throws IOException;
+}
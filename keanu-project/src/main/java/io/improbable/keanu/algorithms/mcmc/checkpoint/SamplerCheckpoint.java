@@ -0,0 +1,109 @@
+package io.improbable.keanu.algorithms.mcmc.checkpoint;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The progress of a sampling run at the end of a step: the settings of the run, how many steps have been taken, how
+ * many samples have been collected and, in the file, the state of the {@link CheckpointableSamplingAlgorithm}.
+ * <p>
+ * The samples themselves are not part of the checkpoint, so saving one takes the same time however long the run has
+ * been going. They are appended to a {@link io.improbable.keanu.util.io.SampleFileWriter sample file} next to the
+ * checkpoint file as they are taken, and the checkpoint holds the position in that file after the last of them.
+ * <p>
+ * A checkpoint is first written to a temporary file next to the checkpoint file, which it then replaces, so the
+ * checkpoint file is always complete even if the JVM dies while a checkpoint is being written.
+ */
+@AllArgsConstructor
+@Getter
+public class SamplerCheckpoint {
+
+    private static final int MAGIC = 0x4b43504b;
+    private static final int VERSION = 2;
+
+    private final int totalSampleCount;
+    private final int dropCount;
+    private final int downSampleInterval;
+    private final int stepsTaken;
+    private final int sampleCount;
+    private final long sampleFilePosition;
+
+    /**
+     * @param checkpointFile a checkpoint file
+     * @return the file that the samples of the run that saves checkpoints to the given file are appended to
+     */
+    public static Path samplesFileOf(Path checkpointFile) {
+        return checkpointFile.resolveSibling(checkpointFile.getFileName() + ".samples");
+    }
+
+    /**
+     * @param file      the checkpoint file to write
+     * @param algorithm the algorithm whose state to write alongside the progress of the run
+     * @throws IOException if the checkpoint could not be written
+     */
+    public void save(Path file, CheckpointableSamplingAlgorithm algorithm) throws IOException {
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(totalSampleCount);
+            output.writeInt(dropCount);
+            output.writeInt(downSampleInterval);
+            output.writeInt(stepsTaken);
+            output.writeInt(sampleCount);
+            output.writeLong(sampleFilePosition);
+
+            algorithm.saveState(output);
+        }
+
+        try {
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a checkpoint and loads the state of the algorithm from it.
+     *
+     * @param file      the checkpoint file to read
+     * @param algorithm an algorithm set up in the same way as the one the checkpoint was saved from
+     * @return the progress of the run
+     * @throws IOException if the file is not a checkpoint or could not be read
+     */
+    public static SamplerCheckpoint load(Path file, CheckpointableSamplingAlgorithm algorithm) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException(file + " is not a sampler checkpoint");
+            }
+            int version = input.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported sampler checkpoint version " + version + " in " + file);
+            }
+
+            int totalSampleCount = input.readInt();
+            int dropCount = input.readInt();
+            int downSampleInterval = input.readInt();
+            int stepsTaken = input.readInt();
+            int sampleCount = input.readInt();
+            long sampleFilePosition = input.readLong();
+
+            algorithm.loadState(input);
+
+            return new SamplerCheckpoint(
+                totalSampleCount, dropCount, downSampleInterval, stepsTaken, sampleCount, sampleFilePosition
+            );
+        }
+    }
+}
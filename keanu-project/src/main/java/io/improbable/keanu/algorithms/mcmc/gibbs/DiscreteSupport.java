@@ -0,0 +1,77 @@
+package io.improbable.keanu.algorithms.mcmc.gibbs;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.bool.probabilistic.BernoulliVertex;
+import io.improbable.keanu.vertices.generic.probabilistic.discrete.CategoricalVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.BinomialVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.UniformIntVertex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The values that a discrete vertex can take given the current values of its parents.
+ */
+final class DiscreteSupport {
+
+    private DiscreteSupport() {
+    }
+
+    /**
+     * @param vertex a vertex
+     * @return true if the support of the vertex can be enumerated
+     */
+    static boolean isSupported(Vertex<?> vertex) {
+        return TensorShape.getLength(vertex.getShape()) == 1 && (
+            vertex instanceof BernoulliVertex
+                || vertex instanceof CategoricalVertex
+                || vertex instanceof UniformIntVertex
+                || vertex instanceof BinomialVertex
+        );
+    }
+
+    /**
+     * @param vertex a Bernoulli, Categorical, UniformInt or Binomial vertex with a single element
+     * @return every value the vertex can take with its parents at their current values, in the shape of the vertex
+     * @throws IllegalArgumentException if the support of the vertex cannot be enumerated
+     */
+    static List<?> of(Vertex<?> vertex) {
+        Preconditions.checkArgument(isSupported(vertex),
+            "Cannot enumerate the values of %s with shape %s. Only Bernoulli, Categorical, UniformInt and Binomial " +
+                "vertices with a single element are supported.",
+            vertex, Arrays.toString(vertex.getShape())
+        );
+
+        long[] shape = vertex.getShape();
+
+        if (vertex instanceof BernoulliVertex) {
+            return ImmutableList.of(BooleanTensor.create(false, shape), BooleanTensor.create(true, shape));
+        } else if (vertex instanceof CategoricalVertex) {
+            List<Tensor<?>> support = new ArrayList<>();
+            for (Object category : ((CategoricalVertex<?, ?>) vertex).getSelectableValues().keySet()) {
+                support.add(Tensor.createFilled(category, shape));
+            }
+            return support;
+        } else if (vertex instanceof UniformIntVertex) {
+            UniformIntVertex uniformInt = (UniformIntVertex) vertex;
+            return integersBetween(uniformInt.getMin().getValue().scalar(), uniformInt.getMax().getValue().scalar() - 1, shape);
+        } else {
+            return integersBetween(0, ((BinomialVertex) vertex).getN().getValue().scalar(), shape);
+        }
+    }
+
+    private static List<IntegerTensor> integersBetween(int from, int to, long[] shape) {
+        List<IntegerTensor> support = new ArrayList<>(Math.max(to - from + 1, 0));
+        for (int value = from; value <= to; value++) {
+            support.add(IntegerTensor.create(value, shape));
+        }
+        return support;
+    }
+}
@@ -0,0 +1,160 @@
+package io.improbable.keanu.algorithms.mcmc.gibbs;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.PosteriorSamplingAlgorithm;
+import io.improbable.keanu.algorithms.ProbabilisticModel;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.mcmc.ContinuousLatentSamplingAlgorithm;
+import io.improbable.keanu.algorithms.mcmc.InterleavableSamplingAlgorithm;
+import io.improbable.keanu.algorithms.mcmc.NetworkSamplesGenerator;
+import io.improbable.keanu.algorithms.mcmc.SamplingAlgorithm;
+import io.improbable.keanu.algorithms.mcmc.metrics.MeteredProbabilisticModel;
+import io.improbable.keanu.algorithms.mcmc.metrics.MeteredSamplingAlgorithm;
+import io.improbable.keanu.algorithms.mcmc.metrics.MetricsSink;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.util.status.StatusBar;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
+import io.improbable.keanu.vertices.Vertex;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gibbs sampling samples each discrete latent vertex in turn exactly from its distribution given the values of all
+ * the other latent variables, so unlike Metropolis Hastings with a prior proposal no step is ever rejected.
+ * <p>
+ * The discrete latent vertices must be {@link io.improbable.keanu.vertices.bool.probabilistic.BernoulliVertex},
+ * {@link io.improbable.keanu.vertices.generic.probabilistic.discrete.CategoricalVertex},
+ * {@link io.improbable.keanu.vertices.intgr.probabilistic.UniformIntVertex} or
+ * {@link io.improbable.keanu.vertices.intgr.probabilistic.BinomialVertex} vertices with a single element. The cost of
+ * sampling one is proportional to the number of values it can take, so they should have small supports. Any
+ * continuous latent variables are sampled by a {@link ContinuousLatentSamplingAlgorithm}, e.g.
+ * {@link io.improbable.keanu.algorithms.mcmc.nuts.NUTS}, which takes one step before each sweep over the discrete
+ * vertices.
+ */
+@AllArgsConstructor
+public class Gibbs implements PosteriorSamplingAlgorithm {
+
+    @Getter
+    private KeanuRandom random;
+
+    @Getter
+    private ContinuousLatentSamplingAlgorithm continuousLatentAlgorithm;
+
+    @Getter
+    @NonNull
+    private MetricsSink metricsSink;
+
+    public static GibbsBuilder builder() {
+        return new GibbsBuilder();
+    }
+
+    /**
+     * @param model                 a probabilistic model containing latent variables
+     * @param variablesToSampleFrom the variables to include in the returned samples
+     * @param sampleCount           number of samples to take using the algorithm
+     * @return Samples for each variable ordered by iteration
+     */
+    @Override
+    public NetworkSamples getPosteriorSamples(ProbabilisticModel model,
+                                              List<? extends Variable> variablesToSampleFrom,
+                                              int sampleCount) {
+        return generatePosteriorSamples(model, variablesToSampleFrom)
+            .generate(sampleCount);
+    }
+
+    /**
+     * @throws IllegalArgumentException if a discrete latent variable is not supported, or the model has continuous
+     *                                  latent variables and no algorithm was given to sample them
+     */
+    @Override
+    public NetworkSamplesGenerator generatePosteriorSamples(final ProbabilisticModel model,
+                                                            final List<? extends Variable> variablesToSampleFrom) {
+        return new NetworkSamplesGenerator(setupSampler(model, variablesToSampleFrom), StatusBar::new);
+    }
+
+    private SamplingAlgorithm setupSampler(final ProbabilisticModel model,
+                                           final List<? extends Variable> variablesToSampleFrom) {
+
+        boolean metered = metricsSink != MetricsSink.NONE;
+        ProbabilisticModel steppedModel = metered ? MeteredProbabilisticModel.of(model, metricsSink) : model;
+
+        List<Vertex<?>> discreteLatentVertices = new ArrayList<>();
+        boolean hasContinuousLatents = false;
+        for (Variable<?, ?> variable : model.getLatentVariables()) {
+            if (variable.getValue() instanceof DoubleTensor) {
+                hasContinuousLatents = true;
+            } else {
+                Preconditions.checkArgument(variable instanceof Vertex && DiscreteSupport.isSupported((Vertex<?>) variable),
+                    "Gibbs cannot sample %s. Only Bernoulli, Categorical, UniformInt and Binomial vertices with a " +
+                        "single element are supported.",
+                    variable
+                );
+                discreteLatentVertices.add((Vertex<?>) variable);
+            }
+        }
+
+        InterleavableSamplingAlgorithm continuousLatentSampler = null;
+        if (hasContinuousLatents) {
+            Preconditions.checkArgument(continuousLatentAlgorithm != null,
+                "The model has continuous latent variables. Set an algorithm to sample them with, e.g. NUTS."
+            );
+            continuousLatentSampler = continuousLatentAlgorithm.continuousLatentSampler(steppedModel);
+        }
+
+        double logProb = steppedModel.logProb();
+        Preconditions.checkArgument(
+            !ProbabilityCalculator.isImpossibleLogProb(logProb),
+            "Sampler starting position is invalid. Please start from a non-zero probability position."
+        );
+
+        SamplingAlgorithm sampler = new GibbsSampler(
+            steppedModel, discreteLatentVertices, variablesToSampleFrom, continuousLatentSampler, random, logProb
+        );
+
+        return metered ? MeteredSamplingAlgorithm.of(sampler, metricsSink) : sampler;
+    }
+
+    public static class GibbsBuilder {
+        private KeanuRandom random = KeanuRandom.getDefaultRandom();
+        private ContinuousLatentSamplingAlgorithm continuousLatentAlgorithm = null;
+        private MetricsSink metricsSink = MetricsSink.NONE;
+
+        GibbsBuilder() {
+        }
+
+        public GibbsBuilder random(KeanuRandom random) {
+            this.random = random;
+            return this;
+        }
+
+        /**
+         * @param continuousLatentAlgorithm the algorithm to sample the continuous latent variables with, e.g.
+         *                                  {@link io.improbable.keanu.algorithms.mcmc.nuts.NUTS} or
+         *                                  {@link io.improbable.keanu.algorithms.mcmc.MetropolisHastings}
+         * @return this builder
+         */
+        public GibbsBuilder continuousLatentAlgorithm(ContinuousLatentSamplingAlgorithm continuousLatentAlgorithm) {
+            this.continuousLatentAlgorithm = continuousLatentAlgorithm;
+            return this;
+        }
+
+        public GibbsBuilder metricsSink(MetricsSink metricsSink) {
+            this.metricsSink = metricsSink;
+            return this;
+        }
+
+        public Gibbs build() {
+            return new Gibbs(random, continuousLatentAlgorithm, metricsSink);
+        }
+
+        public String toString() {
+            return "Gibbs.GibbsBuilder(random=" + this.random + ", continuousLatentAlgorithm=" + this.continuousLatentAlgorithm + ", metricsSink=" + this.metricsSink + ")";
+        }
+    }
+}
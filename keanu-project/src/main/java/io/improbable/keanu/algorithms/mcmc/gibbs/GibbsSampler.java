@@ -0,0 +1,160 @@
+package io.improbable.keanu.algorithms.mcmc.gibbs;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.ColumnarSampleList;
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.ProbabilisticModel;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.mcmc.InterleavableSamplingAlgorithm;
+import io.improbable.keanu.algorithms.mcmc.SamplingAlgorithm;
+import io.improbable.keanu.vertices.Vertex;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Each step takes a step of the continuous latent sampler, if there is one, and then samples each discrete latent
+ * vertex in turn from its full conditional distribution.
+ * <p>
+ * The full conditional of a vertex is found by setting the vertex to each value in its support and calculating the
+ * change in log prob with {@link ProbabilisticModel#logProbAfter(Map, double)}. Only the vertex and the probabilistic
+ * vertices downstream of it, which are the part of its Markov blanket that depends on its value, are evaluated.
+ */
+public class GibbsSampler implements SamplingAlgorithm {
+
+    private final ProbabilisticModel model;
+    private final List<? extends Vertex> discreteLatentVertices;
+    private final List<? extends Variable> variablesToSampleFrom;
+    private final InterleavableSamplingAlgorithm continuousLatentSampler;
+    private final KeanuRandom random;
+
+    private double logProbabilityBeforeStep;
+
+    /**
+     * @param model                   the model to sample from
+     * @param discreteLatentVertices  the vertices to sample from their full conditionals
+     * @param variablesToSampleFrom   the variables to include in the samples
+     * @param continuousLatentSampler samples the continuous latent variables of the model, or null if there are none
+     * @param random                  the source of randomness
+     * @param logProbabilityBeforeStep the log prob of the model at its current values
+     */
+    public GibbsSampler(ProbabilisticModel model,
+                        List<? extends Vertex> discreteLatentVertices,
+                        List<? extends Variable> variablesToSampleFrom,
+                        InterleavableSamplingAlgorithm continuousLatentSampler,
+                        KeanuRandom random,
+                        double logProbabilityBeforeStep) {
+        this.model = model;
+        this.discreteLatentVertices = discreteLatentVertices;
+        this.variablesToSampleFrom = variablesToSampleFrom;
+        this.continuousLatentSampler = continuousLatentSampler;
+        this.random = random;
+        this.logProbabilityBeforeStep = logProbabilityBeforeStep;
+    }
+
+    @Override
+    public void step() {
+        if (continuousLatentSampler != null) {
+            continuousLatentSampler.step();
+            logProbabilityBeforeStep = continuousLatentSampler.setModelToCurrentState();
+        }
+
+        for (Vertex<?> vertex : discreteLatentVertices) {
+            logProbabilityBeforeStep = sampleFullConditional(vertex, logProbabilityBeforeStep);
+        }
+
+        if (continuousLatentSampler != null) {
+            continuousLatentSampler.continueFromModel(logProbabilityBeforeStep);
+        }
+    }
+
+    @Override
+    public void sample(Map<VariableReference, List<?>> samplesByVariable, List<Double> logOfMasterPForEachSample) {
+        step();
+        for (Variable variable : variablesToSampleFrom) {
+            addSampleForVariable((Variable<?, ?>) variable, samplesByVariable);
+        }
+        logOfMasterPForEachSample.add(logProbabilityBeforeStep);
+    }
+
+    @Override
+    public NetworkSample sample() {
+        step();
+        return new NetworkSample(SamplingAlgorithm.takeSample(variablesToSampleFrom), logProbabilityBeforeStep);
+    }
+
+    /**
+     * Each value in the support is scored by the change in log prob from the last possible value that was scored, or
+     * from the current value of the vertex if none has been yet. After an impossible value the model is moved back to
+     * that value before the next one is scored, so an impossible value does not affect the scores of later values.
+     *
+     * @param vertex                   a discrete latent vertex
+     * @param logProbabilityBeforeStep the log prob of the model at its current values
+     * @return the log prob of the model after setting the vertex to a value sampled from its full conditional
+     */
+    private double sampleFullConditional(Vertex<?> vertex, double logProbabilityBeforeStep) {
+        List<?> support = DiscreteSupport.of(vertex);
+        double[] logProbs = new double[support.size()];
+        double maxLogProb = Double.NEGATIVE_INFINITY;
+
+        Object referenceValue = vertex.getValue();
+        double referenceLogProb = logProbabilityBeforeStep;
+        boolean isAtReference = true;
+
+        for (int i = 0; i < logProbs.length; i++) {
+            Map<VariableReference, Object> candidate = Collections.singletonMap(vertex.getId(), support.get(i));
+
+            if (!isAtReference) {
+                model.logProbAfter(Collections.singletonMap(vertex.getId(), referenceValue), referenceLogProb);
+            }
+            double logProb = model.logProbAfter(candidate, referenceLogProb);
+
+            if (isPossible(logProb)) {
+                referenceValue = support.get(i);
+                referenceLogProb = logProb;
+                isAtReference = true;
+                maxLogProb = Math.max(maxLogProb, logProb);
+            } else {
+                logProb = Double.NEGATIVE_INFINITY;
+                isAtReference = false;
+            }
+            logProbs[i] = logProb;
+        }
+
+        if (maxLogProb == Double.NEGATIVE_INFINITY) {
+            throw new IllegalStateException("Every value of " + vertex + " has zero probability");
+        }
+
+        double[] cumulativeProbs = new double[logProbs.length];
+        double total = 0.0;
+        for (int i = 0; i < logProbs.length; i++) {
+            total += Math.exp(logProbs[i] - maxLogProb);
+            cumulativeProbs[i] = total;
+        }
+
+        double u = random.nextDouble() * total;
+        int chosen = 0;
+        while (chosen < cumulativeProbs.length - 1 && cumulativeProbs[chosen] <= u) {
+            chosen++;
+        }
+
+        if (!isAtReference || support.get(chosen) != referenceValue) {
+            model.logProbAfter(Collections.singletonMap(vertex.getId(), support.get(chosen)), logProbs[chosen]);
+        }
+        return logProbs[chosen];
+    }
+
+    /**
+     * @return false if the log prob is -Infinity or NaN, e.g. for a value outside the support of a distribution
+     */
+    private static boolean isPossible(double logProb) {
+        return logProb > Double.NEGATIVE_INFINITY;
+    }
+
+    private static <T> void addSampleForVariable(Variable<T, ?> variable, Map<VariableReference, List<?>> samples) {
+        List<T> samplesForVariable = (List<T>) samples.computeIfAbsent(variable.getReference(), v -> new ColumnarSampleList<T>());
+        samplesForVariable.add(SamplingAlgorithm.sampleValueOf(variable));
+    }
+}
@@ -0,0 +1,38 @@
+package io.improbable.keanu.algorithms.mcmc.metrics;
+
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.mcmc.checkpoint.CheckpointableSamplingAlgorithm;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A {@link MeteredSamplingAlgorithm} of a {@link CheckpointableSamplingAlgorithm}, which passes checkpoints through to
+ * it.
+ */
+class CheckpointableMeteredSamplingAlgorithm extends MeteredSamplingAlgorithm implements CheckpointableSamplingAlgorithm {
+
+    private final CheckpointableSamplingAlgorithm checkpointable;
+
+    CheckpointableMeteredSamplingAlgorithm(CheckpointableSamplingAlgorithm algorithm, MetricsSink sink) {
+        super(algorithm, sink);
+        this.checkpointable = algorithm;
+    }
+
+    @Override
+    public List<? extends Variable> getSampleFromVariables() {
+        return checkpointable.getSampleFromVariables();
+    }
+
+    @Override
+    public void saveState(DataOutput output) throws IOException {
+        checkpointable.saveState(output);
+    }
+
+    @Override
+    public void loadState(DataInput input) throws IOException {
+        checkpointable.loadState(input);
+    }
+}
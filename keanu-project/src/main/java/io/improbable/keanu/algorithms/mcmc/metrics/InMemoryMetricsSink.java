@@ -0,0 +1,95 @@
+package io.improbable.keanu.algorithms.mcmc.metrics;
+
+import io.improbable.keanu.algorithms.statistics.TDigest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link MetricsSink} that keeps the counters and a summary of the histograms in memory, e.g. to be inspected at
+ * the end of a sampling run or to be polled by an exporter.
+ */
+public class InMemoryMetricsSink implements MetricsSink {
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    @Override
+    public void incrementCounter(String name, long amount) {
+        counters.computeIfAbsent(name, n -> new LongAdder()).add(amount);
+    }
+
+    @Override
+    public void recordValue(String name, double value) {
+        histograms.computeIfAbsent(name, n -> new Histogram()).add(value);
+    }
+
+    /**
+     * @param name the name of a counter
+     * @return the value of the counter, or 0 if it has not been incremented
+     */
+    public long getCounter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * @return the value of every counter that has been incremented
+     */
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new HashMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+
+    /**
+     * @param name the name of a histogram
+     * @return the histogram, which is empty if no values have been recorded to it
+     */
+    public Histogram getHistogram(String name) {
+        return histograms.getOrDefault(name, new Histogram());
+    }
+
+    /**
+     * The count, sum, extremes and approximate quantiles of the values recorded to a histogram.
+     */
+    public static class Histogram {
+        private final TDigest digest = new TDigest();
+        private double sum;
+
+        synchronized void add(double value) {
+            digest.add(value);
+            sum += value;
+        }
+
+        public synchronized long getCount() {
+            return (long) digest.getCount();
+        }
+
+        public synchronized double getSum() {
+            return sum;
+        }
+
+        public synchronized double getMean() {
+            return sum / digest.getCount();
+        }
+
+        public synchronized double getMin() {
+            return digest.getMin();
+        }
+
+        public synchronized double getMax() {
+            return digest.getMax();
+        }
+
+        /**
+         * @param q the quantile, between 0 and 1
+         * @return an estimate of the quantile of the recorded values
+         */
+        public synchronized double getQuantile(double q) {
+            return digest.quantile(q);
+        }
+    }
+}
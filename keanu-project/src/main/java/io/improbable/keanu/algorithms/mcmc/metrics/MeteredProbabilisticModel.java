@@ -0,0 +1,87 @@
+package io.improbable.keanu.algorithms.mcmc.metrics;
+
+import io.improbable.keanu.algorithms.ProbabilisticModel;
+import io.improbable.keanu.algorithms.ProbabilisticModelWithGradient;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the log prob evaluations of a {@link ProbabilisticModel} and reports them to a {@link MetricsSink}, along
+ * with the number of vertices updated by each cascade if the model is a {@link KeanuProbabilisticModel}.
+ */
+public class MeteredProbabilisticModel implements ProbabilisticModel {
+
+    private final ProbabilisticModel model;
+    protected final MetricsSink sink;
+
+    protected MeteredProbabilisticModel(ProbabilisticModel model, MetricsSink sink) {
+        this.model = model;
+        this.sink = sink;
+    }
+
+    /**
+     * @param model the model to meter
+     * @param sink  the sink to report to
+     * @return a metered model, which can calculate gradients if the given model can
+     */
+    public static ProbabilisticModel of(ProbabilisticModel model, MetricsSink sink) {
+        if (model instanceof ProbabilisticModelWithGradient) {
+            return new MeteredProbabilisticModelWithGradient((ProbabilisticModelWithGradient) model, sink);
+        }
+        return new MeteredProbabilisticModel(model, sink);
+    }
+
+    @Override
+    public double logProb(Map<VariableReference, ?> inputs) {
+        double logProb = model.logProb(inputs);
+        recordLogProbEvaluation(inputs.keySet());
+        return logProb;
+    }
+
+    @Override
+    public double logProbAfter(Map<VariableReference, Object> newValues, double logProbBefore) {
+        double logProb = model.logProbAfter(newValues, logProbBefore);
+        recordLogProbEvaluation(newValues.keySet());
+        return logProb;
+    }
+
+    @Override
+    public double[] batchLogProb(List<? extends Map<VariableReference, ?>> points) {
+        sink.incrementCounter(SamplerMetrics.LOG_PROB_EVALUATIONS, points.size());
+        return model.batchLogProb(points);
+    }
+
+    @Override
+    public double logLikelihood(Map<VariableReference, ?> inputs) {
+        double logLikelihood = model.logLikelihood(inputs);
+        recordLogProbEvaluation(inputs.keySet());
+        return logLikelihood;
+    }
+
+    @Override
+    public List<? extends Variable> getLatentVariables() {
+        return model.getLatentVariables();
+    }
+
+    @Override
+    public List<? extends Variable<DoubleTensor, ?>> getContinuousLatentVariables() {
+        return model.getContinuousLatentVariables();
+    }
+
+    protected void recordCascade(Collection<? extends VariableReference> inputs) {
+        if (!inputs.isEmpty() && model instanceof KeanuProbabilisticModel) {
+            sink.recordValue(SamplerMetrics.CASCADE_SIZE, ((KeanuProbabilisticModel) model).getCascadeSize(inputs));
+        }
+    }
+
+    private void recordLogProbEvaluation(Collection<? extends VariableReference> inputs) {
+        sink.incrementCounter(SamplerMetrics.LOG_PROB_EVALUATIONS, 1);
+        recordCascade(inputs);
+    }
+}
@@ -0,0 +1,61 @@
+package io.improbable.keanu.algorithms.mcmc.metrics;
+
+import io.improbable.keanu.algorithms.ProbabilisticModelWithGradient;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link MeteredProbabilisticModel} that also counts the gradient evaluations of the model.
+ */
+public class MeteredProbabilisticModelWithGradient extends MeteredProbabilisticModel implements ProbabilisticModelWithGradient {
+
+    private final ProbabilisticModelWithGradient model;
+
+    MeteredProbabilisticModelWithGradient(ProbabilisticModelWithGradient model, MetricsSink sink) {
+        super(model, sink);
+        this.model = model;
+    }
+
+    @Override
+    public Map<? extends VariableReference, DoubleTensor> logProbGradients(Map<VariableReference, ?> inputs) {
+        Map<? extends VariableReference, DoubleTensor> gradients = model.logProbGradients(inputs);
+        recordGradientEvaluation(inputs);
+        return gradients;
+    }
+
+    @Override
+    public Map<? extends VariableReference, DoubleTensor> logProbGradients() {
+        Map<? extends VariableReference, DoubleTensor> gradients = model.logProbGradients();
+        recordGradientEvaluation(Collections.emptyMap());
+        return gradients;
+    }
+
+    @Override
+    public List<Map<? extends VariableReference, DoubleTensor>> batchLogProbGradients(List<? extends Map<VariableReference, ?>> points) {
+        sink.incrementCounter(SamplerMetrics.GRADIENT_EVALUATIONS, points.size());
+        return model.batchLogProbGradients(points);
+    }
+
+    @Override
+    public Map<? extends VariableReference, DoubleTensor> logLikelihoodGradients(Map<VariableReference, ?> inputs) {
+        Map<? extends VariableReference, DoubleTensor> gradients = model.logLikelihoodGradients(inputs);
+        recordGradientEvaluation(inputs);
+        return gradients;
+    }
+
+    @Override
+    public Map<? extends VariableReference, DoubleTensor> logLikelihoodGradients() {
+        Map<? extends VariableReference, DoubleTensor> gradients = model.logLikelihoodGradients();
+        recordGradientEvaluation(Collections.emptyMap());
+        return gradients;
+    }
+
+    private void recordGradientEvaluation(Map<VariableReference, ?> inputs) {
+        sink.incrementCounter(SamplerMetrics.GRADIENT_EVALUATIONS, 1);
+        recordCascade(inputs.keySet());
+    }
+}
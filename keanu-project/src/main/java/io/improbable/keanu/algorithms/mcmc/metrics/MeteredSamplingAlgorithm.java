@@ -0,0 +1,78 @@
+package io.improbable.keanu.algorithms.mcmc.metrics;
+
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.mcmc.SamplingAlgorithm;
+import io.improbable.keanu.algorithms.mcmc.checkpoint.CheckpointableSamplingAlgorithm;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reports the number, wall time and allocation of the steps of any {@link SamplingAlgorithm} to a
+ * {@link MetricsSink}. Use {@link #of(SamplingAlgorithm, MetricsSink)} so that a metered
+ * {@link CheckpointableSamplingAlgorithm} can still be checkpointed.
+ */
+public class MeteredSamplingAlgorithm implements SamplingAlgorithm {
+
+    private final SamplingAlgorithm algorithm;
+    private final MetricsSink sink;
+
+    private long stepStartNanos;
+    private long stepStartAllocatedBytes;
+
+    protected MeteredSamplingAlgorithm(SamplingAlgorithm algorithm, MetricsSink sink) {
+        this.algorithm = algorithm;
+        this.sink = sink;
+    }
+
+    /**
+     * @param algorithm the algorithm to meter
+     * @param sink      the sink to report the steps of the algorithm to
+     * @return a metered algorithm, which is a {@link CheckpointableSamplingAlgorithm} if and only if the given one is
+     */
+    public static MeteredSamplingAlgorithm of(SamplingAlgorithm algorithm, MetricsSink sink) {
+        if (algorithm instanceof CheckpointableSamplingAlgorithm) {
+            return new CheckpointableMeteredSamplingAlgorithm((CheckpointableSamplingAlgorithm) algorithm, sink);
+        }
+        return new MeteredSamplingAlgorithm(algorithm, sink);
+    }
+
+    @Override
+    public void step() {
+        startStep();
+        algorithm.step();
+        endStep();
+    }
+
+    @Override
+    public void sample(Map<VariableReference, List<?>> samples, List<Double> logOfMasterPForEachSample) {
+        startStep();
+        algorithm.sample(samples, logOfMasterPForEachSample);
+        endStep();
+    }
+
+    @Override
+    public NetworkSample sample() {
+        startStep();
+        NetworkSample sample = algorithm.sample();
+        endStep();
+        return sample;
+    }
+
+    private void startStep() {
+        stepStartAllocatedBytes = SamplerMetrics.currentThreadAllocatedBytes();
+        stepStartNanos = System.nanoTime();
+    }
+
+    private void endStep() {
+        long stepTimeNanos = System.nanoTime() - stepStartNanos;
+        long allocatedBytes = SamplerMetrics.currentThreadAllocatedBytes();
+
+        sink.incrementCounter(SamplerMetrics.STEPS, 1);
+        sink.recordValue(SamplerMetrics.STEP_TIME_NANOS, stepTimeNanos);
+        if (stepStartAllocatedBytes >= 0 && allocatedBytes >= 0) {
+            sink.recordValue(SamplerMetrics.STEP_ALLOCATED_BYTES, allocatedBytes - stepStartAllocatedBytes);
+        }
+    }
+}
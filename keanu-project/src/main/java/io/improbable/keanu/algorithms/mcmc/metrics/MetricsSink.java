@@ -0,0 +1,28 @@
+package io.improbable.keanu.algorithms.mcmc.metrics;
+
+/**
+ * Receives the metrics that a sampling run reports, e.g. to forward them to a monitoring system. Counters are
+ * incremented and histograms are given one value per observation. The names of the metrics reported by Keanu's
+ * samplers are in {@link SamplerMetrics}.
+ * <p>
+ * A sink may be called from the threads of several chains at once.
+ */
+public interface MetricsSink {
+
+    /**
+     * A sink that ignores every metric. Samplers skip measuring when they are given this sink.
+     */
+    MetricsSink NONE = new MetricsSink() {
+        @Override
+        public void incrementCounter(String name, long amount) {
+        }
+
+        @Override
+        public void recordValue(String name, double value) {
+        }
+    };
+
+    void incrementCounter(String name, long amount);
+
+    void recordValue(String name, double value);
+}
@@ -0,0 +1,96 @@
+package io.improbable.keanu.algorithms.mcmc.metrics;
+
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.vertices.Vertex;
+import lombok.experimental.UtilityClass;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * The names of the metrics that samplers report to a {@link MetricsSink}.
+ */
+@UtilityClass
+public class SamplerMetrics {
+
+    /**
+     * Counter of steps taken.
+     */
+    public static final String STEPS = "keanu.sampler.steps";
+
+    /**
+     * Histogram of the wall time of each step, in nanoseconds.
+     */
+    public static final String STEP_TIME_NANOS = "keanu.sampler.step.time.nanos";
+
+    /**
+     * Histogram of the bytes allocated by the sampling thread during each step. It is only reported on JVMs that
+     * can measure the allocation of a thread.
+     */
+    public static final String STEP_ALLOCATED_BYTES = "keanu.sampler.step.allocated.bytes";
+
+    /**
+     * Counter of evaluations of the log prob of the model.
+     */
+    public static final String LOG_PROB_EVALUATIONS = "keanu.model.logprob.evaluations";
+
+    /**
+     * Counter of evaluations of the gradient of the log prob of the model.
+     */
+    public static final String GRADIENT_EVALUATIONS = "keanu.model.gradient.evaluations";
+
+    /**
+     * Histogram of the number of vertices updated each time values are cascaded through the model.
+     */
+    public static final String CASCADE_SIZE = "keanu.model.cascade.size";
+
+    /**
+     * Prefix of the counters of accepted proposals, which are followed by the label or id of the proposed variable.
+     */
+    public static final String ACCEPTED_PREFIX = "keanu.mh.accepted.";
+
+    /**
+     * Prefix of the counters of rejected proposals, which are followed by the label or id of the proposed variable.
+     */
+    public static final String REJECTED_PREFIX = "keanu.mh.rejected.";
+
+    /**
+     * Histogram of the depth of the tree built by each NUTS step.
+     */
+    public static final String TREE_DEPTH = "keanu.nuts.tree.depth";
+
+    /**
+     * Counter of NUTS steps whose trajectory diverged.
+     */
+    public static final String DIVERGENCES = "keanu.nuts.divergences";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    public static String accepted(Variable<?, ?> variable) {
+        return ACCEPTED_PREFIX + nameOf(variable);
+    }
+
+    public static String rejected(Variable<?, ?> variable) {
+        return REJECTED_PREFIX + nameOf(variable);
+    }
+
+    /**
+     * @return the bytes allocated by the current thread so far, or -1 if the JVM cannot measure it
+     */
+    static long currentThreadAllocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static String nameOf(Variable<?, ?> variable) {
+        if (variable instanceof Vertex && ((Vertex<?>) variable).getLabel() != null) {
+            return ((Vertex<?>) variable).getLabel().getQualifiedName();
+        }
+        return variable.getReference().toString();
+    }
+}
@@ -0,0 +1,99 @@
+package io.improbable.keanu.algorithms.mcmc.nuts;
+
+import io.improbable.keanu.KeanuRandom;
+
+/**
+ * A mass matrix that captures correlations between the elements of the position. The inverse, M^-1, is stored
+ * row-major together with its lower Cholesky factor L, where M^-1 = L * L^T.
+ */
+class DenseMassMatrix implements MassMatrix {
+
+    private final int size;
+    private final double[] inverse;
+    private final double[] choleskyOfInverse;
+
+    /**
+     * @param inverse M^-1 in row-major order, e.g. the posterior covariance. Must be symmetric positive definite.
+     * @param size    the number of rows and columns
+     */
+    DenseMassMatrix(double[] inverse, int size) {
+        if (inverse.length != size * size) {
+            throw new IllegalArgumentException("Expected a " + size + " by " + size + " matrix but got " + inverse.length + " elements");
+        }
+        this.size = size;
+        this.inverse = inverse.clone();
+        this.choleskyOfInverse = cholesky(inverse, size);
+    }
+
+    /**
+     * Fills momentum with L^-T * z where z is unit Gaussian, which has covariance (L * L^T)^-1 = M.
+     */
+    @Override
+    public void sampleMomentum(double[] momentum, KeanuRandom random) {
+        for (int i = 0; i < size; i++) {
+            momentum[i] = random.nextGaussian();
+        }
+
+        for (int i = size - 1; i >= 0; i--) {
+            double sum = momentum[i];
+            for (int j = i + 1; j < size; j++) {
+                sum -= choleskyOfInverse[j * size + i] * momentum[j];
+            }
+            momentum[i] = sum / choleskyOfInverse[i * size + i];
+        }
+    }
+
+    @Override
+    public void velocity(double[] momentum, double[] velocity) {
+        for (int i = 0; i < size; i++) {
+            double sum = 0.0;
+            int row = i * size;
+            for (int j = 0; j < size; j++) {
+                sum += inverse[row + j] * momentum[j];
+            }
+            velocity[i] = sum;
+        }
+    }
+
+    @Override
+    public double dotVelocity(double[] vector, double[] momentum) {
+        double dotProduct = 0.0;
+        for (int i = 0; i < size; i++) {
+            double sum = 0.0;
+            int row = i * size;
+            for (int j = 0; j < size; j++) {
+                sum += inverse[row + j] * momentum[j];
+            }
+            dotProduct += vector[i] * sum;
+        }
+        return dotProduct;
+    }
+
+    double[] getInverse() {
+        return inverse.clone();
+    }
+
+    private static double[] cholesky(double[] matrix, int size) {
+        double[] lower = new double[size * size];
+
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = matrix[i * size + j];
+                for (int k = 0; k < j; k++) {
+                    sum -= lower[i * size + k] * lower[j * size + k];
+                }
+
+                if (i == j) {
+                    if (sum <= 0.0) {
+                        throw new IllegalArgumentException("Inverse mass matrix is not positive definite");
+                    }
+                    lower[i * size + i] = Math.sqrt(sum);
+                } else {
+                    lower[i * size + j] = sum / lower[j * size + j];
+                }
+            }
+        }
+
+        return lower;
+    }
+}
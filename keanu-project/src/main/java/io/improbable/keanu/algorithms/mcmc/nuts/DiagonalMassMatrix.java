@@ -0,0 +1,64 @@
+package io.improbable.keanu.algorithms.mcmc.nuts;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.KeanuRandom;
+
+import java.util.Arrays;
+
+/**
+ * A mass matrix with independent scales for every element of the position, stored as the diagonal of its inverse.
+ */
+class DiagonalMassMatrix implements MassMatrix {
+
+    private final double[] inverseDiagonal;
+    private final double[] momentumScale;
+
+    /**
+     * @param inverseDiagonal the diagonal of M^-1, e.g. the posterior variance of each element. Must be positive.
+     */
+    DiagonalMassMatrix(double[] inverseDiagonal) {
+        this.inverseDiagonal = inverseDiagonal.clone();
+        this.momentumScale = new double[inverseDiagonal.length];
+
+        for (int i = 0; i < inverseDiagonal.length; i++) {
+            Preconditions.checkArgument(
+                inverseDiagonal[i] > 0.0,
+                "Inverse mass matrix must be positive but was " + inverseDiagonal[i] + " at index " + i
+            );
+            momentumScale[i] = 1.0 / Math.sqrt(inverseDiagonal[i]);
+        }
+    }
+
+    static DiagonalMassMatrix identity(int size) {
+        double[] ones = new double[size];
+        Arrays.fill(ones, 1.0);
+        return new DiagonalMassMatrix(ones);
+    }
+
+    @Override
+    public void sampleMomentum(double[] momentum, KeanuRandom random) {
+        for (int i = 0; i < momentum.length; i++) {
+            momentum[i] = random.nextGaussian() * momentumScale[i];
+        }
+    }
+
+    @Override
+    public void velocity(double[] momentum, double[] velocity) {
+        for (int i = 0; i < momentum.length; i++) {
+            velocity[i] = inverseDiagonal[i] * momentum[i];
+        }
+    }
+
+    @Override
+    public double dotVelocity(double[] vector, double[] momentum) {
+        double dotProduct = 0.0;
+        for (int i = 0; i < vector.length; i++) {
+            dotProduct += vector[i] * inverseDiagonal[i] * momentum[i];
+        }
+        return dotProduct;
+    }
+
+    double[] getInverseDiagonal() {
+        return inverseDiagonal.clone();
+    }
+}
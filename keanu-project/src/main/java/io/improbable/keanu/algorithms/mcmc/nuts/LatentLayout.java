@@ -0,0 +1,121 @@
+package io.improbable.keanu.algorithms.mcmc.nuts;
+
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A fixed layout of the continuous latent variables of a model in a single flat double[].
+ * <p>
+ * Each variable is given a contiguous range of the array, in the order the variables are given, so that NUTS can
+ * treat position, momentum and gradient as plain primitive arrays. Tensors are only created when values are passed
+ * to or read from the model.
+ */
+class LatentLayout {
+
+    private final VariableReference[] references;
+    private final long[][] shapes;
+    private final int[] offsets;
+    private final Map<VariableReference, DoubleTensor> tensorView;
+
+    private LatentLayout(VariableReference[] references, long[][] shapes, int[] offsets) {
+        this.references = references;
+        this.shapes = shapes;
+        this.offsets = offsets;
+        this.tensorView = new HashMap<>();
+    }
+
+    /**
+     * @param variables the variables to lay out. Their current shapes are used for the layout.
+     * @return a layout of the variables
+     */
+    static LatentLayout of(List<? extends Variable<DoubleTensor, ?>> variables) {
+        VariableReference[] references = new VariableReference[variables.size()];
+        long[][] shapes = new long[variables.size()][];
+        int[] offsets = new int[variables.size() + 1];
+
+        for (int i = 0; i < variables.size(); i++) {
+            Variable<DoubleTensor, ?> variable = variables.get(i);
+            references[i] = variable.getReference();
+            shapes[i] = variable.getShape();
+            offsets[i + 1] = offsets[i] + TensorShape.getLengthAsInt(shapes[i]);
+        }
+
+        return new LatentLayout(references, shapes, offsets);
+    }
+
+    /**
+     * @return the total number of elements across all variables
+     */
+    int size() {
+        return offsets[references.length];
+    }
+
+    int variableCount() {
+        return references.length;
+    }
+
+    VariableReference getReference(int variableIndex) {
+        return references[variableIndex];
+    }
+
+    int getOffset(int variableIndex) {
+        return offsets[variableIndex];
+    }
+
+    int getLength(int variableIndex) {
+        return offsets[variableIndex + 1] - offsets[variableIndex];
+    }
+
+    /**
+     * @param tensors values keyed by variable reference, e.g. the current position or a gradient
+     * @return a new flat array containing the values. Any variable that is missing is filled with zero.
+     */
+    double[] flatten(Map<? extends VariableReference, DoubleTensor> tensors) {
+        double[] flat = new double[size()];
+        flattenInto(tensors, flat);
+        return flat;
+    }
+
+    /**
+     * @param tensors values keyed by variable reference
+     * @param into    the flat array to write the values into. Any variable that is missing is filled with zero.
+     */
+    void flattenInto(Map<? extends VariableReference, DoubleTensor> tensors, double[] into) {
+        for (int i = 0; i < references.length; i++) {
+            DoubleTensor tensor = tensors.get(references[i]);
+            if (tensor == null) {
+                Arrays.fill(into, offsets[i], offsets[i + 1], 0.0);
+            } else {
+                double[] values = tensor.asFlatDoubleArray();
+                System.arraycopy(values, 0, into, offsets[i], values.length);
+            }
+        }
+    }
+
+    /**
+     * Creates a tensor for each variable from a flat array. The returned map is reused between calls, so it must
+     * not be held on to, but the tensors in it are new on every call, because the model keeps them as the values of
+     * its variables and samples may refer to those values.
+     *
+     * @param flat a flat array in this layout
+     * @return the values of the flat array as tensors keyed by variable reference
+     */
+    Map<VariableReference, DoubleTensor> asTensors(double[] flat) {
+        for (int i = 0; i < references.length; i++) {
+            if (shapes[i].length == 0) {
+                tensorView.put(references[i], DoubleTensor.scalar(flat[offsets[i]]));
+            } else {
+                double[] values = Arrays.copyOfRange(flat, offsets[i], offsets[i + 1]);
+                tensorView.put(references[i], DoubleTensor.create(values, shapes[i]));
+            }
+        }
+        return tensorView;
+    }
+}
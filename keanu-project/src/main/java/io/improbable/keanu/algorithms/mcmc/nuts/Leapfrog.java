@@ -1,113 +1,114 @@
 package io.improbable.keanu.algorithms.mcmc.nuts;
 
 import io.improbable.keanu.algorithms.ProbabilisticModelWithGradient;
-import io.improbable.keanu.algorithms.Variable;
-import io.improbable.keanu.algorithms.VariableReference;
-import io.improbable.keanu.tensor.dbl.DoubleTensor;
-
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 
 
 /**
  * Leapfrog performs a movement through physical space with the introduction of a momentum variable.
  * This is required for sampling in NUTS.
+ * <p>
+ * Position, momentum and gradient are flat arrays laid out by a {@link LatentLayout}, so that a step is a few
+ * loops over primitive arrays. A leapfrog moves in place, so NUTS keeps one for each end of its tree rather than
+ * creating one for every step.
  */
 class Leapfrog {
 
-    private final Map<VariableReference, DoubleTensor> position;
-    private final Map<VariableReference, DoubleTensor> momentum;
-    private final Map<? extends VariableReference, DoubleTensor> gradient;
+    private final double[] position;
+    private final double[] momentum;
+    private final double[] gradient;
+    private final double[] velocity;
+
+    /**
+     * @param size the number of elements in the flat position
+     */
+    Leapfrog(int size) {
+        this(new double[size], new double[size], new double[size]);
+    }
 
     /**
-     * @param position the position of the variables
-     * @param momentum the momentum of the variables
-     * @param gradient the gradient of the variables
+     * @param position the position of the variables, which is moved by each step
+     * @param momentum the momentum of the variables, which is changed by each step
+     * @param gradient the gradient of the variables, which is changed by each step
      */
-    Leapfrog(Map<VariableReference, DoubleTensor> position,
-             Map<VariableReference, DoubleTensor> momentum,
-             Map<? extends VariableReference, DoubleTensor> gradient) {
+    Leapfrog(double[] position,
+             double[] momentum,
+             double[] gradient) {
         this.position = position;
         this.momentum = momentum;
         this.gradient = gradient;
+        this.velocity = new double[position.length];
     }
 
     /**
-     * Performs one leapfrog of the variables with a time delta as defined by epsilon
+     * Performs one leapfrog of the variables with a time delta as defined by epsilon, in place
      *
-     * @param latentVariables                the latent variables
+     * @param layout                        the layout of the latent variables in the flat arrays
+     * @param massMatrix                    the mass matrix that relates momentum to velocity
      * @param logProbGradientCalculator     the calculator for the log prob gradient
      * @param epsilon                       the time delta
 
-     * @return a new leapfrog having taken one step through space
+     * @return this leapfrog, having taken one step through space
      */
-    public Leapfrog step(final List<? extends Variable<DoubleTensor, ?>> latentVariables,
+    public Leapfrog step(final LatentLayout layout,
+                         final MassMatrix massMatrix,
                          final ProbabilisticModelWithGradient logProbGradientCalculator,
                          final double epsilon) {
 
         final double halfTimeStep = epsilon / 2.0;
+        final int size = position.length;
 
-        Map<VariableReference, DoubleTensor> nextMomentum = stepMomentum(halfTimeStep, momentum, gradient);
-        Map<VariableReference, DoubleTensor> nextPosition = stepPosition(latentVariables, epsilon, nextMomentum, position);
-
-        Map<? extends VariableReference, DoubleTensor> nextPositionGradient = logProbGradientCalculator.logProbGradients(nextPosition);
-
-        nextMomentum = stepMomentum(halfTimeStep, nextMomentum, nextPositionGradient);
-
-        return new Leapfrog(nextPosition, nextMomentum, nextPositionGradient);
-    }
-
-    private Map<VariableReference, DoubleTensor> stepPosition(List<? extends Variable<DoubleTensor, ?>> latentVariables, double dt, Map<VariableReference, DoubleTensor> nextMomentum, Map<? extends VariableReference, DoubleTensor> position) {
-        Map<VariableReference, DoubleTensor> nextPosition = new HashMap<>();
-
-        for (Variable<DoubleTensor, ?> latent : latentVariables) {
+        for (int i = 0; i < size; i++) {
+            momentum[i] += halfTimeStep * gradient[i];
+        }
 
-            final DoubleTensor nextPositionForLatent = nextMomentum.get(latent.getReference())
-                .times(dt)
-                .plusInPlace(position.get(latent.getReference()));
+        massMatrix.velocity(momentum, velocity);
 
-            nextPosition.put(latent.getReference(), nextPositionForLatent);
+        for (int i = 0; i < size; i++) {
+            position[i] += epsilon * velocity[i];
         }
 
-        return nextPosition;
-    }
+        layout.flattenInto(logProbGradientCalculator.logProbGradients(layout.asTensors(position)), gradient);
 
-    private Map<VariableReference, DoubleTensor> stepMomentum(double halfTimeStep, Map<? extends VariableReference, DoubleTensor> momentum, Map<? extends VariableReference, DoubleTensor> gradient) {
-        Map<VariableReference, DoubleTensor> nextMomentum = new HashMap<>();
-        for (Map.Entry<? extends VariableReference, DoubleTensor> rEntry : momentum.entrySet()) {
-            final DoubleTensor updatedMomentum = gradient.get(rEntry.getKey()).times(halfTimeStep).plusInPlace(rEntry.getValue());
-            nextMomentum.put(rEntry.getKey(), updatedMomentum);
+        for (int i = 0; i < size; i++) {
+            momentum[i] += halfTimeStep * gradient[i];
         }
-        return nextMomentum;
+
+        return this;
     }
 
-    public double halfDotProductMomentum() {
-        return 0.5 * dotProduct(momentum);
+    public double kineticEnergy(MassMatrix massMatrix) {
+        return massMatrix.kineticEnergy(momentum);
     }
 
-    public Map<VariableReference, DoubleTensor> getPosition() {
+    public double[] getPosition() {
         return position;
     }
 
-    public Map<VariableReference, DoubleTensor> getMomentum() {
+    public double[] getMomentum() {
         return momentum;
     }
 
-    public Map<? extends VariableReference, DoubleTensor> getGradient() {
+    public double[] getGradient() {
         return gradient;
     }
 
-    public Leapfrog makeJumpTo(Map<VariableReference, DoubleTensor> position, Map<? extends VariableReference, DoubleTensor> gradient) {
-        return new Leapfrog(position, getMomentum(), gradient);
+    /**
+     * @param position the position to jump to, which is copied
+     * @param gradient the gradient at that position, which is copied
+     */
+    public void jumpTo(double[] position, double[] gradient) {
+        System.arraycopy(position, 0, this.position, 0, position.length);
+        System.arraycopy(gradient, 0, this.gradient, 0, gradient.length);
     }
 
-    private static double dotProduct(Map<? extends VariableReference, DoubleTensor> momentums) {
-        double dotProduct = 0.0;
-        for (DoubleTensor momentum : momentums.values()) {
-            dotProduct += momentum.pow(2).sum();
-        }
-        return dotProduct;
+    /**
+     * @param other the leapfrog whose position, momentum and gradient are copied
+     * @return this
+     */
+    public Leapfrog copyFrom(Leapfrog other) {
+        jumpTo(other.position, other.gradient);
+        System.arraycopy(other.momentum, 0, momentum, 0, momentum.length);
+        return this;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,50 @@
+package io.improbable.keanu.algorithms.mcmc.nuts;
+
+import io.improbable.keanu.KeanuRandom;
+
+/**
+ * The mass matrix, or metric, of the Hamiltonian system that NUTS simulates. Implementations hold the inverse of the
+ * mass matrix, which is the quantity estimated during warm-up, over momenta laid out by a {@link LatentLayout}.
+ * <p>
+ * Momentum is distributed as N(0, M), the kinetic energy is 0.5 * p^T * M^-1 * p and the velocity of the position is
+ * M^-1 * p.
+ */
+interface MassMatrix {
+
+    /**
+     * @param size the number of elements in the flat position
+     * @return the identity mass matrix, which gives the standard unit momentum of HMC
+     */
+    static MassMatrix identity(int size) {
+        return DiagonalMassMatrix.identity(size);
+    }
+
+    /**
+     * Fills the momentum with a draw from N(0, M)
+     *
+     * @param momentum the momentum to fill
+     * @param random   the source of randomness
+     */
+    void sampleMomentum(double[] momentum, KeanuRandom random);
+
+    /**
+     * @param momentum the momentum
+     * @param velocity the array to write M^-1 * momentum into. Must not be the momentum array.
+     */
+    void velocity(double[] momentum, double[] velocity);
+
+    /**
+     * @param vector   any vector in the layout of the position
+     * @param momentum the momentum
+     * @return vector^T * M^-1 * momentum
+     */
+    double dotVelocity(double[] vector, double[] momentum);
+
+    /**
+     * @param momentum the momentum
+     * @return 0.5 * momentum^T * M^-1 * momentum
+     */
+    default double kineticEnergy(double[] momentum) {
+        return 0.5 * dotVelocity(momentum, momentum);
+    }
+}
@@ -0,0 +1,256 @@
+package io.improbable.keanu.algorithms.mcmc.nuts;
+
+import io.improbable.keanu.algorithms.mcmc.checkpoint.CheckpointValues;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Estimates the inverse mass matrix from the positions visited during warm-up, using the windowed scheme of Stan.
+ * <p>
+ * Warm-up starts with a fast initial buffer in which only the step size adapts, followed by a series of slow windows,
+ * each twice as long as the last, in which the variance (or covariance) of the positions is estimated. At the end of
+ * every slow window the estimate, regularised towards a small multiple of the identity, becomes the new mass matrix
+ * and the estimator restarts. A terminal buffer lets the step size settle on the final mass matrix.
+ * <p>
+ * See section 34.2 of the Stan Reference Manual: https://mc-stan.org/docs/2_18/reference-manual/hmc-algorithm-parameters.html
+ */
+class MassMatrixAdaptor {
+
+    private static final int MIN_ADAPT_COUNT = 20;
+    private static final int DEFAULT_INIT_BUFFER = 75;
+    private static final int DEFAULT_TERM_BUFFER = 50;
+    private static final int DEFAULT_BASE_WINDOW = 25;
+
+    private static final double REGULARISATION_WEIGHT = 5.0;
+    private static final double REGULARISATION_TARGET = 1e-3;
+
+    private final NUTS.MassMatrixAdaptation adaptation;
+    private final int size;
+    private final int adaptCount;
+    private final int initBuffer;
+    private final int termBuffer;
+
+    private int windowCounter;
+    private int windowSize;
+    private int nextWindowEnd;
+
+    private int estimatorCount;
+    private final double[] mean;
+    private final double[] sumOfSquares;
+    private final double[] delta;
+
+    private MassMatrix massMatrix;
+
+    /**
+     * @param adaptation the form of mass matrix to estimate
+     * @param size       the number of elements in the flat position
+     * @param adaptCount the number of warm-up samples
+     */
+    MassMatrixAdaptor(NUTS.MassMatrixAdaptation adaptation, int size, int adaptCount) {
+        this.size = size;
+        this.adaptCount = adaptCount;
+        this.massMatrix = MassMatrix.identity(size);
+
+        if (adaptation == NUTS.MassMatrixAdaptation.NONE || adaptCount < MIN_ADAPT_COUNT) {
+            this.adaptation = NUTS.MassMatrixAdaptation.NONE;
+            this.initBuffer = 0;
+            this.termBuffer = 0;
+            this.windowSize = 0;
+            this.mean = new double[0];
+            this.sumOfSquares = new double[0];
+            this.delta = new double[0];
+            return;
+        }
+
+        this.adaptation = adaptation;
+
+        if (DEFAULT_INIT_BUFFER + DEFAULT_TERM_BUFFER + DEFAULT_BASE_WINDOW > adaptCount) {
+            this.initBuffer = (int) (0.15 * adaptCount);
+            this.termBuffer = (int) (0.1 * adaptCount);
+            this.windowSize = adaptCount - (initBuffer + termBuffer);
+        } else {
+            this.initBuffer = DEFAULT_INIT_BUFFER;
+            this.termBuffer = DEFAULT_TERM_BUFFER;
+            this.windowSize = DEFAULT_BASE_WINDOW;
+        }
+
+        this.windowCounter = 0;
+        this.nextWindowEnd = initBuffer + windowSize - 1;
+
+        this.mean = new double[size];
+        this.sumOfSquares = new double[adaptation == NUTS.MassMatrixAdaptation.DENSE ? size * size : size];
+        this.delta = new double[size];
+    }
+
+    /**
+     * @return the current estimate of the mass matrix. This is the identity until the first slow window has ended.
+     */
+    MassMatrix getMassMatrix() {
+        return massMatrix;
+    }
+
+    /**
+     * Adds a warm-up position to the estimate. This should be called once per warm-up sample.
+     *
+     * @param position the accepted position of the sample
+     * @return true if a slow window ended and the mass matrix was updated
+     */
+    boolean learn(double[] position) {
+        if (adaptation == NUTS.MassMatrixAdaptation.NONE) {
+            return false;
+        }
+
+        if (isInSlowWindow()) {
+            addSample(position);
+        }
+
+        boolean updated = false;
+        if (isEndOfSlowWindow()) {
+            computeNextWindow();
+            updated = updateMassMatrix();
+            restartEstimator();
+        }
+
+        windowCounter++;
+        return updated;
+    }
+
+    /**
+     * Writes the state of the estimate and the current mass matrix to a checkpoint.
+     *
+     * @param output the checkpoint to write to
+     * @throws IOException if the checkpoint could not be written
+     */
+    void saveState(DataOutput output) throws IOException {
+        output.writeInt(windowCounter);
+        output.writeInt(windowSize);
+        output.writeInt(nextWindowEnd);
+        output.writeInt(estimatorCount);
+        CheckpointValues.writeDoubles(output, mean);
+        CheckpointValues.writeDoubles(output, sumOfSquares);
+
+        if (massMatrix instanceof DenseMassMatrix) {
+            output.writeBoolean(true);
+            CheckpointValues.writeDoubles(output, ((DenseMassMatrix) massMatrix).getInverse());
+        } else {
+            output.writeBoolean(false);
+            CheckpointValues.writeDoubles(output, ((DiagonalMassMatrix) massMatrix).getInverseDiagonal());
+        }
+    }
+
+    /**
+     * Replaces the state of the estimate and the current mass matrix with those written by
+     * {@link #saveState(DataOutput)}.
+     *
+     * @param input the checkpoint to read from
+     * @throws IOException if the checkpoint could not be read
+     */
+    void loadState(DataInput input) throws IOException {
+        windowCounter = input.readInt();
+        windowSize = input.readInt();
+        nextWindowEnd = input.readInt();
+        estimatorCount = input.readInt();
+        readInto(input, mean);
+        readInto(input, sumOfSquares);
+
+        boolean dense = input.readBoolean();
+        double[] inverse = CheckpointValues.readDoubles(input);
+        massMatrix = dense ? new DenseMassMatrix(inverse, size) : new DiagonalMassMatrix(inverse);
+    }
+
+    private static void readInto(DataInput input, double[] values) throws IOException {
+        double[] read = CheckpointValues.readDoubles(input);
+        if (read.length != values.length) {
+            throw new IOException("Expected " + values.length + " values in checkpoint but found " + read.length);
+        }
+        System.arraycopy(read, 0, values, 0, read.length);
+    }
+
+    private boolean isInSlowWindow() {
+        return windowCounter >= initBuffer && windowCounter < adaptCount - termBuffer && windowCounter != adaptCount;
+    }
+
+    private boolean isEndOfSlowWindow() {
+        return windowCounter == nextWindowEnd && windowCounter != adaptCount;
+    }
+
+    private void computeNextWindow() {
+        final int lastWindowEnd = adaptCount - termBuffer - 1;
+
+        if (nextWindowEnd == lastWindowEnd) {
+            return;
+        }
+
+        windowSize *= 2;
+        nextWindowEnd = windowCounter + windowSize;
+
+        if (nextWindowEnd != lastWindowEnd) {
+            int nextWindowBoundary = nextWindowEnd + 2 * windowSize;
+            if (nextWindowBoundary >= adaptCount - termBuffer) {
+                nextWindowEnd = lastWindowEnd;
+            }
+        }
+    }
+
+    private void addSample(double[] position) {
+        estimatorCount++;
+
+        if (adaptation == NUTS.MassMatrixAdaptation.DENSE) {
+            for (int i = 0; i < size; i++) {
+                delta[i] = position[i] - mean[i];
+                mean[i] += delta[i] / estimatorCount;
+            }
+            for (int i = 0; i < size; i++) {
+                int row = i * size;
+                for (int j = 0; j < size; j++) {
+                    sumOfSquares[row + j] += delta[i] * (position[j] - mean[j]);
+                }
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                double deltaBefore = position[i] - mean[i];
+                mean[i] += deltaBefore / estimatorCount;
+                sumOfSquares[i] += deltaBefore * (position[i] - mean[i]);
+            }
+        }
+    }
+
+    private boolean updateMassMatrix() {
+        if (estimatorCount < 2) {
+            return false;
+        }
+
+        double n = estimatorCount;
+        double shrinkage = n / (n + REGULARISATION_WEIGHT);
+        double regularisation = REGULARISATION_TARGET * (REGULARISATION_WEIGHT / (n + REGULARISATION_WEIGHT));
+
+        if (adaptation == NUTS.MassMatrixAdaptation.DENSE) {
+            double[] covariance = new double[size * size];
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    double symmetricSumOfSquares = 0.5 * (sumOfSquares[i * size + j] + sumOfSquares[j * size + i]);
+                    covariance[i * size + j] = shrinkage * symmetricSumOfSquares / (n - 1);
+                }
+                covariance[i * size + i] += regularisation;
+            }
+            massMatrix = new DenseMassMatrix(covariance, size);
+        } else {
+            double[] variance = new double[size];
+            for (int i = 0; i < size; i++) {
+                variance[i] = shrinkage * sumOfSquares[i] / (n - 1) + regularisation;
+            }
+            massMatrix = new DiagonalMassMatrix(variance);
+        }
+
+        return true;
+    }
+
+    private void restartEstimator() {
+        estimatorCount = 0;
+        Arrays.fill(mean, 0.0);
+        Arrays.fill(sumOfSquares, 0.0);
+    }
+}
@@ -9,15 +9,19 @@ import io.improbable.keanu.algorithms.ProbabilisticModelWithGradient;
 import io.improbable.keanu.algorithms.Statistics;
 import io.improbable.keanu.algorithms.Variable;
 import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.mcmc.ContinuousLatentSamplingAlgorithm;
+import io.improbable.keanu.algorithms.mcmc.InterleavableSamplingAlgorithm;
 import io.improbable.keanu.algorithms.mcmc.NetworkSamplesGenerator;
 import io.improbable.keanu.algorithms.mcmc.SamplingAlgorithm;
+import io.improbable.keanu.algorithms.mcmc.metrics.MeteredProbabilisticModel;
+import io.improbable.keanu.algorithms.mcmc.metrics.MeteredSamplingAlgorithm;
+import io.improbable.keanu.algorithms.mcmc.metrics.MetricsSink;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.util.status.StatusBar;
 import io.improbable.keanu.vertices.ProbabilityCalculator;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -30,7 +34,7 @@ import static java.util.stream.Collectors.toMap;
  * https://arxiv.org/pdf/1111.4246.pdf
  */
 @AllArgsConstructor
-public class NUTS implements PosteriorSamplingAlgorithm {
+public class NUTS implements PosteriorSamplingAlgorithm, ContinuousLatentSamplingAlgorithm {
 
     private static final int DEFAULT_ADAPT_COUNT = 1000;
     private static final double DEFAULT_TARGET_ACCEPTANCE_PROB = 0.65;
@@ -45,6 +49,15 @@ public class NUTS implements PosteriorSamplingAlgorithm {
         STEPSIZE, LOG_PROB, MEAN_TREE_ACCEPT, TREE_SIZE
     }
 
+    /**
+     * The form of mass matrix to estimate during warm-up.
+     * NONE keeps the identity, DIAGONAL estimates the variance of each latent element and DENSE estimates the full
+     * covariance, which also corrects for correlations but costs O(n^2) per leapfrog.
+     */
+    public enum MassMatrixAdaptation {
+        NONE, DIAGONAL, DENSE
+    }
+
     @Getter
     private KeanuRandom random;
 
@@ -62,6 +75,11 @@ public class NUTS implements PosteriorSamplingAlgorithm {
     // l adapt during the first adaptCount samples
     private boolean adaptEnabled;
 
+    //The form of mass matrix that is estimated in windows during the first adaptCount samples, if adaptEnabled.
+    //Mass matrix adaptation is skipped when adaptCount is less than 20.
+    @Getter
+    private MassMatrixAdaptation massMatrixAdaptation;
+
     //Sets the initial step size. If none is given then a heuristic will be used to determine a good step size.
     private Double initialStepSize;
 
@@ -72,6 +90,10 @@ public class NUTS implements PosteriorSamplingAlgorithm {
     //Sets whether or not to save debug STATISTICS. The STATISTICS available are: Step size, Log Prob, Mean Tree Acceptance Prob, Tree Size.
     private boolean saveStatistics;
 
+    //Receives the step, model evaluation, tree depth and divergence metrics of the sampler.
+    @Getter
+    private MetricsSink metricsSink;
+
     /**
      * Sample from the posterior of a probabilistic model using the No-U-Turn-Sampling algorithm
      *
@@ -90,7 +112,24 @@ public class NUTS implements PosteriorSamplingAlgorithm {
     public NetworkSamplesGenerator generatePosteriorSamples(final ProbabilisticModel model,
                                                             final List<? extends Variable> fromVariables) {
         Preconditions.checkArgument(model instanceof ProbabilisticModelWithGradient, "NUTS requires a model on which gradients can be calculated.");
-        return new NetworkSamplesGenerator(setupSampler((ProbabilisticModelWithGradient) model, fromVariables), StatusBar::new);
+
+        if (metricsSink == MetricsSink.NONE) {
+            return new NetworkSamplesGenerator(setupSampler((ProbabilisticModelWithGradient) model, fromVariables), StatusBar::new);
+        }
+
+        ProbabilisticModelWithGradient meteredModel = (ProbabilisticModelWithGradient) MeteredProbabilisticModel.of(model, metricsSink);
+        SamplingAlgorithm sampler = MeteredSamplingAlgorithm.of(setupSampler(meteredModel, fromVariables), metricsSink);
+        return new NetworkSamplesGenerator(sampler, StatusBar::new);
+    }
+
+    /**
+     * @param model a probabilistic model on which gradients can be calculated
+     * @return a sampler that moves the continuous latent variables of the model only
+     */
+    @Override
+    public InterleavableSamplingAlgorithm continuousLatentSampler(ProbabilisticModel model) {
+        Preconditions.checkArgument(model instanceof ProbabilisticModelWithGradient, "NUTS requires a model on which gradients can be calculated.");
+        return setupSampler((ProbabilisticModelWithGradient) model, model.getContinuousLatentVariables());
     }
 
     private NUTSSampler setupSampler(final ProbabilisticModelWithGradient model,
@@ -99,25 +138,30 @@ public class NUTS implements PosteriorSamplingAlgorithm {
         Preconditions.checkArgument(!sampleFromVariables.isEmpty(), "List of variables to sample from is empty");
 
         final List<? extends Variable<DoubleTensor, ?>> latentVariables = model.getContinuousLatentVariables();
+        final LatentLayout layout = LatentLayout.of(latentVariables);
 
-        Map<VariableReference, DoubleTensor> position = latentVariables.stream()
+        Map<VariableReference, DoubleTensor> startingPosition = latentVariables.stream()
             .collect(toMap(Variable::getReference, Variable::getValue));
 
-        double initialLogOfMasterP = model.logProb(position);
+        double initialLogOfMasterP = model.logProb(startingPosition);
 
         Preconditions.checkArgument(
             !ProbabilityCalculator.isImpossibleLogProb(initialLogOfMasterP),
             "Sampler starting position is invalid. Please start from a non-zero probability position."
         );
 
-        Map<? extends VariableReference, DoubleTensor> gradient = model.logProbGradients();
+        double[] position = layout.flatten(startingPosition);
+        double[] gradient = layout.flatten(model.logProbGradients());
 
         Map<VariableReference, ?> startingSample = SamplingAlgorithm.takeSample(sampleFromVariables);
 
+        MassMatrixAdaptor massMatrixAdaptor = new MassMatrixAdaptor(massMatrixAdaptation, layout.size(), adaptCount);
+
         double startingStepSize = (initialStepSize == null) ? Stepsize.findStartingStepSize(
             position,
             gradient,
-            latentVariables,
+            layout,
+            massMatrixAdaptor.getMassMatrix(),
             model,
             initialLogOfMasterP,
             random
@@ -129,19 +173,21 @@ public class NUTS implements PosteriorSamplingAlgorithm {
             adaptCount
         );
 
-        Tree tree = Tree.createInitialTree(position, new HashMap<>(), gradient, initialLogOfMasterP, startingSample);
+        Tree tree = Tree.createInitialTree(position, new double[layout.size()], gradient, initialLogOfMasterP, startingSample);
 
         return new NUTSSampler(
             sampleFromVariables,
-            latentVariables,
+            layout,
             model,
             adaptEnabled,
             stepsize,
+            massMatrixAdaptor,
             tree,
             maxTreeHeight,
             random,
             statistics,
-            saveStatistics
+            saveStatistics,
+            metricsSink
         );
     }
 
@@ -154,9 +200,11 @@ public class NUTS implements PosteriorSamplingAlgorithm {
         private int adaptCount = DEFAULT_ADAPT_COUNT;
         private double targetAcceptanceProb = DEFAULT_TARGET_ACCEPTANCE_PROB;
         private boolean adaptEnabled = true;
+        private MassMatrixAdaptation massMatrixAdaptation = MassMatrixAdaptation.DIAGONAL;
         private Double initialStepSize = null;
         private int maxTreeHeight = 10;
         private boolean saveStatistics = false;
+        private MetricsSink metricsSink = MetricsSink.NONE;
 
         NUTSBuilder() {
         }
@@ -181,6 +229,11 @@ public class NUTS implements PosteriorSamplingAlgorithm {
             return this;
         }
 
+        public NUTSBuilder massMatrixAdaptation(MassMatrixAdaptation massMatrixAdaptation) {
+            this.massMatrixAdaptation = massMatrixAdaptation;
+            return this;
+        }
+
         public NUTSBuilder initialStepSize(Double initialStepSize) {
             this.initialStepSize = initialStepSize;
             return this;
@@ -196,12 +249,17 @@ public class NUTS implements PosteriorSamplingAlgorithm {
             return this;
         }
 
+        public NUTSBuilder metricsSink(MetricsSink metricsSink) {
+            this.metricsSink = metricsSink;
+            return this;
+        }
+
         public NUTS build() {
-            return new NUTS(random, adaptCount, targetAcceptanceProb, adaptEnabled, initialStepSize, maxTreeHeight, saveStatistics);
+            return new NUTS(random, adaptCount, targetAcceptanceProb, adaptEnabled, massMatrixAdaptation, initialStepSize, maxTreeHeight, saveStatistics, metricsSink);
         }
 
         public String toString() {
-            return "NUTS.NUTSBuilder(random=" + this.random + ", adaptCount=" + this.adaptCount + ", targetAcceptanceProb=" + this.targetAcceptanceProb + ", adaptEnabled=" + this.adaptEnabled + ", initialStepSize=" + this.initialStepSize + ", maxTreeHeight=" + this.maxTreeHeight + ", saveStatistics=" + this.saveStatistics + ")";
+            return "NUTS.NUTSBuilder(random=" + this.random + ", adaptCount=" + this.adaptCount + ", targetAcceptanceProb=" + this.targetAcceptanceProb + ", adaptEnabled=" + this.adaptEnabled + ", massMatrixAdaptation=" + this.massMatrixAdaptation + ", initialStepSize=" + this.initialStepSize + ", maxTreeHeight=" + this.maxTreeHeight + ", saveStatistics=" + this.saveStatistics + ", metricsSink=" + this.metricsSink + ")";
         }
     }
 }
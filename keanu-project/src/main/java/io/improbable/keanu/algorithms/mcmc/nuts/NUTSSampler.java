@@ -1,15 +1,22 @@
 package io.improbable.keanu.algorithms.mcmc.nuts;
 
 import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.ColumnarSampleList;
 import io.improbable.keanu.algorithms.NetworkSample;
 import io.improbable.keanu.algorithms.ProbabilisticModelWithGradient;
 import io.improbable.keanu.algorithms.Statistics;
 import io.improbable.keanu.algorithms.Variable;
 import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.mcmc.InterleavableSamplingAlgorithm;
 import io.improbable.keanu.algorithms.mcmc.SamplingAlgorithm;
-import io.improbable.keanu.tensor.dbl.DoubleTensor;
-
-import java.util.ArrayList;
+import io.improbable.keanu.algorithms.mcmc.checkpoint.CheckpointValues;
+import io.improbable.keanu.algorithms.mcmc.checkpoint.CheckpointableSamplingAlgorithm;
+import io.improbable.keanu.algorithms.mcmc.metrics.MetricsSink;
+import io.improbable.keanu.algorithms.mcmc.metrics.SamplerMetrics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -18,55 +25,65 @@ import java.util.Map;
  * The No-U-Turn Sampler: Adaptively Setting Path Lengths in Hamiltonian Monte Carlo
  * https://arxiv.org/pdf/1111.4246.pdf
  */
-class NUTSSampler implements SamplingAlgorithm {
+class NUTSSampler implements CheckpointableSamplingAlgorithm, InterleavableSamplingAlgorithm {
 
     private final KeanuRandom random;
-    private final List<? extends Variable<DoubleTensor, ?>> latentVariables;
+    private final LatentLayout layout;
     private final List<? extends Variable> sampleFromVariables;
     private final int maxTreeHeight;
     private final boolean adaptEnabled;
     private final Stepsize stepsize;
+    private final MassMatrixAdaptor massMatrixAdaptor;
     private final Tree tree;
     private final ProbabilisticModelWithGradient logProbGradientCalculator;
     private final Statistics statistics;
     private final boolean saveStatistics;
+    private final MetricsSink metricsSink;
+    private MassMatrix massMatrix;
     private int sampleNum;
 
     /**
      * @param sampleFromVariables        variables to sample from
-     * @param latentVariables            variables that represent latent variables
+     * @param layout                    the layout of the latent variables in the flat position, momentum and gradient
      * @param logProbGradientCalculator gradient calculator for diff of log prob with respect to latents
      * @param adaptEnabled              enable the NUTS step size adaptation
      * @param stepsize                  configuration for tuning the stepsize, if adaptEnabled
+     * @param massMatrixAdaptor         estimates the mass matrix during warm-up, if adaptEnabled
      * @param tree                      initial tree that will contain the state of the tree build
      * @param maxTreeHeight             The largest tree height before stopping the hamilitonian process
      * @param random                    the source of randomness
      * @param statistics                the sampler statistics
      * @param saveStatistics            whether to record statistics
+     * @param metricsSink               receives the tree depth and divergences of each step
      */
     public NUTSSampler(List<? extends Variable> sampleFromVariables,
-                       List<? extends Variable<DoubleTensor, ?>> latentVariables,
+                       LatentLayout layout,
                        ProbabilisticModelWithGradient logProbGradientCalculator,
                        boolean adaptEnabled,
                        Stepsize stepsize,
+                       MassMatrixAdaptor massMatrixAdaptor,
                        Tree tree,
                        int maxTreeHeight,
                        KeanuRandom random,
                        Statistics statistics,
-                       boolean saveStatistics) {
+                       boolean saveStatistics,
+                       MetricsSink metricsSink) {
 
         this.sampleFromVariables = sampleFromVariables;
-        this.latentVariables = latentVariables;
+        this.layout = layout;
         this.logProbGradientCalculator = logProbGradientCalculator;
 
         this.tree = tree;
         this.stepsize = stepsize;
+        this.massMatrixAdaptor = massMatrixAdaptor;
+        this.massMatrix = massMatrixAdaptor.getMassMatrix();
         this.maxTreeHeight = maxTreeHeight;
         this.adaptEnabled = adaptEnabled;
 
         this.random = random;
         this.statistics = statistics;
         this.saveStatistics = saveStatistics;
+        this.metricsSink = metricsSink;
 
         this.sampleNum = 1;
     }
@@ -87,14 +104,15 @@ class NUTSSampler implements SamplingAlgorithm {
     @Override
     public void step() {
 
-        initializeMomentumForEachVariable(latentVariables, tree.getForwardMomentum(), random);
+        massMatrix.sampleMomentum(tree.getForwardMomentum(), random);
         cache(tree.getForwardMomentum(), tree.getBackwardMomentum());
 
-        double logOfMasterPMinusMomentumBeforeLeapfrog = tree.getLogOfMasterPAtAcceptedPosition() - 0.5 * dotProduct(tree.getForwardMomentum());
+        double logOfMasterPMinusMomentumBeforeLeapfrog = tree.getLogOfMasterPAtAcceptedPosition() - massMatrix.kineticEnergy(tree.getForwardMomentum());
 
         double logU = Math.log(random.nextDouble()) + logOfMasterPMinusMomentumBeforeLeapfrog;
 
         int treeHeight = 0;
+        boolean diverged = false;
         tree.resetTreeBeforeSample();
 
         while (tree.shouldContinue() && treeHeight < maxTreeHeight) {
@@ -102,9 +120,9 @@ class NUTSSampler implements SamplingAlgorithm {
             //build tree direction -1 = backwards OR 1 = forwards
             int buildDirection = random.nextBoolean() ? 1 : -1;
 
-            Tree otherHalfTree = Tree.buildOtherHalfOfTree(
-                tree,
-                latentVariables,
+            Tree.Subtree otherHalfTree = tree.buildOtherHalfOfTree(
+                layout,
+                massMatrix,
                 logProbGradientCalculator,
                 sampleFromVariables,
                 logU,
@@ -118,9 +136,8 @@ class NUTSSampler implements SamplingAlgorithm {
             if (otherHalfTree.shouldContinue()) {
                 final double acceptanceProb = (double) otherHalfTree.getAcceptedLeapfrogCount() / tree.getAcceptedLeapfrogCount();
 
-                Tree.acceptOtherPositionWithProbability(
+                tree.acceptOtherPositionWithProbability(
                     acceptanceProb,
-                    tree,
                     otherHalfTree,
                     random
                 );
@@ -129,11 +146,19 @@ class NUTSSampler implements SamplingAlgorithm {
             tree.incrementLeapfrogCount(otherHalfTree.getAcceptedLeapfrogCount());
             tree.setDeltaLikelihoodOfLeapfrog(tree.getDeltaLikelihoodOfLeapfrog() + otherHalfTree.getDeltaLikelihoodOfLeapfrog());
             tree.setTreeSize(tree.getTreeSize() + otherHalfTree.getTreeSize());
-            tree.continueIfNotUTurning(otherHalfTree);
+            tree.continueIfNotUTurning(otherHalfTree, massMatrix);
+            diverged |= otherHalfTree.hasDiverged();
 
             treeHeight++;
         }
 
+        if (metricsSink != MetricsSink.NONE) {
+            metricsSink.recordValue(SamplerMetrics.TREE_DEPTH, treeHeight);
+            if (diverged) {
+                metricsSink.incrementCounter(SamplerMetrics.DIVERGENCES, 1);
+            }
+        }
+
         if (saveStatistics) {
             recordSamplerStatistics();
         }
@@ -143,34 +168,83 @@ class NUTSSampler implements SamplingAlgorithm {
         }
 
         tree.acceptPositionAndGradient();
+
+        if (this.adaptEnabled) {
+            adaptMassMatrix();
+        }
+
         sampleNum++;
     }
 
-    private void recordSamplerStatistics() {
-        stepsize.save(statistics);
-        tree.save(statistics);
+    @Override
+    public List<? extends Variable> getSampleFromVariables() {
+        return sampleFromVariables;
     }
 
-    private static void initializeMomentumForEachVariable(List<? extends Variable<DoubleTensor, ?>> variables,
-                                                          Map<VariableReference, DoubleTensor> momentums,
-                                                          KeanuRandom random) {
-        for (Variable<DoubleTensor, ?> variable : variables) {
-            momentums.put(variable.getReference(), random.nextGaussian(variable.getShape()));
-        }
+    /**
+     * A step leaves the model at the last leapfrog of the tree, which is not necessarily the accepted position.
+     */
+    @Override
+    public double setModelToCurrentState() {
+        return logProbGradientCalculator.logProb(layout.asTensors(tree.getAcceptedPosition()));
     }
 
-    private static void cache(Map<? extends VariableReference, DoubleTensor> from, Map<VariableReference, DoubleTensor> to) {
-        for (Map.Entry<? extends VariableReference, DoubleTensor> entry : from.entrySet()) {
-            to.put(entry.getKey(), entry.getValue());
-        }
+    /**
+     * The log prob and gradient at the accepted position depend on the variables that were changed, so the gradient
+     * is recalculated.
+     */
+    @Override
+    public void continueFromModel(double logProb) {
+        double[] gradient = layout.flatten(logProbGradientCalculator.logProbGradients());
+        tree.updateAcceptedPosition(logProb, gradient, SamplingAlgorithm.takeSample(sampleFromVariables));
+    }
+
+    @Override
+    public void saveState(DataOutput output) throws IOException {
+        output.writeInt(sampleNum);
+        CheckpointValues.writeBytes(output, random.getState());
+        stepsize.saveState(output);
+        massMatrixAdaptor.saveState(output);
+        tree.saveState(output, sampleFromVariables);
     }
 
-    private static double dotProduct(Map<? extends VariableReference, DoubleTensor> momentums) {
-        double dotProduct = 0.0;
-        for (DoubleTensor momentum : momentums.values()) {
-            dotProduct += momentum.pow(2).sum();
+    @Override
+    public void loadState(DataInput input) throws IOException {
+        sampleNum = input.readInt();
+        random.setState(CheckpointValues.readBytes(input));
+        stepsize.loadState(input);
+        massMatrixAdaptor.loadState(input);
+        massMatrix = massMatrixAdaptor.getMassMatrix();
+        tree.loadState(input, sampleFromVariables);
+    }
+
+    private void adaptMassMatrix() {
+        if (!massMatrixAdaptor.learn(tree.getAcceptedPosition())) {
+            return;
         }
-        return dotProduct;
+
+        massMatrix = massMatrixAdaptor.getMassMatrix();
+
+        double restartedStepSize = Stepsize.findStartingStepSize(
+            tree.getAcceptedPosition(),
+            tree.getGradientAtAcceptedPosition(),
+            layout,
+            massMatrix,
+            logProbGradientCalculator,
+            tree.getLogOfMasterPAtAcceptedPosition(),
+            random
+        );
+
+        stepsize.restartAdaptation(restartedStepSize, sampleNum);
+    }
+
+    private void recordSamplerStatistics() {
+        stepsize.save(statistics);
+        tree.save(statistics);
+    }
+
+    private static void cache(double[] from, double[] to) {
+        System.arraycopy(from, 0, to, 0, from.length);
     }
 
     /**
@@ -186,7 +260,7 @@ class NUTSSampler implements SamplingAlgorithm {
     }
 
     private static <T> void addSampleForVariable(VariableReference id, T value, Map<VariableReference, List<?>> samples) {
-        List<T> samplesForVariable = (List<T>) samples.computeIfAbsent(id, v -> new ArrayList<T>());
+        List<T> samplesForVariable = (List<T>) samples.computeIfAbsent(id, v -> new ColumnarSampleList<T>());
         samplesForVariable.add(value);
     }
 
@@ -4,13 +4,10 @@ import io.improbable.keanu.KeanuRandom;
 import io.improbable.keanu.algorithms.ProbabilisticModelWithGradient;
 import io.improbable.keanu.algorithms.SaveStatistics;
 import io.improbable.keanu.algorithms.Statistics;
-import io.improbable.keanu.algorithms.Variable;
-import io.improbable.keanu.algorithms.VariableReference;
-import io.improbable.keanu.tensor.dbl.DoubleTensor;
 
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 
 /**
@@ -23,7 +20,7 @@ class Stepsize implements SaveStatistics {
     private static final double TEND_TO_ZERO_EXPONENT = 0.75;
     private static final double STARTING_STEPSIZE = 1;
 
-    private final double shrinkageTarget;
+    private double shrinkageTarget;
     private final double adaptCount;
     private final double targetAcceptanceProb;
 
@@ -32,6 +29,7 @@ class Stepsize implements SaveStatistics {
     private double averageTreeAcceptanceProb;
     private double logStepSizeFrozen;
     private double logStepSize;
+    private int adaptationStart;
 
     /**
      * @param stepsize             the step size
@@ -47,6 +45,23 @@ class Stepsize implements SaveStatistics {
         this.logStepSizeFrozen = Math.log(1);
         this.adaptCount = adaptCount;
         this.shrinkageTarget = Math.log(10 * stepsize);
+        this.adaptationStart = 0;
+    }
+
+    /**
+     * Restarts the dual averaging from a new step size, e.g. after the mass matrix has changed. Samples after
+     * sampleNum are counted from the start of the adaptation again.
+     *
+     * @param stepsize  the step size to restart from
+     * @param sampleNum the number of samples that have been taken
+     */
+    public void restartAdaptation(double stepsize, int sampleNum) {
+        this.stepsize = stepsize;
+        this.averageAcceptanceProb = 0;
+        this.logStepSize = Math.log(stepsize);
+        this.logStepSizeFrozen = Math.log(1);
+        this.shrinkageTarget = Math.log(10 * stepsize);
+        this.adaptationStart = sampleNum;
     }
 
     /**
@@ -54,32 +69,33 @@ class Stepsize implements SaveStatistics {
      *
      * @param position                       the starting position
      * @param gradient                       the gradient at the starting position
-     * @param variables                      the variables
+     * @param layout                         the layout of the latent variables in position and gradient
+     * @param massMatrix                     the mass matrix to draw momentum from
      * @param probabilisticModelWithGradient the probabilistic model with gradient
      * @param initialLogOfMasterP            the initial master log prob
      * @param random                         the source of randomness
      * @return a starting step size
      */
-    public static double findStartingStepSize(Map<VariableReference, DoubleTensor> position,
-                                              Map<? extends VariableReference, DoubleTensor> gradient,
-                                              List<? extends Variable<DoubleTensor, ?>> variables,
+    public static double findStartingStepSize(double[] position,
+                                              double[] gradient,
+                                              LatentLayout layout,
+                                              MassMatrix massMatrix,
                                               ProbabilisticModelWithGradient probabilisticModelWithGradient,
                                               double initialLogOfMasterP,
                                               KeanuRandom random) {
         double stepsize = STARTING_STEPSIZE;
-        Map<VariableReference, DoubleTensor> momentums = variables.stream()
-            .collect(Collectors.toMap(
-                Variable::getReference,
-                v -> random.nextGaussian(v.getShape())
-            ));
+        double[] momentums = new double[layout.size()];
+        massMatrix.sampleMomentum(momentums, random);
 
         Leapfrog leapfrog = new Leapfrog(position, momentums, gradient);
-        double pThetaR = initialLogOfMasterP - leapfrog.halfDotProductMomentum();
+        double pThetaR = initialLogOfMasterP - leapfrog.kineticEnergy(massMatrix);
 
-        Leapfrog delta = leapfrog.step(variables, probabilisticModelWithGradient, STARTING_STEPSIZE);
+        Leapfrog delta = new Leapfrog(layout.size())
+            .copyFrom(leapfrog)
+            .step(layout, massMatrix, probabilisticModelWithGradient, STARTING_STEPSIZE);
 
         double probAfterLeapfrog = probabilisticModelWithGradient.logProb();
-        double pThetaRAfterLeapFrog = probAfterLeapfrog - delta.halfDotProductMomentum();
+        double pThetaRAfterLeapFrog = probAfterLeapfrog - delta.kineticEnergy(massMatrix);
 
         double logLikelihoodRatio = pThetaRAfterLeapFrog - pThetaR;
         double scalingFactor = logLikelihoodRatio > Math.log(0.5) ? 1 : -1;
@@ -87,9 +103,9 @@ class Stepsize implements SaveStatistics {
         while (scalingFactor * logLikelihoodRatio > -scalingFactor * Math.log(2)) {
             stepsize = stepsize * Math.pow(2, scalingFactor);
 
-            delta = leapfrog.step(variables, probabilisticModelWithGradient, stepsize);
+            delta.copyFrom(leapfrog).step(layout, massMatrix, probabilisticModelWithGradient, stepsize);
             probAfterLeapfrog = probabilisticModelWithGradient.logProb();
-            pThetaRAfterLeapFrog = probAfterLeapfrog - delta.halfDotProductMomentum();
+            pThetaRAfterLeapFrog = probAfterLeapfrog - delta.kineticEnergy(massMatrix);
 
             logLikelihoodRatio = pThetaRAfterLeapFrog - pThetaR;
         }
@@ -107,7 +123,7 @@ class Stepsize implements SaveStatistics {
     public double adaptStepSize(Tree tree, int sampleNum) {
 
         if (sampleNum < adaptCount) {
-            logStepSize = updateLogStepSize(tree, sampleNum);
+            logStepSize = updateLogStepSize(tree, sampleNum - adaptationStart);
         } else {
             logStepSize = logStepSizeFrozen;
         }
@@ -159,6 +175,38 @@ class Stepsize implements SaveStatistics {
         return stepsize;
     }
 
+    /**
+     * Writes the state of the adaptation to a checkpoint.
+     *
+     * @param output the checkpoint to write to
+     * @throws IOException if the checkpoint could not be written
+     */
+    void saveState(DataOutput output) throws IOException {
+        output.writeDouble(stepsize);
+        output.writeDouble(averageAcceptanceProb);
+        output.writeDouble(averageTreeAcceptanceProb);
+        output.writeDouble(logStepSizeFrozen);
+        output.writeDouble(logStepSize);
+        output.writeDouble(shrinkageTarget);
+        output.writeInt(adaptationStart);
+    }
+
+    /**
+     * Replaces the state of the adaptation with one written by {@link #saveState(DataOutput)}.
+     *
+     * @param input the checkpoint to read from
+     * @throws IOException if the checkpoint could not be read
+     */
+    void loadState(DataInput input) throws IOException {
+        stepsize = input.readDouble();
+        averageAcceptanceProb = input.readDouble();
+        averageTreeAcceptanceProb = input.readDouble();
+        logStepSizeFrozen = input.readDouble();
+        logStepSize = input.readDouble();
+        shrinkageTarget = input.readDouble();
+        adaptationStart = input.readInt();
+    }
+
     @Override
     public void save(Statistics statistics) {
         statistics.store(NUTS.Metrics.STEPSIZE, stepsize);
@@ -6,8 +6,14 @@ import io.improbable.keanu.algorithms.SaveStatistics;
 import io.improbable.keanu.algorithms.Statistics;
 import io.improbable.keanu.algorithms.Variable;
 import io.improbable.keanu.algorithms.VariableReference;
-import io.improbable.keanu.tensor.dbl.DoubleTensor;
-
+import io.improbable.keanu.algorithms.mcmc.checkpoint.CheckpointValues;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -18,7 +24,10 @@ import static io.improbable.keanu.algorithms.mcmc.SamplingAlgorithm.takeSample;
  * Used by NUTS as a balanced binary tree to compute and store information
  * about leapfrogs that are taken forwards and backwards in space.
  * <p>
- * The tree is reset for each sample.
+ * The tree is reset for each sample. Each end of the tree is a {@link Leapfrog} that moves in place, and the
+ * subtrees that are built from an end keep their accepted position and the leapfrog at their inner end in buffers
+ * that are allocated once for each height, so building a tree does not allocate any arrays once every height has
+ * been reached.
  */
 class Tree implements SaveStatistics {
 
@@ -28,10 +37,12 @@ class Tree implements SaveStatistics {
     private static final double STARTING_DELTA_LIKELIHOOD = 0.;
     private static final int STARTING_TREE_SIZE = 1;
 
-    private Leapfrog leapfrogForward;
-    private Leapfrog leapfrogBackward;
-    private Map<VariableReference, DoubleTensor> acceptedPosition;
-    private Map<? extends VariableReference, DoubleTensor> gradientAtAcceptedPosition;
+    private final Leapfrog leapfrogForward;
+    private final Leapfrog leapfrogBackward;
+    private final double[] acceptedPosition;
+    private final double[] gradientAtAcceptedPosition;
+    private final double[] forwardMinusBackward;
+    private final List<Subtree> subtreesByHeight = new ArrayList<>();
     private double logOfMasterPAtAcceptedPosition;
     private Map<VariableReference, ?> sampleAtAcceptedPosition;
     private int acceptedLeapfrogCount;
@@ -40,7 +51,9 @@ class Tree implements SaveStatistics {
     private double treeSize;
 
     /**
-     * @param leapfrog                  The result of the forward leapfrog
+     * @param position                  The starting position, which is copied
+     * @param momentum                  The starting momentum, which is copied
+     * @param gradient                  The gradient at the starting position, which is copied
      * @param logProbAtAcceptedPosition The log prob of the network at the accepted position
      * @param sampleAtAcceptedPosition  The sample value at the accepted position
      * @param acceptedLeapfrogCount     The number of accepted leapfrogs
@@ -48,7 +61,9 @@ class Tree implements SaveStatistics {
      * @param deltaLikelihoodOfLeapfrog The change in log prob as a result of the latest leapfrog
      * @param treeSize                  The size of the tree
      */
-    Tree(Leapfrog leapfrog,
+    Tree(double[] position,
+         double[] momentum,
+         double[] gradient,
          double logProbAtAcceptedPosition,
          Map<VariableReference, ?> sampleAtAcceptedPosition,
          int acceptedLeapfrogCount,
@@ -56,10 +71,11 @@ class Tree implements SaveStatistics {
          double deltaLikelihoodOfLeapfrog,
          double treeSize) {
 
-        this.leapfrogForward = leapfrog;
-        this.leapfrogBackward = leapfrog;
-        this.acceptedPosition = leapfrog.getPosition();
-        this.gradientAtAcceptedPosition = leapfrog.getGradient();
+        this.leapfrogForward = new Leapfrog(position.clone(), momentum.clone(), gradient.clone());
+        this.leapfrogBackward = new Leapfrog(position.length).copyFrom(leapfrogForward);
+        this.acceptedPosition = position.clone();
+        this.gradientAtAcceptedPosition = gradient.clone();
+        this.forwardMinusBackward = new double[position.length];
         this.logOfMasterPAtAcceptedPosition = logProbAtAcceptedPosition;
         this.sampleAtAcceptedPosition = sampleAtAcceptedPosition;
         this.acceptedLeapfrogCount = acceptedLeapfrogCount;
@@ -78,15 +94,16 @@ class Tree implements SaveStatistics {
      * @param sampleAtAcceptedPosition the initial sample
      * @return a basic tree
      */
-    public static Tree createInitialTree(Map<VariableReference, DoubleTensor> position,
-                                         Map<VariableReference, DoubleTensor> momentum,
-                                         Map<? extends
-                                             VariableReference, DoubleTensor> gradient,
+    public static Tree createInitialTree(double[] position,
+                                         double[] momentum,
+                                         double[] gradient,
                                          double initialLogOfMasterP,
                                          Map<VariableReference, ?> sampleAtAcceptedPosition) {
 
         return new Tree(
-            new Leapfrog(position, momentum, gradient),
+            position,
+            momentum,
+            gradient,
             initialLogOfMasterP,
             sampleAtAcceptedPosition,
             STARTING_ACCEPTED_LEAPFROG,
@@ -96,22 +113,32 @@ class Tree implements SaveStatistics {
         );
     }
 
-    public static Tree buildOtherHalfOfTree(Tree currentTree,
-                                            List<? extends Variable<DoubleTensor, ?>> latentVariables,
-                                            ProbabilisticModelWithGradient logProbGradientCalculator,
-                                            final List<? extends Variable> sampleFromVariables,
-                                            double logU,
-                                            int buildDirection,
-                                            int treeHeight,
-                                            double epsilon,
-                                            double logOfMasterPMinusMomentumBeforeLeapfrog,
-                                            KeanuRandom random) {
-
-        Tree otherHalfTree = buildTree(
-            latentVariables,
+    /**
+     * Doubles the tree by building a subtree of the same height from one of its ends, which moves that end.
+     *
+     * @return the subtree that was built. It is overwritten by the next subtree of the same height, so it must not
+     * be held on to.
+     */
+    public Subtree buildOtherHalfOfTree(LatentLayout layout,
+                                        MassMatrix massMatrix,
+                                        ProbabilisticModelWithGradient logProbGradientCalculator,
+                                        final List<? extends Variable> sampleFromVariables,
+                                        double logU,
+                                        int buildDirection,
+                                        int treeHeight,
+                                        double epsilon,
+                                        double logOfMasterPMinusMomentumBeforeLeapfrog,
+                                        KeanuRandom random) {
+
+        Subtree otherHalfTree = subtreeOfHeight(treeHeight + 1);
+
+        buildTree(
+            layout,
+            massMatrix,
             logProbGradientCalculator,
             sampleFromVariables,
-            buildDirection == -1 ? currentTree.leapfrogBackward : currentTree.leapfrogForward,
+            buildDirection == -1 ? leapfrogBackward : leapfrogForward,
+            otherHalfTree,
             logU,
             buildDirection,
             treeHeight,
@@ -120,34 +147,38 @@ class Tree implements SaveStatistics {
             random
         );
 
-        if (buildDirection == -1) {
-            currentTree.leapfrogBackward = otherHalfTree.leapfrogBackward;
-        } else {
-            currentTree.leapfrogForward = otherHalfTree.leapfrogForward;
-        }
-
         return otherHalfTree;
     }
 
-    private static Tree buildTree(List<? extends Variable<DoubleTensor, ?>> latentVariables,
-                                  ProbabilisticModelWithGradient logProbGradientCalculator,
-                                  final List<? extends Variable> sampleFromVariables,
-                                  Leapfrog leapfrog,
-                                  double logU,
-                                  int buildDirection,
-                                  int treeHeight,
-                                  double epsilon,
-                                  double logOfMasterPMinusMomentumBeforeLeapfrog,
-                                  KeanuRandom random) {
+    /**
+     * Builds a subtree of 2^treeHeight leapfrogs by stepping the end of the tree in the build direction.
+     *
+     * @param leapfrog the end of the tree that is moved
+     * @param tree     the subtree to write the result into
+     */
+    private void buildTree(LatentLayout layout,
+                           MassMatrix massMatrix,
+                           ProbabilisticModelWithGradient logProbGradientCalculator,
+                           final List<? extends Variable> sampleFromVariables,
+                           Leapfrog leapfrog,
+                           Subtree tree,
+                           double logU,
+                           int buildDirection,
+                           int treeHeight,
+                           double epsilon,
+                           double logOfMasterPMinusMomentumBeforeLeapfrog,
+                           KeanuRandom random) {
         if (treeHeight == 0) {
 
             //Base case-take one leapfrog step in the build direction
 
-            return treeBuilderBaseCase(
-                latentVariables,
+            treeBuilderBaseCase(
+                layout,
+                massMatrix,
                 logProbGradientCalculator,
                 sampleFromVariables,
                 leapfrog,
+                tree,
                 logU,
                 buildDirection,
                 epsilon,
@@ -157,11 +188,13 @@ class Tree implements SaveStatistics {
         } else {
             //Recursion-implicitly build the left and right subtrees.
 
-            Tree tree = buildTree(
-                latentVariables,
+            buildTree(
+                layout,
+                massMatrix,
                 logProbGradientCalculator,
                 sampleFromVariables,
                 leapfrog,
+                tree,
                 logU,
                 buildDirection,
                 treeHeight - 1,
@@ -173,11 +206,15 @@ class Tree implements SaveStatistics {
             //Should continue building other half if first half's shouldContinueFlag is true
             if (tree.shouldContinueFlag) {
 
-                Tree otherHalfTree = buildOtherHalfOfTree(
-                    tree,
-                    latentVariables,
+                Subtree otherHalfTree = subtreeOfHeight(treeHeight);
+
+                buildTree(
+                    layout,
+                    massMatrix,
                     logProbGradientCalculator,
                     sampleFromVariables,
+                    leapfrog,
+                    otherHalfTree,
                     logU,
                     buildDirection,
                     treeHeight - 1,
@@ -188,39 +225,39 @@ class Tree implements SaveStatistics {
 
                 double acceptOtherTreePositionProbability = (double) otherHalfTree.acceptedLeapfrogCount / (tree.acceptedLeapfrogCount + otherHalfTree.acceptedLeapfrogCount);
 
-                Tree.acceptOtherPositionWithProbability(
-                    acceptOtherTreePositionProbability,
-                    tree,
-                    otherHalfTree,
-                    random
-                );
+                if (random.nextDouble() < acceptOtherTreePositionProbability) {
+                    tree.acceptPositionOf(otherHalfTree);
+                }
 
-                tree.continueIfNotUTurning(otherHalfTree);
+                tree.shouldContinueFlag = otherHalfTree.shouldContinueFlag && (buildDirection == -1
+                    ? isNotUTurning(tree.innerPosition, leapfrog.getPosition(), tree.innerMomentum, leapfrog.getMomentum(), massMatrix)
+                    : isNotUTurning(leapfrog.getPosition(), tree.innerPosition, leapfrog.getMomentum(), tree.innerMomentum, massMatrix));
+                tree.diverged |= otherHalfTree.diverged;
 
                 tree.acceptedLeapfrogCount += otherHalfTree.acceptedLeapfrogCount;
                 tree.deltaLikelihoodOfLeapfrog += otherHalfTree.deltaLikelihoodOfLeapfrog;
                 tree.treeSize += otherHalfTree.treeSize;
             }
-
-            return tree;
         }
 
     }
 
-    private static Tree treeBuilderBaseCase(List<? extends Variable<DoubleTensor, ?>> latentVariables,
+    private static void treeBuilderBaseCase(LatentLayout layout,
+                                            MassMatrix massMatrix,
                                             ProbabilisticModelWithGradient logProbGradientCalculator,
                                             final List<? extends Variable> sampleFromVariables,
                                             Leapfrog leapfrog,
+                                            Subtree tree,
                                             double logU,
                                             int buildDirection,
                                             double epsilon,
                                             double logOfMasterPMinusMomentumBeforeLeapfrog) {
 
-        leapfrog = leapfrog.step(latentVariables, logProbGradientCalculator, epsilon * buildDirection);
+        leapfrog.step(layout, massMatrix, logProbGradientCalculator, epsilon * buildDirection);
 
         final double logOfMasterPAfterLeapfrog = logProbGradientCalculator.logProb();
 
-        final double logOfMasterPMinusMomentum = logOfMasterPAfterLeapfrog - leapfrog.halfDotProductMomentum();
+        final double logOfMasterPMinusMomentum = logOfMasterPAfterLeapfrog - leapfrog.kineticEnergy(massMatrix);
         final int acceptedLeapfrogCount = logU <= logOfMasterPMinusMomentum ? 1 : 0;
         final boolean shouldContinueFlag = logU < DELTA_MAX + logOfMasterPMinusMomentum;
 
@@ -231,59 +268,61 @@ class Tree implements SaveStatistics {
             Math.exp(logOfMasterPMinusMomentum - logOfMasterPMinusMomentumBeforeLeapfrog)
         );
 
-        return new Tree(
-            leapfrog,
-            logOfMasterPAfterLeapfrog,
-            sampleAtAcceptedPosition,
-            acceptedLeapfrogCount,
-            shouldContinueFlag,
-            deltaLikelihoodOfLeapfrog,
-            STARTING_TREE_SIZE
-        );
+        tree.startAt(leapfrog, logOfMasterPAfterLeapfrog, sampleAtAcceptedPosition);
+        tree.acceptedLeapfrogCount = acceptedLeapfrogCount;
+        tree.shouldContinueFlag = shouldContinueFlag;
+        tree.deltaLikelihoodOfLeapfrog = deltaLikelihoodOfLeapfrog;
+        tree.treeSize = STARTING_TREE_SIZE;
+        tree.diverged = !shouldContinueFlag;
     }
 
-    public static void acceptOtherPositionWithProbability(double probability,
-                                                          Tree tree,
-                                                          Tree otherTree,
-                                                          KeanuRandom random) {
+    public void acceptOtherPositionWithProbability(double probability,
+                                                   Subtree otherTree,
+                                                   KeanuRandom random) {
         if (random.nextDouble() < probability) {
-            tree.acceptedPosition = otherTree.acceptedPosition;
-            tree.gradientAtAcceptedPosition = otherTree.gradientAtAcceptedPosition;
-            tree.logOfMasterPAtAcceptedPosition = otherTree.logOfMasterPAtAcceptedPosition;
-            tree.sampleAtAcceptedPosition = otherTree.sampleAtAcceptedPosition;
+            System.arraycopy(otherTree.acceptedPosition, 0, acceptedPosition, 0, acceptedPosition.length);
+            System.arraycopy(otherTree.gradientAtAcceptedPosition, 0, gradientAtAcceptedPosition, 0, gradientAtAcceptedPosition.length);
+            logOfMasterPAtAcceptedPosition = otherTree.logOfMasterPAtAcceptedPosition;
+            sampleAtAcceptedPosition = otherTree.sampleAtAcceptedPosition;
         }
     }
 
-    private static boolean isNotUTurning(Map<VariableReference, DoubleTensor> positionForward,
-                                         Map<VariableReference, DoubleTensor> positionBackward,
-                                         Map<VariableReference, DoubleTensor> momentumForward,
-                                         Map<VariableReference, DoubleTensor> momentumBackward) {
-        double forward = 0.0;
-        double backward = 0.0;
-
-        for (Map.Entry<VariableReference, DoubleTensor> forwardPositionForLatent : positionForward.entrySet()) {
-
-            final VariableReference latentId = forwardPositionForLatent.getKey();
-            final DoubleTensor forwardMinusBackward = forwardPositionForLatent.getValue().minus(
-                positionBackward.get(latentId)
-            );
-
-            forward += forwardMinusBackward.times(momentumForward.get(latentId)).sum();
-            backward += forwardMinusBackward.timesInPlace(momentumBackward.get(latentId)).sum();
+    /**
+     * The U-turn criterion measured in velocity, M^-1 * p, so that it holds under any mass matrix.
+     */
+    private boolean isNotUTurning(double[] positionForward,
+                                  double[] positionBackward,
+                                  double[] momentumForward,
+                                  double[] momentumBackward,
+                                  MassMatrix massMatrix) {
+
+        for (int i = 0; i < positionForward.length; i++) {
+            forwardMinusBackward[i] = positionForward[i] - positionBackward[i];
         }
 
+        final double forward = massMatrix.dotVelocity(forwardMinusBackward, momentumForward);
+        final double backward = massMatrix.dotVelocity(forwardMinusBackward, momentumBackward);
+
         return (forward >= 0.0) && (backward >= 0.0);
     }
 
-    public void continueIfNotUTurning(Tree otherHalfTree) {
-        shouldContinueFlag = (otherHalfTree.shouldContinue() && Tree.isNotUTurning(
+    public void continueIfNotUTurning(Subtree otherHalfTree, MassMatrix massMatrix) {
+        shouldContinueFlag = (otherHalfTree.shouldContinue() && isNotUTurning(
             getForwardPosition(),
             getBackwardPosition(),
             getForwardMomentum(),
-            getBackwardMomentum()
+            getBackwardMomentum(),
+            massMatrix
         ));
     }
 
+    private Subtree subtreeOfHeight(int height) {
+        while (subtreesByHeight.size() <= height) {
+            subtreesByHeight.add(new Subtree(acceptedPosition.length));
+        }
+        return subtreesByHeight.get(height);
+    }
+
     public boolean shouldContinue() {
         return shouldContinueFlag;
     }
@@ -325,29 +364,164 @@ class Tree implements SaveStatistics {
         return logOfMasterPAtAcceptedPosition;
     }
 
-    public Map<VariableReference, DoubleTensor> getForwardPosition() {
+    public double[] getAcceptedPosition() {
+        return acceptedPosition;
+    }
+
+    public double[] getGradientAtAcceptedPosition() {
+        return gradientAtAcceptedPosition;
+    }
+
+    public double[] getForwardPosition() {
         return leapfrogForward.getPosition();
     }
 
-    public Map<VariableReference, DoubleTensor> getBackwardPosition() {
+    public double[] getBackwardPosition() {
         return leapfrogBackward.getPosition();
     }
 
-    public Map<VariableReference, DoubleTensor> getForwardMomentum() {
+    public double[] getForwardMomentum() {
         return leapfrogForward.getMomentum();
     }
 
-    public Map<VariableReference, DoubleTensor> getBackwardMomentum() {
+    public double[] getBackwardMomentum() {
         return leapfrogBackward.getMomentum();
     }
 
     public void acceptPositionAndGradient() {
-        leapfrogForward = leapfrogForward.makeJumpTo(acceptedPosition, gradientAtAcceptedPosition);
-        leapfrogBackward = leapfrogBackward.makeJumpTo(acceptedPosition, gradientAtAcceptedPosition);
+        leapfrogForward.jumpTo(acceptedPosition, gradientAtAcceptedPosition);
+        leapfrogBackward.jumpTo(acceptedPosition, gradientAtAcceptedPosition);
+    }
+
+    /**
+     * Replaces the log prob, gradient and sample at the accepted position after variables that the tree does not
+     * move have been changed, and moves both ends of the tree to the accepted position.
+     *
+     * @param logOfMasterP the log prob of the model at the accepted position
+     * @param gradient     the gradient of the log prob at the accepted position
+     * @param sample       the sample at the accepted position
+     */
+    void updateAcceptedPosition(double logOfMasterP, double[] gradient, Map<VariableReference, ?> sample) {
+        logOfMasterPAtAcceptedPosition = logOfMasterP;
+        System.arraycopy(gradient, 0, gradientAtAcceptedPosition, 0, gradientAtAcceptedPosition.length);
+        sampleAtAcceptedPosition = sample;
+        acceptPositionAndGradient();
+    }
+
+    /**
+     * Writes the accepted position and the running totals of the tree to a checkpoint. Everything else is reset or
+     * overwritten at the start of each sample.
+     *
+     * @param output              the checkpoint to write to
+     * @param sampleFromVariables the variables in the sample at the accepted position, in the order to write them
+     * @throws IOException if the checkpoint could not be written
+     */
+    void saveState(DataOutput output, List<? extends Variable> sampleFromVariables) throws IOException {
+        CheckpointValues.writeDoubles(output, acceptedPosition);
+        CheckpointValues.writeDoubles(output, gradientAtAcceptedPosition);
+        output.writeDouble(logOfMasterPAtAcceptedPosition);
+        output.writeDouble(deltaLikelihoodOfLeapfrog);
+        output.writeDouble(treeSize);
+
+        for (Variable variable : sampleFromVariables) {
+            CheckpointValues.writeValue(output, sampleAtAcceptedPosition.get(variable.getReference()));
+        }
+    }
+
+    /**
+     * Replaces the state of the tree with one written by {@link #saveState(DataOutput, List)}, with both ends of the
+     * tree at the accepted position.
+     *
+     * @param input               the checkpoint to read from
+     * @param sampleFromVariables the variables in the sample at the accepted position, in the order they were written
+     * @throws IOException if the checkpoint could not be read
+     */
+    void loadState(DataInput input, List<? extends Variable> sampleFromVariables) throws IOException {
+        double[] position = CheckpointValues.readDoubles(input);
+        double[] gradient = CheckpointValues.readDoubles(input);
+        System.arraycopy(position, 0, acceptedPosition, 0, acceptedPosition.length);
+        System.arraycopy(gradient, 0, gradientAtAcceptedPosition, 0, gradientAtAcceptedPosition.length);
+        logOfMasterPAtAcceptedPosition = input.readDouble();
+        deltaLikelihoodOfLeapfrog = input.readDouble();
+        treeSize = input.readDouble();
+
+        Map<VariableReference, Object> sample = new HashMap<>();
+        for (Variable variable : sampleFromVariables) {
+            sample.put(variable.getReference(), CheckpointValues.readValue(input));
+        }
+        sampleAtAcceptedPosition = sample;
+
+        acceptPositionAndGradient();
+        Arrays.fill(leapfrogForward.getMomentum(), 0.0);
+        Arrays.fill(leapfrogBackward.getMomentum(), 0.0);
     }
 
     public void save(Statistics statistics) {
         statistics.store(NUTS.Metrics.LOG_PROB, logOfMasterPAtAcceptedPosition);
         statistics.store(NUTS.Metrics.TREE_SIZE, treeSize);
     }
-}
\ No newline at end of file
+
+    /**
+     * The result of building part of a tree from one of its ends: its accepted position, the leapfrog at its inner
+     * end, which is the first one it took, and its running totals.
+     */
+    static class Subtree {
+        private final double[] innerPosition;
+        private final double[] innerMomentum;
+        private final double[] acceptedPosition;
+        private final double[] gradientAtAcceptedPosition;
+        private double logOfMasterPAtAcceptedPosition;
+        private Map<VariableReference, ?> sampleAtAcceptedPosition;
+        private int acceptedLeapfrogCount;
+        private boolean shouldContinueFlag;
+        private double deltaLikelihoodOfLeapfrog;
+        private double treeSize;
+        private boolean diverged;
+
+        private Subtree(int size) {
+            this.innerPosition = new double[size];
+            this.innerMomentum = new double[size];
+            this.acceptedPosition = new double[size];
+            this.gradientAtAcceptedPosition = new double[size];
+        }
+
+        private void startAt(Leapfrog leapfrog, double logOfMasterP, Map<VariableReference, ?> sample) {
+            System.arraycopy(leapfrog.getPosition(), 0, innerPosition, 0, innerPosition.length);
+            System.arraycopy(leapfrog.getMomentum(), 0, innerMomentum, 0, innerMomentum.length);
+            System.arraycopy(leapfrog.getPosition(), 0, acceptedPosition, 0, acceptedPosition.length);
+            System.arraycopy(leapfrog.getGradient(), 0, gradientAtAcceptedPosition, 0, gradientAtAcceptedPosition.length);
+            logOfMasterPAtAcceptedPosition = logOfMasterP;
+            sampleAtAcceptedPosition = sample;
+        }
+
+        private void acceptPositionOf(Subtree other) {
+            System.arraycopy(other.acceptedPosition, 0, acceptedPosition, 0, acceptedPosition.length);
+            System.arraycopy(other.gradientAtAcceptedPosition, 0, gradientAtAcceptedPosition, 0, gradientAtAcceptedPosition.length);
+            logOfMasterPAtAcceptedPosition = other.logOfMasterPAtAcceptedPosition;
+            sampleAtAcceptedPosition = other.sampleAtAcceptedPosition;
+        }
+
+        public boolean shouldContinue() {
+            return shouldContinueFlag;
+        }
+
+        /**
+         * @return true if the error in the energy of a leapfrog step of this subtree became large enough to stop it
+         */
+        public boolean hasDiverged() {
+            return diverged;
+        }
+
+        public int getAcceptedLeapfrogCount() {
+            return acceptedLeapfrogCount;
+        }
+
+        public double getDeltaLikelihoodOfLeapfrog() {
+            return deltaLikelihoodOfLeapfrog;
+        }
+
+        public double getTreeSize() {
+            return treeSize;
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package io.improbable.keanu.algorithms.mcmc.proposal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Probabilistic;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An adaptive Metropolis proposal (Haario et al. 2001) for blocks of continuous variables.
+ * <p>
+ * Each distinct set of variables it is asked to propose for is treated as a block. During the first
+ * adaptationSteps proposals of a block, it records the block's state before every proposal and learns its
+ * covariance, and it tunes a scale factor with a Robbins-Monro update so that the acceptance rate of the block
+ * approaches the target acceptance rate. Proposals are a Gaussian random walk with covariance
+ * scale * 2.38^2 / d * (covariance + epsilon * I), where d is the number of elements in the block. Until a block has
+ * enough history to estimate its covariance, or if it has not moved at all, an isotropic covariance with the initial
+ * sigma is used instead.
+ * <p>
+ * Once a block has been adapted for adaptationSteps proposals its proposal covariance is frozen, so that the
+ * samples after warm-up come from a valid Markov chain. The adaptation steps should therefore be no more than the
+ * number of samples that are dropped as warm-up.
+ */
+public class AdaptiveGaussianProposalDistribution implements ProposalDistribution {
+
+    public static final double DEFAULT_TARGET_ACCEPTANCE_RATE = 0.234;
+
+    private static final double OPTIMAL_SCALE_SQUARED = 2.38 * 2.38;
+    private static final double RELATIVE_REGULARISATION = 1e-6;
+    private static final int MIN_OBSERVATIONS_PER_DIMENSION = 2;
+
+    private final double initialSigma;
+    private final int adaptationSteps;
+    private final double targetAcceptanceRate;
+    private final ProposalNotifier proposalNotifier;
+    private final Map<Set<Variable>, Block> blocks = new HashMap<>();
+    private Block pendingBlock;
+
+    /**
+     * @param initialSigma    the standard deviation of each element of a proposal until a block has enough history
+     *                        to estimate its covariance
+     * @param adaptationSteps the number of proposals of each block during which it adapts
+     */
+    public AdaptiveGaussianProposalDistribution(double initialSigma, int adaptationSteps) {
+        this(initialSigma, adaptationSteps, DEFAULT_TARGET_ACCEPTANCE_RATE, Collections.emptyList());
+    }
+
+    /**
+     * @param initialSigma         the standard deviation of each element of a proposal until a block has enough
+     *                             history to estimate its covariance
+     * @param adaptationSteps      the number of proposals of each block during which it adapts
+     * @param targetAcceptanceRate the acceptance rate the scale of each block is tuned toward
+     * @param listeners            notified when a proposal is created or rejected
+     */
+    public AdaptiveGaussianProposalDistribution(double initialSigma,
+                                                int adaptationSteps,
+                                                double targetAcceptanceRate,
+                                                List<ProposalListener> listeners) {
+        Preconditions.checkArgument(initialSigma > 0, "Initial sigma must be positive but was " + initialSigma);
+        Preconditions.checkArgument(adaptationSteps >= 0, "Adaptation steps cannot be negative but was " + adaptationSteps);
+        Preconditions.checkArgument(targetAcceptanceRate > 0 && targetAcceptanceRate < 1,
+            "Target acceptance rate must be between 0 and 1 but was " + targetAcceptanceRate);
+
+        this.initialSigma = initialSigma;
+        this.adaptationSteps = adaptationSteps;
+        this.targetAcceptanceRate = targetAcceptanceRate;
+        this.proposalNotifier = new ProposalNotifier(listeners);
+    }
+
+    @Override
+    public Proposal getProposal(Set<Variable> variables, KeanuRandom random) {
+        resolvePendingProposal(true);
+
+        Block block = blocks.get(variables);
+        if (block == null) {
+            block = new Block(variables);
+            blocks.put(ImmutableSet.copyOf(variables), block);
+        }
+
+        double[] state = block.getState();
+        if (block.isAdapting()) {
+            block.observe(state);
+        }
+
+        double[][] choleskyFactor = block.getProposalCholeskyFactor();
+        double[] noise = new double[state.length];
+        for (int i = 0; i < noise.length; i++) {
+            noise[i] = random.nextGaussian();
+        }
+
+        double[] proposed = new double[state.length];
+        for (int i = 0; i < proposed.length; i++) {
+            double step = 0.0;
+            for (int j = 0; j <= i; j++) {
+                step += choleskyFactor[i][j] * noise[j];
+            }
+            proposed[i] = state[i] + step;
+        }
+
+        Proposal proposal = block.toProposal(proposed);
+        pendingBlock = block;
+        proposalNotifier.notifyProposalCreated(proposal);
+        return proposal;
+    }
+
+    /**
+     * The proposal of a single variable is the marginal of the Gaussian random walk of a block that contains it,
+     * preferring the block that is being proposed for, or of an isotropic random walk with the initial sigma if it
+     * has not been proposed for yet. It is symmetric, so the value and given value can be swapped.
+     */
+    @Override
+    public <T> double logProb(Probabilistic<T> variable, T ofValue, T givenValue) {
+        if (!(ofValue instanceof DoubleTensor)) {
+            throw new ClassCastException("Only DoubleTensor values are supported - not " + ofValue.getClass().getSimpleName());
+        }
+
+        double[] of = ((DoubleTensor) ofValue).asFlatDoubleArray();
+        double[] given = ((DoubleTensor) givenValue).asFlatDoubleArray();
+        double[][] choleskyFactor = cholesky(getMarginalCovariance((Variable) variable, of.length));
+        if (choleskyFactor == null) {
+            throw new IllegalStateException("The proposal covariance of " + variable + " is not positive definite");
+        }
+
+        double logProb = -0.5 * of.length * Math.log(2 * Math.PI);
+        double[] standardised = new double[of.length];
+        for (int i = 0; i < of.length; i++) {
+            double residual = of[i] - given[i];
+            for (int j = 0; j < i; j++) {
+                residual -= choleskyFactor[i][j] * standardised[j];
+            }
+            standardised[i] = residual / choleskyFactor[i][i];
+            logProb -= 0.5 * standardised[i] * standardised[i] + Math.log(choleskyFactor[i][i]);
+        }
+        return logProb;
+    }
+
+    /**
+     * The proposal is symmetric so q(x|x') = q(x'|x), which cancels in the Hastings correction.
+     */
+    @Override
+    public double logProbAtFromGivenTo(Proposal proposal) {
+        return 0.0;
+    }
+
+    /**
+     * The proposal is symmetric so q(x'|x) = q(x|x'), which cancels in the Hastings correction.
+     */
+    @Override
+    public double logProbAtToGivenFrom(Proposal proposal) {
+        return 0.0;
+    }
+
+    @Override
+    public void onProposalRejected() {
+        resolvePendingProposal(false);
+        proposalNotifier.notifyProposalRejected();
+    }
+
+    /**
+     * @param variables the variables of a block that has been proposed for
+     * @return the covariance of the block's current proposals as a d by d matrix, where d is the number of elements
+     * in the block, with the elements of the variables in their iteration order
+     * @throws IllegalArgumentException if nothing has been proposed for the block
+     */
+    public DoubleTensor getProposalCovariance(Set<? extends Variable> variables) {
+        Block block = blocks.get(variables);
+        Preconditions.checkArgument(block != null, "No proposals have been made for " + variables);
+
+        double[][] covariance = block.getProposalCovariance();
+        int dimension = covariance.length;
+        double[] flatCovariance = new double[dimension * dimension];
+        for (int i = 0; i < dimension; i++) {
+            System.arraycopy(covariance[i], 0, flatCovariance, i * dimension, dimension);
+        }
+        return DoubleTensor.create(flatCovariance, new long[]{dimension, dimension});
+    }
+
+    private double[][] getMarginalCovariance(Variable variable, int length) {
+        Block block = pendingBlock != null && pendingBlock.contains(variable) ? pendingBlock : null;
+        if (block == null) {
+            for (Block candidate : blocks.values()) {
+                if (candidate.contains(variable)) {
+                    block = candidate;
+                    break;
+                }
+            }
+        }
+
+        double[][] marginal = new double[length][length];
+        if (block == null) {
+            for (int i = 0; i < length; i++) {
+                marginal[i][i] = initialSigma * initialSigma;
+            }
+            return marginal;
+        }
+
+        double[][] covariance = block.getProposalCovariance();
+        int offset = block.offsetOf(variable);
+        for (int i = 0; i < length; i++) {
+            System.arraycopy(covariance[offset + i], offset, marginal[i], 0, length);
+        }
+        return marginal;
+    }
+
+    /**
+     * A proposal that is not rejected before the next one is created has been accepted.
+     */
+    private void resolvePendingProposal(boolean accepted) {
+        if (pendingBlock != null) {
+            if (pendingBlock.isAdapting()) {
+                pendingBlock.adaptScale(accepted);
+            }
+            pendingBlock = null;
+        }
+    }
+
+    private final class Block {
+        private final List<Variable<DoubleTensor, ?>> variables;
+        private final long[][] shapes;
+        private final int dimension;
+
+        private final double[] mean;
+        private final double[][] scatter;
+        private long observations;
+        private int proposals;
+        private double logScale;
+        private double[][] choleskyFactor;
+
+        Block(Set<Variable> blockVariables) {
+            ImmutableList.Builder<Variable<DoubleTensor, ?>> builder = ImmutableList.builder();
+            for (Variable variable : blockVariables) {
+                if (!(variable.getValue() instanceof DoubleTensor)) {
+                    throw new IllegalStateException("Gaussian proposal function cannot be used for discrete variable " + variable);
+                }
+                builder.add((Variable<DoubleTensor, ?>) variable);
+            }
+            this.variables = builder.build();
+
+            this.shapes = new long[variables.size()][];
+            int length = 0;
+            for (int i = 0; i < variables.size(); i++) {
+                shapes[i] = variables.get(i).getValue().getShape();
+                length += TensorShape.getLengthAsInt(shapes[i]);
+            }
+            this.dimension = length;
+            this.mean = new double[dimension];
+            this.scatter = new double[dimension][dimension];
+        }
+
+        boolean isAdapting() {
+            return proposals < adaptationSteps;
+        }
+
+        boolean contains(Variable variable) {
+            return variables.contains(variable);
+        }
+
+        int offsetOf(Variable variable) {
+            int offset = 0;
+            for (int i = 0; i < variables.size(); i++) {
+                if (variables.get(i).equals(variable)) {
+                    return offset;
+                }
+                offset += TensorShape.getLengthAsInt(shapes[i]);
+            }
+            throw new IllegalArgumentException(variable + " is not in the block");
+        }
+
+        double[] getState() {
+            double[] state = new double[dimension];
+            int offset = 0;
+            for (Variable<DoubleTensor, ?> variable : variables) {
+                double[] values = variable.getValue().asFlatDoubleArray();
+                System.arraycopy(values, 0, state, offset, values.length);
+                offset += values.length;
+            }
+            return state;
+        }
+
+        Proposal toProposal(double[] proposed) {
+            Proposal proposal = new Proposal();
+            int offset = 0;
+            for (int i = 0; i < variables.size(); i++) {
+                int length = TensorShape.getLengthAsInt(shapes[i]);
+                double[] values = new double[length];
+                System.arraycopy(proposed, offset, values, 0, length);
+                proposal.setProposal(variables.get(i), DoubleTensor.create(values, shapes[i]));
+                offset += length;
+            }
+            return proposal;
+        }
+
+        /**
+         * Updates the running mean and scatter matrix with Welford's algorithm.
+         */
+        void observe(double[] state) {
+            observations++;
+            double[] delta = new double[dimension];
+            for (int i = 0; i < dimension; i++) {
+                delta[i] = state[i] - mean[i];
+                mean[i] += delta[i] / observations;
+            }
+            for (int i = 0; i < dimension; i++) {
+                for (int j = 0; j < dimension; j++) {
+                    scatter[i][j] += delta[i] * (state[j] - mean[j]);
+                }
+            }
+            choleskyFactor = null;
+        }
+
+        void adaptScale(boolean accepted) {
+            proposals++;
+            double acceptance = accepted ? 1.0 : 0.0;
+            logScale += (acceptance - targetAcceptanceRate) / Math.sqrt(proposals);
+            choleskyFactor = null;
+        }
+
+        double[][] getProposalCholeskyFactor() {
+            if (choleskyFactor == null) {
+                choleskyFactor = calculateProposalCholeskyFactor();
+            }
+            return choleskyFactor;
+        }
+
+        double[][] getProposalCovariance() {
+            double[][] lower = getProposalCholeskyFactor();
+            double[][] covariance = new double[dimension][dimension];
+            for (int i = 0; i < dimension; i++) {
+                for (int j = 0; j < dimension; j++) {
+                    double sum = 0.0;
+                    for (int k = 0; k <= Math.min(i, j); k++) {
+                        sum += lower[i][k] * lower[j][k];
+                    }
+                    covariance[i][j] = sum;
+                }
+            }
+            return covariance;
+        }
+
+        private double[][] calculateProposalCholeskyFactor() {
+            double scale = Math.exp(logScale);
+
+            double averageVariance = 0.0;
+            if (observations > 1) {
+                for (int i = 0; i < dimension; i++) {
+                    averageVariance += scatter[i][i] / (observations - 1) / dimension;
+                }
+            }
+
+            if (observations > (long) MIN_OBSERVATIONS_PER_DIMENSION * dimension && averageVariance > 0) {
+                double[][] covariance = new double[dimension][dimension];
+                double epsilon = RELATIVE_REGULARISATION * averageVariance;
+                double factor = scale * OPTIMAL_SCALE_SQUARED / dimension;
+
+                for (int i = 0; i < dimension; i++) {
+                    for (int j = 0; j < dimension; j++) {
+                        covariance[i][j] = factor * scatter[i][j] / (observations - 1);
+                    }
+                    covariance[i][i] += factor * epsilon;
+                }
+
+                double[][] factorised = cholesky(covariance);
+                if (factorised != null) {
+                    return factorised;
+                }
+            }
+
+            double[][] isotropic = new double[dimension][dimension];
+            double sigma = initialSigma * Math.sqrt(scale);
+            for (int i = 0; i < dimension; i++) {
+                isotropic[i][i] = sigma;
+            }
+            return isotropic;
+        }
+    }
+
+    /**
+     * @return the lower triangular L such that L * L^T equals the matrix, or null if the matrix is not positive
+     * definite
+     */
+    private static double[][] cholesky(double[][] matrix) {
+        int n = matrix.length;
+        double[][] lower = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = matrix[i][j];
+                for (int k = 0; k < j; k++) {
+                    sum -= lower[i][k] * lower[j][k];
+                }
+                if (i == j) {
+                    if (!(sum > 0)) {
+                        return null;
+                    }
+                    lower[i][i] = Math.sqrt(sum);
+                } else {
+                    lower[i][j] = sum / lower[j][j];
+                }
+            }
+        }
+        return lower;
+    }
+}
@@ -0,0 +1,108 @@
+package io.improbable.keanu.algorithms.mcmc.proposal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.graphtraversal.MarkovBlanket;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Vertex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Groups the latent variables into blocks of variables that are likely to be correlated in the posterior and selects
+ * one block per step, in turn.
+ * <p>
+ * A block is grown from the first latent variable that is not yet in a block by adding the continuous latent
+ * variables in the Markov blankets of its members, breadth first, until it reaches the maximum block size. Discrete
+ * variables, and variables that are not vertices, are each in a block of their own.
+ */
+public class MarkovBlanketVariableSelector implements MHStepVariableSelector {
+
+    private final int maxBlockSize;
+    private List<? extends Variable> blocksFor;
+    private List<Set<Variable>> blocks;
+
+    /**
+     * @param maxBlockSize the maximum number of variables in a block
+     */
+    public MarkovBlanketVariableSelector(int maxBlockSize) {
+        Preconditions.checkArgument(maxBlockSize > 0, "Max block size must be positive but was " + maxBlockSize);
+        this.maxBlockSize = maxBlockSize;
+    }
+
+    @Override
+    public Set<Variable> select(List<? extends Variable> latentVariables, int sampleNumber) {
+        if (latentVariables != blocksFor) {
+            blocks = groupIntoBlocks(latentVariables, maxBlockSize);
+            blocksFor = latentVariables;
+        }
+        return blocks.get(sampleNumber % blocks.size());
+    }
+
+    /**
+     * @param latentVariables the variables to group
+     * @param maxBlockSize    the maximum number of variables in a block
+     * @return blocks that together contain each of the latent variables exactly once
+     */
+    public static List<Set<Variable>> groupIntoBlocks(List<? extends Variable> latentVariables, int maxBlockSize) {
+        Map<Variable, Integer> latentIndex = new HashMap<>();
+        for (int i = 0; i < latentVariables.size(); i++) {
+            latentIndex.put(latentVariables.get(i), i);
+        }
+
+        Set<Variable> assigned = new HashSet<>();
+        ImmutableList.Builder<Set<Variable>> blocks = ImmutableList.builder();
+
+        for (Variable variable : latentVariables) {
+            if (!assigned.add(variable)) {
+                continue;
+            }
+
+            Set<Variable> block = new LinkedHashSet<>();
+            block.add(variable);
+
+            Deque<Variable> frontier = new ArrayDeque<>();
+            if (isGroupable(variable)) {
+                frontier.add(variable);
+            }
+
+            while (!frontier.isEmpty() && block.size() < maxBlockSize) {
+                List<Variable> neighbours = new ArrayList<>();
+                for (Vertex<?> neighbour : MarkovBlanket.get((Vertex<?>) frontier.poll())) {
+                    if (latentIndex.containsKey(neighbour) && !assigned.contains(neighbour) && isGroupable(neighbour)) {
+                        neighbours.add(neighbour);
+                    }
+                }
+                neighbours.sort(Comparator.comparing(latentIndex::get));
+
+                for (Variable neighbour : neighbours) {
+                    if (block.size() >= maxBlockSize) {
+                        break;
+                    }
+                    assigned.add(neighbour);
+                    block.add(neighbour);
+                    frontier.add(neighbour);
+                }
+            }
+
+            blocks.add(ImmutableSet.copyOf(block));
+        }
+
+        return blocks.build();
+    }
+
+    private static boolean isGroupable(Variable<?, ?> variable) {
+        return variable instanceof Vertex && variable.getValue() instanceof DoubleTensor;
+    }
+}
@@ -1,25 +1,43 @@
 package io.improbable.keanu.algorithms.particlefiltering;
 
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.graphtraversal.CascadePlan;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Probabilistic;
 import io.improbable.keanu.vertices.ProbabilityCalculator;
 import io.improbable.keanu.vertices.Vertex;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
  * Represents a Particle used in a Particle Filter.
  * A Particle can be thought of as a particular instance of the network with state and an associated probability.
+ * <p>
+ * The values sampled at each step are kept in a history that is shared with the particles this one was copied from,
+ * so copying a particle when resampling does not copy its history.
  */
 public class Particle {
 
-    private Map<Vertex, Object> latentVertices = new HashMap<>();
-    private List<Vertex> observedVertices = new ArrayList<>();
-    private double sumLogPOfSubgraph = 1.0;
+    private LatentHistory history = null;
+    private Map<Vertex, Object> latentsStillNeeded = new HashMap<>();
+    private Map<Vertex, Object> latentVertices = null;
+    private double sumLogPOfSubgraph = 0.0;
+    private double logWeight = 0.0;
 
+    /**
+     * @return the values of every latent vertex sampled by this particle
+     */
     public Map<Vertex, Object> getLatentVertices() {
+        if (latentVertices == null) {
+            latentVertices = new HashMap<>();
+            for (LatentHistory entry = history; entry != null; entry = entry.previous) {
+                for (int i = 0; i < entry.latents.length; i++) {
+                    latentVertices.putIfAbsent(entry.latents[i], entry.values[i]);
+                }
+            }
+        }
         return latentVertices;
     }
 
@@ -30,49 +48,112 @@ public class Particle {
         return sumLogPOfSubgraph;
     }
 
+    /**
+     * @return the log of the unnormalised importance weight of this particle since the particles were last resampled
+     */
+    public double getLogWeight() {
+        return logWeight;
+    }
+
     public double getScalarValueOfVertex(Vertex<DoubleTensor> vertex) {
-        return ((DoubleTensor) latentVertices.get(vertex)).scalar();
+        return ((DoubleTensor) getLatentVertices().get(vertex)).scalar();
     }
 
     public <T> T getValueOfVertex(Vertex<T> vertex){
-        return (T) latentVertices.get(vertex);
+        return (T) getLatentVertices().get(vertex);
     }
 
-    <T> void addLatentVertex(Vertex<T> vertex, T value) {
-        latentVertices.put(vertex, value);
-    }
+    /**
+     * Samples the latent vertices that the step adds given this particle's values of the latents they depend on and
+     * then adds the log likelihood of the step's observation to this particle's weight.
+     *
+     * @param step        the step to extend this particle by
+     * @param cascadePlan a plan that can cascade from every latent vertex of the graph the step runs on
+     * @param random      the source of randomness for sampling
+     * @return the log likelihood of the step's observation
+     */
+    double extend(ParticleFilterStep step, CascadePlan cascadePlan, KeanuRandom random) {
+        applyLatentValues(step.getConditioningLatents(), step.getConditioningVertices(), cascadePlan);
 
-    <T> void addObservedVertex(Vertex<T> vertex) {
-        observedVertices.add(vertex);
-    }
+        Vertex[] sampledVertices = step.getSampledVertices();
+        Object[] sampledValues = new Object[sampledVertices.length];
+        double logPOfNewLatents = 0.0;
+        for (int i = 0; i < sampledVertices.length; i++) {
+            sampledValues[i] = sampleAndCascade(sampledVertices[i], cascadePlan, random);
+            logPOfNewLatents += ProbabilityCalculator.calculateLogProbFor(sampledVertices[i]);
+        }
 
-    double updateSumLogPOfSubgraph() {
-        applyLatentVertexValues();
-        double sumLogPOfLatents = ProbabilityCalculator.calculateLogProbFor(latentVertices.keySet());
-        double sumLogPOfObservables = ProbabilityCalculator.calculateLogProbFor(observedVertices);
-        sumLogPOfSubgraph = sumLogPOfLatents + sumLogPOfObservables;
-        return sumLogPOfSubgraph;
+        double logLikelihood = ProbabilityCalculator.calculateLogProbFor(step.getScoredVertex());
+
+        Vertex[] newLatents = step.getNewLatents();
+        history = new LatentHistory(newLatents, sampledValues, history);
+        latentVertices = null;
+        for (Vertex latent : step.getLatentsToRemember()) {
+            latentsStillNeeded.put(latent, sampledValues[indexOf(newLatents, latent)]);
+        }
+        for (Vertex latent : step.getLatentsToForget()) {
+            latentsStillNeeded.remove(latent);
+        }
+
+        sumLogPOfSubgraph += logPOfNewLatents + logLikelihood;
+        logWeight += logLikelihood;
+        return logLikelihood;
     }
 
-    Particle shallowCopy() {
-        Particle clone = new Particle();
-        clone.latentVertices = new HashMap<>(this.latentVertices);
-        clone.observedVertices = new ArrayList<>(this.observedVertices);
-        return clone;
+    /**
+     * @return a copy of this particle with a weight of one. Its history is shared with this particle.
+     */
+    Particle resampledCopy() {
+        Particle copy = new Particle();
+        copy.history = this.history;
+        copy.latentsStillNeeded = new HashMap<>(this.latentsStillNeeded);
+        copy.sumLogPOfSubgraph = this.sumLogPOfSubgraph;
+        return copy;
     }
 
     static int sortDescending(Particle a, Particle b) {
         return Double.compare(b.logProb(), a.logProb());
     }
 
-    private void applyLatentVertexValues() {
-        latentVertices.keySet().forEach(this::applyLatentVertexValue);
+    private void applyLatentValues(Vertex[] latents, Vertex[] vertices, CascadePlan cascadePlan) {
+        if (latents.length == 0) {
+            return;
+        }
+
+        for (int i = 0; i < latents.length; i++) {
+            vertices[i].setValue(latentsStillNeeded.get(latents[i]));
+        }
+        cascadePlan.cascadeUpdate(Arrays.asList(vertices));
     }
 
-    private <T> void applyLatentVertexValue(Vertex<T> vertex) {
-        if (latentVertices.containsKey(vertex)) {
-            T value = (T) latentVertices.get(vertex);
-            vertex.setAndCascade(value);
+    private static <T> T sampleAndCascade(Vertex<T> vertex, CascadePlan cascadePlan, KeanuRandom random) {
+        T sample = ((Probabilistic<T>) vertex).sample(random);
+        vertex.setValue(sample);
+        cascadePlan.cascadeUpdate(vertex);
+        return sample;
+    }
+
+    private static int indexOf(Vertex[] vertices, Vertex vertex) {
+        for (int i = 0; i < vertices.length; i++) {
+            if (vertices[i] == vertex) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Vertex " + vertex.getId() + " was not sampled in this step");
+    }
+
+    /**
+     * The latent values sampled in one step, linked to those sampled in the steps before.
+     */
+    private static class LatentHistory {
+        private final Vertex[] latents;
+        private final Object[] values;
+        private final LatentHistory previous;
+
+        LatentHistory(Vertex[] latents, Object[] values, LatentHistory previous) {
+            this.latents = latents;
+            this.values = values;
+            this.previous = previous;
         }
     }
 }
@@ -1,14 +1,24 @@
 package io.improbable.keanu.algorithms.particlefiltering;
 
+import com.google.common.base.Preconditions;
 import io.improbable.keanu.KeanuRandom;
-import io.improbable.keanu.vertices.Probabilistic;
+import io.improbable.keanu.algorithms.graphtraversal.CascadePlan;
+import io.improbable.keanu.algorithms.graphtraversal.TopologicalSort;
 import io.improbable.keanu.vertices.Vertex;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 
 /***
@@ -23,16 +33,46 @@ import java.util.Set;
  * consideration incrementally grows, less probable particles are culled and more probable particles are duplicated,
  * resulting in a final set of relatively probable particles.
  *
+ * Each particle's importance weight is only updated with the log likelihood of the newly added observation, so a step
+ * costs the same however many steps came before it. Weights are normalised in log space and the particles are
+ * resampled, in O(N) time, whenever their effective sample size is at most a fraction of the number of particles.
+ *
+ * Particles can be extended on several threads. Vertices hold their values in mutable state, so each thread works on
+ * its own replica of the network, which is built by a {@link GraphFactory}, and has its own {@link KeanuRandom}.
+ * Particles are split into contiguous blocks, one per thread, so a run is reproducible for a given random and
+ * thread count.
+ *
  * This methodology is similar to the Sequential Importance Resampling Algorithm described here
  * (https://www.lancaster.ac.uk/pg/turnerl/PartileFiltering.pdf).
  */
 public class ParticleFilter {
+
+    /**
+     * Builds a replica of the network that is being filtered, for a thread to extend particles on.
+     */
+    @FunctionalInterface
+    public interface GraphFactory {
+
+        /**
+         * The replica must be built in the same way as the original network, including its observations, so that
+         * its vertices are created in the same order. Implementations must not share vertices between replicas.
+         *
+         * @param replicaIndex the index of the replica being created, from 1 to threadCount - 1. The thread with
+         *                     index 0 uses the original network.
+         * @return every vertex of the replica that corresponds to a vertex being filtered
+         */
+        Collection<? extends Vertex> create(int replicaIndex);
+    }
+
     private Collection<? extends Vertex> vertices;
     private int numParticles;
-    private int resamplingCycles;
-    private double resamplingProportion;
+    private ResamplingMethod resamplingMethod;
+    private double resamplingThreshold;
     private KeanuRandom random;
+    private int threadCount;
+    private GraphFactory graphFactory;
     private List<Particle> particles;
+    private double logMarginalLikelihood;
 
     /**
      * Creates a {@link ParticleFilterBuilder} by retrieving connected graph from the vertex
@@ -47,17 +87,51 @@ public class ParticleFilter {
         return new ParticleFilterBuilder(vertices);
     };
 
+    /**
+     * @deprecated resampling is controlled by a threshold on the effective sample size, use
+     * {@link #ParticleFilter(Collection, int, ResamplingMethod, double, KeanuRandom)} instead
+     */
+    @Deprecated
     public ParticleFilter(Collection<? extends Vertex> vertices,
                           int numParticles,
                           int resamplingCycles,
                           double resamplingProportion,
                           KeanuRandom random) {
+        this(vertices, numParticles, ResamplingMethod.SYSTEMATIC, resamplingCycles > 0 ? resamplingProportion : 0.0, random);
+    }
+
+    public ParticleFilter(Collection<? extends Vertex> vertices,
+                          int numParticles,
+                          ResamplingMethod resamplingMethod,
+                          double resamplingThreshold,
+                          KeanuRandom random) {
+        this(vertices, numParticles, resamplingMethod, resamplingThreshold, random, 1, null);
+    }
+
+    public ParticleFilter(Collection<? extends Vertex> vertices,
+                          int numParticles,
+                          ResamplingMethod resamplingMethod,
+                          double resamplingThreshold,
+                          KeanuRandom random,
+                          int threadCount,
+                          GraphFactory graphFactory) {
+        Preconditions.checkArgument(numParticles > 0, "Number of particles must be positive but was %s", numParticles);
+        Preconditions.checkArgument(resamplingThreshold >= 0 && resamplingThreshold <= 1,
+            "Resampling threshold must be between 0 and 1 but was %s", resamplingThreshold
+        );
+        Preconditions.checkArgument(threadCount > 0, "Thread count must be positive but was %s", threadCount);
+        Preconditions.checkArgument(threadCount == 1 || graphFactory != null,
+            "A graph factory is needed to build a replica of the network for each thread"
+        );
+
         this.vertices = vertices;
         this.numParticles = numParticles;
-        this.resamplingCycles = resamplingCycles;
-        this.resamplingProportion = resamplingProportion;
+        this.resamplingMethod = resamplingMethod;
+        this.resamplingThreshold = resamplingThreshold;
         this.random = random;
-        sort();
+        this.threadCount = Math.min(threadCount, numParticles);
+        this.graphFactory = graphFactory;
+        filter();
     }
 
     /**
@@ -69,45 +143,152 @@ public class ParticleFilter {
     }
 
     public Particle getMostProbableParticle() {
-        return particles.get(0);
+        return particles.stream().max(Comparator.comparingDouble(Particle::logProb)).get();
     }
 
     public List<Particle> getMostProbableParticles() {
         return particles;
     }
 
-    private void sort() {
+    /**
+     * @return an estimate of the log of the probability of every observation, with the latent vertices
+     * marginalised out
+     */
+    public double getLogMarginalLikelihood() {
+        return logMarginalLikelihood;
+    }
+
+    private void filter() {
         Map<Vertex, Set<Vertex>> obsVertIncrDependencies = LatentIncrementSort.sort(this.vertices);
-        List<Vertex> observedVertexOrder = new ArrayList<>(obsVertIncrDependencies.keySet());
-        List<Particle> particles = createEmptyParticles(this.numParticles);
+        List<ParticleFilterStep> steps = ParticleFilterStep.plan(obsVertIncrDependencies);
+        Set<Vertex> latents = getLatents(obsVertIncrDependencies);
+        List<Replica> replicas = createReplicas(steps, latents);
 
-        for (int i = 0; i < observedVertexOrder.size(); i++) {
-            Vertex<?> nextObsVertex = observedVertexOrder.get(i);
-            Set<Vertex> vertexDeps = obsVertIncrDependencies.get(nextObsVertex);
-            particles = updateParticles(nextObsVertex, vertexDeps, particles);
+        List<Particle> particles = createEmptyParticles(this.numParticles);
+        double[] logWeights = new double[this.numParticles];
+        double logSumOfWeights = Math.log(this.numParticles);
+        logMarginalLikelihood = 0.0;
+
+        ForkJoinPool pool = replicas.size() > 1 ? new ForkJoinPool(replicas.size()) : null;
+        try {
+            for (int stepIndex = 0; stepIndex < steps.size(); stepIndex++) {
+                extendParticles(pool, replicas, particles, stepIndex);
+                for (int i = 0; i < particles.size(); i++) {
+                    logWeights[i] = particles.get(i).getLogWeight();
+                }
+
+                double updatedLogSumOfWeights = logSumExp(logWeights);
+                if (updatedLogSumOfWeights == Double.NEGATIVE_INFINITY) {
+                    throw new IllegalStateException(
+                        "Every particle is impossible after observing vertex " + steps.get(stepIndex).getObservedVertex().getId()
+                    );
+                }
+                logMarginalLikelihood += updatedLogSumOfWeights - logSumOfWeights;
+                logSumOfWeights = updatedLogSumOfWeights;
+
+                double[] normalisedWeights = normalise(logWeights, logSumOfWeights);
+                if (effectiveSampleSize(normalisedWeights) <= resamplingThreshold * numParticles) {
+                    particles = resample(particles, normalisedWeights);
+                    logSumOfWeights = Math.log(this.numParticles);
+                }
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
         }
 
         this.particles = particles;
     }
 
-    private List<Particle> updateParticles(Vertex<?> nextObservedVertex,
-                                                  Set<Vertex> vertexDeps,
-                                                  List<Particle> particles) {
+    /**
+     * The first replica is the original network and uses this filter's random. The others are built by the graph
+     * factory on this thread, in order, and are given randoms seeded from a base seed drawn from this filter's random.
+     */
+    private List<Replica> createReplicas(List<ParticleFilterStep> steps, Set<Vertex> latents) {
+        List<Replica> replicas = new ArrayList<>(threadCount);
+        replicas.add(new Replica(steps, CascadePlan.compile(latents), random, 0, numParticles / threadCount));
+
+        if (threadCount == 1) {
+            return replicas;
+        }
+
+        long baseSeed = random.nextInt(Integer.MAX_VALUE);
+        for (int replicaIndex = 1; replicaIndex < threadCount; replicaIndex++) {
+            Map<Vertex, Vertex> replicaVertexOf = matchReplicaVertices(graphFactory.create(replicaIndex));
+
+            List<ParticleFilterStep> replicaSteps = steps.stream()
+                .map(step -> step.onReplica(replicaVertexOf))
+                .collect(Collectors.toList());
+            Set<Vertex> replicaLatents = latents.stream()
+                .map(replicaVertexOf::get)
+                .collect(Collectors.toSet());
+
+            replicas.add(new Replica(
+                replicaSteps,
+                CascadePlan.compile(replicaLatents),
+                new KeanuRandom(baseSeed + replicaIndex),
+                replicaIndex * numParticles / threadCount,
+                (replicaIndex + 1) * numParticles / threadCount
+            ));
+        }
+
+        return replicas;
+    }
+
+    private Map<Vertex, Vertex> matchReplicaVertices(Collection<? extends Vertex> replicaVertices) {
+        Preconditions.checkArgument(replicaVertices.size() == vertices.size(),
+            "Replica has %s vertices but the network being filtered has %s", replicaVertices.size(), vertices.size()
+        );
+
+        List<Vertex> original = TopologicalSort.sort(vertices);
+        List<Vertex> replica = TopologicalSort.sort(replicaVertices);
+
+        Map<Vertex, Vertex> replicaVertexOf = new HashMap<>();
+        for (int i = 0; i < original.size(); i++) {
+            Vertex<?> originalVertex = original.get(i);
+            Vertex<?> replicaVertex = replica.get(i);
+            Preconditions.checkArgument(
+                originalVertex.getClass().equals(replicaVertex.getClass()) && originalVertex.isObserved() == replicaVertex.isObserved(),
+                "Replica vertex %s does not match vertex %s of the network being filtered", replicaVertex.getId(), originalVertex.getId()
+            );
+            replicaVertexOf.put(originalVertex, replicaVertex);
+        }
 
-        List<Particle> updatedParticles = sampleAndCopy(particles, numParticles);
-        addObservedVertexToParticles(updatedParticles, nextObservedVertex, vertexDeps);
+        return replicaVertexOf;
+    }
 
-        for (int i = 0; i < this.resamplingCycles; i++) {
-            updatedParticles = removeWorstParticles(updatedParticles);
-            int numToSample = this.numParticles - updatedParticles.size();
-            List<Particle> sampledParticles = sampleAndCopy(particles, numToSample);
-            addObservedVertexToParticles(sampledParticles, nextObservedVertex, vertexDeps);
-            updatedParticles.addAll(sampledParticles);
+    private static void extendParticles(ForkJoinPool pool, List<Replica> replicas, List<Particle> particles, int stepIndex) {
+        if (pool == null) {
+            replicas.get(0).extend(particles, stepIndex);
+            return;
         }
 
-        return updatedParticles;
+        List<Callable<Void>> tasks = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            tasks.add(() -> {
+                replica.extend(particles, stepIndex);
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted whilst extending particles", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed whilst extending particles", e.getCause());
+        }
     }
 
+    private static Set<Vertex> getLatents(Map<Vertex, Set<Vertex>> obsVertIncrDependencies) {
+        Set<Vertex> latents = new HashSet<>();
+        obsVertIncrDependencies.values().forEach(latents::addAll);
+        return latents;
+    }
 
     private List<Particle> createEmptyParticles(int number) {
 
@@ -119,57 +300,75 @@ public class ParticleFilter {
         return emptyParticles;
     }
 
-    private void addObservedVertexToParticles(List<Particle> particles,
-                                                     Vertex<?> observedVertex,
-                                                     Set<Vertex> vertexDependencies) {
-
-        for (Particle particle : particles) {
-            particle.addObservedVertex(observedVertex);
-            for (Vertex<?> latentVertex : vertexDependencies) {
-                sampleValueAndAddToParticle(latentVertex, particle);
-            }
+    private List<Particle> resample(List<Particle> particles, double[] normalisedWeights) {
+        int[] ancestors = resamplingMethod.resample(normalisedWeights, numParticles, random);
 
-            particle.updateSumLogPOfSubgraph();
+        List<Particle> resampledParticles = new ArrayList<>(numParticles);
+        for (int ancestor : ancestors) {
+            resampledParticles.add(particles.get(ancestor).resampledCopy());
         }
-    }
 
-    private <T> void sampleValueAndAddToParticle(Vertex<T> vertex, Particle particle) {
-        T sample = ((Probabilistic<T>) vertex).sample(random);
-        particle.addLatentVertex(vertex, sample);
+        return resampledParticles;
     }
 
-    private List<Particle> removeWorstParticles(List<Particle> particles) {
-        particles.sort(Particle::sortDescending);
-        int numberToKeep = (int) (particles.size() * (1.0 - resamplingProportion));
-        List<Particle> particlesToKeep = particles.subList(0, numberToKeep);
-        return new ArrayList<>(particlesToKeep);
-    }
+    private static double logSumExp(double[] logValues) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double logValue : logValues) {
+            max = Math.max(max, logValue);
+        }
 
-    private List<Particle> sampleAndCopy(List<Particle> particles, int numToSample) {
+        if (max == Double.NEGATIVE_INFINITY || max == Double.POSITIVE_INFINITY) {
+            return max;
+        }
 
-        double sumWeights = particles.stream().mapToDouble(p -> Math.exp(p.logProb())).sum();
-        List<Particle> sampledParticles = new ArrayList<>();
-        for (int i = 0; i < numToSample; i++) {
-            Particle sampledParticle = weightedRandomParticle(particles, sumWeights);
-            sampledParticles.add(sampledParticle.shallowCopy());
+        double sum = 0.0;
+        for (double logValue : logValues) {
+            sum += Math.exp(logValue - max);
         }
 
-        return sampledParticles;
+        return max + Math.log(sum);
     }
 
-    private Particle weightedRandomParticle(List<Particle> particles, double sumWeights) {
-        double r = random.nextDouble() * sumWeights;
-        double cumulativeWeight = 0;
-        Particle p = particles.get(0);
-        for (int i = 0; i < particles.size(); i++) {
-            p = particles.get(i);
-            cumulativeWeight += Math.exp(p.logProb());
-            if (cumulativeWeight > r) {
-                break;
-            }
+    private static double[] normalise(double[] logWeights, double logSumOfWeights) {
+        double[] normalisedWeights = new double[logWeights.length];
+        for (int i = 0; i < logWeights.length; i++) {
+            normalisedWeights[i] = Math.exp(logWeights[i] - logSumOfWeights);
         }
+        return normalisedWeights;
+    }
 
-        return p;
+    private static double effectiveSampleSize(double[] normalisedWeights) {
+        double sumOfSquares = 0.0;
+        for (double weight : normalisedWeights) {
+            sumOfSquares += weight * weight;
+        }
+        return 1.0 / sumOfSquares;
     }
 
+    /**
+     * A network that a block of particles is extended on, with the steps and cascade plan compiled against it and
+     * the random that its particles are sampled with.
+     */
+    private static class Replica {
+        private final List<ParticleFilterStep> steps;
+        private final CascadePlan cascadePlan;
+        private final KeanuRandom random;
+        private final int fromParticle;
+        private final int toParticle;
+
+        Replica(List<ParticleFilterStep> steps, CascadePlan cascadePlan, KeanuRandom random, int fromParticle, int toParticle) {
+            this.steps = steps;
+            this.cascadePlan = cascadePlan;
+            this.random = random;
+            this.fromParticle = fromParticle;
+            this.toParticle = toParticle;
+        }
+
+        void extend(List<Particle> particles, int stepIndex) {
+            ParticleFilterStep step = steps.get(stepIndex);
+            for (int i = fromParticle; i < toParticle; i++) {
+                particles.get(i).extend(step, cascadePlan, random);
+            }
+        }
+    }
 }
@@ -9,9 +9,12 @@ public class ParticleFilterBuilder {
 
     private Collection<? extends Vertex> vertices;
     private int numParticles = 1000;
-    private int resamplingCycles = 3;
-    private double resamplingProportion = 0.5;
+    private ResamplingMethod resamplingMethod = ResamplingMethod.SYSTEMATIC;
+    private double resamplingThreshold = 0.5;
+    private boolean resamplingEnabled = true;
     private KeanuRandom random = KeanuRandom.getDefaultRandom();
+    private int threadCount = 1;
+    private ParticleFilter.GraphFactory graphFactory = null;
 
     /**
      * @param vertices the vertices of a Bayesian network to find probable values for
@@ -31,23 +34,46 @@ public class ParticleFilterBuilder {
     }
 
     /**
-     * @param resamplingCycles the number of times low probability particles are culled and high probability particles
-     *                         are replicated each time the subgraph under consideration is expanded
+     * @param resamplingMethod how the particles that survive a resampling are chosen
      * @return this
      */
+    public ParticleFilterBuilder withResamplingMethod(ResamplingMethod resamplingMethod) {
+        this.resamplingMethod = resamplingMethod;
+        return this;
+    }
+
+    /**
+     * @param resamplingThreshold the particles are resampled whenever their effective sample size is at most this
+     *                            fraction of the number of particles (e.g. 0 never resamples and 1 always resamples)
+     * @return this
+     */
+    public ParticleFilterBuilder withResamplingThreshold(double resamplingThreshold) {
+        this.resamplingThreshold = resamplingThreshold;
+        return this;
+    }
+
+    /**
+     * @param resamplingCycles the particles are now resampled at most once per observation, when their effective sample
+     *                         size is at most the resampling threshold, so 0 disables resampling and any positive number
+     *                         of cycles resamples according to the threshold
+     * @return this
+     * @deprecated use {@link #withResamplingThreshold(double)} instead
+     */
+    @Deprecated
     public ParticleFilterBuilder withResamplingCycles(int resamplingCycles) {
-        this.resamplingCycles = resamplingCycles;
+        this.resamplingEnabled = resamplingCycles > 0;
         return this;
     }
 
     /**
-     * @param resamplingProportion the proportion of particles to cull (e.g. the 25% of least probably particles could
-     *                            be culled)
+     * @param resamplingProportion used as the resampling threshold, so the particles are resampled whenever their
+     *                             effective sample size is at most this fraction of the number of particles
      * @return this
+     * @deprecated use {@link #withResamplingThreshold(double)} instead
      */
+    @Deprecated
     public ParticleFilterBuilder withResamplingProportion(double resamplingProportion) {
-        this.resamplingProportion = resamplingProportion;
-        return this;
+        return withResamplingThreshold(resamplingProportion);
     }
 
     /**
@@ -59,7 +85,20 @@ public class ParticleFilterBuilder {
         return this;
     }
 
+    /**
+     * @param threadCount  the number of threads to extend particles on
+     * @param graphFactory builds a replica of the network for each thread but the first, which uses the original
+     * @return this
+     */
+    public ParticleFilterBuilder withThreads(int threadCount, ParticleFilter.GraphFactory graphFactory) {
+        this.threadCount = threadCount;
+        this.graphFactory = graphFactory;
+        return this;
+    }
+
     public ParticleFilter build() {
-        return new ParticleFilter(vertices, numParticles, resamplingCycles, resamplingProportion, random);
+        return new ParticleFilter(
+            vertices, numParticles, resamplingMethod, resamplingEnabled ? resamplingThreshold : 0.0, random, threadCount, graphFactory
+        );
     }
 }
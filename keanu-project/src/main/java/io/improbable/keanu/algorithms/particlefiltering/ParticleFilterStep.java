@@ -0,0 +1,208 @@
+package io.improbable.keanu.algorithms.particlefiltering;
+
+import io.improbable.keanu.algorithms.graphtraversal.TopologicalSort;
+import io.improbable.keanu.vertices.Vertex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One increment of a particle filter: the observed vertex that is added, the latent vertices that are first needed
+ * by it, and the previously sampled latent vertices that those depend on directly.
+ * <p>
+ * A particle only needs to restore the values of the conditioning latents to extend itself by a step, so the cost
+ * of a step does not depend on how many steps came before it. A particle also only needs to remember a latent
+ * value for as long as a later step conditions on it.
+ * <p>
+ * Particles key their values by the latent vertices of the original graph. A step can be moved onto a replica of
+ * that graph with {@link #onReplica(Map)}, after which its values are set on and scored with the replica's vertices.
+ */
+class ParticleFilterStep {
+
+    private final Vertex<?> observedVertex;
+    private final Vertex[] newLatents;
+    private final Vertex[] conditioningLatents;
+    private final Vertex[] latentsToRemember;
+    private final Vertex[] latentsToForget;
+
+    private final Vertex<?> scoredVertex;
+    private final Vertex[] sampledVertices;
+    private final Vertex[] conditioningVertices;
+
+    private ParticleFilterStep(Vertex<?> observedVertex,
+                               Vertex[] newLatents,
+                               Vertex[] conditioningLatents,
+                               Vertex[] latentsToRemember,
+                               Vertex[] latentsToForget,
+                               Vertex<?> scoredVertex,
+                               Vertex[] sampledVertices,
+                               Vertex[] conditioningVertices) {
+        this.observedVertex = observedVertex;
+        this.newLatents = newLatents;
+        this.conditioningLatents = conditioningLatents;
+        this.latentsToRemember = latentsToRemember;
+        this.latentsToForget = latentsToForget;
+        this.scoredVertex = scoredVertex;
+        this.sampledVertices = sampledVertices;
+        this.conditioningVertices = conditioningVertices;
+    }
+
+    private ParticleFilterStep(Vertex<?> observedVertex,
+                               Vertex[] newLatents,
+                               Vertex[] conditioningLatents,
+                               Vertex[] latentsToRemember,
+                               Vertex[] latentsToForget) {
+        this(observedVertex, newLatents, conditioningLatents, latentsToRemember, latentsToForget,
+            observedVertex, newLatents, conditioningLatents);
+    }
+
+    /**
+     * @param latentIncrements observed vertices in the order they are to be added, each mapped to the latent
+     *                         vertices that it adds. See {@link LatentIncrementSort#sort(Collection)}
+     * @return the steps in the same order
+     */
+    static List<ParticleFilterStep> plan(Map<Vertex, Set<Vertex>> latentIncrements) {
+
+        List<Vertex<?>> observedVertices = new ArrayList<>();
+        List<List<Vertex>> newLatentsByStep = new ArrayList<>();
+        List<Set<Vertex>> conditioningLatentsByStep = new ArrayList<>();
+        Map<Vertex, Integer> lastStepNeeded = new HashMap<>();
+
+        for (Map.Entry<Vertex, Set<Vertex>> entry : latentIncrements.entrySet()) {
+            int step = observedVertices.size();
+            Vertex<?> observedVertex = entry.getKey();
+            List<Vertex> newLatents = TopologicalSort.sort(entry.getValue());
+
+            List<Vertex> sampledOrObserved = new ArrayList<>(newLatents);
+            sampledOrObserved.add(observedVertex);
+            Set<Vertex> conditioningLatents = getNearestLatentAncestors(sampledOrObserved);
+            conditioningLatents.removeAll(newLatents);
+
+            for (Vertex latent : conditioningLatents) {
+                lastStepNeeded.put(latent, step);
+            }
+
+            observedVertices.add(observedVertex);
+            newLatentsByStep.add(newLatents);
+            conditioningLatentsByStep.add(conditioningLatents);
+        }
+
+        List<ParticleFilterStep> steps = new ArrayList<>();
+        for (int step = 0; step < observedVertices.size(); step++) {
+            final int currentStep = step;
+            List<Vertex> newLatents = newLatentsByStep.get(step);
+            Set<Vertex> conditioningLatents = conditioningLatentsByStep.get(step);
+
+            Vertex[] latentsToRemember = newLatents.stream()
+                .filter(latent -> lastStepNeeded.getOrDefault(latent, currentStep) > currentStep)
+                .toArray(Vertex[]::new);
+
+            Vertex[] latentsToForget = conditioningLatents.stream()
+                .filter(latent -> lastStepNeeded.get(latent) == currentStep)
+                .toArray(Vertex[]::new);
+
+            steps.add(new ParticleFilterStep(
+                observedVertices.get(step),
+                newLatents.toArray(new Vertex[0]),
+                TopologicalSort.sort(conditioningLatents).toArray(new Vertex[0]),
+                latentsToRemember,
+                latentsToForget
+            ));
+        }
+
+        return steps;
+    }
+
+    /**
+     * Finds the latent vertices whose values the given vertices depend on without another probabilistic vertex
+     * in between.
+     */
+    private static Set<Vertex> getNearestLatentAncestors(Collection<Vertex> vertices) {
+        Set<Vertex> nearestLatentAncestors = new LinkedHashSet<>();
+        Set<Vertex> visited = new HashSet<>(vertices);
+        Deque<Vertex<?>> stack = new ArrayDeque<>(vertices);
+
+        while (!stack.isEmpty()) {
+            Vertex<?> visiting = stack.pop();
+            for (Vertex<?> parent : visiting.getParents()) {
+                if (!visited.add(parent)) {
+                    continue;
+                }
+                if (!parent.isProbabilistic()) {
+                    stack.push(parent);
+                } else if (!parent.isObserved()) {
+                    nearestLatentAncestors.add(parent);
+                }
+            }
+        }
+
+        return nearestLatentAncestors;
+    }
+
+    /**
+     * @param replicaVertexOf the vertex of the replica that corresponds to each vertex of the original graph
+     * @return this step with its values set on and scored with the vertices of the replica
+     */
+    ParticleFilterStep onReplica(Map<Vertex, Vertex> replicaVertexOf) {
+        return new ParticleFilterStep(
+            observedVertex,
+            newLatents,
+            conditioningLatents,
+            latentsToRemember,
+            latentsToForget,
+            replicaVertexOf.get(observedVertex),
+            Arrays.stream(newLatents).map(replicaVertexOf::get).toArray(Vertex[]::new),
+            Arrays.stream(conditioningLatents).map(replicaVertexOf::get).toArray(Vertex[]::new)
+        );
+    }
+
+    Vertex<?> getObservedVertex() {
+        return observedVertex;
+    }
+
+    Vertex[] getNewLatents() {
+        return newLatents;
+    }
+
+    Vertex[] getConditioningLatents() {
+        return conditioningLatents;
+    }
+
+    Vertex[] getLatentsToRemember() {
+        return latentsToRemember;
+    }
+
+    Vertex[] getLatentsToForget() {
+        return latentsToForget;
+    }
+
+    /**
+     * @return the vertex whose log prob is the likelihood of the observation, in the graph this step runs on
+     */
+    Vertex<?> getScoredVertex() {
+        return scoredVertex;
+    }
+
+    /**
+     * @return the vertices that the new latents are sampled with, in the graph this step runs on
+     */
+    Vertex[] getSampledVertices() {
+        return sampledVertices;
+    }
+
+    /**
+     * @return the vertices that the conditioning latents are set on, in the graph this step runs on
+     */
+    Vertex[] getConditioningVertices() {
+        return conditioningVertices;
+    }
+}
@@ -0,0 +1,69 @@
+package io.improbable.keanu.algorithms.particlefiltering;
+
+import io.improbable.keanu.KeanuRandom;
+
+/**
+ * Ways of choosing which particles survive a resampling of a particle filter. Both take O(N) time for N particles
+ * and have lower variance than drawing every particle independently.
+ * <p>
+ * See Douc and Cappé, Comparison of Resampling Schemes for Particle Filtering: https://arxiv.org/abs/cs/0507025
+ */
+public enum ResamplingMethod {
+
+    /**
+     * A single uniform draw positions N evenly spaced points over the cumulative weights.
+     */
+    SYSTEMATIC {
+        @Override
+        double[] positions(int count, KeanuRandom random) {
+            double offset = random.nextDouble();
+            double[] positions = new double[count];
+            for (int i = 0; i < count; i++) {
+                positions[i] = (i + offset) / count;
+            }
+            return positions;
+        }
+    },
+
+    /**
+     * One uniform draw is made in each of N equal strata of the cumulative weights.
+     */
+    STRATIFIED {
+        @Override
+        double[] positions(int count, KeanuRandom random) {
+            double[] positions = new double[count];
+            for (int i = 0; i < count; i++) {
+                positions[i] = (i + random.nextDouble()) / count;
+            }
+            return positions;
+        }
+    };
+
+    /**
+     * @return count increasing positions in [0, 1)
+     */
+    abstract double[] positions(int count, KeanuRandom random);
+
+    /**
+     * @param normalisedWeights the weights of the particles, which sum to one
+     * @param count             the number of particles to draw
+     * @param random            the source of randomness
+     * @return the index of the particle that each of the drawn particles is a copy of
+     */
+    int[] resample(double[] normalisedWeights, int count, KeanuRandom random) {
+        double[] positions = positions(count, random);
+        int[] ancestors = new int[count];
+
+        int particle = 0;
+        double cumulativeWeight = normalisedWeights[0];
+        for (int i = 0; i < count; i++) {
+            while (positions[i] >= cumulativeWeight && particle < normalisedWeights.length - 1) {
+                particle++;
+                cumulativeWeight += normalisedWeights[particle];
+            }
+            ancestors[i] = particle;
+        }
+
+        return ancestors;
+    }
+}
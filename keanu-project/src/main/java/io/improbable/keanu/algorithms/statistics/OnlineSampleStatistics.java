@@ -0,0 +1,130 @@
+package io.improbable.keanu.algorithms.statistics;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Keeps {@link RunningStatistics} of some variables as network samples stream past, so that summary statistics of a
+ * long run can be had without keeping its samples. It can be given to
+ * {@link io.improbable.keanu.algorithms.mcmc.NetworkSamplesGenerator#generateStatistics(int, OnlineSampleStatistics)}
+ * or used as the consumer of {@link io.improbable.keanu.algorithms.mcmc.NetworkSamplesGenerator#stream()}.
+ * <p>
+ * Statistics of the same variables from separate runs can be combined with {@link #merge(OnlineSampleStatistics)}.
+ */
+public class OnlineSampleStatistics implements Consumer<NetworkSample> {
+
+    private final Map<VariableReference, RunningStatistics> statisticsByVariable = new LinkedHashMap<>();
+
+    private boolean keepCovariance = false;
+    private boolean keepQuantiles = false;
+    private double compression = TDigest.DEFAULT_COMPRESSION;
+    private long sampleCount = 0;
+
+    /**
+     * @param variables the variables to keep statistics of
+     */
+    public OnlineSampleStatistics(Collection<? extends Variable> variables) {
+        for (Variable variable : variables) {
+            statisticsByVariable.put(variable.getReference(), null);
+        }
+    }
+
+    /**
+     * Also keep the covariance between the elements of each variable. This is quadratic in the number of elements.
+     *
+     * @return this OnlineSampleStatistics
+     */
+    public OnlineSampleStatistics keepCovariance() {
+        checkNotStarted();
+        this.keepCovariance = true;
+        return this;
+    }
+
+    /**
+     * Also keep a quantile sketch of each element of each variable.
+     *
+     * @param compression the compression of the sketches. See {@link TDigest}.
+     * @return this OnlineSampleStatistics
+     */
+    public OnlineSampleStatistics keepQuantiles(double compression) {
+        checkNotStarted();
+        this.keepQuantiles = true;
+        this.compression = compression;
+        return this;
+    }
+
+    public OnlineSampleStatistics keepQuantiles() {
+        return keepQuantiles(TDigest.DEFAULT_COMPRESSION);
+    }
+
+    @Override
+    public void accept(NetworkSample sample) {
+        for (Map.Entry<VariableReference, RunningStatistics> entry : statisticsByVariable.entrySet()) {
+            getOrCreate(entry).add(sample.get(entry.getKey()));
+        }
+        sampleCount++;
+    }
+
+    /**
+     * Adds the statistics of another run over the same variables, as if its samples had been added to this one.
+     *
+     * @param other statistics of the same variables, keeping the same things. It is not changed.
+     * @return this OnlineSampleStatistics
+     */
+    public OnlineSampleStatistics merge(OnlineSampleStatistics other) {
+        Preconditions.checkArgument(
+            statisticsByVariable.keySet().equals(other.statisticsByVariable.keySet()),
+            "Cannot merge statistics of different variables"
+        );
+
+        for (Map.Entry<VariableReference, RunningStatistics> entry : statisticsByVariable.entrySet()) {
+            RunningStatistics otherStatistics = other.statisticsByVariable.get(entry.getKey());
+            if (otherStatistics != null) {
+                getOrCreate(entry).merge(otherStatistics);
+            }
+        }
+        sampleCount += other.sampleCount;
+
+        return this;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public RunningStatistics get(Variable<?, ?> variable) {
+        return get(variable.getReference());
+    }
+
+    public RunningStatistics get(VariableReference reference) {
+        Preconditions.checkArgument(
+            statisticsByVariable.containsKey(reference),
+            "No statistics are being kept for %s", reference
+        );
+
+        RunningStatistics statistics = statisticsByVariable.get(reference);
+        return statistics == null ? newRunningStatistics() : statistics;
+    }
+
+    private RunningStatistics getOrCreate(Map.Entry<VariableReference, RunningStatistics> entry) {
+        if (entry.getValue() == null) {
+            entry.setValue(newRunningStatistics());
+        }
+        return entry.getValue();
+    }
+
+    private RunningStatistics newRunningStatistics() {
+        return new RunningStatistics(keepCovariance, keepQuantiles, compression);
+    }
+
+    private void checkNotStarted() {
+        Preconditions.checkState(sampleCount == 0, "Cannot change what is kept after samples have been added");
+    }
+}
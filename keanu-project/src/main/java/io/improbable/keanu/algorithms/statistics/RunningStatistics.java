@@ -0,0 +1,225 @@
+package io.improbable.keanu.algorithms.statistics;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the running mean and variance of each element of a tensor valued variable, and optionally the covariance
+ * between its elements and a {@link TDigest} per element for quantiles, without keeping the samples.
+ * <p>
+ * The mean and (co)variance are updated with Welford's algorithm and two accumulators are merged with the pairwise
+ * algorithm of Chan et al., so statistics of separate chains can be combined exactly.
+ * <p>
+ * Memory is constant in the number of samples: linear in the number of elements, quadratic if the covariance is kept.
+ */
+public class RunningStatistics {
+
+    private final boolean keepCovariance;
+    private final boolean keepQuantiles;
+    private final double compression;
+
+    private long[] shape;
+    private int length;
+    private long count;
+
+    private double[] mean;
+    private double[] sumOfSquaredDeviations;
+    private double[] coMoments;
+    private TDigest[] digests;
+
+    private double[] delta;
+
+    public RunningStatistics() {
+        this(false, false, TDigest.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param keepCovariance whether to keep the covariance between the elements
+     * @param keepQuantiles  whether to keep a quantile sketch of each element
+     * @param compression    the compression of the quantile sketches
+     */
+    public RunningStatistics(boolean keepCovariance, boolean keepQuantiles, double compression) {
+        this.keepCovariance = keepCovariance;
+        this.keepQuantiles = keepQuantiles;
+        this.compression = compression;
+    }
+
+    /**
+     * @param sample a sample of a double, integer or boolean tensor, or of a number
+     */
+    public void add(Object sample) {
+        if (sample instanceof Tensor) {
+            Tensor<?> tensor = (Tensor<?>) sample;
+            add(tensor.asFlatDoubleArray(), tensor.getShape());
+        } else if (sample instanceof Number) {
+            add(new double[]{((Number) sample).doubleValue()}, Tensor.SCALAR_SHAPE);
+        } else {
+            throw new IllegalArgumentException("Cannot keep statistics of sample " + sample);
+        }
+    }
+
+    /**
+     * @param values the flat values of a sample
+     * @param shape  the shape of the sample
+     */
+    public void add(double[] values, long[] shape) {
+        initialiseOrCheckShape(shape);
+        Preconditions.checkArgument(values.length == length, "Expected %s values but got %s", length, values.length);
+
+        count++;
+
+        for (int i = 0; i < length; i++) {
+            delta[i] = values[i] - mean[i];
+            mean[i] += delta[i] / count;
+            sumOfSquaredDeviations[i] += delta[i] * (values[i] - mean[i]);
+        }
+
+        if (keepCovariance) {
+            for (int i = 0; i < length; i++) {
+                int row = i * length;
+                for (int j = 0; j < length; j++) {
+                    coMoments[row + j] += delta[i] * (values[j] - mean[j]);
+                }
+            }
+        }
+
+        if (keepQuantiles) {
+            for (int i = 0; i < length; i++) {
+                digests[i].add(values[i]);
+            }
+        }
+    }
+
+    /**
+     * Adds the statistics of another accumulator, as if every sample added to it had been added to this one.
+     *
+     * @param other statistics of the same kind of variable. It is not changed.
+     */
+    public void merge(RunningStatistics other) {
+        Preconditions.checkArgument(
+            other.keepCovariance == keepCovariance && other.keepQuantiles == keepQuantiles,
+            "Cannot merge statistics that keep different things"
+        );
+
+        if (other.count == 0) {
+            return;
+        }
+
+        initialiseOrCheckShape(other.shape);
+
+        long mergedCount = count + other.count;
+        double weight = (double) count * other.count / mergedCount;
+
+        for (int i = 0; i < length; i++) {
+            delta[i] = other.mean[i] - mean[i];
+        }
+
+        if (keepCovariance) {
+            for (int i = 0; i < length; i++) {
+                int row = i * length;
+                for (int j = 0; j < length; j++) {
+                    coMoments[row + j] += other.coMoments[row + j] + delta[i] * delta[j] * weight;
+                }
+            }
+        }
+
+        for (int i = 0; i < length; i++) {
+            sumOfSquaredDeviations[i] += other.sumOfSquaredDeviations[i] + delta[i] * delta[i] * weight;
+            mean[i] += delta[i] * other.count / mergedCount;
+        }
+
+        if (keepQuantiles) {
+            for (int i = 0; i < length; i++) {
+                digests[i].merge(other.digests[i]);
+            }
+        }
+
+        count = mergedCount;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the mean of each element
+     */
+    public DoubleTensor getMean() {
+        checkHasSamples(1);
+        return DoubleTensor.create(mean.clone(), shape);
+    }
+
+    /**
+     * @return the sample variance of each element
+     */
+    public DoubleTensor getVariance() {
+        checkHasSamples(2);
+        double[] variance = new double[length];
+        for (int i = 0; i < length; i++) {
+            variance[i] = sumOfSquaredDeviations[i] / (count - 1);
+        }
+        return DoubleTensor.create(variance, shape);
+    }
+
+    /**
+     * @return the sample covariance between the flattened elements, as a matrix of shape [length, length]
+     */
+    public DoubleTensor getCovariance() {
+        Preconditions.checkState(keepCovariance, "Covariance is not being kept");
+        checkHasSamples(2);
+        double[] covariance = new double[length * length];
+        for (int i = 0; i < covariance.length; i++) {
+            covariance[i] = coMoments[i] / (count - 1);
+        }
+        return DoubleTensor.create(covariance, new long[]{length, length});
+    }
+
+    /**
+     * @param q the quantile, between 0 and 1
+     * @return an estimate of the quantile of each element
+     */
+    public DoubleTensor getQuantile(double q) {
+        Preconditions.checkState(keepQuantiles, "Quantiles are not being kept");
+        checkHasSamples(1);
+        double[] quantiles = new double[length];
+        for (int i = 0; i < length; i++) {
+            quantiles[i] = digests[i].quantile(q);
+        }
+        return DoubleTensor.create(quantiles, shape);
+    }
+
+    private void initialiseOrCheckShape(long[] sampleShape) {
+        if (shape != null) {
+            Preconditions.checkArgument(
+                Arrays.equals(shape, sampleShape),
+                "Expected samples of shape %s but got %s", Arrays.toString(shape), Arrays.toString(sampleShape)
+            );
+            return;
+        }
+
+        shape = sampleShape.clone();
+        length = TensorShape.getLengthAsInt(shape);
+        mean = new double[length];
+        sumOfSquaredDeviations = new double[length];
+        delta = new double[length];
+
+        if (keepCovariance) {
+            coMoments = new double[Math.multiplyExact(length, length)];
+        }
+
+        if (keepQuantiles) {
+            digests = new TDigest[length];
+            for (int i = 0; i < length; i++) {
+                digests[i] = new TDigest(compression);
+            }
+        }
+    }
+
+    private void checkHasSamples(int minimum) {
+        Preconditions.checkState(count >= minimum, "At least %s samples are needed but there are %s", minimum, count);
+    }
+}
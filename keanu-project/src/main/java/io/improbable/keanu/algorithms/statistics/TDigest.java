@@ -0,0 +1,216 @@
+package io.improbable.keanu.algorithms.statistics;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * A mergeable sketch of a distribution that estimates its quantiles in constant memory.
+ * <p>
+ * Values are buffered and periodically merged into a sorted list of weighted centroids. The number of values a
+ * centroid can absorb is limited by the arcsine scale function, so centroids near the tails stay small and extreme
+ * quantiles are estimated more accurately than the median. The number of centroids is bounded by roughly the
+ * compression, whatever the number of values added.
+ * <p>
+ * See Dunning and Ertl, Computing Extremely Accurate Quantiles Using t-Digests: https://arxiv.org/abs/1902.04023
+ */
+public class TDigest {
+
+    public static final double DEFAULT_COMPRESSION = 100.0;
+
+    private static final int BUFFER_FACTOR = 5;
+
+    private final double compression;
+
+    private double[] means;
+    private double[] weights;
+    private int centroidCount;
+
+    private final double[] buffer;
+    private int bufferCount;
+
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param compression controls the accuracy and the size of the digest. Higher is more accurate.
+     */
+    public TDigest(double compression) {
+        Preconditions.checkArgument(compression >= 10, "Compression of %s is too low. It must be at least 10.", compression);
+        this.compression = compression;
+
+        int capacity = (int) Math.ceil(2 * compression) + 10;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.buffer = new double[(int) Math.ceil(BUFFER_FACTOR * compression)];
+    }
+
+    public void add(double value) {
+        Preconditions.checkArgument(!Double.isNaN(value), "Cannot add NaN to a digest");
+
+        buffer[bufferCount++] = value;
+        totalWeight++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+
+        if (bufferCount == buffer.length) {
+            compress();
+        }
+    }
+
+    /**
+     * Adds every value that was added to another digest to this one.
+     *
+     * @param other the digest to merge into this one. It is not changed.
+     */
+    public void merge(TDigest other) {
+        if (other.totalWeight == 0) {
+            return;
+        }
+
+        compress();
+
+        double[] otherMeans = Arrays.copyOf(other.means, other.centroidCount + other.bufferCount);
+        double[] otherWeights = Arrays.copyOf(other.weights, other.centroidCount + other.bufferCount);
+        System.arraycopy(other.buffer, 0, otherMeans, other.centroidCount, other.bufferCount);
+        Arrays.fill(otherWeights, other.centroidCount, otherWeights.length, 1.0);
+
+        totalWeight += other.totalWeight;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+
+        mergeCentroids(otherMeans, otherWeights, otherMeans.length);
+    }
+
+    public double getCount() {
+        return totalWeight;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @param q the quantile, between 0 and 1
+     * @return an estimate of the value below which a fraction q of the values lie, or NaN if nothing has been added
+     */
+    public double quantile(double q) {
+        Preconditions.checkArgument(q >= 0 && q <= 1, "Quantile %s must be between 0 and 1", q);
+
+        compress();
+
+        if (centroidCount == 0) {
+            return Double.NaN;
+        } else if (centroidCount == 1) {
+            return means[0];
+        }
+
+        double target = q * totalWeight;
+
+        double center = weights[0] / 2;
+        if (target <= center) {
+            return interpolate(min, means[0], target / center);
+        }
+
+        for (int i = 1; i < centroidCount; i++) {
+            double nextCenter = center + (weights[i - 1] + weights[i]) / 2;
+            if (target <= nextCenter) {
+                return interpolate(means[i - 1], means[i], (target - center) / (nextCenter - center));
+            }
+            center = nextCenter;
+        }
+
+        double lastCenterToEnd = totalWeight - center;
+        return lastCenterToEnd == 0 ? means[centroidCount - 1] :
+            interpolate(means[centroidCount - 1], max, (target - center) / lastCenterToEnd);
+    }
+
+    private static double interpolate(double from, double to, double fraction) {
+        return from + (to - from) * fraction;
+    }
+
+    private void compress() {
+        if (bufferCount == 0) {
+            return;
+        }
+
+        double[] bufferWeights = new double[bufferCount];
+        Arrays.fill(bufferWeights, 1.0);
+
+        int count = bufferCount;
+        bufferCount = 0;
+        mergeCentroids(Arrays.copyOf(buffer, count), bufferWeights, count);
+    }
+
+    /**
+     * Sorts the existing and the incoming centroids together and merges neighbours for as long as the merged
+     * centroid stays within one unit of the scale function.
+     */
+    private void mergeCentroids(double[] incomingMeans, double[] incomingWeights, int incomingCount) {
+        int count = centroidCount + incomingCount;
+        double[] allMeans = Arrays.copyOf(means, count);
+        double[] allWeights = Arrays.copyOf(weights, count);
+        System.arraycopy(incomingMeans, 0, allMeans, centroidCount, incomingCount);
+        System.arraycopy(incomingWeights, 0, allWeights, centroidCount, incomingCount);
+
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(allMeans[a], allMeans[b]));
+
+        double weightSoFar = 0;
+        double weightLimit = totalWeight * inverseScale(scale(0) + 1);
+
+        int merged = 0;
+        double currentMean = allMeans[order[0]];
+        double currentWeight = allWeights[order[0]];
+
+        for (int i = 1; i < count; i++) {
+            double mean = allMeans[order[i]];
+            double weight = allWeights[order[i]];
+
+            if (weightSoFar + currentWeight + weight <= weightLimit) {
+                currentWeight += weight;
+                currentMean += (mean - currentMean) * weight / currentWeight;
+            } else {
+                merged = emit(merged, currentMean, currentWeight);
+                weightSoFar += currentWeight;
+                weightLimit = totalWeight * inverseScale(scale(weightSoFar / totalWeight) + 1);
+
+                currentMean = mean;
+                currentWeight = weight;
+            }
+        }
+
+        centroidCount = emit(merged, currentMean, currentWeight);
+    }
+
+    private int emit(int index, double mean, double weight) {
+        if (index == means.length) {
+            means = Arrays.copyOf(means, 2 * means.length);
+            weights = Arrays.copyOf(weights, 2 * weights.length);
+        }
+        means[index] = mean;
+        weights[index] = weight;
+        return index + 1;
+    }
+
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1.0, q) - 1);
+    }
+
+    private double inverseScale(double k) {
+        double q = (Math.sin(Math.min(k * 2 * Math.PI / compression, Math.PI / 2)) + 1) / 2;
+        return Math.min(1.0, q);
+    }
+}
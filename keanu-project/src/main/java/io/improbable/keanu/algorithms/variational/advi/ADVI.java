@@ -0,0 +1,253 @@
+package io.improbable.keanu.algorithms.variational.advi;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.ProbabilisticModelWithGradient;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.variational.optimizer.OptimizedResult;
+import io.improbable.keanu.algorithms.variational.optimizer.gradient.Adam;
+import io.improbable.keanu.algorithms.variational.optimizer.gradient.LearningRateSchedule;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Automatic differentiation variational inference, as described in https://arxiv.org/pdf/1603.00788.pdf
+ * <p>
+ * Each continuous latent variable is mapped to unconstrained values, e.g. with log for a
+ * {@link io.improbable.keanu.vertices.dbl.probabilistic.GammaVertex} and logit for a
+ * {@link io.improbable.keanu.vertices.dbl.probabilistic.BetaVertex}, and a Gaussian over the unconstrained values is
+ * fitted to the posterior by maximising the evidence lower bound (ELBO) with {@link Adam}. The gradient of the ELBO
+ * is estimated from the log prob gradients of the model at samples from the Gaussian, which are taken as its mean
+ * plus its scale applied to a standard Gaussian sample, so the gradients flow through to the mean and the scale.
+ * <p>
+ * The result is a {@link VariationalPosterior}, which is an approximation of the posterior that is much cheaper to
+ * fit than sampling with e.g. {@link io.improbable.keanu.algorithms.mcmc.nuts.NUTS} and can then be sampled without
+ * taking any gradients.
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ADVI {
+
+    public static ADVIBuilder builder() {
+        return new ADVIBuilder();
+    }
+
+    @Getter
+    private final GaussianFamily family;
+
+    @Getter
+    private final Adam optimizer;
+
+    /**
+     * The number of samples from the approximation that the gradient of the ELBO is averaged over at each step
+     */
+    @Getter
+    private final int gradientSampleCount;
+
+    /**
+     * The number of samples from the approximation that the ELBO of the fitted approximation is estimated from
+     */
+    @Getter
+    private final int elboSampleCount;
+
+    @Getter
+    private final KeanuRandom random;
+
+    private final Map<VariableReference, UnconstrainingTransform> transforms;
+
+    /**
+     * Fits an approximation of the posterior of the latent variables of a model. The model is left with its latent
+     * variables at the median of the approximation.
+     *
+     * @param model a probabilistic model whose latent variables are all continuous
+     * @return the fitted approximation of the posterior
+     * @throws UnsupportedOperationException if the model has a discrete latent variable
+     * @throws IllegalArgumentException      if the support of a latent variable cannot be transformed and no transform
+     *                                       was set for it
+     */
+    public VariationalPosterior fit(ProbabilisticModelWithGradient model) {
+        UnconstrainedSpace space = createUnconstrainedSpace(model);
+        int dimension = space.getDimension();
+
+        VariationalParameter mean = new VariationalParameter("mean", space.currentValue());
+        VariationalParameter scale = new VariationalParameter("scale", family.initialScale(dimension));
+
+        OptimizedResult result = optimizer.optimize(
+            Arrays.asList(mean, scale),
+            point -> estimateElbo(model, space, point.get(mean.getReference()), point.get(scale.getReference())),
+            point -> {
+                DoubleTensor[] gradients = estimateElboGradient(model, space, point.get(mean.getReference()), point.get(scale.getReference()));
+                Map<VariableReference, DoubleTensor> gradientsByParameter = new HashMap<>();
+                gradientsByParameter.put(mean.getReference(), gradients[0]);
+                gradientsByParameter.put(scale.getReference(), gradients[1]);
+                return gradientsByParameter;
+            }
+        );
+
+        DoubleTensor fittedMean = result.getValueFor(mean.getReference());
+        DoubleTensor fittedScale = result.getValueFor(scale.getReference());
+        model.logProb(space.toPoint(fittedMean));
+
+        return new VariationalPosterior(model, space, family, fittedMean, fittedScale, result.getFitness());
+    }
+
+    private UnconstrainedSpace createUnconstrainedSpace(ProbabilisticModelWithGradient model) {
+        List<Variable<DoubleTensor, ?>> latentVariables = new ArrayList<>();
+        List<UnconstrainingTransform> latentTransforms = new ArrayList<>();
+
+        for (Variable<?, ?> variable : model.getLatentVariables()) {
+            if (!(variable.getValue() instanceof DoubleTensor)) {
+                throw new UnsupportedOperationException(
+                    "ADVI unsupported on networks containing discrete latents. " +
+                        "Discrete latent : " + variable.getReference() + " found.");
+            }
+            latentVariables.add((Variable<DoubleTensor, ?>) variable);
+
+            UnconstrainingTransform transform = transforms.get(variable.getReference());
+            latentTransforms.add(transform != null ? transform : Transforms.forVariable(variable));
+        }
+
+        return new UnconstrainedSpace(latentVariables, latentTransforms);
+    }
+
+    /**
+     * ELBO = E[log p(T(z)) + log |det J_T(z)|] + entropy, where z is a sample from the Gaussian and T maps it to the
+     * constrained values of the latent variables.
+     */
+    private double estimateElbo(ProbabilisticModelWithGradient model,
+                                UnconstrainedSpace space,
+                                DoubleTensor mean,
+                                DoubleTensor scale) {
+
+        List<DoubleTensor> samples = new ArrayList<>(elboSampleCount);
+        List<Map<VariableReference, DoubleTensor>> points = new ArrayList<>(elboSampleCount);
+        for (int i = 0; i < elboSampleCount; i++) {
+            DoubleTensor sample = mean.plus(family.scale(scale, random.nextGaussian(mean.getShape())));
+            samples.add(sample);
+            points.add(space.toPoint(sample));
+        }
+
+        double[] logProbs = model.batchLogProb(points);
+
+        double expectedLogProb = 0.0;
+        for (int i = 0; i < elboSampleCount; i++) {
+            expectedLogProb += logProbs[i] + space.logAbsJacobian(samples.get(i));
+        }
+
+        return expectedLogProb / elboSampleCount + family.entropy(scale, space.getDimension());
+    }
+
+    /**
+     * @return the gradient of the ELBO with respect to the mean and to the scale
+     */
+    private DoubleTensor[] estimateElboGradient(ProbabilisticModelWithGradient model,
+                                                UnconstrainedSpace space,
+                                                DoubleTensor mean,
+                                                DoubleTensor scale) {
+
+        List<DoubleTensor> standardSamples = new ArrayList<>(gradientSampleCount);
+        List<DoubleTensor> samples = new ArrayList<>(gradientSampleCount);
+        List<Map<VariableReference, DoubleTensor>> points = new ArrayList<>(gradientSampleCount);
+        for (int i = 0; i < gradientSampleCount; i++) {
+            DoubleTensor standardSample = random.nextGaussian(mean.getShape());
+            DoubleTensor sample = mean.plus(family.scale(scale, standardSample));
+            standardSamples.add(standardSample);
+            samples.add(sample);
+            points.add(space.toPoint(sample));
+        }
+
+        List<Map<? extends VariableReference, DoubleTensor>> logProbGradients = model.batchLogProbGradients(points);
+
+        DoubleTensor meanGradient = DoubleTensor.zeros(mean.getShape());
+        DoubleTensor scaleGradient = DoubleTensor.zeros(scale.getShape());
+        for (int i = 0; i < gradientSampleCount; i++) {
+            DoubleTensor gradient = space.gradient(samples.get(i), logProbGradients.get(i));
+            meanGradient.plusInPlace(gradient);
+            scaleGradient.plusInPlace(family.scaleGradient(scale, standardSamples.get(i), gradient));
+        }
+
+        meanGradient.divInPlace(gradientSampleCount);
+        scaleGradient.divInPlace(gradientSampleCount).plusInPlace(family.logAbsDeterminantGradient(scale));
+
+        return new DoubleTensor[]{meanGradient, scaleGradient};
+    }
+
+    public static class ADVIBuilder {
+
+        private static final int DEFAULT_MAX_EVALUATIONS = 5000;
+
+        private GaussianFamily family = GaussianFamily.MEAN_FIELD;
+        private Adam optimizer = Adam.builder()
+            .alpha(0.1)
+            .learningRateSchedule(LearningRateSchedule.inverseTimeDecay(0.001))
+            .maxEvaluations(DEFAULT_MAX_EVALUATIONS)
+            .build();
+        private int gradientSampleCount = 1;
+        private int elboSampleCount = 100;
+        private KeanuRandom random = KeanuRandom.getDefaultRandom();
+        private final Map<VariableReference, UnconstrainingTransform> transforms = new HashMap<>();
+
+        ADVIBuilder() {
+        }
+
+        public ADVIBuilder family(GaussianFamily family) {
+            this.family = family;
+            return this;
+        }
+
+        /**
+         * @param optimizer the optimizer of the ELBO. The gradient it is given is a noisy estimate, so a decaying
+         *                  {@link LearningRateSchedule} helps it settle at the optimum. Its maxEvaluations is the
+         *                  number of steps taken.
+         * @return this builder
+         */
+        public ADVIBuilder optimizer(Adam optimizer) {
+            this.optimizer = optimizer;
+            return this;
+        }
+
+        public ADVIBuilder gradientSampleCount(int gradientSampleCount) {
+            Preconditions.checkArgument(gradientSampleCount > 0, "The gradient sample count must be positive but was %s", gradientSampleCount);
+            this.gradientSampleCount = gradientSampleCount;
+            return this;
+        }
+
+        public ADVIBuilder elboSampleCount(int elboSampleCount) {
+            Preconditions.checkArgument(elboSampleCount > 0, "The ELBO sample count must be positive but was %s", elboSampleCount);
+            this.elboSampleCount = elboSampleCount;
+            return this;
+        }
+
+        public ADVIBuilder random(KeanuRandom random) {
+            this.random = random;
+            return this;
+        }
+
+        /**
+         * @param variable  a continuous latent variable
+         * @param transform the map from unconstrained values to the support of the variable, which replaces the one
+         *                  chosen from the type of the variable
+         * @return this builder
+         */
+        public ADVIBuilder transform(Variable<DoubleTensor, ?> variable, UnconstrainingTransform transform) {
+            this.transforms.put(variable.getReference(), transform);
+            return this;
+        }
+
+        public ADVI build() {
+            return new ADVI(family, optimizer, gradientSampleCount, elboSampleCount, random, new HashMap<>(transforms));
+        }
+
+        public String toString() {
+            return "ADVI.ADVIBuilder(family=" + this.family + ", optimizer=" + this.optimizer + ", gradientSampleCount=" + this.gradientSampleCount + ", elboSampleCount=" + this.elboSampleCount + ", random=" + this.random + ", transforms=" + this.transforms + ")";
+        }
+    }
+}
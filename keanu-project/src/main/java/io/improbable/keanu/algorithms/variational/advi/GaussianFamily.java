@@ -0,0 +1,196 @@
+package io.improbable.keanu.algorithms.variational.advi;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+
+/**
+ * The Gaussians that {@link ADVI} chooses its approximation of the posterior from, in the unconstrained space.
+ * <p>
+ * Each is a mean and a scale, and a sample is the mean plus the scale applied to a sample from a standard Gaussian.
+ */
+public enum GaussianFamily {
+
+    /**
+     * Independent Gaussians for each element of each latent variable. The scale is the log of the standard deviation
+     * of each, so the cost of a step grows linearly with the number of latent dimensions, but correlations in the
+     * posterior are ignored and its variance is usually underestimated.
+     */
+    MEAN_FIELD {
+        @Override
+        DoubleTensor initialScale(int dimension) {
+            return DoubleTensor.zeros(dimension);
+        }
+
+        @Override
+        DoubleTensor scale(DoubleTensor scale, DoubleTensor standardSample) {
+            return scale.exp().timesInPlace(standardSample);
+        }
+
+        @Override
+        DoubleTensor scaleGradient(DoubleTensor scale, DoubleTensor standardSample, DoubleTensor gradient) {
+            return scale.exp().timesInPlace(standardSample).timesInPlace(gradient);
+        }
+
+        @Override
+        double logAbsDeterminant(DoubleTensor scale) {
+            return scale.sum();
+        }
+
+        @Override
+        DoubleTensor logAbsDeterminantGradient(DoubleTensor scale) {
+            return DoubleTensor.ones(scale.getShape());
+        }
+
+        @Override
+        DoubleTensor unscale(DoubleTensor scale, DoubleTensor scaled) {
+            return scaled.div(scale.exp());
+        }
+
+        @Override
+        DoubleTensor standardDeviation(DoubleTensor scale) {
+            return scale.exp();
+        }
+    },
+
+    /**
+     * A Gaussian with a full covariance matrix over every element of every latent variable. The scale is the lower
+     * triangular Cholesky factor of the covariance, so correlations in the posterior are captured, but the cost of a
+     * step grows with the square of the number of latent dimensions.
+     */
+    FULL_RANK {
+        @Override
+        DoubleTensor initialScale(int dimension) {
+            return DoubleTensor.eye(dimension);
+        }
+
+        @Override
+        DoubleTensor scale(DoubleTensor scale, DoubleTensor standardSample) {
+            long dimension = standardSample.getLength();
+            return scale.matrixMultiply(standardSample.reshape(dimension, 1)).reshape(dimension);
+        }
+
+        @Override
+        DoubleTensor scaleGradient(DoubleTensor scale, DoubleTensor standardSample, DoubleTensor gradient) {
+            int dimension = (int) gradient.getLength();
+            double[] g = gradient.asFlatDoubleArray();
+            double[] eps = standardSample.asFlatDoubleArray();
+            double[] outer = new double[dimension * dimension];
+            for (int i = 0; i < dimension; i++) {
+                for (int j = 0; j <= i; j++) {
+                    outer[i * dimension + j] = g[i] * eps[j];
+                }
+            }
+            return DoubleTensor.create(outer, dimension, dimension);
+        }
+
+        @Override
+        double logAbsDeterminant(DoubleTensor scale) {
+            int dimension = (int) scale.getShape()[0];
+            double[] cholesky = scale.asFlatDoubleArray();
+            double logAbsDeterminant = 0.0;
+            for (int i = 0; i < dimension; i++) {
+                logAbsDeterminant += Math.log(Math.abs(cholesky[i * dimension + i]));
+            }
+            return logAbsDeterminant;
+        }
+
+        @Override
+        DoubleTensor logAbsDeterminantGradient(DoubleTensor scale) {
+            int dimension = (int) scale.getShape()[0];
+            double[] cholesky = scale.asFlatDoubleArray();
+            double[] gradient = new double[dimension * dimension];
+            for (int i = 0; i < dimension; i++) {
+                gradient[i * dimension + i] = 1.0 / cholesky[i * dimension + i];
+            }
+            return DoubleTensor.create(gradient, dimension, dimension);
+        }
+
+        /**
+         * Solves scale * x = scaled by forward substitution, as the scale is lower triangular.
+         */
+        @Override
+        DoubleTensor unscale(DoubleTensor scale, DoubleTensor scaled) {
+            int dimension = (int) scaled.getLength();
+            double[] cholesky = scale.asFlatDoubleArray();
+            double[] b = scaled.asFlatDoubleArray();
+            double[] x = new double[dimension];
+            for (int i = 0; i < dimension; i++) {
+                double sum = b[i];
+                for (int j = 0; j < i; j++) {
+                    sum -= cholesky[i * dimension + j] * x[j];
+                }
+                x[i] = sum / cholesky[i * dimension + i];
+            }
+            return DoubleTensor.create(x, dimension);
+        }
+
+        @Override
+        DoubleTensor standardDeviation(DoubleTensor scale) {
+            return scale.pow(2.0).sum(1).sqrtInPlace();
+        }
+    };
+
+    private static final double LOG_TWO_PI = Math.log(2 * Math.PI);
+
+    /**
+     * @param dimension the number of unconstrained dimensions
+     * @return the scale of a standard Gaussian
+     */
+    abstract DoubleTensor initialScale(int dimension);
+
+    /**
+     * @param scale          the scale of the Gaussian
+     * @param standardSample a sample from a standard Gaussian
+     * @return the sample scaled to the covariance of the Gaussian
+     */
+    abstract DoubleTensor scale(DoubleTensor scale, DoubleTensor standardSample);
+
+    /**
+     * @param scale          the scale of the Gaussian
+     * @param standardSample the standard sample that a sample was taken from
+     * @param gradient       the gradient of a function with respect to the sample
+     * @return the gradient of the function with respect to the scale, through the sample
+     */
+    abstract DoubleTensor scaleGradient(DoubleTensor scale, DoubleTensor standardSample, DoubleTensor gradient);
+
+    /**
+     * @param scale the scale of the Gaussian
+     * @return the log of the absolute determinant of the scale, which is half the log determinant of the covariance
+     */
+    abstract double logAbsDeterminant(DoubleTensor scale);
+
+    abstract DoubleTensor logAbsDeterminantGradient(DoubleTensor scale);
+
+    /**
+     * @param scale  the scale of the Gaussian
+     * @param scaled a sample minus the mean of the Gaussian
+     * @return the standard sample that would be scaled to it
+     */
+    abstract DoubleTensor unscale(DoubleTensor scale, DoubleTensor scaled);
+
+    /**
+     * @param scale the scale of the Gaussian
+     * @return the standard deviation of each unconstrained dimension
+     */
+    abstract DoubleTensor standardDeviation(DoubleTensor scale);
+
+    /**
+     * @param scale     the scale of the Gaussian
+     * @param dimension the number of unconstrained dimensions
+     * @return the entropy of the Gaussian
+     */
+    double entropy(DoubleTensor scale, int dimension) {
+        return logAbsDeterminant(scale) + 0.5 * dimension * (1 + LOG_TWO_PI);
+    }
+
+    /**
+     * @param mean   the mean of the Gaussian
+     * @param scale  the scale of the Gaussian
+     * @param sample a point in the unconstrained space
+     * @return the log density of the Gaussian at the point
+     */
+    double logProb(DoubleTensor mean, DoubleTensor scale, DoubleTensor sample) {
+        DoubleTensor standardSample = unscale(scale, sample.minus(mean));
+        double squaredLength = standardSample.pow(2.0).sum();
+        return -0.5 * squaredLength - logAbsDeterminant(scale) - 0.5 * mean.getLength() * LOG_TWO_PI;
+    }
+}
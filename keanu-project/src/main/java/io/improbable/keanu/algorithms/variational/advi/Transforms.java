@@ -0,0 +1,177 @@
+package io.improbable.keanu.algorithms.variational.advi;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.ConstantVertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.BetaVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.ChiSquaredVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.DirichletVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.ExponentialVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GammaVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.HalfCauchyVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.HalfGaussianVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.InverseGammaVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.LogNormalVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.ParetoVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.TriangularVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.UniformVertex;
+
+/**
+ * The {@link UnconstrainingTransform}s and the choice of one for the support of each kind of vertex.
+ */
+final class Transforms {
+
+    private Transforms() {
+    }
+
+    /**
+     * @param variable a continuous latent variable
+     * @return log for vertices with positive support, e.g. Gamma, logit for vertices with support between two
+     * constants, e.g. Beta, and the identity otherwise
+     * @throws IllegalArgumentException if the support of the vertex depends on other latent variables or is not
+     *                                  supported
+     */
+    static UnconstrainingTransform forVariable(Variable<?, ?> variable) {
+        if (variable instanceof GammaVertex
+            || variable instanceof ExponentialVertex
+            || variable instanceof HalfGaussianVertex
+            || variable instanceof HalfCauchyVertex
+            || variable instanceof InverseGammaVertex
+            || variable instanceof LogNormalVertex
+            || variable instanceof ChiSquaredVertex) {
+            return UnconstrainingTransform.lowerBound(0.0);
+        } else if (variable instanceof BetaVertex) {
+            return UnconstrainingTransform.interval(0.0, 1.0);
+        } else if (variable instanceof UniformVertex) {
+            UniformVertex uniform = (UniformVertex) variable;
+            return UnconstrainingTransform.interval(constantBound(uniform, uniform.getXMin()), constantBound(uniform, uniform.getXMax()));
+        } else if (variable instanceof ParetoVertex) {
+            ParetoVertex pareto = (ParetoVertex) variable;
+            return UnconstrainingTransform.lowerBound(constantBound(pareto, pareto.getLocation()));
+        } else if (variable instanceof DirichletVertex || variable instanceof TriangularVertex) {
+            throw new IllegalArgumentException(
+                "ADVI cannot transform the support of " + variable + ". Set a transform for it on the ADVI builder."
+            );
+        }
+        return UnconstrainingTransform.identity();
+    }
+
+    private static DoubleTensor constantBound(Variable<?, ?> variable, DoubleVertex bound) {
+        Preconditions.checkArgument(bound instanceof ConstantVertex,
+            "The support of %s depends on %s. ADVI can only transform supports with constant bounds. " +
+                "Set a transform for it on the ADVI builder.",
+            variable, bound
+        );
+        return bound.getValue();
+    }
+
+    static class Identity implements UnconstrainingTransform {
+
+        @Override
+        public DoubleTensor toConstrained(DoubleTensor unconstrained) {
+            return unconstrained.duplicate();
+        }
+
+        @Override
+        public DoubleTensor toUnconstrained(DoubleTensor constrained) {
+            return constrained.duplicate();
+        }
+
+        @Override
+        public DoubleTensor jacobian(DoubleTensor unconstrained) {
+            return DoubleTensor.ones(unconstrained.getShape());
+        }
+
+        @Override
+        public DoubleTensor logAbsJacobian(DoubleTensor unconstrained) {
+            return DoubleTensor.zeros(unconstrained.getShape());
+        }
+
+        @Override
+        public DoubleTensor logAbsJacobianGradient(DoubleTensor unconstrained) {
+            return DoubleTensor.zeros(unconstrained.getShape());
+        }
+    }
+
+    static class LowerBound implements UnconstrainingTransform {
+
+        private final DoubleTensor lower;
+
+        LowerBound(DoubleTensor lower) {
+            this.lower = lower;
+        }
+
+        @Override
+        public DoubleTensor toConstrained(DoubleTensor unconstrained) {
+            return unconstrained.exp().plusInPlace(lower);
+        }
+
+        @Override
+        public DoubleTensor toUnconstrained(DoubleTensor constrained) {
+            return constrained.minus(lower).logInPlace();
+        }
+
+        @Override
+        public DoubleTensor jacobian(DoubleTensor unconstrained) {
+            return unconstrained.exp();
+        }
+
+        @Override
+        public DoubleTensor logAbsJacobian(DoubleTensor unconstrained) {
+            return unconstrained.duplicate();
+        }
+
+        @Override
+        public DoubleTensor logAbsJacobianGradient(DoubleTensor unconstrained) {
+            return DoubleTensor.ones(unconstrained.getShape());
+        }
+    }
+
+    static class Interval implements UnconstrainingTransform {
+
+        private final DoubleTensor lower;
+        private final DoubleTensor width;
+        private final DoubleTensor logWidth;
+
+        Interval(DoubleTensor lower, DoubleTensor upper) {
+            this.lower = lower;
+            this.width = upper.minus(lower);
+            this.logWidth = width.log();
+        }
+
+        @Override
+        public DoubleTensor toConstrained(DoubleTensor unconstrained) {
+            return unconstrained.sigmoid().timesInPlace(width).plusInPlace(lower);
+        }
+
+        @Override
+        public DoubleTensor toUnconstrained(DoubleTensor constrained) {
+            DoubleTensor proportion = constrained.minus(lower).divInPlace(width);
+            return proportion.log().minusInPlace(proportion.reverseMinus(1.0).logInPlace());
+        }
+
+        @Override
+        public DoubleTensor jacobian(DoubleTensor unconstrained) {
+            DoubleTensor sigmoid = unconstrained.sigmoid();
+            return sigmoid.reverseMinus(1.0).timesInPlace(sigmoid).timesInPlace(width);
+        }
+
+        /**
+         * log(sigmoid(z)) + log(1 - sigmoid(z)) is written as -|z| - 2 log(1 + exp(-|z|)) so that it stays finite
+         * for large |z|.
+         */
+        @Override
+        public DoubleTensor logAbsJacobian(DoubleTensor unconstrained) {
+            DoubleTensor absolute = unconstrained.abs();
+            DoubleTensor logOfOnePlusExp = absolute.unaryMinus().expInPlace().plusInPlace(1.0).logInPlace();
+            return absolute.unaryMinusInPlace().minusInPlace(logOfOnePlusExp.timesInPlace(2.0)).plusInPlace(logWidth);
+        }
+
+        @Override
+        public DoubleTensor logAbsJacobianGradient(DoubleTensor unconstrained) {
+            return unconstrained.sigmoid().timesInPlace(-2.0).plusInPlace(1.0);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package io.improbable.keanu.algorithms.variational.advi;
+
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The latent variables of a model, each transformed to unconstrained values and flattened into one vector.
+ */
+class UnconstrainedSpace {
+
+    private final List<? extends Variable<DoubleTensor, ?>> variables;
+    private final List<UnconstrainingTransform> transforms;
+    private final int[] offsets;
+    private final int dimension;
+
+    UnconstrainedSpace(List<? extends Variable<DoubleTensor, ?>> variables, List<UnconstrainingTransform> transforms) {
+        this.variables = variables;
+        this.transforms = transforms;
+        this.offsets = new int[variables.size()];
+
+        int offset = 0;
+        for (int i = 0; i < variables.size(); i++) {
+            offsets[i] = offset;
+            offset += TensorShape.getLengthAsInt(variables.get(i).getShape());
+        }
+        this.dimension = offset;
+    }
+
+    int getDimension() {
+        return dimension;
+    }
+
+    List<? extends Variable<DoubleTensor, ?>> getVariables() {
+        return variables;
+    }
+
+    /**
+     * @return the current values of the variables as an unconstrained vector. Values on the boundary of the support,
+     * which have no unconstrained value, are mapped to zero.
+     */
+    DoubleTensor currentValue() {
+        double[] unconstrained = new double[dimension];
+        for (int i = 0; i < variables.size(); i++) {
+            double[] values = transforms.get(i).toUnconstrained(variables.get(i).getValue()).asFlatDoubleArray();
+            for (int j = 0; j < values.length; j++) {
+                unconstrained[offsets[i] + j] = Double.isFinite(values[j]) ? values[j] : 0.0;
+            }
+        }
+        return DoubleTensor.create(unconstrained, dimension);
+    }
+
+    /**
+     * @param unconstrained a vector of unconstrained values
+     * @return the constrained value of each variable
+     */
+    Map<VariableReference, DoubleTensor> toPoint(DoubleTensor unconstrained) {
+        double[] flat = unconstrained.asFlatDoubleArray();
+        Map<VariableReference, DoubleTensor> point = new HashMap<>();
+        for (int i = 0; i < variables.size(); i++) {
+            point.put(variables.get(i).getReference(), transforms.get(i).toConstrained(slice(flat, i)));
+        }
+        return point;
+    }
+
+    /**
+     * @param constrained the value of each variable
+     * @return the unconstrained vector that maps to the values
+     */
+    DoubleTensor fromPoint(Map<VariableReference, DoubleTensor> constrained) {
+        double[] unconstrained = new double[dimension];
+        for (int i = 0; i < variables.size(); i++) {
+            DoubleTensor value = constrained.get(variables.get(i).getReference());
+            double[] values = transforms.get(i).toUnconstrained(value).asFlatDoubleArray();
+            System.arraycopy(values, 0, unconstrained, offsets[i], values.length);
+        }
+        return DoubleTensor.create(unconstrained, dimension);
+    }
+
+    /**
+     * @param unconstrained a vector of unconstrained values
+     * @return the log of the absolute determinant of the Jacobian of the map to the constrained values
+     */
+    double logAbsJacobian(DoubleTensor unconstrained) {
+        double[] flat = unconstrained.asFlatDoubleArray();
+        double logAbsJacobian = 0.0;
+        for (int i = 0; i < variables.size(); i++) {
+            logAbsJacobian += transforms.get(i).logAbsJacobian(slice(flat, i)).sum();
+        }
+        return logAbsJacobian;
+    }
+
+    /**
+     * @param unconstrained    a vector of unconstrained values
+     * @param logProbGradients the gradient of the log prob with respect to the constrained value of each variable,
+     *                         which is zero for any variable that is missing
+     * @return the gradient of the log prob plus the log absolute Jacobian with respect to the unconstrained vector
+     */
+    DoubleTensor gradient(DoubleTensor unconstrained, Map<? extends VariableReference, DoubleTensor> logProbGradients) {
+        double[] flat = unconstrained.asFlatDoubleArray();
+        double[] gradient = new double[dimension];
+        for (int i = 0; i < variables.size(); i++) {
+            UnconstrainingTransform transform = transforms.get(i);
+            DoubleTensor z = slice(flat, i);
+            DoubleTensor dLogProb = logProbGradients.get(variables.get(i).getReference());
+
+            DoubleTensor dz = transform.logAbsJacobianGradient(z);
+            if (dLogProb != null) {
+                dz.plusInPlace(transform.jacobian(z).timesInPlace(dLogProb));
+            }
+
+            double[] values = dz.asFlatDoubleArray();
+            System.arraycopy(values, 0, gradient, offsets[i], values.length);
+        }
+        return DoubleTensor.create(gradient, dimension);
+    }
+
+    /**
+     * @param unconstrained a vector of unconstrained values
+     * @param variable      one of the variables
+     * @return the unconstrained values of the variable, in its shape
+     */
+    DoubleTensor sliceOf(DoubleTensor unconstrained, Variable<DoubleTensor, ?> variable) {
+        return slice(unconstrained.asFlatDoubleArray(), indexOf(variable));
+    }
+
+    UnconstrainingTransform transformOf(Variable<DoubleTensor, ?> variable) {
+        return transforms.get(indexOf(variable));
+    }
+
+    private int indexOf(Variable<DoubleTensor, ?> variable) {
+        for (int i = 0; i < variables.size(); i++) {
+            if (variables.get(i).getReference().equals(variable.getReference())) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(variable + " is not a latent variable of the model");
+    }
+
+    private DoubleTensor slice(double[] flat, int index) {
+        long[] shape = variables.get(index).getShape();
+        int from = offsets[index];
+        return DoubleTensor.create(Arrays.copyOfRange(flat, from, from + TensorShape.getLengthAsInt(shape)), shape);
+    }
+}
@@ -0,0 +1,73 @@
+package io.improbable.keanu.algorithms.variational.advi;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+
+/**
+ * An invertible, elementwise map from the unconstrained real numbers to the support of a latent variable, e.g. from
+ * any value to the positive values of a {@link io.improbable.keanu.vertices.dbl.probabilistic.GammaVertex}.
+ * {@link ADVI} fits a Gaussian to the unconstrained values, so that samples from it are always in the support.
+ */
+public interface UnconstrainingTransform {
+
+    /**
+     * @param unconstrained an unconstrained value
+     * @return the value in the support of the latent variable
+     */
+    DoubleTensor toConstrained(DoubleTensor unconstrained);
+
+    /**
+     * @param constrained a value in the support of the latent variable
+     * @return the unconstrained value that maps to it
+     */
+    DoubleTensor toUnconstrained(DoubleTensor constrained);
+
+    /**
+     * @param unconstrained an unconstrained value
+     * @return the derivative of each constrained element with respect to its unconstrained element
+     */
+    DoubleTensor jacobian(DoubleTensor unconstrained);
+
+    /**
+     * @param unconstrained an unconstrained value
+     * @return the log of the absolute value of the {@link #jacobian(DoubleTensor)} of each element
+     */
+    DoubleTensor logAbsJacobian(DoubleTensor unconstrained);
+
+    /**
+     * @param unconstrained an unconstrained value
+     * @return the derivative of {@link #logAbsJacobian(DoubleTensor)} with respect to each unconstrained element
+     */
+    DoubleTensor logAbsJacobianGradient(DoubleTensor unconstrained);
+
+    /**
+     * @return a transform for variables that can take any real value
+     */
+    static UnconstrainingTransform identity() {
+        return new Transforms.Identity();
+    }
+
+    /**
+     * @param lower the lower bound of the support
+     * @return a transform to values greater than the lower bound: lower + exp(unconstrained)
+     */
+    static UnconstrainingTransform lowerBound(DoubleTensor lower) {
+        return new Transforms.LowerBound(lower);
+    }
+
+    static UnconstrainingTransform lowerBound(double lower) {
+        return lowerBound(DoubleTensor.scalar(lower));
+    }
+
+    /**
+     * @param lower the lower bound of the support
+     * @param upper the upper bound of the support
+     * @return a transform to values between the bounds: lower + (upper - lower) * sigmoid(unconstrained)
+     */
+    static UnconstrainingTransform interval(DoubleTensor lower, DoubleTensor upper) {
+        return new Transforms.Interval(lower, upper);
+    }
+
+    static UnconstrainingTransform interval(double lower, double upper) {
+        return interval(DoubleTensor.scalar(lower), DoubleTensor.scalar(upper));
+    }
+}
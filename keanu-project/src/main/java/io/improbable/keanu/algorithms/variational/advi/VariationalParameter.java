@@ -0,0 +1,58 @@
+package io.improbable.keanu.algorithms.variational.advi;
+
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.network.VariableState;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+
+/**
+ * A parameter of the approximate posterior, e.g. its mean, as a variable so that it can be optimized by a
+ * {@link io.improbable.keanu.algorithms.variational.optimizer.gradient.GradientOptimizationAlgorithm}.
+ */
+class VariationalParameter implements Variable<DoubleTensor, VariableState> {
+
+    private static final VariableState STATE = new VariableState() {
+    };
+
+    private final VariableReference reference;
+    private final DoubleTensor initialValue;
+
+    VariationalParameter(String name, DoubleTensor initialValue) {
+        this.reference = new Reference(name);
+        this.initialValue = initialValue;
+    }
+
+    @Override
+    public VariableReference getReference() {
+        return reference;
+    }
+
+    @Override
+    public DoubleTensor getValue() {
+        return initialValue;
+    }
+
+    @Override
+    public long[] getShape() {
+        return initialValue.getShape();
+    }
+
+    @Override
+    public VariableState getState() {
+        return STATE;
+    }
+
+    private static class Reference implements VariableReference {
+
+        private final String name;
+
+        Reference(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package io.improbable.keanu.algorithms.variational.advi;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.ColumnarSampleList;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.ProbabilisticModel;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.variational.QDistribution;
+import io.improbable.keanu.network.NetworkState;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An approximation of the posterior of the latent variables of a model, fitted by {@link ADVI}. It is a Gaussian over
+ * the unconstrained values of the latent variables, mapped to their supports.
+ * <p>
+ * As a {@link QDistribution} it can be compared to samples from the true posterior with
+ * {@link io.improbable.keanu.algorithms.variational.KLDivergence}.
+ */
+public class VariationalPosterior implements QDistribution {
+
+    private final ProbabilisticModel model;
+    private final UnconstrainedSpace space;
+
+    @Getter
+    private final GaussianFamily family;
+
+    private final DoubleTensor mean;
+    private final DoubleTensor scale;
+
+    /**
+     * An estimate of the evidence lower bound of the approximation, which is a lower bound on the log of the
+     * probability of the observations. The higher it is, the closer the approximation is to the posterior.
+     */
+    @Getter
+    private final double elbo;
+
+    VariationalPosterior(ProbabilisticModel model,
+                         UnconstrainedSpace space,
+                         GaussianFamily family,
+                         DoubleTensor mean,
+                         DoubleTensor scale,
+                         double elbo) {
+        this.model = model;
+        this.space = space;
+        this.family = family;
+        this.mean = mean;
+        this.scale = scale;
+        this.elbo = elbo;
+    }
+
+    public NetworkSamples sample(int sampleCount) {
+        return sample(sampleCount, KeanuRandom.getDefaultRandom());
+    }
+
+    /**
+     * Takes independent samples of the latent variables. Unlike MCMC there is no warm up and no autocorrelation, and
+     * no gradients are taken. The log prob of the model is calculated at each sample, so the samples can be used in
+     * the same way as samples from MCMC.
+     *
+     * @param sampleCount the number of samples to take
+     * @param random      the source of randomness
+     * @return samples of each latent variable of the model
+     */
+    public NetworkSamples sample(int sampleCount, KeanuRandom random) {
+        Map<VariableReference, List<DoubleTensor>> samplesByVariable = new HashMap<>();
+        for (Variable<DoubleTensor, ?> variable : space.getVariables()) {
+            samplesByVariable.put(variable.getReference(), new ColumnarSampleList<>());
+        }
+
+        List<Map<VariableReference, DoubleTensor>> points = new ArrayList<>(sampleCount);
+        for (int i = 0; i < sampleCount; i++) {
+            Map<VariableReference, DoubleTensor> point = space.toPoint(mean.plus(family.scale(scale, random.nextGaussian(mean.getShape()))));
+            for (Map.Entry<VariableReference, DoubleTensor> value : point.entrySet()) {
+                samplesByVariable.get(value.getKey()).add(value.getValue());
+            }
+            points.add(point);
+        }
+
+        List<Double> logOfMasterPForEachSample = new ColumnarSampleList<>();
+        for (double logProb : model.batchLogProb(points)) {
+            logOfMasterPForEachSample.add(logProb);
+        }
+
+        return new NetworkSamples(samplesByVariable, logOfMasterPForEachSample, sampleCount);
+    }
+
+    /**
+     * @param variable a latent variable of the model
+     * @return the median of the approximate posterior of the variable, which is its mean mapped to its support
+     */
+    public DoubleTensor getMedian(Variable<DoubleTensor, ?> variable) {
+        return space.transformOf(variable).toConstrained(space.sliceOf(mean, variable));
+    }
+
+    /**
+     * @param variable a latent variable of the model
+     * @return the mean of the Gaussian over the unconstrained values of the variable
+     */
+    public DoubleTensor getUnconstrainedMean(Variable<DoubleTensor, ?> variable) {
+        return space.sliceOf(mean, variable);
+    }
+
+    /**
+     * @param variable a latent variable of the model
+     * @return the standard deviation of the Gaussian over the unconstrained values of the variable
+     */
+    public DoubleTensor getUnconstrainedStandardDeviation(Variable<DoubleTensor, ?> variable) {
+        return space.sliceOf(family.standardDeviation(scale), variable);
+    }
+
+    /**
+     * @param state values of every latent variable of the model
+     * @return the log density of the approximation at the values
+     */
+    @Override
+    public double getLogOfMasterP(NetworkState state) {
+        Map<VariableReference, DoubleTensor> point = new HashMap<>();
+        for (Variable<DoubleTensor, ?> variable : space.getVariables()) {
+            point.put(variable.getReference(), state.get(variable.getReference()));
+        }
+
+        DoubleTensor unconstrained = space.fromPoint(point);
+        return family.logProb(mean, scale, unconstrained) - space.logAbsJacobian(unconstrained);
+    }
+}
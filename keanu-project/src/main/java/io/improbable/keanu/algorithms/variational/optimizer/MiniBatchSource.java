@@ -0,0 +1,21 @@
+package io.improbable.keanu.algorithms.variational.optimizer;
+
+/**
+ * Loads the observations of a model one batch at a time, so that a model can be fitted to more data than would fit
+ * in memory at once.
+ * <p>
+ * The log likelihood of a batch is an estimate of the log likelihood of the whole dataset once it is multiplied by
+ * the likelihood scale, which is the size of the dataset divided by the size of a batch.
+ */
+public interface MiniBatchSource {
+
+    /**
+     * Observes the next batch of data in the model.
+     */
+    void loadNextBatch();
+
+    /**
+     * @return the number of data points in the whole dataset divided by the number in a batch
+     */
+    double getLikelihoodScale();
+}
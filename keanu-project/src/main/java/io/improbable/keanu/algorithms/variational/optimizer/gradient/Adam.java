@@ -35,6 +35,7 @@ public class Adam implements GradientOptimizationAlgorithm {
     private final double beta1;
     private final double beta2;
     private final double epsilon;
+    private final LearningRateSchedule learningRateSchedule;
 
     @Getter
     private AdamStatistics statistics;
@@ -65,13 +66,14 @@ public class Adam implements GradientOptimizationAlgorithm {
             beta2T = beta2T * beta2;
 
             final double b = (1 - beta1T) / Math.sqrt(1 - beta2T);
+            final double alphaT = learningRateSchedule.getLearningRate(alpha, t - 1);
 
             for (int i = 0; i < theta.length; i++) {
 
                 m[i] = m[i].times(beta1).plusInPlace(gradients[i].times(1 - beta1));
                 v[i] = v[i].times(beta2).plusInPlace(gradients[i].pow(2).timesInPlace(1 - beta2));
 
-                thetaNext[i] = theta[i].plus(m[i].times(alpha).divInPlace(v[i].sqrt().timesInPlace(b).plusInPlace(epsilon)));
+                thetaNext[i] = theta[i].plus(m[i].times(alphaT).divInPlace(v[i].sqrt().timesInPlace(b).plusInPlace(epsilon)));
             }
 
             converged = convergenceChecker.hasConverged(theta, thetaNext);
@@ -170,6 +172,7 @@ public class Adam implements GradientOptimizationAlgorithm {
         private double beta1 = 0.9;
         private double beta2 = 0.999;
         private double epsilon = 1e-8;
+        private LearningRateSchedule learningRateSchedule = LearningRateSchedule.constant();
 
         public AdamBuilder maxEvaluations(int maxEvaluations) {
             if (maxEvaluations <= 0) {
@@ -216,8 +219,17 @@ public class Adam implements GradientOptimizationAlgorithm {
             return this;
         }
 
+        /**
+         * @param learningRateSchedule how the learning rate, alpha, changes from step to step
+         * @return this builder
+         */
+        public AdamBuilder learningRateSchedule(LearningRateSchedule learningRateSchedule) {
+            this.learningRateSchedule = learningRateSchedule;
+            return this;
+        }
+
         public Adam build() {
-            return new Adam(convergenceChecker, maxEvaluations, alpha, beta1, beta2, epsilon);
+            return new Adam(convergenceChecker, maxEvaluations, alpha, beta1, beta2, epsilon, learningRateSchedule);
         }
     }
 }
@@ -4,9 +4,11 @@ import io.improbable.keanu.algorithms.ProbabilisticModelWithGradient;
 import io.improbable.keanu.algorithms.VariableReference;
 import io.improbable.keanu.algorithms.variational.optimizer.FitnessFunction;
 import io.improbable.keanu.algorithms.variational.optimizer.FitnessFunctionGradient;
+import io.improbable.keanu.algorithms.variational.optimizer.MiniBatchSource;
 import io.improbable.keanu.algorithms.variational.optimizer.OptimizedResult;
 import io.improbable.keanu.algorithms.variational.optimizer.Optimizer;
 import io.improbable.keanu.algorithms.variational.optimizer.ProbabilityFitness;
+import io.improbable.keanu.algorithms.variational.optimizer.nongradient.MiniBatchFitnessFunction;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.util.status.StatusBar;
 import io.improbable.keanu.vertices.ProbabilityCalculator;
@@ -34,6 +36,8 @@ public class GradientOptimizer implements Optimizer {
 
     private final boolean checkInitialFitnessConditions;
 
+    private final MiniBatchSource miniBatchSource;
+
     private final List<BiConsumer<Map<VariableReference, DoubleTensor>, Map<? extends VariableReference, DoubleTensor>>> onGradientCalculations = new ArrayList<>();
     private final List<BiConsumer<Map<VariableReference, DoubleTensor>, Double>> onFitnessCalculations = new ArrayList<>();
 
@@ -99,6 +103,10 @@ public class GradientOptimizer implements Optimizer {
     private OptimizedResult optimize(ProbabilityFitness probabilityFitness) {
         assertHasLatents();
 
+        if (miniBatchSource != null) {
+            return optimizeMiniBatches(probabilityFitness);
+        }
+
         FitnessFunction fitnessFunction = probabilityFitness.getFitnessFunction(
             probabilisticModelWithGradient,
             this::handleFitnessCalculation
@@ -112,7 +120,40 @@ public class GradientOptimizer implements Optimizer {
         return optimize(fitnessFunction, fitnessFunctionGradient);
     }
 
+    /**
+     * Each gradient evaluation of the algorithm loads the next batch, so the algorithm steps on a stochastic estimate
+     * of the gradient for the whole dataset. The initial conditions are checked on the batch that is already observed.
+     */
+    private OptimizedResult optimizeMiniBatches(ProbabilityFitness probabilityFitness) {
+        FitnessFunction fitnessFunction = new MiniBatchFitnessFunction(
+            probabilisticModelWithGradient,
+            probabilityFitness,
+            miniBatchSource.getLikelihoodScale(),
+            this::handleFitnessCalculation
+        );
+
+        FitnessFunctionGradient fitnessFunctionGradient = new MiniBatchFitnessFunctionGradient(
+            probabilisticModelWithGradient,
+            probabilityFitness,
+            miniBatchSource.getLikelihoodScale(),
+            this::handleGradientCalculation
+        );
+
+        FitnessFunctionGradient nextBatchGradient = point -> {
+            miniBatchSource.loadNextBatch();
+            return fitnessFunctionGradient.getGradientsAt(point);
+        };
+
+        return optimize(fitnessFunction, fitnessFunctionGradient, nextBatchGradient);
+    }
+
     private OptimizedResult optimize(FitnessFunction fitnessFunction, FitnessFunctionGradient fitnessFunctionGradient) {
+        return optimize(fitnessFunction, fitnessFunctionGradient, fitnessFunctionGradient);
+    }
+
+    private OptimizedResult optimize(FitnessFunction fitnessFunction,
+                                     FitnessFunctionGradient initialFitnessFunctionGradient,
+                                     FitnessFunctionGradient fitnessFunctionGradient) {
 
         StatusBar statusBar = Optimizer.createFitnessStatusBar(this);
 
@@ -125,7 +166,7 @@ public class GradientOptimizer implements Optimizer {
                 throw new IllegalArgumentException("Cannot start optimizer on zero probability network");
             }
 
-            Map<? extends VariableReference, DoubleTensor> initialGradient = fitnessFunctionGradient.getGradientsAt(startingPoint);
+            Map<? extends VariableReference, DoubleTensor> initialGradient = initialFitnessFunctionGradient.getGradientsAt(startingPoint);
             throwIfGradientIsFlat(initialGradient);
         }
 
@@ -155,6 +196,7 @@ public class GradientOptimizer implements Optimizer {
         private ProbabilisticModelWithGradient probabilisticModelWithGradient;
         private GradientOptimizationAlgorithm gradientOptimizationAlgorithm = ConjugateGradient.builder().build();
         private boolean checkInitialFitnessConditions = true;
+        private MiniBatchSource miniBatchSource = null;
 
         public GradientOptimizerBuilder probabilisticModel(ProbabilisticModelWithGradient probabilisticModelWithGradient) {
             this.probabilisticModelWithGradient = probabilisticModelWithGradient;
@@ -171,6 +213,19 @@ public class GradientOptimizer implements Optimizer {
             return this;
         }
 
+        /**
+         * Optional - fit the model to a dataset one batch at a time. The algorithm must be {@link Adam}, because the
+         * gradients are estimated from a single batch, and the model must already observe a batch when the
+         * optimization starts.
+         *
+         * @param miniBatchSource loads each batch of data into the model
+         * @return this builder
+         */
+        public GradientOptimizerBuilder miniBatches(MiniBatchSource miniBatchSource) {
+            this.miniBatchSource = miniBatchSource;
+            return this;
+        }
+
         public GradientOptimizer build() {
             if (probabilisticModelWithGradient == null) {
                 throw new IllegalStateException("Cannot build optimizer without specifying network to optimize.");
@@ -178,10 +233,14 @@ public class GradientOptimizer implements Optimizer {
             if (gradientOptimizationAlgorithm == null) {
                 throw new IllegalStateException("Cannot build optimizer without specifying algorithm for optimizing.");
             }
+            if (miniBatchSource != null && !(gradientOptimizationAlgorithm instanceof Adam)) {
+                throw new IllegalStateException("Mini-batch optimization requires the Adam algorithm.");
+            }
             return new GradientOptimizer(
                 probabilisticModelWithGradient,
                 gradientOptimizationAlgorithm,
-                checkInitialFitnessConditions
+                checkInitialFitnessConditions,
+                miniBatchSource
             );
         }
 
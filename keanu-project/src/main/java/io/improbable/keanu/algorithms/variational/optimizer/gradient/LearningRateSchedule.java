@@ -0,0 +1,46 @@
+package io.improbable.keanu.algorithms.variational.optimizer.gradient;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Changes the learning rate of {@link Adam} as the optimization goes on. With gradients estimated from mini-batches
+ * a decaying learning rate lets the optimizer settle at the optimum instead of moving about it with the noise in
+ * the gradient.
+ */
+@FunctionalInterface
+public interface LearningRateSchedule {
+
+    /**
+     * @param learningRate the initial learning rate
+     * @param step         the number of steps already taken
+     * @return the learning rate of the next step
+     */
+    double getLearningRate(double learningRate, int step);
+
+    /**
+     * @return a schedule that always uses the initial learning rate
+     */
+    static LearningRateSchedule constant() {
+        return (learningRate, step) -> learningRate;
+    }
+
+    /**
+     * @param decayRate  the factor the learning rate is multiplied by every decaySteps steps
+     * @param decaySteps the number of steps over which the learning rate decays by the decay rate
+     * @return a schedule in which the learning rate decays exponentially
+     */
+    static LearningRateSchedule exponentialDecay(double decayRate, int decaySteps) {
+        Preconditions.checkArgument(decayRate > 0 && decayRate <= 1, "The decay rate must be in (0, 1] but was %s", decayRate);
+        Preconditions.checkArgument(decaySteps > 0, "The decay steps must be positive but was %s", decaySteps);
+        return (learningRate, step) -> learningRate * Math.pow(decayRate, (double) step / decaySteps);
+    }
+
+    /**
+     * @param decayRate how quickly the learning rate decays
+     * @return a schedule in which the learning rate at step t is the initial learning rate / (1 + decayRate * t)
+     */
+    static LearningRateSchedule inverseTimeDecay(double decayRate) {
+        Preconditions.checkArgument(decayRate >= 0, "The decay rate must not be negative but was %s", decayRate);
+        return (learningRate, step) -> learningRate / (1 + decayRate * step);
+    }
+}
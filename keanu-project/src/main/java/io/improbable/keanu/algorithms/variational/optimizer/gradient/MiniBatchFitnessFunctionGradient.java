@@ -0,0 +1,61 @@
+package io.improbable.keanu.algorithms.variational.optimizer.gradient;
+
+import io.improbable.keanu.algorithms.ProbabilisticModelWithGradient;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.variational.optimizer.ProbabilityFitness;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Estimates the gradient for a whole dataset from the batch that is currently observed in the model. The estimate is
+ * unbiased because the gradient of the log likelihood of the batch is multiplied by the likelihood scale.
+ * <p>
+ * For MAP the gradient of the prior is the gradient of the log prob less that of the log likelihood, so the estimate
+ * is the gradient of the log prob plus the gradient of the log likelihood times one less than the likelihood scale.
+ */
+public class MiniBatchFitnessFunctionGradient extends ProbabilityFitnessFunctionGradient {
+
+    private final ProbabilityFitness probabilityFitness;
+    private final double likelihoodScale;
+
+    public MiniBatchFitnessFunctionGradient(ProbabilisticModelWithGradient probabilisticModelWithGradient,
+                                            ProbabilityFitness probabilityFitness,
+                                            double likelihoodScale,
+                                            BiConsumer<Map<VariableReference, DoubleTensor>, Map<? extends VariableReference, DoubleTensor>> onGradientCalculation) {
+        super(probabilisticModelWithGradient, onGradientCalculation);
+        this.probabilityFitness = probabilityFitness;
+        this.likelihoodScale = likelihoodScale;
+    }
+
+    @Override
+    Map<? extends VariableReference, DoubleTensor> calculateGradients(ProbabilisticModelWithGradient probabilisticModelWithGradient,
+                                                                      Map<VariableReference, DoubleTensor> values) {
+        if (probabilityFitness == ProbabilityFitness.MLE) {
+            return scaled(probabilisticModelWithGradient.logLikelihoodGradients(values), likelihoodScale);
+        }
+
+        Map<? extends VariableReference, DoubleTensor> logProbGradients = probabilisticModelWithGradient.logProbGradients(values);
+        Map<? extends VariableReference, DoubleTensor> logLikelihoodGradients = probabilisticModelWithGradient.logLikelihoodGradients();
+
+        Map<VariableReference, DoubleTensor> gradients = new HashMap<>();
+        for (Map.Entry<? extends VariableReference, DoubleTensor> gradient : logProbGradients.entrySet()) {
+            DoubleTensor logLikelihoodGradient = logLikelihoodGradients.get(gradient.getKey());
+            gradients.put(gradient.getKey(), logLikelihoodGradient == null ?
+                gradient.getValue() :
+                logLikelihoodGradient.times(likelihoodScale - 1).plusInPlace(gradient.getValue())
+            );
+        }
+        return gradients;
+    }
+
+    private static Map<VariableReference, DoubleTensor> scaled(Map<? extends VariableReference, DoubleTensor> gradients, double scale) {
+        Map<VariableReference, DoubleTensor> scaledGradients = new HashMap<>();
+        for (Map.Entry<? extends VariableReference, DoubleTensor> gradient : gradients.entrySet()) {
+            scaledGradients.put(gradient.getKey(), gradient.getValue().times(scale));
+        }
+        return scaledGradients;
+    }
+}
@@ -0,0 +1,38 @@
+package io.improbable.keanu.algorithms.variational.optimizer.nongradient;
+
+import io.improbable.keanu.algorithms.ProbabilisticModel;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.variational.optimizer.ProbabilityFitness;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Estimates the log likelihood or log prob of a whole dataset from the batch that is currently observed in the model,
+ * by multiplying the log likelihood of the batch by the likelihood scale.
+ */
+public class MiniBatchFitnessFunction extends ProbabilityFitnessFunction {
+
+    private final ProbabilityFitness probabilityFitness;
+    private final double likelihoodScale;
+
+    public MiniBatchFitnessFunction(ProbabilisticModel probabilisticModel,
+                                    ProbabilityFitness probabilityFitness,
+                                    double likelihoodScale,
+                                    BiConsumer<Map<VariableReference, DoubleTensor>, Double> onFitnessCalculation) {
+        super(probabilisticModel, onFitnessCalculation);
+        this.probabilityFitness = probabilityFitness;
+        this.likelihoodScale = likelihoodScale;
+    }
+
+    @Override
+    double calculateFitness(ProbabilisticModel probabilisticModel, Map<VariableReference, DoubleTensor> values) {
+        if (probabilityFitness == ProbabilityFitness.MLE) {
+            return likelihoodScale * probabilisticModel.logLikelihood(values);
+        }
+
+        double logProb = probabilisticModel.logProb(values);
+        return logProb + (likelihoodScale - 1) * probabilisticModel.logLikelihood();
+    }
+}
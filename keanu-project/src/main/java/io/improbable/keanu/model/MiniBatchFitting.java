@@ -0,0 +1,71 @@
+package io.improbable.keanu.model;
+
+import io.improbable.keanu.algorithms.variational.optimizer.gradient.LearningRateSchedule;
+import lombok.Getter;
+
+/**
+ * The settings for fitting a model to mini-batches of data with {@link io.improbable.keanu.algorithms.variational.optimizer.gradient.Adam}.
+ */
+@Getter
+public class MiniBatchFitting {
+
+    private final int epochs;
+    private final double learningRate;
+    private final LearningRateSchedule learningRateSchedule;
+
+    private MiniBatchFitting(int epochs, double learningRate, LearningRateSchedule learningRateSchedule) {
+        this.epochs = epochs;
+        this.learningRate = learningRate;
+        this.learningRateSchedule = learningRateSchedule;
+    }
+
+    public static MiniBatchFittingBuilder builder() {
+        return new MiniBatchFittingBuilder();
+    }
+
+    public static class MiniBatchFittingBuilder {
+        private int epochs = 1;
+        private double learningRate = 0.01;
+        private LearningRateSchedule learningRateSchedule = LearningRateSchedule.constant();
+
+        MiniBatchFittingBuilder() {
+        }
+
+        /**
+         * @param epochs the number of passes over the dataset. Each batch is one step of the optimizer.
+         * @return this builder
+         */
+        public MiniBatchFittingBuilder epochs(int epochs) {
+            if (epochs <= 0) {
+                throw new IllegalArgumentException("The number of epochs must be positive");
+            }
+            this.epochs = epochs;
+            return this;
+        }
+
+        /**
+         * @param learningRate the initial step size of the optimizer
+         * @return this builder
+         */
+        public MiniBatchFittingBuilder learningRate(double learningRate) {
+            if (learningRate <= 0) {
+                throw new IllegalArgumentException("The learning rate must be positive");
+            }
+            this.learningRate = learningRate;
+            return this;
+        }
+
+        public MiniBatchFittingBuilder learningRateSchedule(LearningRateSchedule learningRateSchedule) {
+            this.learningRateSchedule = learningRateSchedule;
+            return this;
+        }
+
+        public MiniBatchFitting build() {
+            return new MiniBatchFitting(epochs, learningRate, learningRateSchedule);
+        }
+
+        public String toString() {
+            return "MiniBatchFitting.MiniBatchFittingBuilder(epochs=" + this.epochs + ", learningRate=" + this.learningRate + ", learningRateSchedule=" + this.learningRateSchedule + ")";
+        }
+    }
+}
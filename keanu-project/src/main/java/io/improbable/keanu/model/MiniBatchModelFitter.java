@@ -0,0 +1,99 @@
+package io.improbable.keanu.model;
+
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Ints;
+import io.improbable.keanu.algorithms.variational.optimizer.MiniBatchSource;
+import io.improbable.keanu.algorithms.variational.optimizer.ProbabilityFitness;
+import io.improbable.keanu.algorithms.variational.optimizer.gradient.Adam;
+import io.improbable.keanu.algorithms.variational.optimizer.gradient.GradientOptimizer;
+import io.improbable.keanu.network.KeanuProbabilisticModelWithGradient;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Fits a model with {@link Adam} to one batch of data at a time, in contrast to the {@link MAPModelFitter} and
+ * {@link MaximumLikelihoodModelFitter}, which observe the whole dataset at once.
+ * <p>
+ * Each step of the optimizer observes the next batch in the model graph and follows the gradient for that batch,
+ * with its log likelihood scaled up to the size of the whole dataset.
+ *
+ * @param <ROW>    the type of a row of data
+ * @param <INPUT>  the type of the input of the model graph
+ * @param <OUTPUT> the type of the output of the model graph
+ */
+public class MiniBatchModelFitter<ROW, INPUT, OUTPUT> implements ModelFitter {
+
+    private final MiniBatches<ROW> batches;
+    private final Function<List<ROW>, INPUT> toInput;
+    private final Function<List<ROW>, OUTPUT> toOutput;
+    private final ProbabilityFitness probabilityFitness;
+    private final MiniBatchFitting settings;
+
+    /**
+     * @param batches            the batches of data to fit the model to
+     * @param toInput            converts a batch to the input of the model graph
+     * @param toOutput           converts a batch to the output of the model graph
+     * @param probabilityFitness whether to find the maximum likelihood or the maximum a posteriori
+     * @param settings           the number of epochs and the learning rate
+     */
+    public MiniBatchModelFitter(MiniBatches<ROW> batches,
+                                Function<List<ROW>, INPUT> toInput,
+                                Function<List<ROW>, OUTPUT> toOutput,
+                                ProbabilityFitness probabilityFitness,
+                                MiniBatchFitting settings) {
+        Preconditions.checkArgument(settings.getEpochs() == 1 || batches.isRepeatable(),
+            "Fitting for more than one epoch requires batches that can be read more than once"
+        );
+        this.batches = batches;
+        this.toInput = toInput;
+        this.toOutput = toOutput;
+        this.probabilityFitness = probabilityFitness;
+        this.settings = settings;
+    }
+
+    /**
+     * Fits the model graph to the batches that have not been used yet, starting with the next one.
+     *
+     * @param graph the model graph to fit, whose observations are replaced by each batch in turn
+     */
+    @Override
+    public void fit(ModelGraph graph) {
+        ModelGraph<INPUT, OUTPUT> modelGraph = (ModelGraph<INPUT, OUTPUT>) graph;
+        observe(modelGraph, batches.peek());
+
+        MiniBatchSource miniBatchSource = new MiniBatchSource() {
+            @Override
+            public void loadNextBatch() {
+                observe(modelGraph, batches.next());
+            }
+
+            @Override
+            public double getLikelihoodScale() {
+                return batches.getLikelihoodScale();
+            }
+        };
+
+        Adam adam = Adam.builder()
+            .alpha(settings.getLearningRate())
+            .learningRateSchedule(settings.getLearningRateSchedule())
+            .maxEvaluations(Ints.saturatedCast(settings.getEpochs() * batches.getBatchesPerEpoch()))
+            .build();
+
+        GradientOptimizer optimizer = GradientOptimizer.builder()
+            .probabilisticModel(new KeanuProbabilisticModelWithGradient(modelGraph.getBayesianNetwork()))
+            .algorithm(adam)
+            .miniBatches(miniBatchSource)
+            .build();
+
+        if (probabilityFitness == ProbabilityFitness.MLE) {
+            optimizer.maxLikelihood();
+        } else {
+            optimizer.maxAPosteriori();
+        }
+    }
+
+    private void observe(ModelGraph<INPUT, OUTPUT> modelGraph, List<ROW> batch) {
+        modelGraph.observeValues(toInput.apply(batch), toOutput.apply(batch));
+    }
+}
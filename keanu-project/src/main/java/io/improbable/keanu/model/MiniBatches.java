@@ -0,0 +1,153 @@
+package io.improbable.keanu.model;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.util.csv.CsvReader;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Splits rows of data that are read one at a time into batches of a fixed size, so that a model can be fitted to a
+ * dataset that does not fit in memory.
+ * <p>
+ * Rows from a stream are read again from the start each time the stream runs out, and a batch may continue from the
+ * end of one pass into the start of the next so that every batch has the same size. Rows from an iterator can only
+ * be read once.
+ *
+ * @param <ROW> the type of a row of data
+ */
+public class MiniBatches<ROW> {
+
+    private final Supplier<? extends Stream<ROW>> source;
+    private final long datasetSize;
+    private final int batchSize;
+
+    private Stream<ROW> currentStream;
+    private Iterator<ROW> rows;
+    private List<ROW> nextBatch;
+
+    private MiniBatches(Supplier<? extends Stream<ROW>> source, Iterator<ROW> rows, long datasetSize, int batchSize) {
+        Preconditions.checkArgument(batchSize > 0, "The batch size must be positive but was %s", batchSize);
+        Preconditions.checkArgument(datasetSize >= batchSize,
+            "The dataset size %s must be at least the batch size %s", datasetSize, batchSize
+        );
+        this.source = source;
+        this.rows = rows;
+        this.datasetSize = datasetSize;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param rows        the rows of the dataset, which are read once
+     * @param datasetSize the number of rows
+     * @param batchSize   the number of rows in each batch
+     * @param <ROW>       the type of a row of data
+     * @return batches of the rows
+     */
+    public static <ROW> MiniBatches<ROW> fromIterator(Iterator<ROW> rows, long datasetSize, int batchSize) {
+        return new MiniBatches<>(null, rows, datasetSize, batchSize);
+    }
+
+    /**
+     * @param rows        opens a new stream of the rows of the dataset, which is called again for each pass over it
+     * @param datasetSize the number of rows
+     * @param batchSize   the number of rows in each batch
+     * @param <ROW>       the type of a row of data
+     * @return batches of the rows
+     */
+    public static <ROW> MiniBatches<ROW> fromStream(Supplier<? extends Stream<ROW>> rows, long datasetSize, int batchSize) {
+        return new MiniBatches<>(rows, null, datasetSize, batchSize);
+    }
+
+    /**
+     * @param reader      a reader of a csv file, which is read again for each pass over it
+     * @param datasetSize the number of lines of data in the file
+     * @param batchSize   the number of lines in each batch
+     * @return batches of the lines of the file, each of which is a list of its fields
+     */
+    public static MiniBatches<List<String>> fromCsv(CsvReader reader, long datasetSize, int batchSize) {
+        return fromStream(reader::streamLines, datasetSize, batchSize);
+    }
+
+    public long getDatasetSize() {
+        return datasetSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return the number of complete batches in one pass over the dataset
+     */
+    public long getBatchesPerEpoch() {
+        return datasetSize / batchSize;
+    }
+
+    /**
+     * @return the number of rows in the dataset divided by the number in a batch
+     */
+    public double getLikelihoodScale() {
+        return (double) datasetSize / batchSize;
+    }
+
+    /**
+     * @return true if the rows can be read more than once
+     */
+    public boolean isRepeatable() {
+        return source != null;
+    }
+
+    /**
+     * @return the next batch, without moving on from it
+     * @throws IllegalStateException if the rows ran out and cannot be read again
+     */
+    public List<ROW> peek() {
+        if (nextBatch == null) {
+            nextBatch = readBatch();
+        }
+        return nextBatch;
+    }
+
+    /**
+     * @return the next batch
+     * @throws IllegalStateException if the rows ran out and cannot be read again
+     */
+    public List<ROW> next() {
+        List<ROW> batch = peek();
+        nextBatch = null;
+        return batch;
+    }
+
+    private List<ROW> readBatch() {
+        List<ROW> batch = new ArrayList<>(batchSize);
+
+        while (batch.size() < batchSize) {
+            if (rows == null || !rows.hasNext()) {
+                startNextPass();
+            }
+            batch.add(rows.next());
+        }
+
+        return batch;
+    }
+
+    private void startNextPass() {
+        if (source == null) {
+            throw new IllegalStateException("The rows ran out and cannot be read again. Read them from a stream to make more than one pass.");
+        }
+
+        if (currentStream != null) {
+            currentStream.close();
+        }
+        currentStream = source.get();
+        rows = currentStream.iterator();
+
+        if (!rows.hasNext()) {
+            throw new IllegalStateException("The stream of rows is empty");
+        }
+    }
+}
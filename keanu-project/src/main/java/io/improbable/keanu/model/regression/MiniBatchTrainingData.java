@@ -0,0 +1,85 @@
+package io.improbable.keanu.model.regression;
+
+import io.improbable.keanu.algorithms.variational.optimizer.ProbabilityFitness;
+import io.improbable.keanu.model.MiniBatchFitting;
+import io.improbable.keanu.model.MiniBatchModelFitter;
+import io.improbable.keanu.model.MiniBatches;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Converts batches of rows into the input and output tensors of a {@link LinearRegressionGraph}, with one row of
+ * each tensor for each row of data.
+ */
+class MiniBatchTrainingData<ROW, OUTPUT> {
+
+    private final MiniBatches<ROW> batches;
+    private final Function<List<ROW>, DoubleTensor> toInput;
+    private final Function<List<ROW>, OUTPUT> toOutput;
+
+    private MiniBatchTrainingData(MiniBatches<ROW> batches,
+                                  Function<List<ROW>, DoubleTensor> toInput,
+                                  Function<List<ROW>, OUTPUT> toOutput) {
+        this.batches = batches;
+        this.toInput = toInput;
+        this.toOutput = toOutput;
+    }
+
+    static <ROW> MiniBatchTrainingData<ROW, DoubleTensor> of(MiniBatches<ROW> batches,
+                                                             Function<ROW, double[]> features,
+                                                             ToDoubleFunction<ROW> output) {
+        return new MiniBatchTrainingData<>(batches, rows -> toFeatures(rows, features), rows -> {
+            double[] outputs = new double[rows.size()];
+            for (int i = 0; i < outputs.length; i++) {
+                outputs[i] = output.applyAsDouble(rows.get(i));
+            }
+            return DoubleTensor.create(outputs, outputs.length, 1);
+        });
+    }
+
+    static <ROW> MiniBatchTrainingData<ROW, BooleanTensor> ofBoolean(MiniBatches<ROW> batches,
+                                                                     Function<ROW, double[]> features,
+                                                                     Predicate<ROW> output) {
+        return new MiniBatchTrainingData<>(batches, rows -> toFeatures(rows, features), rows -> {
+            boolean[] outputs = new boolean[rows.size()];
+            for (int i = 0; i < outputs.length; i++) {
+                outputs[i] = output.test(rows.get(i));
+            }
+            return BooleanTensor.create(outputs, outputs.length, 1);
+        });
+    }
+
+    private static <ROW> DoubleTensor toFeatures(List<ROW> rows, Function<ROW, double[]> features) {
+        int featureCount = features.apply(rows.get(0)).length;
+        double[] flatFeatures = new double[rows.size() * featureCount];
+
+        for (int i = 0; i < rows.size(); i++) {
+            double[] rowFeatures = features.apply(rows.get(i));
+            if (rowFeatures.length != featureCount) {
+                throw new IllegalArgumentException(
+                    "Every row must have " + featureCount + " features but one has " + rowFeatures.length
+                );
+            }
+            System.arraycopy(rowFeatures, 0, flatFeatures, i * featureCount, featureCount);
+        }
+
+        return DoubleTensor.create(flatFeatures, rows.size(), featureCount);
+    }
+
+    DoubleTensor peekInput() {
+        return toInput.apply(batches.peek());
+    }
+
+    OUTPUT peekOutput() {
+        return toOutput.apply(batches.peek());
+    }
+
+    MiniBatchModelFitter<ROW, DoubleTensor, OUTPUT> createFitter(ProbabilityFitness probabilityFitness, MiniBatchFitting settings) {
+        return new MiniBatchModelFitter<>(batches, toInput, toOutput, probabilityFitness, settings);
+    }
+}
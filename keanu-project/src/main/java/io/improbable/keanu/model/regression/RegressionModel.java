@@ -1,5 +1,7 @@
 package io.improbable.keanu.model.regression;
 
+import io.improbable.keanu.model.MiniBatchModelFitter;
+import io.improbable.keanu.model.MiniBatches;
 import io.improbable.keanu.model.ModelFitter;
 import io.improbable.keanu.model.PredictiveModel;
 import io.improbable.keanu.tensor.bool.BooleanTensor;
@@ -11,6 +13,8 @@ import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
 
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
 
 /**
  * A general linear regression model that can be fitted to input and output training data.
@@ -40,6 +44,44 @@ public class RegressionModel<OUTPUT> implements PredictiveModel<DoubleTensor, OU
         return new RegressionModelBuilder<>(inputTrainingData, outputTrainingData, RegressionModel.logisticOutputTransform());
     }
 
+    /**
+     * Fits the model to data that is read one batch at a time, for datasets that are too large to hold in memory.
+     * Each step of the optimizer follows the gradient for one batch, see {@link MiniBatchModelFitter}.
+     *
+     * @param trainingData the rows of the training data
+     * @param features     the features of a row, which must have the same length for every row
+     * @param output       the output of a row
+     * @param <ROW>        the type of a row of data
+     * @return a builder of a regression model with a Gaussian output
+     */
+    public static <ROW> RegressionModelBuilder<DoubleTensor> withMiniBatchTrainingData(MiniBatches<ROW> trainingData,
+                                                                                       Function<ROW, double[]> features,
+                                                                                       ToDoubleFunction<ROW> output) {
+        return new RegressionModelBuilder<>(
+            MiniBatchTrainingData.of(trainingData, features, output),
+            RegressionModel.gaussianOutputTransform(DEFAULT_OBSERVATION_SIGMA)
+        );
+    }
+
+    /**
+     * Fits a logistic regression model to data that is read one batch at a time, for datasets that are too large to
+     * hold in memory. Each step of the optimizer follows the gradient for one batch, see {@link MiniBatchModelFitter}.
+     *
+     * @param trainingData the rows of the training data
+     * @param features     the features of a row, which must have the same length for every row
+     * @param output       the output of a row
+     * @param <ROW>        the type of a row of data
+     * @return a builder of a regression model with a Bernoulli output
+     */
+    public static <ROW> RegressionModelBuilder<BooleanTensor> withMiniBatchLogisticTrainingData(MiniBatches<ROW> trainingData,
+                                                                                                Function<ROW, double[]> features,
+                                                                                                Predicate<ROW> output) {
+        return new RegressionModelBuilder<>(
+            MiniBatchTrainingData.ofBoolean(trainingData, features, output),
+            RegressionModel.logisticOutputTransform()
+        );
+    }
+
     static Function<DoubleVertex, LinearRegressionGraph.OutputVertices<DoubleTensor>> gaussianOutputTransform(double measurementSigma) {
         return yVertex -> new LinearRegressionGraph.OutputVertices<>(yVertex, new GaussianVertex(yVertex, measurementSigma));
     }
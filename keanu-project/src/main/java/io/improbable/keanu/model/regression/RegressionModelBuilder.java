@@ -1,5 +1,6 @@
 package io.improbable.keanu.model.regression;
 
+import io.improbable.keanu.model.MiniBatchFitting;
 import io.improbable.keanu.model.ModelFitter;
 import io.improbable.keanu.model.SamplingModelFitting;
 import io.improbable.keanu.tensor.Tensor;
@@ -29,11 +30,21 @@ public class RegressionModelBuilder<OUTPUT extends Tensor> {
     private DoubleVertex priorOnInterceptScaleParameter;
     private DoubleVertex priorOnInterceptMean;
     private SamplingModelFitting samplingAlgorithm = null;
+    private final MiniBatchTrainingData<?, OUTPUT> miniBatchTrainingData;
+    private MiniBatchFitting miniBatchFitting = null;
 
     public RegressionModelBuilder(DoubleTensor inputTrainingData, OUTPUT outputTrainingData, Function<DoubleVertex, LinearRegressionGraph.OutputVertices<OUTPUT>> outputTransform) {
         this.inputTrainingData = reshapeToMatrix(inputTrainingData);
         this.outputTrainingData = reshapeToMatrix(outputTrainingData);
         this.outputTransform = outputTransform;
+        this.miniBatchTrainingData = null;
+    }
+
+    RegressionModelBuilder(MiniBatchTrainingData<?, OUTPUT> miniBatchTrainingData, Function<DoubleVertex, LinearRegressionGraph.OutputVertices<OUTPUT>> outputTransform) {
+        this.inputTrainingData = miniBatchTrainingData.peekInput();
+        this.outputTrainingData = miniBatchTrainingData.peekOutput();
+        this.outputTransform = outputTransform;
+        this.miniBatchTrainingData = miniBatchTrainingData;
     }
 
     public RegressionModelBuilder withRegularization(RegressionRegularization regularization) {
@@ -123,6 +134,17 @@ public class RegressionModelBuilder<OUTPUT extends Tensor> {
         return this;
     }
 
+    /**
+     * Optional - set the number of epochs and the learning rate used to fit the model to mini-batch training data.
+     *
+     * @param fitting the settings of the optimizer
+     * @return this
+     */
+    public RegressionModelBuilder withMiniBatchFitting(MiniBatchFitting fitting) {
+        this.miniBatchFitting = fitting;
+        return this;
+    }
+
     /**
      * @return A linear regression model from the data passed to the builder
      */
@@ -142,9 +164,17 @@ public class RegressionModelBuilder<OUTPUT extends Tensor> {
             getWeightsVertex()
         );
 
-        ModelFitter fitter = samplingAlgorithm == null ?
-            this.regularization.createFitterForGraph() :
-            samplingAlgorithm.createFitterForGraph();
+        ModelFitter fitter;
+        if (miniBatchTrainingData != null) {
+            fitter = miniBatchTrainingData.createFitter(
+                regularization.getProbabilityFitness(),
+                miniBatchFitting == null ? MiniBatchFitting.builder().build() : miniBatchFitting
+            );
+        } else {
+            fitter = samplingAlgorithm == null ?
+                this.regularization.createFitterForGraph() :
+                samplingAlgorithm.createFitterForGraph();
+        }
 
         regressionGraph.observeValues(inputTrainingData, outputTrainingData);
         return new RegressionModel(regressionGraph, fitter);
@@ -157,6 +187,12 @@ public class RegressionModelBuilder<OUTPUT extends Tensor> {
         if (outputTrainingData == null) {
             throw new IllegalArgumentException("You have not provided output training data");
         }
+        if (miniBatchTrainingData != null && samplingAlgorithm != null) {
+            throw new IllegalArgumentException("You cannot fit mini-batch training data with sampling");
+        }
+        if (miniBatchTrainingData == null && miniBatchFitting != null) {
+            throw new IllegalArgumentException("You have not provided mini-batch training data");
+        }
         if (priorOnWeightsMeans == null || priorOnWeightsScaleParameters == null) {
             withPriorOnWeights(DEFAULT_MU, DEFAULT_SCALE_PARAMETER);
         }
@@ -1,5 +1,6 @@
 package io.improbable.keanu.model.regression;
 
+import io.improbable.keanu.algorithms.variational.optimizer.ProbabilityFitness;
 import io.improbable.keanu.model.MAPModelFitter;
 import io.improbable.keanu.model.MaximumLikelihoodModelFitter;
 import io.improbable.keanu.model.ModelFitter;
@@ -20,6 +21,10 @@ public enum RegressionRegularization {
         public ModelFitter createFitterForGraph() {
             return new MaximumLikelihoodModelFitter();
         }
+
+        public ProbabilityFitness getProbabilityFitness() {
+            return ProbabilityFitness.MLE;
+        }
     },
     LASSO {
         public DoubleVertex getWeightsVertex(long featureCount, DoubleVertex priorOnWeightsMeans, DoubleVertex priorOnWeightsScaleParameter) {
@@ -33,6 +38,10 @@ public enum RegressionRegularization {
         public ModelFitter createFitterForGraph() {
             return new MAPModelFitter();
         }
+
+        public ProbabilityFitness getProbabilityFitness() {
+            return ProbabilityFitness.MAP;
+        }
     },
     RIDGE {
         public DoubleVertex getWeightsVertex(long featureCount, DoubleVertex priorOnWeightsMeans, DoubleVertex priorOnWeightsScaleParameter) {
@@ -46,6 +55,10 @@ public enum RegressionRegularization {
         public ModelFitter createFitterForGraph() {
             return new MAPModelFitter();
         }
+
+        public ProbabilityFitness getProbabilityFitness() {
+            return ProbabilityFitness.MAP;
+        }
     };
 
     public abstract DoubleVertex getWeightsVertex(long featureCount,  DoubleVertex priorOnWeightsMeans, DoubleVertex priorOnWeightsScaleParameter);
@@ -53,4 +66,9 @@ public enum RegressionRegularization {
     public abstract DoubleVertex getInterceptVertex(DoubleVertex priorOnInterceptMean, DoubleVertex priorOnInterceptScaleParameter);
 
     public abstract ModelFitter createFitterForGraph();
+
+    /**
+     * @return whether fitting the model maximises the likelihood or the posterior, e.g. when fitting it to mini-batches
+     */
+    public abstract ProbabilityFitness getProbabilityFitness();
 }
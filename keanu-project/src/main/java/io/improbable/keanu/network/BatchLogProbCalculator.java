@@ -0,0 +1,310 @@
+package io.improbable.keanu.network;
+
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.graphtraversal.CascadePlan;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.Elementwise;
+import io.improbable.keanu.vertices.dbl.probabilistic.ElementwiseLogProb;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Calculates the log prob of a model at many points at once.
+ * <p>
+ * When every vertex whose value depends on the points is either {@link Elementwise} or {@link ElementwiseLogProb},
+ * the points are stacked along a new leading dimension and the graph is calculated once on the stacked tensors, so
+ * that the work for all points is done by the tensor operations. Otherwise, or if the stacked tensors turn out not to
+ * broadcast as expected, the points are evaluated one after the other. In both cases only the lambda sections of the
+ * changed vertices are recalculated per point, and the values of the model are restored afterwards.
+ */
+@Slf4j
+class BatchLogProbCalculator {
+
+    private final Map<VariableReference, Vertex> vertexLookup;
+    private final List<Vertex> latentOrObservedVertices;
+
+    BatchLogProbCalculator(Map<VariableReference, Vertex> vertexLookup, List<Vertex> latentOrObservedVertices) {
+        this.vertexLookup = vertexLookup;
+        this.latentOrObservedVertices = latentOrObservedVertices;
+    }
+
+    /**
+     * @param points      the values of some latent variables at each point
+     * @param cascadePlan a cascade plan of the model
+     * @return the log prob of the model at each point
+     */
+    double[] logProbs(List<? extends Map<VariableReference, ?>> points, CascadePlan cascadePlan) {
+        if (points.isEmpty()) {
+            return new double[0];
+        }
+
+        List<Vertex> sources = getSources(points);
+        Set<Vertex> calculated = new LinkedHashSet<>();
+        Set<Vertex> affected = new LinkedHashSet<>();
+        findDownstream(sources, calculated, affected);
+        affected.retainAll(new HashSet<>(latentOrObservedVertices));
+
+        double unaffectedLogProb = 0.0;
+        for (Vertex<?> vertex : latentOrObservedVertices) {
+            if (!affected.contains(vertex)) {
+                unaffectedLogProb += ProbabilityCalculator.calculateLogProbFor(vertex);
+            }
+        }
+
+        Set<Vertex> changed = new HashSet<>(sources);
+        changed.addAll(calculated);
+        NetworkSnapshot snapshot = NetworkSnapshot.create(changed);
+
+        try {
+            if (canBeStacked(points, sources, calculated, affected)) {
+                double[] stacked = tryStackedLogProbs(points, sources, calculated, affected, cascadePlan, unaffectedLogProb);
+                if (stacked != null) {
+                    return stacked;
+                }
+                snapshot.apply();
+            }
+
+            return sequentialLogProbs(points, sources, affected, cascadePlan, unaffectedLogProb);
+        } finally {
+            snapshot.apply();
+        }
+    }
+
+    private List<Vertex> getSources(List<? extends Map<VariableReference, ?>> points) {
+        Set<VariableReference> references = new LinkedHashSet<>();
+        for (Map<VariableReference, ?> point : points) {
+            references.addAll(point.keySet());
+        }
+
+        List<Vertex> sources = new ArrayList<>(references.size());
+        for (VariableReference reference : references) {
+            Vertex vertex = vertexLookup.get(reference);
+
+            if (vertex == null) {
+                throw new IllegalArgumentException("Cannot calculate batch log prob for input: " + reference);
+            }
+
+            sources.add(vertex);
+        }
+        return sources;
+    }
+
+    /**
+     * Finds the non-probabilistic vertices that are recalculated when the sources change and the vertices, including
+     * the sources, whose log prob changes. Those are the probabilistic vertices and the observed non-probabilistic
+     * vertices, e.g. constraints, whose log prob is -Infinity when they contradict their observation.
+     */
+    private static void findDownstream(List<Vertex> sources, Set<Vertex> calculated, Set<Vertex> affected) {
+        Deque<Vertex<?>> stack = new ArrayDeque<>(sources);
+        affected.addAll(sources);
+
+        while (!stack.isEmpty()) {
+            Vertex<?> visiting = stack.pop();
+
+            for (Vertex<?> child : visiting.getChildren()) {
+                if (child.isProbabilistic()) {
+                    affected.add(child);
+                } else if (calculated.add(child)) {
+                    stack.push(child);
+                }
+            }
+        }
+
+        for (Vertex<?> vertex : calculated) {
+            if (vertex.isObserved()) {
+                affected.add(vertex);
+            }
+        }
+    }
+
+    private static boolean canBeStacked(List<? extends Map<VariableReference, ?>> points,
+                                        List<Vertex> sources,
+                                        Set<Vertex> calculated,
+                                        Set<Vertex> affected) {
+        for (Vertex vertex : affected) {
+            if (!(vertex instanceof ElementwiseLogProb) || !(vertex instanceof DoubleVertex)) {
+                return false;
+            }
+        }
+
+        for (Vertex vertex : calculated) {
+            if (!(vertex instanceof Elementwise) || !(vertex instanceof DoubleVertex) || vertex.isObserved()) {
+                return false;
+            }
+        }
+
+        for (Vertex source : sources) {
+            if (source.isObserved()) {
+                return false;
+            }
+            for (Map<VariableReference, ?> point : points) {
+                Object value = point.get(source.getId());
+                if (value != null && !(value instanceof DoubleTensor && Arrays.equals(((DoubleTensor) value).getShape(), source.getShape()))) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the log prob at each point, or null if the graph did not broadcast over the stacked dimension
+     */
+    private static double[] tryStackedLogProbs(List<? extends Map<VariableReference, ?>> points,
+                                               List<Vertex> sources,
+                                               Set<Vertex> calculated,
+                                               Set<Vertex> affected,
+                                               CascadePlan cascadePlan,
+                                               double unaffectedLogProb) {
+        final int batchSize = points.size();
+        final int rank = maxRankAround(sources, calculated, affected);
+
+        Map<Vertex, long[]> expectedShapes = new HashMap<>();
+        for (Vertex vertex : calculated) {
+            expectedShapes.put(vertex, stackedShape(batchSize, rank, vertex.getShape()));
+        }
+        for (Vertex vertex : affected) {
+            expectedShapes.put(vertex, stackedShape(batchSize, rank, vertex.getShape()));
+        }
+
+        try {
+            for (Vertex source : sources) {
+                source.setValue(stack(points, source, batchSize, rank));
+            }
+            cascadePlan.cascadeUpdate(sources);
+
+            for (Vertex vertex : calculated) {
+                if (!Arrays.equals(expectedShapes.get(vertex), vertex.getShape())) {
+                    log.debug("Vertex {} did not broadcast over the batch. Falling back to sequential log prob.", vertex.getId());
+                    return null;
+                }
+            }
+
+            double[] logProbs = new double[batchSize];
+            Arrays.fill(logProbs, unaffectedLogProb);
+
+            for (Vertex vertex : affected) {
+                DoubleTensor elementwise = ((ElementwiseLogProb) vertex).elementwiseLogProb((DoubleTensor) vertex.getValue());
+
+                if (!Arrays.equals(expectedShapes.get(vertex), elementwise.getShape())) {
+                    log.debug("Log prob of {} did not broadcast over the batch. Falling back to sequential log prob.", vertex.getId());
+                    return null;
+                }
+
+                addPerPoint(elementwise.asFlatDoubleArray(), logProbs);
+            }
+
+            return logProbs;
+
+        } catch (RuntimeException e) {
+            log.debug("Could not calculate log prob over a stacked batch. Falling back to sequential log prob.", e);
+            return null;
+        }
+    }
+
+    private static double[] sequentialLogProbs(List<? extends Map<VariableReference, ?>> points,
+                                               List<Vertex> sources,
+                                               Set<Vertex> affected,
+                                               CascadePlan cascadePlan,
+                                               double unaffectedLogProb) {
+        Object[] originalValues = new Object[sources.size()];
+        for (int j = 0; j < sources.size(); j++) {
+            originalValues[j] = sources.get(j).getValue();
+        }
+
+        double[] logProbs = new double[points.size()];
+
+        for (int i = 0; i < points.size(); i++) {
+            Map<VariableReference, ?> point = points.get(i);
+
+            for (int j = 0; j < sources.size(); j++) {
+                Vertex source = sources.get(j);
+                Object value = point.get(source.getId());
+                source.setValue(value == null ? originalValues[j] : value);
+            }
+            cascadePlan.cascadeUpdate(sources);
+
+            double logProb = unaffectedLogProb;
+            for (Vertex<?> vertex : affected) {
+                logProb += ProbabilityCalculator.calculateLogProbFor(vertex);
+            }
+            logProbs[i] = logProb;
+        }
+
+        return logProbs;
+    }
+
+    private static int maxRankAround(List<Vertex> sources, Set<Vertex> calculated, Set<Vertex> affected) {
+        int rank = 0;
+        for (Vertex<?> vertex : sources) {
+            rank = Math.max(rank, vertex.getRank());
+        }
+        for (Vertex<?> vertex : calculated) {
+            rank = Math.max(rank, maxRankOfVertexAndParents(vertex));
+        }
+        for (Vertex<?> vertex : affected) {
+            rank = Math.max(rank, maxRankOfVertexAndParents(vertex));
+        }
+        return rank;
+    }
+
+    private static int maxRankOfVertexAndParents(Vertex<?> vertex) {
+        int rank = vertex.getRank();
+        for (Vertex<?> parent : vertex.getParents()) {
+            rank = Math.max(rank, parent.getRank());
+        }
+        return rank;
+    }
+
+    /**
+     * @return the shape with the batch as a new leading dimension, padded with length one dimensions to the given rank
+     * so that it broadcasts against any unbatched tensor in the graph
+     */
+    private static long[] stackedShape(int batchSize, int rank, long[] shape) {
+        long[] stackedShape = new long[rank + 1];
+        Arrays.fill(stackedShape, 1L);
+        stackedShape[0] = batchSize;
+        System.arraycopy(shape, 0, stackedShape, rank + 1 - shape.length, shape.length);
+        return stackedShape;
+    }
+
+    private static DoubleTensor stack(List<? extends Map<VariableReference, ?>> points, Vertex<?> source, int batchSize, int rank) {
+        DoubleTensor current = (DoubleTensor) source.getValue();
+        long[] shape = current.getShape();
+        int length = Math.toIntExact(current.getLength());
+
+        double[] stacked = new double[batchSize * length];
+        for (int i = 0; i < batchSize; i++) {
+            Object value = points.get(i).get(source.getId());
+            DoubleTensor tensor = value == null ? current : (DoubleTensor) value;
+            System.arraycopy(tensor.asFlatDoubleArray(), 0, stacked, i * length, length);
+        }
+
+        return DoubleTensor.create(stacked, stackedShape(batchSize, rank, shape));
+    }
+
+    private static void addPerPoint(double[] elementwise, double[] logProbs) {
+        int perPoint = elementwise.length / logProbs.length;
+        for (int i = 0; i < logProbs.length; i++) {
+            double sum = 0.0;
+            for (int j = i * perPoint; j < (i + 1) * perPoint; j++) {
+                sum += elementwise[j];
+            }
+            logProbs[i] += sum;
+        }
+    }
+}
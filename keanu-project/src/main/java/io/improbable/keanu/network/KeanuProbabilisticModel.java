@@ -1,10 +1,10 @@
 package io.improbable.keanu.network;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSet;
 import io.improbable.keanu.algorithms.ProbabilisticModel;
 import io.improbable.keanu.algorithms.Variable;
 import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.graphtraversal.CascadePlan;
 import io.improbable.keanu.algorithms.graphtraversal.VertexValuePropagation;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.ProbabilityCalculator;
@@ -14,7 +14,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.toMap;
@@ -31,7 +30,9 @@ public class KeanuProbabilisticModel implements ProbabilisticModel {
     private final List<Vertex> observedVertices;
 
     private final List<Vertex> latentOrObservedVertices;
-    private final LambdaSectionSnapshot lambdaSectionSnapshot;
+    private CascadePlan cascadePlan;
+    private LambdaSectionIndex lambdaSectionIndex;
+    private final BatchLogProbCalculator batchLogProbCalculator;
 
     public KeanuProbabilisticModel(Collection<? extends Vertex> variables) {
         this(new BayesianNetwork(variables));
@@ -44,7 +45,7 @@ public class KeanuProbabilisticModel implements ProbabilisticModel {
         this.latentVertices = ImmutableList.copyOf(bayesianNetwork.getLatentVertices());
         this.observedVertices = ImmutableList.copyOf(bayesianNetwork.getObservedVertices());
         this.latentOrObservedVertices = ImmutableList.copyOf(bayesianNetwork.getLatentOrObservedVertices());
-        this.lambdaSectionSnapshot = new LambdaSectionSnapshot();
+        this.batchLogProbCalculator = new BatchLogProbCalculator(vertexLookup, latentOrObservedVertices);
 
         resetModelToObservedState();
         checkBayesNetInHealthyState();
@@ -58,20 +59,35 @@ public class KeanuProbabilisticModel implements ProbabilisticModel {
 
     @Override
     public double logProbAfter(Map<VariableReference, Object> newValues, double logProbBefore) {
-        ImmutableSet.Builder<Vertex> affectedVerticesBuilder = ImmutableSet.builder();
+        List<Vertex> affectedVertices = new ArrayList<>(newValues.size());
         for (VariableReference reference : newValues.keySet()) {
             Vertex vertex = vertexLookup.get(reference);
-            affectedVerticesBuilder.add(vertex);
+
+            if (vertex == null) {
+                throw new IllegalArgumentException("Cannot calculate log prob after update for input: " + reference);
+            }
+
+            affectedVertices.add(vertex);
         }
-        Set<Vertex> affectedVertices = affectedVerticesBuilder.build();
 
-        double lambdaSectionLogProbBefore = lambdaSectionSnapshot.logProb(affectedVertices);
+        LambdaSectionIndex index = getLambdaSectionIndex(affectedVertices);
+        double lambdaSectionLogProbBefore = index.logProb(affectedVertices);
         cascadeValues(newValues);
-        double lambdaSectionLogProbAfter = lambdaSectionSnapshot.logProb(affectedVertices);
+        double lambdaSectionLogProbAfter = index.logProb(affectedVertices);
         double deltaLogProb = lambdaSectionLogProbAfter - lambdaSectionLogProbBefore;
         return logProbBefore + deltaLogProb;
     }
 
+    /**
+     * The points are evaluated together on tensors stacked along a new leading dimension when every vertex downstream
+     * of the changed variables supports it, and one after another otherwise. The values of the model are restored
+     * after the call.
+     */
+    @Override
+    public double[] batchLogProb(List<? extends Map<VariableReference, ?>> points) {
+        return batchLogProbCalculator.logProbs(points, getCascadePlan());
+    }
+
     @Override
     public double logLikelihood(Map<VariableReference, ?> inputs) {
         cascadeValues(inputs);
@@ -99,6 +115,20 @@ public class KeanuProbabilisticModel implements ProbabilisticModel {
             .collect(Collectors.toList());
     }
 
+    /**
+     * @param inputs references to latent or observed variables of this model
+     * @return the number of vertices updated by cascading new values of the inputs. A vertex downstream of more than
+     * one input is counted once for each of them.
+     */
+    public int getCascadeSize(Collection<? extends VariableReference> inputs) {
+        CascadePlan plan = getCascadePlan();
+        int cascadeSize = 0;
+        for (VariableReference input : inputs) {
+            cascadeSize += plan.getCascadeSize(input);
+        }
+        return cascadeSize;
+    }
+
     private void checkBayesNetInHealthyState() {
         if (latentOrObservedVertices.isEmpty()) {
             throw new IllegalArgumentException("Cannot create model without latent or observed variables");
@@ -123,7 +153,51 @@ public class KeanuProbabilisticModel implements ProbabilisticModel {
             updatedVertices.add(updatingVertex);
         }
 
-        VertexValuePropagation.cascadeUpdate(updatedVertices);
+        if (!updatedVertices.isEmpty()) {
+            getCascadePlan(updatedVertices).cascadeUpdate(updatedVertices);
+        }
+    }
+
+    /**
+     * The cascade plan covers every latent or observed vertex of the model. It is compiled on first use and
+     * recompiled if the graph topology has changed since.
+     *
+     * @return an up to date cascade plan for this model
+     */
+    protected CascadePlan getCascadePlan() {
+        if (cascadePlan == null || cascadePlan.isStale()) {
+            cascadePlan = CascadePlan.compile(latentOrObservedVertices);
+        }
+        return cascadePlan;
+    }
+
+    /**
+     * Like {@link #getCascadePlan()} but only checks whether the plans of the given sources are out of date, which
+     * is cheaper for a small cascade in a large model.
+     *
+     * @param sources latent or observed vertices of this model to cascade from
+     * @return a cascade plan for this model that is up to date for the sources
+     */
+    protected CascadePlan getCascadePlan(List<? extends Vertex> sources) {
+        if (cascadePlan == null || cascadePlan.isStale(sources)) {
+            cascadePlan = CascadePlan.compile(latentOrObservedVertices);
+        }
+        return cascadePlan;
+    }
+
+    /**
+     * The lambda section index covers every latent or observed vertex of the model and caches their log probs
+     * between calls to {@link #logProbAfter(Map, double)}. It is built on first use and rebuilt if the graph
+     * topology around the given sources has changed since.
+     *
+     * @param sources latent or observed vertices of this model whose lambda sections are needed
+     * @return a lambda section index for this model that is up to date for the sources
+     */
+    protected LambdaSectionIndex getLambdaSectionIndex(List<? extends Vertex> sources) {
+        if (lambdaSectionIndex == null || lambdaSectionIndex.isStale(sources)) {
+            lambdaSectionIndex = LambdaSectionIndex.build(latentOrObservedVertices);
+        }
+        return lambdaSectionIndex;
     }
 
 }
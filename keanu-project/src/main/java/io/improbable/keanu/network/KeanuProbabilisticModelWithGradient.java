@@ -6,6 +6,7 @@ import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.LogProbGradientCalculator;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -48,6 +49,19 @@ public class KeanuProbabilisticModelWithGradient extends KeanuProbabilisticModel
         return logProbGradients(null);
     }
 
+    /**
+     * The gradients are calculated one point after another, and the values of the model are restored after the call.
+     */
+    @Override
+    public List<Map<? extends VariableReference, DoubleTensor>> batchLogProbGradients(List<? extends Map<VariableReference, ?>> points) {
+        NetworkSnapshot snapshot = NetworkSnapshot.create(new HashSet<>(getCascadePlan().getVertices()));
+        try {
+            return ProbabilisticModelWithGradient.super.batchLogProbGradients(points);
+        } finally {
+            snapshot.apply();
+        }
+    }
+
     @Override
     public Map<? extends VariableReference, DoubleTensor> logLikelihoodGradients(Map<VariableReference, ?> inputs) {
         return gradients(inputs, logLikelihoodGradientCalculator);
@@ -0,0 +1,253 @@
+package io.improbable.keanu.network;
+
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexState;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A precomputed index of the downstream {@link LambdaSection}s of a fixed set of source vertices, used to calculate
+ * the change in log prob caused by changing the value of some of those sources.
+ * <p>
+ * The probabilistic or observed members of every lambda section are stored once in a flat array, and each source
+ * keeps the indices of the members of its lambda section. The log prob of every member is cached together with the
+ * {@link VertexState}s of the member and its parents at the time it was calculated. As states are immutable and
+ * replaced on every change, a cached value is reused for as long as those states are identical. Two values are kept
+ * per member so that rolling back a rejected proposal, which restores the previous states, is also a cache hit.
+ * <p>
+ * The index also keeps the {@link Vertex#getTopologyVersion() topology version} of every vertex that the lambda
+ * section of each source was found from, so {@link #isStale(List)} only checks the vertices of the sections in use.
+ */
+public class LambdaSectionIndex {
+
+    private static final int CACHE_SLOTS = 2;
+
+    private final Vertex[] members;
+    private final Vertex[][] dependencies;
+    private final Map<VariableReference, int[]> sectionBySource;
+    private final Vertex[] traversedVertices;
+    private final Map<VariableReference, int[]> traversedBySource;
+    private final long[] builtTopologyVersions;
+
+    private final double[] cachedLogProb;
+    private final VertexState[][] cachedDependencyStates;
+    private final int[] lastWrittenSlot;
+
+    private final int[] visitedStamp;
+    private int currentStamp;
+
+    private LambdaSectionIndex(Vertex[] members,
+                               Map<VariableReference, int[]> sectionBySource,
+                               Vertex[] traversedVertices,
+                               Map<VariableReference, int[]> traversedBySource) {
+        this.members = members;
+        this.sectionBySource = sectionBySource;
+        this.traversedVertices = traversedVertices;
+        this.traversedBySource = traversedBySource;
+        this.builtTopologyVersions = new long[traversedVertices.length];
+        for (int i = 0; i < traversedVertices.length; i++) {
+            builtTopologyVersions[i] = traversedVertices[i].getTopologyVersion();
+        }
+
+        this.dependencies = new Vertex[members.length][];
+        for (int i = 0; i < members.length; i++) {
+            Set<Vertex> parents = members[i].getParents();
+            Vertex[] memberDependencies = new Vertex[parents.size() + 1];
+            memberDependencies[0] = members[i];
+            int j = 1;
+            for (Vertex parent : parents) {
+                memberDependencies[j++] = parent;
+            }
+            dependencies[i] = memberDependencies;
+        }
+
+        this.cachedLogProb = new double[members.length * CACHE_SLOTS];
+        this.cachedDependencyStates = new VertexState[members.length * CACHE_SLOTS][];
+        this.lastWrittenSlot = new int[members.length];
+        this.visitedStamp = new int[members.length];
+        this.currentStamp = 0;
+    }
+
+    /**
+     * @param sources the vertices whose downstream lambda sections will be indexed
+     * @return an index of the lambda sections of every source
+     */
+    public static LambdaSectionIndex build(Collection<? extends Vertex> sources) {
+        Map<Vertex, Integer> memberIndex = new LinkedHashMap<>();
+        Map<VariableReference, int[]> sectionBySource = new HashMap<>();
+        Map<Vertex, Integer> traversedIndex = new LinkedHashMap<>();
+        Map<VariableReference, int[]> traversedBySource = new HashMap<>();
+
+        for (Vertex<?> source : sources) {
+            LambdaSection lambdaSection = LambdaSection.getDownstreamLambdaSection(source, true);
+            sectionBySource.put(source.getId(), indicesOf(lambdaSection.getLatentAndObservedVertices(), memberIndex));
+            traversedBySource.put(source.getId(), indicesOf(lambdaSection.getAllVertices(), traversedIndex));
+        }
+
+        return new LambdaSectionIndex(
+            memberIndex.keySet().toArray(new Vertex[0]),
+            sectionBySource,
+            traversedIndex.keySet().toArray(new Vertex[0]),
+            traversedBySource
+        );
+    }
+
+    /**
+     * @param vertices the vertices to find the indices of
+     * @param indexOf  the index of each vertex found so far, which new vertices are added to
+     * @return the index of each of the vertices
+     */
+    private static int[] indicesOf(Set<Vertex> vertices, Map<Vertex, Integer> indexOf) {
+        int[] indices = new int[vertices.size()];
+        int i = 0;
+        for (Vertex vertex : vertices) {
+            Integer index = indexOf.get(vertex);
+            if (index == null) {
+                index = indexOf.size();
+                indexOf.put(vertex, index);
+            }
+            indices[i++] = index;
+        }
+        return indices;
+    }
+
+    /**
+     * @return true if a vertex that the lambda sections were found from has gained or lost a parent or child since
+     * this index was built
+     */
+    public boolean isStale() {
+        for (int i = 0; i < traversedVertices.length; i++) {
+            if (traversedVertices[i].getTopologyVersion() != builtTopologyVersions[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Like {@link #isStale()} but only checks the vertices that the lambda sections of the given sources were found
+     * from, so it takes no longer than calculating their log prob.
+     *
+     * @param sources vertices that were indexed as sources
+     * @return true if the lambda section of any of the sources is out of date
+     */
+    public boolean isStale(List<? extends Vertex> sources) {
+        for (Vertex<?> source : sources) {
+            int[] traversed = traversedBySource.get(source.getId());
+            if (traversed == null) {
+                throw new IllegalArgumentException("No lambda section was indexed for " + source.getId());
+            }
+            for (int index : traversed) {
+                if (traversedVertices[index].getTopologyVersion() != builtTopologyVersions[index]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param source a reference to a vertex
+     * @return true if the lambda section of the vertex is indexed
+     */
+    public boolean contains(VariableReference source) {
+        return sectionBySource.containsKey(source);
+    }
+
+    /**
+     * @param sources vertices that were indexed as sources
+     * @return the sum of the log probs of the union of the sources' downstream lambda sections
+     */
+    public double logProb(List<? extends Vertex> sources) {
+        if (sources.size() == 1) {
+            return logProbOfSection(getSection(sources.get(0).getId()));
+        }
+
+        int stamp = nextStamp();
+        double sum = 0.0;
+
+        for (Vertex<?> source : sources) {
+            for (int index : getSection(source.getId())) {
+                if (visitedStamp[index] != stamp) {
+                    visitedStamp[index] = stamp;
+                    sum += memberLogProb(index);
+                }
+            }
+        }
+
+        return sum;
+    }
+
+    private double logProbOfSection(int[] section) {
+        double sum = 0.0;
+        for (int index : section) {
+            sum += memberLogProb(index);
+        }
+        return sum;
+    }
+
+    private double memberLogProb(int memberIndex) {
+        Vertex[] memberDependencies = dependencies[memberIndex];
+        int firstSlot = memberIndex * CACHE_SLOTS;
+
+        for (int slot = firstSlot; slot < firstSlot + CACHE_SLOTS; slot++) {
+            if (isCachedStateCurrent(cachedDependencyStates[slot], memberDependencies)) {
+                return cachedLogProb[slot];
+            }
+        }
+
+        double logProb = ProbabilityCalculator.calculateLogProbFor(members[memberIndex]);
+
+        int slotToWrite = firstSlot + (lastWrittenSlot[memberIndex] + 1) % CACHE_SLOTS;
+        lastWrittenSlot[memberIndex] = slotToWrite - firstSlot;
+
+        VertexState[] states = cachedDependencyStates[slotToWrite];
+        if (states == null) {
+            states = new VertexState[memberDependencies.length];
+            cachedDependencyStates[slotToWrite] = states;
+        }
+        for (int i = 0; i < memberDependencies.length; i++) {
+            states[i] = memberDependencies[i].getState();
+        }
+        cachedLogProb[slotToWrite] = logProb;
+
+        return logProb;
+    }
+
+    private static boolean isCachedStateCurrent(VertexState[] cachedStates, Vertex[] memberDependencies) {
+        if (cachedStates == null) {
+            return false;
+        }
+        for (int i = 0; i < memberDependencies.length; i++) {
+            if (cachedStates[i] != memberDependencies[i].getState()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int[] getSection(VariableReference source) {
+        int[] section = sectionBySource.get(source);
+        if (section == null) {
+            throw new IllegalArgumentException("No lambda section was indexed for " + source);
+        }
+        return section;
+    }
+
+    private int nextStamp() {
+        currentStamp++;
+        if (currentStamp == 0) {
+            Arrays.fill(visitedStamp, 0);
+            currentStamp = 1;
+        }
+        return currentStamp;
+    }
+}
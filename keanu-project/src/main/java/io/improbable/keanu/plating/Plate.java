@@ -82,6 +82,10 @@ public class Plate implements VertexDictionary {
         return plate;
     }
 
+    Collection<Vertex<?>> getVertices() {
+        return contents.values();
+    }
+
     public Collection<Vertex<?>> getProxyVertices() {
         return contents.values().stream()
             .filter(v -> v instanceof ProxyVertex)
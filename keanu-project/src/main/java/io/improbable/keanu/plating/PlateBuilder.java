@@ -3,11 +3,13 @@ package io.improbable.keanu.plating;
 import com.google.common.collect.ImmutableMap;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.VertexDictionary;
+import io.improbable.keanu.vertices.VertexCreationRecorder;
 import io.improbable.keanu.vertices.VertexLabel;
 
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -40,6 +42,16 @@ public class PlateBuilder<T> {
          * @throws PlateConstructionException which can occur e.g. if the labels don't marry up in the transition mapping
          */
         Plates build();
+
+        /**
+         * Build plates from current factory settings and compile them into one vertex per role, with a leading
+         * dimension that indexes the plates
+         *
+         * @return The compiled plates
+         * @throws PlateConstructionException if the plates have transition proxies, contain a vertex that cannot be
+         *                                    batched or are not all structurally identical
+         */
+        VectorisedPlates buildVectorised();
     }
 
     public static VertexLabel proxyFor(VertexLabel label) {
@@ -181,6 +193,26 @@ public class PlateBuilder<T> {
             }
             return plates;
         }
+
+        public VectorisedPlates buildVectorised() throws PlateConstructionException {
+            PlateVectoriser vectoriser = new PlateVectoriser();
+            Iterator<T> iter = data.getIterator();
+            while (iter.hasNext()) {
+                T row = iter.next();
+                addToVectoriser(vectoriser, plate -> factory.accept(plate, row));
+            }
+            return vectoriser.compile();
+        }
+    }
+
+    private static void addToVectoriser(PlateVectoriser vectoriser, Consumer<Plate> factory) {
+        Plate plate = new Plate();
+        List<Vertex<?>> createdVertices;
+        try (VertexCreationRecorder recorder = VertexCreationRecorder.open()) {
+            factory.accept(plate);
+            createdVertices = recorder.getCreatedVertices();
+        }
+        vectoriser.add(plate, createdVertices);
     }
 
     private void connectTransitionVariables(VertexDictionary candidateVertices, Plate plate, Map<VertexLabel, VertexLabel> transitionMapping) throws PlateConstructionException {
@@ -241,5 +273,13 @@ public class PlateBuilder<T> {
             }
             return plates;
         }
+
+        public VectorisedPlates buildVectorised() throws PlateConstructionException {
+            PlateVectoriser vectoriser = new PlateVectoriser();
+            for (int i = 0; i < count.getCount(); i++) {
+                addToVectoriser(vectoriser, factory);
+            }
+            return vectoriser.compile();
+        }
     }
 }
@@ -0,0 +1,536 @@
+package io.improbable.keanu.plating;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Longs;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import io.improbable.keanu.vertices.ConstantVertex;
+import io.improbable.keanu.vertices.LoadShape;
+import io.improbable.keanu.vertices.LoadVertexParam;
+import io.improbable.keanu.vertices.Probabilistic;
+import io.improbable.keanu.vertices.SaveVertexParam;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexCreationRecorder;
+import io.improbable.keanu.vertices.VertexLabel;
+import io.improbable.keanu.vertices.bool.BooleanVertex;
+import io.improbable.keanu.vertices.bool.nonprobabilistic.ConstantBooleanVertex;
+import io.improbable.keanu.vertices.bool.probabilistic.BernoulliVertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.Elementwise;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.ConstantDoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.ElementwiseLogProb;
+import io.improbable.keanu.vertices.intgr.IntegerVertex;
+import io.improbable.keanu.vertices.intgr.nonprobabilistic.ConstantIntegerVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.BinomialVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.GeometricVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.PoissonVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.UniformIntVertex;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Collapses structurally identical plates into one vertex per role with a leading batch dimension.
+ * <p>
+ * The vertices created by the factory for a plate are recorded with a {@link VertexCreationRecorder}. In the order
+ * they were created, the i-th vertex of every plate has the same role, e.g. "the observed y". The factory is the only
+ * way to get the values of a plate's constants and observations, so it is still run for every plate, but each plate
+ * after the first is only compared with the first one, has those values read and is then detached from the vertices
+ * outside it, so that none of its vertices are kept while the remaining plates are built.
+ * <p>
+ * Only vertices that give the same result when batched can be collapsed: constants, {@link Elementwise} operations
+ * and probabilistic vertices whose log prob is a sum over their elements.
+ */
+class PlateVectoriser {
+
+    private static final Set<Class<?>> ELEMENTWISE_DISCRETE_VERTICES = ImmutableSet.of(
+        BernoulliVertex.class,
+        BinomialVertex.class,
+        PoissonVertex.class,
+        GeometricVertex.class,
+        UniformIntVertex.class
+    );
+
+    private static final Map<Class<?>, List<Method>> SAVE_PARAM_METHODS = new ConcurrentHashMap<>();
+
+    private final List<Role> roles = new ArrayList<>();
+    private final List<List<Tensor<?>>> valuesByRole = new ArrayList<>();
+    private int plateCount = 0;
+
+    /**
+     * @param plate           a plate whose factory has just been run
+     * @param createdVertices the vertices created while the factory ran, in the order they were created
+     * @throws PlateConstructionException if the plate has proxy vertices, contains a vertex that cannot be batched or
+     *                                    does not have the same structure as the first plate
+     */
+    void add(Plate plate, List<Vertex<?>> createdVertices) {
+        if (!plate.getProxyVertices().isEmpty()) {
+            throw new PlateConstructionException("Plates with transition proxies cannot be vectorised");
+        }
+
+        List<Vertex<?>> localVertices = getLocalVertices(plate, createdVertices);
+        Map<Vertex<?>, Integer> roleIndices = new HashMap<>();
+        for (int i = 0; i < localVertices.size(); i++) {
+            roleIndices.put(localVertices.get(i), i);
+        }
+
+        Map<Vertex<?>, VertexLabel> plateLabels = new HashMap<>();
+        for (Vertex<?> vertex : plate.getVertices()) {
+            plateLabels.put(vertex, vertex.getLabel().withoutOuterNamespace());
+        }
+
+        List<Role> plateRoles = new ArrayList<>(localVertices.size());
+        for (Vertex<?> vertex : localVertices) {
+            plateRoles.add(new Role(vertex, plateLabels.get(vertex), roleIndices));
+        }
+
+        if (plateCount == 0) {
+            roles.addAll(plateRoles);
+            plateRoles.forEach(role -> valuesByRole.add(new ArrayList<>()));
+        } else {
+            checkSameStructure(plateRoles);
+        }
+
+        for (int i = 0; i < localVertices.size(); i++) {
+            Vertex<?> vertex = localVertices.get(i);
+            valuesByRole.get(i).add(roles.get(i).keepsValues() && vertex.hasValue() ? (Tensor<?>) vertex.getValue() : null);
+        }
+
+        for (Vertex<?> vertex : localVertices) {
+            for (Vertex<?> parent : vertex.getParents()) {
+                if (!roleIndices.containsKey(parent)) {
+                    parent.removeChild(vertex);
+                }
+            }
+        }
+
+        plateCount++;
+    }
+
+    /**
+     * @return the batched vertices of every plate added so far
+     * @throws PlateConstructionException if no plates have been added
+     */
+    VectorisedPlates compile() {
+        if (plateCount == 0) {
+            throw new PlateConstructionException("Cannot vectorise an empty collection of plates");
+        }
+
+        List<Vertex<?>> batchedVertices = new ArrayList<>(roles.size());
+        Set<Vertex<?>> verticesWithBatchDimension = new HashSet<>();
+        Map<VertexLabel, Vertex<?>> labelledVertices = new LinkedHashMap<>();
+
+        for (int i = 0; i < roles.size(); i++) {
+            Role role = roles.get(i);
+            Vertex<?> vertex = role.isConstant()
+                ? compileConstant(role, valuesByRole.get(i), verticesWithBatchDimension)
+                : compileVertex(role, batchedVertices, verticesWithBatchDimension);
+
+            List<Tensor<?>> values = valuesByRole.get(i);
+            if (role.observed) {
+                ((Vertex) vertex).observe(stack(values, role.rowShape));
+            } else if (role.isProbabilistic() && !values.contains(null)) {
+                ((Vertex) vertex).setValue(stack(values, role.rowShape));
+            }
+
+            if (role.label != null) {
+                vertex.setLabel(role.label);
+                labelledVertices.put(role.label, vertex);
+            }
+            batchedVertices.add(vertex);
+        }
+
+        return new VectorisedPlates(plateCount, labelledVertices, verticesWithBatchDimension);
+    }
+
+    private void checkSameStructure(List<Role> plateRoles) {
+        if (plateRoles.size() != roles.size()) {
+            throw new PlateConstructionException(
+                "Plate " + plateCount + " has " + plateRoles.size() + " vertices but the first plate has " + roles.size()
+            );
+        }
+
+        for (int i = 0; i < roles.size(); i++) {
+            if (!roles.get(i).hasSameStructureAs(plateRoles.get(i))) {
+                throw new PlateConstructionException(
+                    "Plate " + plateCount + " does not have the same structure as the first plate. Expected " +
+                        roles.get(i) + " but found " + plateRoles.get(i)
+                );
+            }
+        }
+    }
+
+    /**
+     * The vertices of a plate are those reachable from its contents that were created while its factory ran,
+     * including any created but not added to the plate that hang off vertices outside it.
+     */
+    private static List<Vertex<?>> getLocalVertices(Plate plate, List<Vertex<?>> createdVertices) {
+        Set<Vertex<?>> created = new HashSet<>(createdVertices);
+        Set<Vertex<?>> localVertices = new HashSet<>();
+        Deque<Vertex<?>> toVisit = new ArrayDeque<>();
+
+        for (Vertex<?> vertex : plate.getVertices()) {
+            if (!created.contains(vertex)) {
+                throw new PlateConstructionException(
+                    "Vertex " + vertex + " was created outside the plate factory so cannot be vectorised"
+                );
+            }
+            toVisit.add(vertex);
+        }
+
+        while (!toVisit.isEmpty()) {
+            Vertex<?> vertex = toVisit.poll();
+            if (!localVertices.add(vertex)) {
+                continue;
+            }
+            for (Vertex<?> child : vertex.getChildren()) {
+                addIfCreated(child, created, toVisit);
+            }
+            for (Vertex<?> parent : vertex.getParents()) {
+                if (created.contains(parent)) {
+                    toVisit.add(parent);
+                } else {
+                    for (Vertex<?> sibling : parent.getChildren()) {
+                        addIfCreated(sibling, created, toVisit);
+                    }
+                }
+            }
+        }
+
+        List<Vertex<?>> inCreationOrder = new ArrayList<>(localVertices.size());
+        for (Vertex<?> vertex : createdVertices) {
+            if (localVertices.contains(vertex)) {
+                inCreationOrder.add(vertex);
+            }
+        }
+        return inCreationOrder;
+    }
+
+    private static void addIfCreated(Vertex<?> vertex, Set<Vertex<?>> created, Deque<Vertex<?>> toVisit) {
+        if (created.contains(vertex)) {
+            toVisit.add(vertex);
+        }
+    }
+
+    private static Vertex<?> compileConstant(Role role, List<Tensor<?>> values, Set<Vertex<?>> verticesWithBatchDimension) {
+        Tensor<?> first = values.get(0);
+        boolean sameInEveryPlate = values.stream().allMatch(value -> hasSameValue(first, value));
+        if (sameInEveryPlate) {
+            return constantOf(first);
+        }
+
+        Vertex<?> constant = constantOf(stack(values, role.rowShape));
+        verticesWithBatchDimension.add(constant);
+        return constant;
+    }
+
+    private Vertex<?> compileVertex(Role role, List<Vertex<?>> batchedVertices, Set<Vertex<?>> verticesWithBatchDimension) {
+        boolean hasBatchDimension = role.isProbabilistic() || role.params.values().stream()
+            .anyMatch(param -> param instanceof RoleReference
+                && verticesWithBatchDimension.contains(batchedVertices.get(((RoleReference) param).index)));
+
+        Constructor<?> constructor = getLoadConstructor(role.vertexClass);
+        Parameter[] parameters = constructor.getParameters();
+        Object[] arguments = new Object[parameters.length];
+
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i].isAnnotationPresent(LoadShape.class)) {
+                arguments[i] = withBatchDimension(role.rowShape);
+            } else {
+                String name = parameters[i].getAnnotation(LoadVertexParam.class).value();
+                Object param = role.params.get(name);
+                if (param instanceof RoleReference) {
+                    Role parentRole = roles.get(((RoleReference) param).index);
+                    Vertex<?> parent = batchedVertices.get(((RoleReference) param).index);
+                    arguments[i] = verticesWithBatchDimension.contains(parent)
+                        ? alignedTo(parent, parentRole.rowShape, role)
+                        : parent;
+                } else {
+                    arguments[i] = param;
+                }
+            }
+        }
+
+        Vertex<?> vertex;
+        try {
+            vertex = (Vertex<?>) constructor.newInstance(arguments);
+        } catch (InvocationTargetException e) {
+            throw new PlateConstructionException("Cannot vectorise " + role, e.getCause());
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            throw new PlateConstructionException("Cannot vectorise " + role, e);
+        }
+
+        if (hasBatchDimension) {
+            verticesWithBatchDimension.add(vertex);
+        }
+        return vertex;
+    }
+
+    private long[] withBatchDimension(long[] rowShape) {
+        return Longs.concat(new long[]{plateCount}, rowShape);
+    }
+
+    /**
+     * Lines up the batch dimension of a batched parent with the batch dimension of its child, as its rows would
+     * have been broadcast to the rows of the child in each plate.
+     */
+    private Vertex<?> alignedTo(Vertex<?> batchedParent, long[] parentRowShape, Role childRole) {
+        Vertex<?> aligned = paddedTo(batchedParent, parentRowShape, childRole.rowShape.length);
+
+        if (childRole.isProbabilistic() && !Arrays.equals(parentRowShape, childRole.rowShape)) {
+            return broadcastTo(aligned, childRole.rowShape);
+        }
+        return aligned;
+    }
+
+    /**
+     * Pads the row shape of a batched parent with ones so that its batch dimension lines up with the batch
+     * dimension of a child whose rows have a higher rank.
+     */
+    private Vertex<?> paddedTo(Vertex<?> batchedParent, long[] parentRowShape, int rank) {
+        if (parentRowShape.length >= rank) {
+            return batchedParent;
+        }
+
+        long[] padded = new long[rank];
+        Arrays.fill(padded, 1L);
+        System.arraycopy(parentRowShape, 0, padded, rank - parentRowShape.length, parentRowShape.length);
+        long[] shape = withBatchDimension(padded);
+
+        if (batchedParent instanceof DoubleVertex) {
+            return ((DoubleVertex) batchedParent).reshape(shape);
+        } else if (batchedParent instanceof IntegerVertex) {
+            return ((IntegerVertex) batchedParent).reshape(shape);
+        } else {
+            return ((BooleanVertex) batchedParent).reshape(shape);
+        }
+    }
+
+    /**
+     * Probabilistic vertices only take parents of their own shape or of length one, rather than broadcasting them
+     * like operations do, so the rows of a padded parent are broadcast explicitly by multiplying them with ones.
+     */
+    private Vertex<?> broadcastTo(Vertex<?> paddedParent, long[] rowShape) {
+        long[] shape = withBatchDimension(rowShape);
+
+        if (paddedParent instanceof DoubleVertex) {
+            return ((DoubleVertex) paddedParent).times(ConstantVertex.of(DoubleTensor.ones(shape)));
+        } else if (paddedParent instanceof IntegerVertex) {
+            return ((IntegerVertex) paddedParent).times(ConstantVertex.of(IntegerTensor.ones(shape)));
+        } else {
+            throw new PlateConstructionException(
+                "Cannot broadcast " + paddedParent + " to the shape " + Arrays.toString(shape) + " of its child"
+            );
+        }
+    }
+
+    private static Constructor<?> getLoadConstructor(Class<?> vertexClass) {
+        for (Constructor<?> constructor : vertexClass.getConstructors()) {
+            Parameter[] parameters = constructor.getParameters();
+
+            if (parameters.length > 0 &&
+                (parameters[0].isAnnotationPresent(LoadVertexParam.class)
+                    || parameters[0].isAnnotationPresent(LoadShape.class))) {
+                return constructor;
+            }
+        }
+
+        throw new PlateConstructionException("No Annotated Load Constructor for Vertex of type: " + vertexClass);
+    }
+
+    private static boolean hasSameValue(Tensor<?> a, Tensor<?> b) {
+        return Arrays.equals(a.getShape(), b.getShape())
+            && Arrays.equals(a.asFlatDoubleArray(), b.asFlatDoubleArray());
+    }
+
+    private static Vertex<?> constantOf(Tensor<?> value) {
+        if (value instanceof DoubleTensor) {
+            return ConstantVertex.of((DoubleTensor) value);
+        } else if (value instanceof IntegerTensor) {
+            return ConstantVertex.of((IntegerTensor) value);
+        } else {
+            return ConstantVertex.of((BooleanTensor) value);
+        }
+    }
+
+    private Tensor<?> stack(List<Tensor<?>> values, long[] rowShape) {
+        int rowLength = Math.toIntExact(TensorShape.getLength(rowShape));
+        long[] shape = withBatchDimension(rowShape);
+        Tensor<?> first = values.get(0);
+
+        if (first instanceof DoubleTensor) {
+            double[] stacked = new double[rowLength * values.size()];
+            for (int i = 0; i < values.size(); i++) {
+                System.arraycopy(values.get(i).asFlatDoubleArray(), 0, stacked, i * rowLength, rowLength);
+            }
+            return DoubleTensor.create(stacked, shape);
+        } else if (first instanceof IntegerTensor) {
+            int[] stacked = new int[rowLength * values.size()];
+            for (int i = 0; i < values.size(); i++) {
+                System.arraycopy(values.get(i).asFlatIntegerArray(), 0, stacked, i * rowLength, rowLength);
+            }
+            return IntegerTensor.create(stacked, shape);
+        } else {
+            boolean[] stacked = new boolean[rowLength * values.size()];
+            for (int i = 0; i < values.size(); i++) {
+                System.arraycopy(((BooleanTensor) values.get(i)).asFlatBooleanArray(), 0, stacked, i * rowLength, rowLength);
+            }
+            return BooleanTensor.create(stacked, shape);
+        }
+    }
+
+    private static boolean canBeBatched(Vertex<?> vertex) {
+        if (isConstantVertex(vertex)) {
+            return true;
+        } else if (vertex instanceof Probabilistic) {
+            return vertex instanceof ElementwiseLogProb || ELEMENTWISE_DISCRETE_VERTICES.contains(vertex.getClass());
+        } else {
+            return vertex instanceof Elementwise && !vertex.isObserved();
+        }
+    }
+
+    private static boolean isConstantVertex(Vertex<?> vertex) {
+        return vertex instanceof ConstantDoubleVertex
+            || vertex instanceof ConstantIntegerVertex
+            || vertex instanceof ConstantBooleanVertex;
+    }
+
+    /**
+     * The part a vertex plays in a plate: its type, shape, label and parents. A parent created in the same plate is
+     * referred to by its role so that it can be compared across plates, while a parent outside the plate must be the
+     * same vertex in every plate.
+     */
+    private static class Role {
+        private final Class<?> vertexClass;
+        private final long[] rowShape;
+        private final VertexLabel label;
+        private final boolean observed;
+        private final Map<String, Object> params;
+
+        Role(Vertex<?> vertex, VertexLabel label, Map<Vertex<?>, Integer> roleIndices) {
+            if (!canBeBatched(vertex)) {
+                throw new PlateConstructionException(
+                    "Vertex " + vertex + " of type " + vertex.getClass().getSimpleName() + " cannot be vectorised. " +
+                        "Only constants, elementwise operations and probabilistic vertices with elementwise log " +
+                        "probs are supported."
+                );
+            }
+
+            this.vertexClass = vertex.getClass();
+            this.rowShape = vertex.getShape();
+            this.label = label;
+            this.observed = vertex.isObserved();
+            this.params = isConstantVertex(vertex) ? new TreeMap<>() : getParams(vertex, roleIndices);
+        }
+
+        boolean isConstant() {
+            return ConstantVertex.class.isAssignableFrom(vertexClass);
+        }
+
+        boolean isProbabilistic() {
+            return Probabilistic.class.isAssignableFrom(vertexClass);
+        }
+
+        boolean keepsValues() {
+            return isConstant() || isProbabilistic();
+        }
+
+        boolean hasSameStructureAs(Role that) {
+            if (!vertexClass.equals(that.vertexClass)
+                || !Arrays.equals(rowShape, that.rowShape)
+                || !Objects.equals(label, that.label)
+                || observed != that.observed
+                || !params.keySet().equals(that.params.keySet())) {
+                return false;
+            }
+
+            for (Map.Entry<String, Object> param : params.entrySet()) {
+                Object thisParam = param.getValue();
+                Object thatParam = that.params.get(param.getKey());
+                boolean same = thisParam instanceof Vertex ? thisParam == thatParam : Objects.deepEquals(thisParam, thatParam);
+                if (!same) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static Map<String, Object> getParams(Vertex<?> vertex, Map<Vertex<?>, Integer> roleIndices) {
+            Map<String, Object> params = new TreeMap<>();
+
+            for (Method method : getSaveParamMethods(vertex.getClass())) {
+                SaveVertexParam annotation = method.getAnnotation(SaveVertexParam.class);
+                Object param;
+                try {
+                    param = method.invoke(vertex);
+                } catch (ReflectiveOperationException e) {
+                    throw new PlateConstructionException("Cannot read " + annotation.value() + " of " + vertex, e);
+                }
+
+                Integer roleIndex = roleIndices.get(param);
+                params.put(annotation.value(), roleIndex != null ? new RoleReference(roleIndex) : param);
+            }
+
+            return params;
+        }
+
+        /**
+         * Looking up the methods of a class copies them, so they are only looked up once per class rather than once
+         * for every vertex of every plate.
+         */
+        private static List<Method> getSaveParamMethods(Class<?> vertexClass) {
+            return SAVE_PARAM_METHODS.computeIfAbsent(vertexClass, c -> Arrays.stream(c.getMethods())
+                .filter(method -> method.isAnnotationPresent(SaveVertexParam.class))
+                .collect(Collectors.toList())
+            );
+        }
+
+        @Override
+        public String toString() {
+            return vertexClass.getSimpleName() + (label != null ? " " + label : "") + " with shape " +
+                Arrays.toString(rowShape) + " and parameters " + params;
+        }
+    }
+
+    private static class RoleReference {
+        private final int index;
+
+        RoleReference(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof RoleReference && ((RoleReference) o).index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return Integer.hashCode(index);
+        }
+
+        @Override
+        public String toString() {
+            return "role " + index;
+        }
+    }
+}
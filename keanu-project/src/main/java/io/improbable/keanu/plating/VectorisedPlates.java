@@ -0,0 +1,96 @@
+package io.improbable.keanu.plating;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexDictionary;
+import io.improbable.keanu.vertices.VertexLabel;
+import io.improbable.keanu.vertices.bool.BooleanVertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.intgr.IntegerVertex;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Structurally identical plates compiled into one vertex per labelled role, whose value has a leading dimension
+ * with one entry for each plate.
+ * <p>
+ * The vertex of a single plate is available as a view that slices the batched vertex, so models can still refer
+ * to e.g. the y of the third plate. Each view is a vertex of its own, so views are only created when asked for.
+ */
+public class VectorisedPlates implements VertexDictionary {
+
+    private static final String NAME_PREFIX = "Plate_";
+
+    private final int size;
+    private final Map<VertexLabel, Vertex<?>> contents;
+    private final Set<Vertex<?>> verticesWithBatchDimension;
+    private final Map<VertexLabel, Map<Integer, Vertex<?>>> views = new HashMap<>();
+
+    VectorisedPlates(int size, Map<VertexLabel, Vertex<?>> contents, Set<Vertex<?>> verticesWithBatchDimension) {
+        this.size = size;
+        this.contents = contents;
+        this.verticesWithBatchDimension = verticesWithBatchDimension;
+    }
+
+    /**
+     * @return the number of plates that were compiled
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param label the label a vertex was given in the plate factory
+     * @return the vertex holding that vertex of every plate
+     */
+    @Override
+    public <V extends Vertex<?>> V get(VertexLabel label) {
+        Vertex<?> vertex = contents.get(label);
+
+        if (vertex == null) {
+            throw new IllegalArgumentException("Cannot find VertexLabel " + label);
+        }
+        return (V) vertex;
+    }
+
+    /**
+     * @param label the label a vertex was given in the plate factory
+     * @param index the index of a plate
+     * @return a view of the vertex in that plate. If the vertex was the same in every plate, e.g. an operation on
+     * vertices outside the plates, the vertex itself is returned.
+     */
+    public <V extends Vertex<?>> V get(VertexLabel label, int index) {
+        Preconditions.checkElementIndex(index, size);
+        Vertex<?> batched = get(label);
+
+        if (!verticesWithBatchDimension.contains(batched)) {
+            return (V) batched;
+        }
+
+        return (V) views.computeIfAbsent(label, l -> new HashMap<>())
+            .computeIfAbsent(index, i -> createView(label, batched, i));
+    }
+
+    private static Vertex<?> createView(VertexLabel label, Vertex<?> batched, int index) {
+        Vertex<?> view;
+        if (batched instanceof DoubleVertex) {
+            view = ((DoubleVertex) batched).slice(0, index);
+        } else if (batched instanceof IntegerVertex) {
+            view = ((IntegerVertex) batched).slice(0, index);
+        } else {
+            view = ((BooleanVertex) batched).slice(0, index);
+        }
+        view.setLabel(label.withExtraNamespace(NAME_PREFIX + index));
+        return view;
+    }
+
+    @Override
+    public VertexDictionary withExtraEntries(Map<VertexLabel, Vertex<?>> extraEntries) {
+        Map<VertexLabel, Vertex<?>> entries = new LinkedHashMap<>(contents);
+        entries.putAll(extraEntries);
+        return VertexDictionary.backedBy(entries);
+    }
+}
@@ -187,6 +187,37 @@ public class TensorShape {
         return (shape1.length >= shape2.length) ? shape1 : shape2;
     }
 
+    /**
+     * Finds the shape of the result of an elementwise operation between two tensors. The shapes are aligned on
+     * their last dimension and, in each dimension, must either match or one of them must be one.
+     *
+     * @param left  shape of the left operand
+     * @param right shape of the right operand
+     * @return the shape of the broadcast result
+     * @throws IllegalArgumentException if the shapes cannot be broadcast together
+     */
+    public static long[] getBroadcastResultShape(long[] left, long[] right) {
+        int rank = Math.max(left.length, right.length);
+        long[] result = new long[rank];
+
+        for (int i = 0; i < rank; i++) {
+            int leftDimension = i - (rank - left.length);
+            int rightDimension = i - (rank - right.length);
+            long leftLength = leftDimension < 0 ? 1 : left[leftDimension];
+            long rightLength = rightDimension < 0 ? 1 : right[rightDimension];
+
+            if (leftLength != rightLength && leftLength != 1 && rightLength != 1) {
+                throw new IllegalArgumentException(
+                    "Cannot broadcast shape " + Arrays.toString(left) + " with shape " + Arrays.toString(right)
+                );
+            }
+
+            result[i] = leftLength == 1 ? rightLength : leftLength;
+        }
+
+        return result;
+    }
+
     private static long[] increaseRankByPaddingValue(long[] lowRankTensorShape, int desiredRank, boolean append) {
         long[] paddedShape = new long[desiredRank];
         if (lowRankTensorShape.length > desiredRank) {
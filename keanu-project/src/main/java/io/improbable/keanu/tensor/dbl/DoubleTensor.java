@@ -28,6 +28,8 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
     static DoubleTensor create(double value, long[] shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE)) {
             return new ScalarDoubleTensor(value);
+        } else if (JVMDoubleTensor.isPreferredFor(shape)) {
+            return JVMDoubleTensor.create(value, shape);
         } else {
             return Nd4jDoubleTensor.create(value, shape);
         }
@@ -36,6 +38,8 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
     static DoubleTensor create(double[] values, long... shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE) && values.length == 1) {
             return new ScalarDoubleTensor(values[0]);
+        } else if (JVMDoubleTensor.isPreferredFor(shape)) {
+            return JVMDoubleTensor.create(values, shape);
         } else {
             return Nd4jDoubleTensor.create(values, shape);
         }
@@ -48,6 +52,8 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
     static DoubleTensor ones(long... shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE)) {
             return new ScalarDoubleTensor(1.0);
+        } else if (JVMDoubleTensor.isPreferredFor(shape)) {
+            return JVMDoubleTensor.ones(shape);
         } else {
             return Nd4jDoubleTensor.ones(shape);
         }
@@ -56,6 +62,8 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
     static DoubleTensor eye(long n) {
         if (n == 1) {
             return new ScalarDoubleTensor(1.0);
+        } else if (JVMDoubleTensor.isPreferredFor(new long[]{n, n})) {
+            return JVMDoubleTensor.eye(n);
         } else {
             return Nd4jDoubleTensor.eye(n);
         }
@@ -64,12 +72,17 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
     static DoubleTensor zeros(long... shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE)) {
             return new ScalarDoubleTensor(0.0);
+        } else if (JVMDoubleTensor.isPreferredFor(shape)) {
+            return JVMDoubleTensor.zeros(shape);
         } else {
             return Nd4jDoubleTensor.zeros(shape);
         }
     }
 
     static DoubleTensor linspace(double start, double end, int numberOfPoints) {
+        if (JVMDoubleTensor.isPreferredFor(new long[]{numberOfPoints})) {
+            return JVMDoubleTensor.linspace(start, end, numberOfPoints);
+        }
         return Nd4jDoubleTensor.linspace(start, end, numberOfPoints);
     }
 
@@ -79,6 +92,9 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
      * @return a vector of numbers from start incrementing by one to end (exclusively)
      */
     static DoubleTensor arange(double start, double end) {
+        if (JVMDoubleTensor.isPreferredFor(new long[]{(long) Math.ceil(end - start)})) {
+            return JVMDoubleTensor.arange(start, end, 1.0);
+        }
         return Nd4jDoubleTensor.arange(start, end);
     }
 
@@ -89,6 +105,9 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
      * @return a vector of numbers starting at start and stepping to end (exclusively)
      */
     static DoubleTensor arange(double start, double end, double stepSize) {
+        if (JVMDoubleTensor.isPreferredFor(new long[]{(long) Math.ceil((end - start) / stepSize)})) {
+            return JVMDoubleTensor.arange(start, end, stepSize);
+        }
         return Nd4jDoubleTensor.arange(start, end, stepSize);
     }
 
@@ -139,6 +158,11 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
      * DoubleTensor.concat(0, A, B, C) gives DoubleTensor.ones(12, 2)
      */
     static DoubleTensor concat(int dimension, DoubleTensor... toConcat) {
+        long concatLength = Arrays.stream(toConcat).mapToLong(DoubleTensor::getLength).sum();
+        if (JVMDoubleTensor.isPreferredFor(new long[]{concatLength})) {
+            return JVMDoubleTensor.concat(dimension, toConcat);
+        }
+
         INDArray[] concatAsINDArray = new INDArray[toConcat.length];
         for (int i = 0; i < toConcat.length; i++) {
             concatAsINDArray[i] = Nd4jDoubleTensor.unsafeGetNd4J(toConcat[i]).dup();
@@ -340,6 +364,12 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
 
     DoubleTensor setAllInPlace(double value);
 
+    /**
+     * @param values the values to copy, which must broadcast to the shape of this tensor
+     * @return this tensor, with each element set to the element of values it broadcasts from
+     */
+    DoubleTensor setAllInPlace(DoubleTensor values);
+
     // Comparisons
     BooleanTensor lessThan(double value);
 
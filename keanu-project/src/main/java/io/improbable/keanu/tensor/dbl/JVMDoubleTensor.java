@@ -0,0 +1,1215 @@
+package io.improbable.keanu.tensor.dbl;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.TensorShapeValidation;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import io.improbable.keanu.tensor.validate.TensorValidator;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.LUDecomposition;
+import org.apache.commons.math3.special.Gamma;
+import org.apache.commons.math3.util.FastMath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+
+import static com.google.common.primitives.Ints.checkedCast;
+import static io.improbable.keanu.tensor.TensorShape.getAbsoluteDimension;
+
+/**
+ * Class for representing n-dimensional arrays of doubles that is backed by a plain Java array.
+ * <p>
+ * Small tensors spend more time crossing into Nd4j than doing arithmetic, so {@link DoubleTensor#create(double[], long...)}
+ * and the other factories use this class for tensors of up to {@link #getMaxLength()} elements. Operations that
+ * benefit from BLAS or LAPACK, such as matrix multiplication and inversion, are still done by Nd4j.
+ * <p>
+ * The maximum length can be set with the system property {@value #MAX_LENGTH_PROPERTY} or with
+ * {@link #setMaxLength(long)}. A maximum length of zero uses Nd4j for every non scalar tensor.
+ */
+public class JVMDoubleTensor implements DoubleTensor {
+
+    public static final String MAX_LENGTH_PROPERTY = "io.improbable.keanu.tensor.dbl.JVMDoubleTensor.maxLength";
+
+    private static final long DEFAULT_MAX_LENGTH = 4096;
+
+    private static volatile long maxLength = Long.getLong(MAX_LENGTH_PROPERTY, DEFAULT_MAX_LENGTH);
+
+    private double[] buffer;
+    private long[] shape;
+
+    private JVMDoubleTensor(double[] buffer, long[] shape) {
+        this.buffer = buffer;
+        this.shape = shape;
+    }
+
+    public static JVMDoubleTensor create(double[] values, long[] shape) {
+        Preconditions.checkArgument(
+            values.length == TensorShape.getLength(shape),
+            "Cannot create a tensor of shape " + Arrays.toString(shape) + " from " + values.length + " values"
+        );
+        return new JVMDoubleTensor(Arrays.copyOf(values, values.length), Arrays.copyOf(shape, shape.length));
+    }
+
+    public static JVMDoubleTensor create(double value, long[] shape) {
+        double[] values = new double[TensorShape.getLengthAsInt(shape)];
+        Arrays.fill(values, value);
+        return new JVMDoubleTensor(values, Arrays.copyOf(shape, shape.length));
+    }
+
+    public static JVMDoubleTensor ones(long... shape) {
+        return create(1.0, shape);
+    }
+
+    public static JVMDoubleTensor zeros(long... shape) {
+        return create(0.0, shape);
+    }
+
+    public static JVMDoubleTensor eye(long n) {
+        int size = checkedCast(n);
+        double[] values = new double[size * size];
+        for (int i = 0; i < size; i++) {
+            values[i * size + i] = 1.0;
+        }
+        return new JVMDoubleTensor(values, new long[]{n, n});
+    }
+
+    public static JVMDoubleTensor linspace(double start, double end, int numberOfPoints) {
+        double[] values = new double[numberOfPoints];
+        double step = numberOfPoints > 1 ? (end - start) / (numberOfPoints - 1) : 0.0;
+        for (int i = 0; i < numberOfPoints; i++) {
+            values[i] = start + i * step;
+        }
+        return new JVMDoubleTensor(values, new long[]{numberOfPoints});
+    }
+
+    public static JVMDoubleTensor arange(double start, double end, double stepSize) {
+        int stepCount = checkedCast((long) Math.ceil((end - start) / stepSize));
+        double[] values = new double[stepCount];
+        for (int i = 0; i < stepCount; i++) {
+            values[i] = i * stepSize + start;
+        }
+        return new JVMDoubleTensor(values, new long[]{stepCount});
+    }
+
+    /**
+     * @param dimension the dimension along which the tensors will be joined
+     * @param toConcat  an array of DoubleTensor of the same rank. Scalars are treated as vectors of length one.
+     * @return a DoubleTensor with toConcat joined along an existing dimension
+     */
+    public static JVMDoubleTensor concat(int dimension, DoubleTensor... toConcat) {
+        long[][] shapes = new long[toConcat.length][];
+        for (int i = 0; i < toConcat.length; i++) {
+            shapes[i] = toConcat[i].isScalar() ? new long[]{1} : toConcat[i].getShape();
+        }
+
+        dimension = getAbsoluteDimension(dimension, shapes[0].length);
+        long[] concatShape = TensorShapeValidation.checkShapesCanBeConcatenated(dimension, shapes);
+
+        int outerLength = checkedCast(TensorShape.getLength(Arrays.copyOfRange(concatShape, 0, dimension)));
+        double[] result = new double[TensorShape.getLengthAsInt(concatShape)];
+
+        int position = 0;
+        for (int outer = 0; outer < outerLength; outer++) {
+            for (int i = 0; i < toConcat.length; i++) {
+                double[] values = bufferOf(toConcat[i]);
+                int blockLength = values.length / outerLength;
+                System.arraycopy(values, outer * blockLength, result, position, blockLength);
+                position += blockLength;
+            }
+        }
+
+        return new JVMDoubleTensor(result, concatShape);
+    }
+
+    /**
+     * @return the largest number of elements a tensor can have for the factories to back it with a Java array
+     */
+    public static long getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * @param newMaxLength the largest number of elements a tensor can have for the factories to back it with a
+     *                     Java array. Larger tensors are backed by Nd4j.
+     */
+    public static void setMaxLength(long newMaxLength) {
+        Preconditions.checkArgument(newMaxLength >= 0, "Max length must be non negative but was " + newMaxLength);
+        maxLength = newMaxLength;
+    }
+
+    /**
+     * @param shape the shape of the tensor to be created
+     * @return true if a tensor of this shape should be backed by a Java array rather than by Nd4j
+     */
+    public static boolean isPreferredFor(long[] shape) {
+        return TensorShape.getLength(shape) <= maxLength;
+    }
+
+    static double[] unsafeGetBuffer(JVMDoubleTensor tensor) {
+        return tensor.buffer;
+    }
+
+    @Override
+    public int getRank() {
+        return shape.length;
+    }
+
+    @Override
+    public long[] getShape() {
+        return Arrays.copyOf(shape, shape.length);
+    }
+
+    @Override
+    public long getLength() {
+        return buffer.length;
+    }
+
+    @Override
+    public boolean isShapePlaceholder() {
+        return buffer == null;
+    }
+
+    @Override
+    public Double getValue(long... index) {
+        return buffer[getFlatIndex(index)];
+    }
+
+    @Override
+    public DoubleTensor setValue(Double value, long... index) {
+        buffer[getFlatIndex(index)] = value;
+        return this;
+    }
+
+    @Override
+    public DoubleTensor reshape(long... newShape) {
+        long[] reshaped = Arrays.copyOf(newShape, newShape.length);
+        int wildcard = ArrayUtils.indexOf(reshaped, -1L);
+        if (wildcard >= 0) {
+            reshaped[wildcard] = 1;
+            reshaped[wildcard] = buffer.length / TensorShape.getLength(reshaped);
+        }
+
+        if (TensorShape.getLength(reshaped) != buffer.length) {
+            throw new IllegalArgumentException(
+                "Cannot reshape a tensor of shape " + Arrays.toString(shape) + " to " + Arrays.toString(newShape)
+            );
+        }
+
+        return fromBuffer(Arrays.copyOf(buffer, buffer.length), reshaped);
+    }
+
+    @Override
+    public DoubleTensor permute(int... rearrange) {
+        Preconditions.checkArgument(
+            rearrange.length == shape.length,
+            "Cannot permute rank " + shape.length + " tensor with " + Arrays.toString(rearrange)
+        );
+
+        int[] stride = getRowFirstStride(shape);
+        long[] permutedShape = new long[shape.length];
+        int[] permutedStride = new int[shape.length];
+        for (int i = 0; i < rearrange.length; i++) {
+            permutedShape[i] = shape[rearrange[i]];
+            permutedStride[i] = stride[rearrange[i]];
+        }
+
+        return gather(0, permutedShape, permutedStride);
+    }
+
+    @Override
+    public DoubleTensor diag() {
+        return fromNd4j(asNd4j().diag());
+    }
+
+    @Override
+    public DoubleTensor transpose() {
+        if (shape.length < 2) {
+            return duplicate();
+        }
+
+        int[] reversed = new int[shape.length];
+        for (int i = 0; i < shape.length; i++) {
+            reversed[i] = shape.length - 1 - i;
+        }
+        return permute(reversed);
+    }
+
+    @Override
+    public DoubleTensor sum(int... overDimensions) {
+        if (overDimensions.length == 0) {
+            return duplicate();
+        }
+
+        overDimensions = TensorShape.getAbsoluteDimensions(shape.length, overDimensions);
+        long[] summedShape = ArrayUtils.removeAll(shape, overDimensions);
+
+        int[] summedStride = getRowFirstStride(summedShape);
+        int[] strideIntoSummed = new int[shape.length];
+        for (int dimension = 0, summedDimension = 0; dimension < shape.length; dimension++) {
+            if (!ArrayUtils.contains(overDimensions, dimension)) {
+                strideIntoSummed[dimension] = summedStride[summedDimension++];
+            }
+        }
+
+        double[] source = buffer;
+        double[] result = new double[TensorShape.getLengthAsInt(summedShape)];
+        forEachIndex(shape, getRowFirstStride(shape), strideIntoSummed,
+            (index, sourceOffset, resultOffset) -> result[resultOffset] += source[sourceOffset]
+        );
+
+        return fromBuffer(result, summedShape);
+    }
+
+    @Override
+    public Double sum() {
+        double sum = 0.0;
+        for (double value : buffer) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Override
+    public DoubleTensor duplicate() {
+        return new JVMDoubleTensor(Arrays.copyOf(buffer, buffer.length), shape);
+    }
+
+    @Override
+    public DoubleTensor apply(Function<Double, Double> function) {
+        return duplicate().applyInPlace(function);
+    }
+
+    @Override
+    public DoubleTensor matrixInverse() {
+        return fromNd4j(asNd4j().matrixInverse());
+    }
+
+    @Override
+    public double max() {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : buffer) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    @Override
+    public double min() {
+        double min = Double.POSITIVE_INFINITY;
+        for (double value : buffer) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    @Override
+    public int argMax() {
+        int argMax = 0;
+        for (int i = 1; i < buffer.length; i++) {
+            if (buffer[i] > buffer[argMax]) {
+                argMax = i;
+            }
+        }
+        return argMax;
+    }
+
+    @Override
+    public IntegerTensor argMax(int axis) {
+        TensorShapeValidation.checkDimensionExistsInShape(axis, shape);
+        long[] resultShape = TensorShape.removeDimension(axis, shape);
+
+        int[] stride = getRowFirstStride(shape);
+        int axisStride = stride[axis];
+        int axisLength = checkedCast(shape[axis]);
+        int[] strideWithoutAxis = ArrayUtils.remove(stride, axis);
+
+        double[] source = buffer;
+        int[] result = new int[TensorShape.getLengthAsInt(resultShape)];
+        forEachIndex(resultShape, strideWithoutAxis, new int[resultShape.length], (index, offset, unused) -> {
+            int argMax = 0;
+            for (int i = 1; i < axisLength; i++) {
+                if (source[offset + i * axisStride] > source[offset + argMax * axisStride]) {
+                    argMax = i;
+                }
+            }
+            result[index] = argMax;
+        });
+
+        return IntegerTensor.create(result, resultShape);
+    }
+
+    @Override
+    public double average() {
+        return sum() / buffer.length;
+    }
+
+    @Override
+    public double standardDeviation() {
+        double average = average();
+        double sumOfSquares = 0.0;
+        for (double value : buffer) {
+            sumOfSquares += (value - average) * (value - average);
+        }
+        return Math.sqrt(sumOfSquares / (buffer.length - 1));
+    }
+
+    @Override
+    public boolean equalsWithinEpsilon(DoubleTensor o, double epsilon) {
+        if (this == o) return true;
+        if (!this.hasSameShapeAs(o)) return false;
+
+        double[] other = bufferOf(o);
+        for (int i = 0; i < buffer.length; i++) {
+            if (!(Math.abs(buffer[i] - other[i]) <= epsilon)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public DoubleTensor standardize() {
+        return duplicate().standardizeInPlace();
+    }
+
+    @Override
+    public DoubleTensor replaceNaN(double value) {
+        return duplicate().replaceNaNInPlace(value);
+    }
+
+    @Override
+    public DoubleTensor clamp(DoubleTensor min, DoubleTensor max) {
+        return duplicate().clampInPlace(min, max);
+    }
+
+    @Override
+    public DoubleTensor ceil() {
+        return duplicate().ceilInPlace();
+    }
+
+    @Override
+    public DoubleTensor floor() {
+        return duplicate().floorInPlace();
+    }
+
+    @Override
+    public DoubleTensor round() {
+        return duplicate().roundInPlace();
+    }
+
+    @Override
+    public DoubleTensor sigmoid() {
+        return duplicate().sigmoidInPlace();
+    }
+
+    @Override
+    public DoubleTensor choleskyDecomposition() {
+        return fromNd4j(asNd4j().choleskyDecomposition());
+    }
+
+    @Override
+    public double determinant() {
+        Preconditions.checkArgument(isMatrix(), "Determinant on non-matrix not allowed");
+        int rows = checkedCast(shape[0]);
+        int columns = checkedCast(shape[1]);
+
+        double[][] matrix = new double[rows][];
+        for (int row = 0; row < rows; row++) {
+            matrix[row] = Arrays.copyOfRange(buffer, row * columns, (row + 1) * columns);
+        }
+        return new LUDecomposition(new Array2DRowRealMatrix(matrix, false)).getDeterminant();
+    }
+
+    @Override
+    public double product() {
+        double product = 1.0;
+        for (double value : buffer) {
+            product *= value;
+        }
+        return product;
+    }
+
+    @Override
+    public DoubleTensor slice(int dimension, long index) {
+        TensorShapeValidation.checkDimensionExistsInShape(dimension, shape);
+        int[] stride = getRowFirstStride(shape);
+        return gather(
+            checkedCast(index * stride[dimension]),
+            ArrayUtils.remove(shape, dimension),
+            ArrayUtils.remove(stride, dimension)
+        );
+    }
+
+    /**
+     * @param dimension      the dimension to split on
+     * @param splitAtIndices the indices to split the dimension at. To get pieces that encompass the entire tensor,
+     *                       the last index must be the length of the dimension being split on.
+     * @return the pieces of this tensor in the order specified by splitAtIndices
+     */
+    @Override
+    public List<DoubleTensor> split(int dimension, long... splitAtIndices) {
+        dimension = getAbsoluteDimension(dimension, getRank());
+        int[] stride = getRowFirstStride(shape);
+
+        List<DoubleTensor> splits = new ArrayList<>();
+        long previousSplitIndex = 0;
+        for (long splitAtIndex : splitAtIndices) {
+
+            if (previousSplitIndex == splitAtIndex) {
+                throw new IllegalArgumentException("Invalid index to split on " + splitAtIndex + " at dimension " + dimension + " for tensor of shape " + Arrays.toString(shape));
+            }
+
+            long[] splitShape = getShape();
+            splitShape[dimension] = splitAtIndex - previousSplitIndex;
+            splits.add(gather(checkedCast(previousSplitIndex * stride[dimension]), splitShape, stride));
+            previousSplitIndex = splitAtIndex;
+        }
+
+        return splits;
+    }
+
+    @Override
+    public DoubleTensor reciprocal() {
+        return duplicate().reciprocalInPlace();
+    }
+
+    @Override
+    public DoubleTensor minus(double value) {
+        return duplicate().minusInPlace(value);
+    }
+
+    @Override
+    public DoubleTensor plus(double value) {
+        return duplicate().plusInPlace(value);
+    }
+
+    @Override
+    public DoubleTensor times(double value) {
+        return duplicate().timesInPlace(value);
+    }
+
+    @Override
+    public DoubleTensor matrixMultiply(DoubleTensor value) {
+        return fromNd4j(asNd4j().matrixMultiply(value));
+    }
+
+    @Override
+    public DoubleTensor tensorMultiply(DoubleTensor value, int[] dimsLeft, int[] dimsRight) {
+        return fromNd4j(asNd4j().tensorMultiply(value, dimsLeft, dimsRight));
+    }
+
+    @Override
+    public DoubleTensor div(double value) {
+        return duplicate().divInPlace(value);
+    }
+
+    @Override
+    public DoubleTensor pow(DoubleTensor exponent) {
+        return broadcastableBinaryOp(exponent, false, Math::pow);
+    }
+
+    @Override
+    public DoubleTensor pow(double exponent) {
+        return duplicate().powInPlace(exponent);
+    }
+
+    @Override
+    public DoubleTensor sqrt() {
+        return duplicate().sqrtInPlace();
+    }
+
+    @Override
+    public DoubleTensor log() {
+        return duplicate().logInPlace();
+    }
+
+    @Override
+    public DoubleTensor safeLogTimes(DoubleTensor y) {
+        return duplicate().safeLogTimesInPlace(y);
+    }
+
+    @Override
+    public DoubleTensor logGamma() {
+        return duplicate().logGammaInPlace();
+    }
+
+    @Override
+    public DoubleTensor digamma() {
+        return duplicate().digammaInPlace();
+    }
+
+    @Override
+    public DoubleTensor sin() {
+        return duplicate().sinInPlace();
+    }
+
+    @Override
+    public DoubleTensor cos() {
+        return duplicate().cosInPlace();
+    }
+
+    @Override
+    public DoubleTensor tan() {
+        return duplicate().tanInPlace();
+    }
+
+    @Override
+    public DoubleTensor atan() {
+        return duplicate().atanInPlace();
+    }
+
+    @Override
+    public DoubleTensor atan2(double y) {
+        return duplicate().atan2InPlace(y);
+    }
+
+    @Override
+    public DoubleTensor atan2(DoubleTensor y) {
+        return broadcastableBinaryOp(y, false, (x, yValue) -> Math.atan2(yValue, x));
+    }
+
+    @Override
+    public DoubleTensor asin() {
+        return duplicate().asinInPlace();
+    }
+
+    @Override
+    public DoubleTensor acos() {
+        return duplicate().acosInPlace();
+    }
+
+    @Override
+    public DoubleTensor exp() {
+        return duplicate().expInPlace();
+    }
+
+    @Override
+    public DoubleTensor minus(DoubleTensor that) {
+        return broadcastableBinaryOp(that, false, (a, b) -> a - b);
+    }
+
+    @Override
+    public DoubleTensor plus(DoubleTensor that) {
+        return broadcastableBinaryOp(that, false, (a, b) -> a + b);
+    }
+
+    @Override
+    public DoubleTensor times(DoubleTensor that) {
+        return broadcastableBinaryOp(that, false, (a, b) -> a * b);
+    }
+
+    @Override
+    public DoubleTensor div(DoubleTensor that) {
+        return broadcastableBinaryOp(that, false, (a, b) -> a / b);
+    }
+
+    @Override
+    public DoubleTensor abs() {
+        return duplicate().absInPlace();
+    }
+
+    @Override
+    public DoubleTensor unaryMinus() {
+        return duplicate().unaryMinusInPlace();
+    }
+
+    @Override
+    public DoubleTensor setWithMask(DoubleTensor mask, Double value) {
+        return duplicate().setWithMaskInPlace(mask, value);
+    }
+
+    @Override
+    public DoubleTensor reciprocalInPlace() {
+        return transformInPlace(value -> 1.0 / value);
+    }
+
+    @Override
+    public DoubleTensor minusInPlace(double value) {
+        return transformInPlace(element -> element - value);
+    }
+
+    @Override
+    public DoubleTensor plusInPlace(double value) {
+        return transformInPlace(element -> element + value);
+    }
+
+    @Override
+    public DoubleTensor timesInPlace(double value) {
+        return transformInPlace(element -> element * value);
+    }
+
+    @Override
+    public DoubleTensor divInPlace(double value) {
+        return transformInPlace(element -> element / value);
+    }
+
+    @Override
+    public DoubleTensor powInPlace(DoubleTensor exponent) {
+        return broadcastableBinaryOp(exponent, true, Math::pow);
+    }
+
+    @Override
+    public DoubleTensor powInPlace(double exponent) {
+        return transformInPlace(value -> Math.pow(value, exponent));
+    }
+
+    @Override
+    public DoubleTensor sqrtInPlace() {
+        return transformInPlace(Math::sqrt);
+    }
+
+    @Override
+    public DoubleTensor logInPlace() {
+        return transformInPlace(Math::log);
+    }
+
+    /**
+     * This is identical to log().times(y), except that it changes NaN results to 0.
+     * This is important when calculating 0log0, which should return 0
+     * See https://arcsecond.wordpress.com/2009/03/19/0log0-0-for-real/ for some mathematical justification
+     *
+     * @param y The tensor value to multiply by
+     * @return the log of this tensor multiplied by y
+     */
+    @Override
+    public DoubleTensor safeLogTimesInPlace(DoubleTensor y) {
+        TensorValidator.NAN_CATCHER.validate(this);
+        TensorValidator.NAN_CATCHER.validate(y);
+        DoubleTensor result = this.logInPlace().timesInPlace(y);
+        return TensorValidator.NAN_FIXER.validate(result);
+    }
+
+    @Override
+    public DoubleTensor logGammaInPlace() {
+        return transformInPlace(Gamma::logGamma);
+    }
+
+    @Override
+    public DoubleTensor digammaInPlace() {
+        return transformInPlace(Gamma::digamma);
+    }
+
+    @Override
+    public DoubleTensor sinInPlace() {
+        return transformInPlace(Math::sin);
+    }
+
+    @Override
+    public DoubleTensor cosInPlace() {
+        return transformInPlace(Math::cos);
+    }
+
+    @Override
+    public DoubleTensor tanInPlace() {
+        return transformInPlace(Math::tan);
+    }
+
+    @Override
+    public DoubleTensor atanInPlace() {
+        return transformInPlace(Math::atan);
+    }
+
+    @Override
+    public DoubleTensor atan2InPlace(double y) {
+        return transformInPlace(x -> Math.atan2(y, x));
+    }
+
+    @Override
+    public DoubleTensor atan2InPlace(DoubleTensor y) {
+        return broadcastableBinaryOp(y, true, (x, yValue) -> Math.atan2(yValue, x));
+    }
+
+    @Override
+    public DoubleTensor asinInPlace() {
+        return transformInPlace(Math::asin);
+    }
+
+    @Override
+    public DoubleTensor acosInPlace() {
+        return transformInPlace(Math::acos);
+    }
+
+    @Override
+    public DoubleTensor expInPlace() {
+        return transformInPlace(Math::exp);
+    }
+
+    @Override
+    public DoubleTensor minusInPlace(DoubleTensor that) {
+        return broadcastableBinaryOp(that, true, (a, b) -> a - b);
+    }
+
+    @Override
+    public DoubleTensor plusInPlace(DoubleTensor that) {
+        return broadcastableBinaryOp(that, true, (a, b) -> a + b);
+    }
+
+    @Override
+    public DoubleTensor timesInPlace(DoubleTensor that) {
+        return broadcastableBinaryOp(that, true, (a, b) -> a * b);
+    }
+
+    @Override
+    public DoubleTensor divInPlace(DoubleTensor that) {
+        return broadcastableBinaryOp(that, true, (a, b) -> a / b);
+    }
+
+    @Override
+    public DoubleTensor unaryMinusInPlace() {
+        return transformInPlace(value -> -value);
+    }
+
+    @Override
+    public DoubleTensor absInPlace() {
+        return transformInPlace(Math::abs);
+    }
+
+    @Override
+    public DoubleTensor getGreaterThanMask(DoubleTensor greaterThanThis) {
+        return broadcastableBinaryOp(greaterThanThis, false, (a, b) -> a > b ? 1.0 : 0.0);
+    }
+
+    @Override
+    public DoubleTensor getGreaterThanOrEqualToMask(DoubleTensor greaterThanOrEqualToThis) {
+        return broadcastableBinaryOp(greaterThanOrEqualToThis, false, (a, b) -> a >= b ? 1.0 : 0.0);
+    }
+
+    @Override
+    public DoubleTensor getLessThanMask(DoubleTensor lessThanThis) {
+        return broadcastableBinaryOp(lessThanThis, false, (a, b) -> a < b ? 1.0 : 0.0);
+    }
+
+    @Override
+    public DoubleTensor getLessThanOrEqualToMask(DoubleTensor lessThanOrEqualToThis) {
+        return broadcastableBinaryOp(lessThanOrEqualToThis, false, (a, b) -> a <= b ? 1.0 : 0.0);
+    }
+
+    @Override
+    public DoubleTensor setWithMaskInPlace(DoubleTensor mask, Double value) {
+        if (this.getLength() != mask.getLength()) {
+            throw new IllegalArgumentException("The lengths of the tensor and mask must match, but got tensor length: " + this.getLength() + ", mask length: " + mask.getLength());
+        }
+
+        double[] maskValues = bufferOf(mask);
+        for (int i = 0; i < buffer.length; i++) {
+            if (maskValues[i] == 1.0) {
+                buffer[i] = value;
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor applyInPlace(Function<Double, Double> function) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = function.apply(buffer[i]);
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor maxInPlace(DoubleTensor max) {
+        return broadcastableBinaryOp(max, true, Math::max);
+    }
+
+    @Override
+    public DoubleTensor minInPlace(DoubleTensor min) {
+        return broadcastableBinaryOp(min, true, Math::min);
+    }
+
+    @Override
+    public DoubleTensor clampInPlace(DoubleTensor min, DoubleTensor max) {
+        return minInPlace(max).maxInPlace(min);
+    }
+
+    @Override
+    public DoubleTensor ceilInPlace() {
+        return transformInPlace(Math::ceil);
+    }
+
+    @Override
+    public DoubleTensor floorInPlace() {
+        return transformInPlace(Math::floor);
+    }
+
+    /**
+     * Rounds halves away from zero to match ND4J, e.g. round(-2.5) == -3.0 where Java's Math.round gives -2.0
+     *
+     * @return Nearest integer value as a DoubleTensor
+     */
+    @Override
+    public DoubleTensor roundInPlace() {
+        return transformInPlace(value -> value < 0.0 ? -Math.floor(-value + 0.5) : Math.floor(value + 0.5));
+    }
+
+    @Override
+    public DoubleTensor sigmoidInPlace() {
+        return transformInPlace(value -> 1.0D / (1.0D + FastMath.exp(-value)));
+    }
+
+    @Override
+    public DoubleTensor standardizeInPlace() {
+        double average = average();
+        double standardDeviation = standardDeviation();
+        return transformInPlace(value -> (value - average) / standardDeviation);
+    }
+
+    @Override
+    public DoubleTensor replaceNaNInPlace(double value) {
+        return transformInPlace(element -> Double.isNaN(element) ? value : element);
+    }
+
+    @Override
+    public DoubleTensor setAllInPlace(double value) {
+        Arrays.fill(buffer, value);
+        return this;
+    }
+
+    @Override
+    public DoubleTensor setAllInPlace(DoubleTensor values) {
+        return broadcastableBinaryOp(values, true, (current, value) -> value);
+    }
+
+    // Comparisons
+
+    @Override
+    public BooleanTensor lessThan(double value) {
+        return compare(element -> element < value ? 1.0 : 0.0);
+    }
+
+    @Override
+    public BooleanTensor lessThanOrEqual(double value) {
+        return compare(element -> element <= value ? 1.0 : 0.0);
+    }
+
+    @Override
+    public BooleanTensor lessThan(DoubleTensor value) {
+        return toBooleanTensor(getLessThanMask(value));
+    }
+
+    @Override
+    public BooleanTensor lessThanOrEqual(DoubleTensor value) {
+        return toBooleanTensor(getLessThanOrEqualToMask(value));
+    }
+
+    @Override
+    public BooleanTensor greaterThan(double value) {
+        return compare(element -> element > value ? 1.0 : 0.0);
+    }
+
+    @Override
+    public BooleanTensor greaterThanOrEqual(double value) {
+        return compare(element -> element >= value ? 1.0 : 0.0);
+    }
+
+    @Override
+    public BooleanTensor greaterThan(DoubleTensor value) {
+        return toBooleanTensor(getGreaterThanMask(value));
+    }
+
+    @Override
+    public BooleanTensor greaterThanOrEqual(DoubleTensor value) {
+        return toBooleanTensor(getGreaterThanOrEqualToMask(value));
+    }
+
+    @Override
+    public BooleanTensor notNaN() {
+        return compare(element -> Double.isNaN(element) ? 0.0 : 1.0);
+    }
+
+    @Override
+    public BooleanTensor elementwiseEquals(Tensor that) {
+        if (that instanceof DoubleTensor) {
+            return toBooleanTensor(broadcastableBinaryOp((DoubleTensor) that, false, (a, b) -> a == b ? 1.0 : 0.0));
+        } else {
+            return Tensor.elementwiseEquals(this, that);
+        }
+    }
+
+    @Override
+    public BooleanTensor elementwiseEquals(Double value) {
+        return compare(element -> element == value ? 1.0 : 0.0);
+    }
+
+    @Override
+    public FlattenedView<Double> getFlattenedView() {
+        return new JVMDoubleFlattenedView();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DoubleTensor)) return false;
+
+        DoubleTensor that = (DoubleTensor) o;
+        if (!Arrays.equals(that.getShape(), shape)) return false;
+        return Arrays.equals(buffer, bufferOf(that));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(buffer);
+        result = 31 * result + Arrays.hashCode(shape);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "{\n" +
+            "data = " + Arrays.toString(buffer) +
+            "\nshape = " + Arrays.toString(shape) +
+            "\n}";
+    }
+
+    @Override
+    public DoubleTensor toDouble() {
+        return duplicate();
+    }
+
+    @Override
+    public IntegerTensor toInteger() {
+        return IntegerTensor.create(asFlatIntegerArray(), getShape());
+    }
+
+    @Override
+    public double[] asFlatDoubleArray() {
+        return Arrays.copyOf(buffer, buffer.length);
+    }
+
+    @Override
+    public int[] asFlatIntegerArray() {
+        int[] integers = new int[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            integers[i] = (int) buffer[i];
+        }
+        return integers;
+    }
+
+    @Override
+    public Double[] asFlatArray() {
+        return ArrayUtils.toObject(buffer);
+    }
+
+    /**
+     * Applies an elementwise operation between this tensor and another, broadcasting whichever has dimensions of
+     * length one.
+     *
+     * @param right   the right operand
+     * @param inPlace true to write the result into this tensor
+     * @param op      the operation, which is given an element of this tensor and then an element of the right operand
+     * @return this tensor if inPlace is true, otherwise a new tensor
+     */
+    private JVMDoubleTensor broadcastableBinaryOp(DoubleTensor right, boolean inPlace, DoubleBinaryOperator op) {
+        double[] left = buffer;
+        double[] rightValues = bufferOf(right);
+        long[] rightShape = right.getShape();
+
+        boolean sameShape = Arrays.equals(shape, rightShape);
+        long[] resultShape = sameShape ? shape : TensorShape.getBroadcastResultShape(shape, rightShape);
+        boolean resultHasThisShape = sameShape || Arrays.equals(resultShape, shape);
+        double[] result = inPlace && resultHasThisShape ? left : new double[TensorShape.getLengthAsInt(resultShape)];
+
+        if (sameShape) {
+            for (int i = 0; i < result.length; i++) {
+                result[i] = op.applyAsDouble(left[i], rightValues[i]);
+            }
+        } else if (rightValues.length == 1 && resultHasThisShape) {
+            double rightValue = rightValues[0];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = op.applyAsDouble(left[i], rightValue);
+            }
+        } else {
+            forEachIndex(
+                resultShape,
+                getBroadcastStride(shape, resultShape),
+                getBroadcastStride(rightShape, resultShape),
+                (index, leftOffset, rightOffset) -> result[index] = op.applyAsDouble(left[leftOffset], rightValues[rightOffset])
+            );
+        }
+
+        if (inPlace) {
+            buffer = result;
+            shape = resultShape;
+            return this;
+        }
+        return new JVMDoubleTensor(result, resultShape);
+    }
+
+    private JVMDoubleTensor transformInPlace(DoubleUnaryOperator op) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = op.applyAsDouble(buffer[i]);
+        }
+        return this;
+    }
+
+    private BooleanTensor compare(DoubleUnaryOperator toMask) {
+        JVMDoubleTensor mask = new JVMDoubleTensor(new double[buffer.length], shape);
+        for (int i = 0; i < buffer.length; i++) {
+            mask.buffer[i] = toMask.applyAsDouble(buffer[i]);
+        }
+        return toBooleanTensor(mask);
+    }
+
+    private static BooleanTensor toBooleanTensor(DoubleTensor mask) {
+        double[] maskValues = bufferOf(mask);
+        boolean[] booleans = new boolean[maskValues.length];
+        for (int i = 0; i < maskValues.length; i++) {
+            booleans[i] = maskValues[i] != 0.0;
+        }
+        return BooleanTensor.create(booleans, mask.getShape());
+    }
+
+    /**
+     * Copies elements of this tensor into a new tensor.
+     *
+     * @param offset       the offset into this tensor's buffer of the first element to copy
+     * @param resultShape  the shape of the copy
+     * @param sourceStride the distance in this tensor's buffer between consecutive elements of each dimension of the copy
+     * @return the copy
+     */
+    private DoubleTensor gather(int offset, long[] resultShape, int[] sourceStride) {
+        double[] source = buffer;
+        double[] result = new double[TensorShape.getLengthAsInt(resultShape)];
+        forEachIndex(resultShape, sourceStride, new int[resultShape.length],
+            (index, sourceOffset, unused) -> result[index] = source[offset + sourceOffset]
+        );
+        return fromBuffer(result, resultShape);
+    }
+
+    private int getFlatIndex(long[] index) {
+        if (index.length == 1 && shape.length != 1) {
+            if (index[0] < 0 || index[0] >= buffer.length) {
+                throw new IndexOutOfBoundsException(Arrays.toString(index) + " out of bounds for shape " + Arrays.toString(shape));
+            }
+            return (int) index[0];
+        }
+        return checkedCast(TensorShape.getFlatIndex(shape, TensorShape.getRowFirstStride(shape), index));
+    }
+
+    private Nd4jDoubleTensor asNd4j() {
+        return Nd4jDoubleTensor.create(buffer, shape);
+    }
+
+    private static DoubleTensor fromNd4j(DoubleTensor result) {
+        long[] resultShape = result.getShape();
+        if (isPreferredFor(resultShape)) {
+            return fromBuffer(result.asFlatDoubleArray(), resultShape);
+        }
+        return result;
+    }
+
+    private static DoubleTensor fromBuffer(double[] buffer, long[] shape) {
+        if (shape.length == 0) {
+            return new ScalarDoubleTensor(buffer[0]);
+        }
+        return new JVMDoubleTensor(buffer, shape);
+    }
+
+    private static double[] bufferOf(DoubleTensor tensor) {
+        if (tensor instanceof JVMDoubleTensor) {
+            return ((JVMDoubleTensor) tensor).buffer;
+        }
+        return tensor.asFlatDoubleArray();
+    }
+
+    private static int[] getRowFirstStride(long[] shape) {
+        long[] stride = TensorShape.getRowFirstStride(shape);
+        int[] intStride = new int[stride.length];
+        for (int i = 0; i < stride.length; i++) {
+            intStride[i] = checkedCast(stride[i]);
+        }
+        return intStride;
+    }
+
+    /**
+     * @param operandShape the shape of an operand that is broadcast to the result shape
+     * @param resultShape  the shape of the result
+     * @return for each dimension of the result, the distance in the operand's buffer between consecutive elements.
+     * This is zero for dimensions that the operand is broadcast along.
+     */
+    private static int[] getBroadcastStride(long[] operandShape, long[] resultShape) {
+        int[] stride = new int[resultShape.length];
+        int rankDifference = resultShape.length - operandShape.length;
+
+        int step = 1;
+        for (int dimension = operandShape.length - 1; dimension >= 0; dimension--) {
+            if (operandShape[dimension] != 1) {
+                stride[dimension + rankDifference] = step;
+            }
+            step *= operandShape[dimension];
+        }
+        return stride;
+    }
+
+    /**
+     * Visits every index of a shape in row major order, tracking the matching offsets into two buffers.
+     *
+     * @param shape       the shape to visit the indices of
+     * @param firstStride the stride of the first buffer for each dimension of the shape
+     * @param secondStride the stride of the second buffer for each dimension of the shape
+     * @param visitor     called with the flat index into the shape and the offsets into both buffers
+     */
+    private static void forEachIndex(long[] shape, int[] firstStride, int[] secondStride, IndexVisitor visitor) {
+        int length = TensorShape.getLengthAsInt(shape);
+        int[] index = new int[shape.length];
+        int firstOffset = 0;
+        int secondOffset = 0;
+
+        for (int i = 0; i < length; i++) {
+            visitor.visit(i, firstOffset, secondOffset);
+
+            for (int dimension = shape.length - 1; dimension >= 0; dimension--) {
+                index[dimension]++;
+                firstOffset += firstStride[dimension];
+                secondOffset += secondStride[dimension];
+
+                if (index[dimension] < shape[dimension]) {
+                    break;
+                }
+
+                firstOffset -= firstStride[dimension] * index[dimension];
+                secondOffset -= secondStride[dimension] * index[dimension];
+                index[dimension] = 0;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexVisitor {
+        void visit(int index, int firstOffset, int secondOffset);
+    }
+
+    private class JVMDoubleFlattenedView implements FlattenedView<Double> {
+
+        @Override
+        public long size() {
+            return buffer.length;
+        }
+
+        @Override
+        public Double get(long index) {
+            return buffer[checkedCast(index)];
+        }
+
+        @Override
+        public Double getOrScalar(long index) {
+            if (buffer.length == 1) {
+                return get(0);
+            } else {
+                return get(index);
+            }
+        }
+
+        @Override
+        public void set(long index, Double value) {
+            buffer[checkedCast(index)] = value;
+        }
+    }
+}
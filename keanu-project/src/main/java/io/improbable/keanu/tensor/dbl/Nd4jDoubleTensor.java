@@ -103,6 +103,8 @@ public class Nd4jDoubleTensor implements DoubleTensor {
     static INDArray unsafeGetNd4J(DoubleTensor that) {
         if (that.isLengthOne()) {
             return TypedINDArrayFactory.scalar(that.scalar(), BUFFER_TYPE).reshape(that.getShape());
+        } else if (that instanceof JVMDoubleTensor) {
+            return TypedINDArrayFactory.create(JVMDoubleTensor.unsafeGetBuffer((JVMDoubleTensor) that), that.getShape(), BUFFER_TYPE);
         }
         return ((Nd4jDoubleTensor) that).tensor;
     }
@@ -844,6 +846,18 @@ public class Nd4jDoubleTensor implements DoubleTensor {
         return this;
     }
 
+    @Override
+    public DoubleTensor setAllInPlace(DoubleTensor values) {
+        if (values.isLengthOne()) {
+            tensor.assign(values.scalar());
+        } else if (Arrays.equals(values.getShape(), getShape())) {
+            tensor.assign(unsafeGetNd4J(values));
+        } else {
+            tensor.assign(unsafeGetNd4J(values).broadcast(tensor.shape()));
+        }
+        return this;
+    }
+
     @Override
     public DoubleTensor clampInPlace(DoubleTensor min, DoubleTensor max) {
         return minInPlace(max).maxInPlace(min);
@@ -1074,7 +1088,7 @@ public class Nd4jDoubleTensor implements DoubleTensor {
         if (this == o) return true;
 
         if (o instanceof Nd4jDoubleTensor) {
-            return tensor.equals(((Nd4jDoubleTensor) o).tensor);
+            return hasExactlyTheSameValuesAs((Nd4jDoubleTensor) o);
         } else if (o instanceof Tensor) {
             Tensor that = (Tensor) o;
             if (!Arrays.equals(that.getShape(), getShape())) return false;
@@ -1087,9 +1101,55 @@ public class Nd4jDoubleTensor implements DoubleTensor {
         return false;
     }
 
+    /**
+     * Compares values exactly, in the same way as {@link JVMDoubleTensor#equals(Object)}, rather than within
+     * Nd4j's default epsilon, so that equal tensors always have the same hash code.
+     */
+    private boolean hasExactlyTheSameValuesAs(Nd4jDoubleTensor that) {
+        if (!Arrays.equals(that.getShape(), getShape())) return false;
+
+        INDArray values = rowMajorValues();
+        INDArray thatValues = that.rowMajorValues();
+        DataBuffer buffer = values.data();
+        DataBuffer thatBuffer = thatValues.data();
+        long length = values.length();
+        for (long i = 0; i < length; i++) {
+            long bits = Double.doubleToLongBits(buffer.getDouble(values.offset() + i));
+            long thatBits = Double.doubleToLongBits(thatBuffer.getDouble(thatValues.offset() + i));
+            if (bits != thatBits) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Uses the same formula as {@link JVMDoubleTensor#hashCode()}, as the two can be equal to each other. The values
+     * are read from the underlying buffer rather than copied out of it.
+     */
     @Override
     public int hashCode() {
-        return tensor.hashCode();
+        INDArray values = rowMajorValues();
+        DataBuffer buffer = values.data();
+        long length = values.length();
+        int result = 1;
+        for (long i = 0; i < length; i++) {
+            long bits = Double.doubleToLongBits(buffer.getDouble(values.offset() + i));
+            result = 31 * result + (int) (bits ^ (bits >>> 32));
+        }
+        result = 31 * result + Arrays.hashCode(getShape());
+        return result;
+    }
+
+    /**
+     * @return the tensor itself if its values are contiguous and in row major order in its buffer, otherwise a
+     * row major copy of it
+     */
+    private INDArray rowMajorValues() {
+        if (tensor.ordering() == 'c' && tensor.elementWiseStride() == 1) {
+            return tensor;
+        }
+        return tensor.dup('c');
     }
 
     @Override
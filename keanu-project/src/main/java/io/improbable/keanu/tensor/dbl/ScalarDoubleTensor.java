@@ -585,7 +585,7 @@ public class ScalarDoubleTensor implements DoubleTensor {
             value = Math.atan2(y.scalar(), value);
             shape = calculateShapeForLengthOneBroadcast(shape, y.getShape());
         } else {
-            return Nd4jDoubleTensor.create(value, y.getShape()).atan2InPlace(y);
+            return DoubleTensor.create(value, y.getShape()).atan2InPlace(y);
         }
         return this;
     }
@@ -751,6 +751,17 @@ public class ScalarDoubleTensor implements DoubleTensor {
         return this;
     }
 
+    @Override
+    public DoubleTensor setAllInPlace(DoubleTensor values) {
+        if (values.isLengthOne()) {
+            setAllInPlace(values.scalar());
+            shape = calculateShapeForLengthOneBroadcast(shape, values.getShape());
+        } else {
+            return values.duplicate();
+        }
+        return this;
+    }
+
     @Override
     public BooleanTensor lessThan(double that) {
         return BooleanTensor.create(this.value < that, shape);
@@ -870,7 +881,7 @@ public class ScalarDoubleTensor implements DoubleTensor {
 
     @Override
     public int hashCode() {
-        int result = value != null ? value.hashCode() : 0;
+        int result = 31 + (value != null ? value.hashCode() : 0);
         result = 31 * result + Arrays.hashCode(shape);
         return result;
     }
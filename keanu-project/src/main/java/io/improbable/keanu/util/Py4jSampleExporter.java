@@ -0,0 +1,241 @@
+package io.improbable.keanu.util;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.algorithms.ColumnarSampleList;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import io.improbable.keanu.vertices.Vertex;
+import lombok.experimental.UtilityClass;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes the samples of several variables into one contiguous little-endian buffer, so that they can be handed to
+ * Python in a single call and turned into numpy arrays without copying element by element.
+ * <p>
+ * The buffer starts with a header:
+ * <pre>
+ * int32 variable count
+ * int32 sample count
+ * for each variable:
+ *     int32 label length, followed by the label in UTF-8
+ *     int32 dtype: 0 for float64, 1 for int32, 2 for bool
+ *     int32 rank, followed by an int64 for each dimension of a sample's shape
+ *     int64 offset of the variable's data from the start of the buffer
+ * </pre>
+ * The data of each variable starts at an offset that is a multiple of 8 and holds its samples one after the other,
+ * i.e. an array of shape [sample count, shape...] in C order.
+ */
+@UtilityClass
+public class Py4jSampleExporter {
+
+    public static final int FLOAT64 = 0;
+    public static final int INT32 = 1;
+    public static final int BOOL = 2;
+
+    private static final int DATA_ALIGNMENT = 8;
+
+    /**
+     * @param samples   the samples to export
+     * @param variables the variables to export the samples of, in the order they will appear in the buffer
+     * @return the header and the samples of every variable
+     */
+    public static byte[] toByteArray(NetworkSamples samples, List<? extends Variable> variables) {
+        Layout layout = new Layout(samples, variables);
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(layout.totalSize));
+        layout.write(buffer);
+        return buffer.array();
+    }
+
+    /**
+     * Writes the same bytes as {@link #toByteArray(NetworkSamples, List)} to a file, which can then be read without
+     * a copy with numpy.memmap.
+     *
+     * @param samples   the samples to export
+     * @param variables the variables to export the samples of, in the order they will appear in the file
+     * @param path      the file to write. It is created or truncated.
+     * @throws IOException if the file could not be written
+     */
+    public static void toFile(NetworkSamples samples, List<? extends Variable> variables, String path) throws IOException {
+        Layout layout = new Layout(samples, variables);
+        try (FileChannel channel = FileChannel.open(Paths.get(path),
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            layout.write(channel.map(FileChannel.MapMode.READ_WRITE, 0, layout.totalSize));
+        }
+    }
+
+    private static class Layout {
+        private final int sampleCount;
+        private final List<List<?>> samplesPerVariable = new ArrayList<>();
+        private final List<byte[]> labels = new ArrayList<>();
+        private final List<long[]> shapes = new ArrayList<>();
+        private final List<Integer> dtypes = new ArrayList<>();
+        private final List<Long> dataOffsets = new ArrayList<>();
+        private final long totalSize;
+
+        Layout(NetworkSamples samples, List<? extends Variable> variables) {
+            sampleCount = samples.size();
+
+            long headerSize = 2 * Integer.BYTES;
+            for (Variable<?, ?> variable : variables) {
+                List<?> variableSamples = samples.getStoredSamples(variable.getReference());
+                Object first = variableSamples.isEmpty() ? variable.getValue() : variableSamples.get(0);
+                byte[] label = labelOf(variable).getBytes(StandardCharsets.UTF_8);
+                long[] shape = shapeOf(first);
+
+                samplesPerVariable.add(variableSamples);
+                labels.add(label);
+                shapes.add(shape);
+                dtypes.add(dtypeOf(first));
+
+                headerSize += Integer.BYTES + label.length + 2 * Integer.BYTES + (long) Long.BYTES * shape.length + Long.BYTES;
+            }
+
+            long offset = align(headerSize);
+            for (int i = 0; i < variables.size(); i++) {
+                dataOffsets.add(offset);
+                long length = (long) sampleCount * TensorShape.getLength(shapes.get(i));
+                offset = align(offset + length * bytesPerElement(dtypes.get(i)));
+            }
+            totalSize = offset;
+        }
+
+        void write(ByteBuffer buffer) {
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.putInt(samplesPerVariable.size());
+            buffer.putInt(sampleCount);
+            for (int i = 0; i < samplesPerVariable.size(); i++) {
+                buffer.putInt(labels.get(i).length);
+                buffer.put(labels.get(i));
+                buffer.putInt(dtypes.get(i));
+                buffer.putInt(shapes.get(i).length);
+                for (long dimension : shapes.get(i)) {
+                    buffer.putLong(dimension);
+                }
+                buffer.putLong(dataOffsets.get(i));
+            }
+
+            for (int i = 0; i < samplesPerVariable.size(); i++) {
+                buffer.position(Math.toIntExact(dataOffsets.get(i)));
+                writeSamples(buffer, samplesPerVariable.get(i), dtypes.get(i), shapes.get(i));
+            }
+        }
+    }
+
+    private static void writeSamples(ByteBuffer buffer, List<?> samples, int dtype, long[] shape) {
+        if (samples instanceof ColumnarSampleList) {
+            ColumnarSampleList<?> columns = (ColumnarSampleList<?>) samples;
+            int sampleLength = columns.isDoubleColumns() || columns.isIntegerColumns() ? columns.getSampleLength() : 0;
+
+            if (columns.isDoubleColumns()) {
+                writeDoubleColumns(buffer, columns, sampleLength);
+                return;
+            } else if (columns.isIntegerColumns()) {
+                writeIntegerColumns(buffer, columns, sampleLength);
+                return;
+            }
+        }
+
+        for (Object sample : samples) {
+            Preconditions.checkArgument(
+                dtypeOf(sample) == dtype && Arrays.equals(shapeOf(sample), shape),
+                "Every sample of a variable must have the same type and shape to be exported"
+            );
+
+            switch (dtype) {
+                case FLOAT64:
+                    for (double value : asFlatDoubleArray(sample)) {
+                        buffer.putDouble(value);
+                    }
+                    break;
+                case INT32:
+                    for (int value : asFlatIntegerArray(sample)) {
+                        buffer.putInt(value);
+                    }
+                    break;
+                default:
+                    for (boolean value : asFlatBooleanArray(sample)) {
+                        buffer.put(value ? (byte) 0x01 : 0x00);
+                    }
+            }
+        }
+    }
+
+    private static void writeDoubleColumns(ByteBuffer buffer, ColumnarSampleList<?> columns, int sampleLength) {
+        DoubleBuffer doubles = buffer.asDoubleBuffer();
+        columns.forEachDoubleSample((chunk, offset) -> doubles.put(chunk, offset, sampleLength));
+        buffer.position(buffer.position() + doubles.position() * Double.BYTES);
+    }
+
+    private static void writeIntegerColumns(ByteBuffer buffer, ColumnarSampleList<?> columns, int sampleLength) {
+        IntBuffer integers = buffer.asIntBuffer();
+        columns.forEachIntegerSample((chunk, offset) -> integers.put(chunk, offset, sampleLength));
+        buffer.position(buffer.position() + integers.position() * Integer.BYTES);
+    }
+
+    private static String labelOf(Variable<?, ?> variable) {
+        if (variable instanceof Vertex && ((Vertex<?>) variable).getLabel() != null) {
+            return ((Vertex<?>) variable).getLabel().getQualifiedName();
+        }
+        return variable.getReference().toString();
+    }
+
+    private static int dtypeOf(Object sample) {
+        if (sample instanceof DoubleTensor || sample instanceof Double) {
+            return FLOAT64;
+        } else if (sample instanceof IntegerTensor || sample instanceof Integer) {
+            return INT32;
+        } else if (sample instanceof BooleanTensor || sample instanceof Boolean) {
+            return BOOL;
+        }
+        throw new IllegalArgumentException("Cannot export samples of type " + sample.getClass().getSimpleName());
+    }
+
+    private static long[] shapeOf(Object sample) {
+        return sample instanceof Tensor ? ((Tensor<?>) sample).getShape() : Tensor.SCALAR_SHAPE;
+    }
+
+    private static int bytesPerElement(int dtype) {
+        switch (dtype) {
+            case FLOAT64:
+                return Double.BYTES;
+            case INT32:
+                return Integer.BYTES;
+            default:
+                return 1;
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + DATA_ALIGNMENT - 1) / DATA_ALIGNMENT * DATA_ALIGNMENT;
+    }
+
+    private static double[] asFlatDoubleArray(Object sample) {
+        return sample instanceof Double ? new double[]{(Double) sample} : ((DoubleTensor) sample).asFlatDoubleArray();
+    }
+
+    private static int[] asFlatIntegerArray(Object sample) {
+        return sample instanceof Integer ? new int[]{(Integer) sample} : ((IntegerTensor) sample).asFlatIntegerArray();
+    }
+
+    private static boolean[] asFlatBooleanArray(Object sample) {
+        return sample instanceof Boolean ? new boolean[]{(Boolean) sample} : ((BooleanTensor) sample).asFlatBooleanArray();
+    }
+}
@@ -46,7 +46,7 @@ public class CsvReader {
 
     /**
      * Read all lines from the csv file one at a time without ever holding
-     * the entire csv file in memory
+     * the entire csv file in memory. Closing the stream closes the file.
      *
      * @return a stream of lines represented by a list of strings where
      * each string is a field in the line.
@@ -64,7 +64,14 @@ public class CsvReader {
         }
 
         return bufferedReader.lines()
-            .map(this::splitLine);
+            .map(this::splitLine)
+            .onClose(() -> {
+                try {
+                    bufferedReader.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
     }
 
     public <T> RowsAsObjectParser<T> asRowsDefinedBy(Class<T> clazz) {
@@ -0,0 +1,152 @@
+package io.improbable.keanu.util.io;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The samples of one variable in a sample file. Every sample of a column has the same type and shape, so a sample
+ * takes a fixed number of bytes and the samples of a block are stored back to back.
+ */
+class SampleFileColumn {
+
+    private static final byte DOUBLE_TENSOR = 0;
+    private static final byte INTEGER_TENSOR = 1;
+    private static final byte BOOLEAN_TENSOR = 2;
+
+    private final byte type;
+    private final long[] shape;
+    private final int length;
+
+    private SampleFileColumn(byte type, long[] shape) {
+        this.type = type;
+        this.shape = shape;
+        this.length = Math.toIntExact(TensorShape.getLength(shape));
+    }
+
+    /**
+     * @param variable a variable whose value is a double, integer or boolean tensor
+     * @return a column for samples with the type and shape of the variable's current value
+     * @throws IllegalArgumentException if the value of the variable is not a supported tensor
+     */
+    static SampleFileColumn of(Variable<?, ?> variable) {
+        Object value = variable.getValue();
+        if (value instanceof DoubleTensor) {
+            return new SampleFileColumn(DOUBLE_TENSOR, ((Tensor<?>) value).getShape());
+        } else if (value instanceof IntegerTensor) {
+            return new SampleFileColumn(INTEGER_TENSOR, ((Tensor<?>) value).getShape());
+        } else if (value instanceof BooleanTensor) {
+            return new SampleFileColumn(BOOLEAN_TENSOR, ((Tensor<?>) value).getShape());
+        }
+        String valueType = value == null ? "null" : value.getClass().getSimpleName();
+        throw new IllegalArgumentException("Cannot write samples of type " + valueType + " to a sample file");
+    }
+
+    int headerBytes() {
+        return 1 + Integer.BYTES + shape.length * Long.BYTES;
+    }
+
+    void writeHeader(ByteBuffer buffer) {
+        buffer.put(type);
+        buffer.putInt(shape.length);
+        for (long dimension : shape) {
+            buffer.putLong(dimension);
+        }
+    }
+
+    /**
+     * @param buffer a buffer positioned at a column written by {@link #writeHeader(ByteBuffer)}
+     * @return the column
+     */
+    static SampleFileColumn readHeader(ByteBuffer buffer) {
+        byte type = buffer.get();
+        long[] shape = new long[buffer.getInt()];
+        for (int i = 0; i < shape.length; i++) {
+            shape[i] = buffer.getLong();
+        }
+        Preconditions.checkArgument(type == DOUBLE_TENSOR || type == INTEGER_TENSOR || type == BOOLEAN_TENSOR,
+            "Unknown column type %s in sample file", type
+        );
+        return new SampleFileColumn(type, shape);
+    }
+
+    int bytesPerSample() {
+        switch (type) {
+            case DOUBLE_TENSOR:
+                return length * Double.BYTES;
+            case INTEGER_TENSOR:
+                return length * Integer.BYTES;
+            default:
+                return length;
+        }
+    }
+
+    /**
+     * @param buffer the buffer to append the values of the sample to
+     * @param sample a sample with the type and shape of the column
+     * @throws IllegalArgumentException if the sample does not have the type and length of the column
+     */
+    void write(ByteBuffer buffer, Object sample) {
+        switch (type) {
+            case DOUBLE_TENSOR:
+                for (double value : checkSample(sample, DoubleTensor.class).asFlatDoubleArray()) {
+                    buffer.putDouble(value);
+                }
+                break;
+            case INTEGER_TENSOR:
+                for (int value : checkSample(sample, IntegerTensor.class).asFlatIntegerArray()) {
+                    buffer.putInt(value);
+                }
+                break;
+            default:
+                for (boolean value : checkSample(sample, BooleanTensor.class).asFlatBooleanArray()) {
+                    buffer.put(value ? (byte) 1 : (byte) 0);
+                }
+        }
+    }
+
+    /**
+     * @param buffer the buffer to read from
+     * @param offset the position of the values of the sample in the buffer
+     * @return the sample
+     */
+    Object read(ByteBuffer buffer, int offset) {
+        switch (type) {
+            case DOUBLE_TENSOR:
+                double[] doubles = new double[length];
+                for (int i = 0; i < length; i++) {
+                    doubles[i] = buffer.getDouble(offset + i * Double.BYTES);
+                }
+                return DoubleTensor.create(doubles, shape);
+            case INTEGER_TENSOR:
+                int[] integers = new int[length];
+                for (int i = 0; i < length; i++) {
+                    integers[i] = buffer.getInt(offset + i * Integer.BYTES);
+                }
+                return IntegerTensor.create(integers, shape);
+            default:
+                boolean[] booleans = new boolean[length];
+                for (int i = 0; i < length; i++) {
+                    booleans[i] = buffer.get(offset + i) != 0;
+                }
+                return BooleanTensor.create(booleans, shape);
+        }
+    }
+
+    private <T extends Tensor<?>> T checkSample(Object sample, Class<T> expectedType) {
+        Preconditions.checkArgument(expectedType.isInstance(sample),
+            "Expected a sample of type %s but got %s", expectedType.getSimpleName(), sample
+        );
+        T tensor = expectedType.cast(sample);
+        Preconditions.checkArgument(tensor.getLength() == length,
+            "Expected a sample of length %s but got one of length %s", length, tensor.getLength()
+        );
+        return tensor;
+    }
+}
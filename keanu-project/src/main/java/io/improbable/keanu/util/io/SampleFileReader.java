@@ -0,0 +1,279 @@
+package io.improbable.keanu.util.io;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Opens a file written by {@link SampleFileWriter} as {@link NetworkSamples}. The file is memory mapped rather than
+ * read, and a sample is only decoded when it is got, so opening a file is fast and takes little memory whatever the
+ * number of samples in it.
+ * <p>
+ * The samples are read as they are when the file is opened. A file that is still being written can be opened, and
+ * holds the samples of every block written so far.
+ */
+public class SampleFileReader {
+
+    /**
+     * Blocks are mapped in regions of at most this many bytes, as a single mapping cannot be larger than 2GB.
+     */
+    private static final long MAX_REGION_BYTES = 1L << 30;
+
+    private SampleFileReader() {
+    }
+
+    /**
+     * @param file      a file written by {@link SampleFileWriter}
+     * @param variables the variables the file was written with, in the same order. They may belong to a different
+     *                  copy of the model from the one that was sampled, e.g. one that was loaded in another JVM.
+     * @return the samples in the file, keyed by the given variables
+     * @throws IOException              if the file is not a sample file or could not be read
+     * @throws IllegalArgumentException if the file holds samples of a different number of variables
+     */
+    public static NetworkSamples open(Path file, List<? extends Variable> variables) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer start = read(channel, 0, 3 * Integer.BYTES);
+            if (start.getInt() != SampleFileWriter.MAGIC) {
+                throw new IOException(file + " is not a sample file");
+            }
+            int version = start.getInt();
+            if (version != SampleFileWriter.VERSION) {
+                throw new IOException("Unsupported sample file version " + version + " in " + file);
+            }
+            int headerBytes = start.getInt();
+
+            ByteBuffer header = read(channel, start.limit(), headerBytes - start.limit());
+            int samplesPerBlock = header.getInt();
+            int columnCount = header.getInt();
+            Preconditions.checkArgument(columnCount == variables.size(),
+                "%s has samples of %s variables but %s variables were given", file, columnCount, variables.size()
+            );
+
+            List<SampleFileColumn> columns = new ArrayList<>(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                columns.add(SampleFileColumn.readHeader(header));
+            }
+
+            Blocks blocks = Blocks.map(channel, headerBytes, samplesPerBlock, columns);
+
+            Map<VariableReference, List<?>> samplesByVariable = new HashMap<>();
+            for (int i = 0; i < columnCount; i++) {
+                samplesByVariable.put(variables.get(i).getReference(), new ColumnSamples(blocks, i));
+            }
+
+            return new NetworkSamples(samplesByVariable, new LogProbSamples(blocks), blocks.sampleCount);
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(SampleFileWriter.BYTE_ORDER);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of sample file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * The complete blocks of a sample file, mapped into memory.
+     */
+    private static class Blocks {
+
+        private final List<SampleFileColumn> columns;
+        private final int[] columnStarts;
+        private final int logProbStart;
+        private final List<MappedByteBuffer> regions;
+        private final int[] regionOfBlock;
+        private final int[] offsetOfBlock;
+        private final int[] samplesInBlock;
+        private final int[] firstSampleOfBlock;
+        private final int sampleCount;
+
+        private Blocks(List<SampleFileColumn> columns,
+                       List<MappedByteBuffer> regions,
+                       int[] regionOfBlock,
+                       int[] offsetOfBlock,
+                       int[] samplesInBlock,
+                       int sampleCount) {
+            this.columns = columns;
+            this.regions = regions;
+            this.regionOfBlock = regionOfBlock;
+            this.offsetOfBlock = offsetOfBlock;
+            this.samplesInBlock = samplesInBlock;
+            this.sampleCount = sampleCount;
+
+            this.firstSampleOfBlock = new int[samplesInBlock.length];
+            int firstSample = 0;
+            for (int i = 0; i < samplesInBlock.length; i++) {
+                firstSampleOfBlock[i] = firstSample;
+                firstSample += samplesInBlock[i];
+            }
+
+            this.columnStarts = new int[columns.size()];
+            int start = 0;
+            for (int i = 0; i < columns.size(); i++) {
+                columnStarts[i] = start;
+                start += columns.get(i).bytesPerSample();
+            }
+            this.logProbStart = start;
+        }
+
+        static Blocks map(FileChannel channel,
+                          long firstBlockPosition,
+                          int samplesPerBlock,
+                          List<SampleFileColumn> columns) throws IOException {
+
+            long bytesPerSample = Double.BYTES;
+            for (SampleFileColumn column : columns) {
+                bytesPerSample += column.bytesPerSample();
+            }
+
+            long fileSize = channel.size();
+            List<Long> blockPositions = new ArrayList<>();
+            List<Integer> blockSampleCounts = new ArrayList<>();
+            long sampleCount = 0;
+            long position = firstBlockPosition;
+            while (position + Integer.BYTES <= fileSize) {
+                int samples = read(channel, position, Integer.BYTES).getInt();
+                long blockBytes = Integer.BYTES + samples * bytesPerSample;
+                if (samples <= 0 || samples > samplesPerBlock || position + blockBytes > fileSize) {
+                    break;
+                }
+                blockPositions.add(position);
+                blockSampleCounts.add(samples);
+                sampleCount += samples;
+                position += blockBytes;
+            }
+            Preconditions.checkArgument(sampleCount <= Integer.MAX_VALUE,
+                "Cannot open %s samples at once", sampleCount
+            );
+
+            int blockCount = blockPositions.size();
+            int[] regionOfBlock = new int[blockCount];
+            int[] offsetOfBlock = new int[blockCount];
+            int[] samplesInBlock = new int[blockCount];
+            List<MappedByteBuffer> regions = new ArrayList<>();
+
+            int regionFirstBlock = 0;
+            for (int block = 0; block < blockCount; block++) {
+                long blockEnd = blockPositions.get(block) + Integer.BYTES + blockSampleCounts.get(block) * bytesPerSample;
+                boolean lastBlock = block == blockCount - 1;
+                boolean nextBlockFits = !lastBlock && blockEnd + Integer.BYTES + blockSampleCounts.get(block + 1) * bytesPerSample
+                    - blockPositions.get(regionFirstBlock) <= MAX_REGION_BYTES;
+
+                if (!nextBlockFits) {
+                    long regionStart = blockPositions.get(regionFirstBlock);
+                    regions.add(mapRegion(channel, regionStart, blockEnd - regionStart));
+                    for (int i = regionFirstBlock; i <= block; i++) {
+                        regionOfBlock[i] = regions.size() - 1;
+                        offsetOfBlock[i] = (int) (blockPositions.get(i) - regionStart);
+                        samplesInBlock[i] = blockSampleCounts.get(i);
+                    }
+                    regionFirstBlock = block + 1;
+                }
+            }
+
+            return new Blocks(columns, regions, regionOfBlock, offsetOfBlock, samplesInBlock, (int) sampleCount);
+        }
+
+        private static MappedByteBuffer mapRegion(FileChannel channel, long position, long size) throws IOException {
+            Preconditions.checkArgument(size <= Integer.MAX_VALUE,
+                "A block of %s bytes is too large to map", size
+            );
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            region.order(SampleFileWriter.BYTE_ORDER);
+            return region;
+        }
+
+        Object getSample(int column, int index) {
+            int block = blockOf(index);
+            int indexInBlock = index - firstSampleOfBlock[block];
+            int offset = offsetOfBlock[block] + Integer.BYTES
+                + samplesInBlock[block] * columnStarts[column]
+                + indexInBlock * columns.get(column).bytesPerSample();
+            return columns.get(column).read(regions.get(regionOfBlock[block]), offset);
+        }
+
+        double getLogProb(int index) {
+            int block = blockOf(index);
+            int indexInBlock = index - firstSampleOfBlock[block];
+            int offset = offsetOfBlock[block] + Integer.BYTES
+                + samplesInBlock[block] * logProbStart
+                + indexInBlock * Double.BYTES;
+            return regions.get(regionOfBlock[block]).getDouble(offset);
+        }
+
+        /**
+         * Blocks are usually full, but a block written when the writer was flushed may hold fewer samples.
+         */
+        private int blockOf(int index) {
+            int found = Arrays.binarySearch(firstSampleOfBlock, index);
+            return found >= 0 ? found : -found - 2;
+        }
+    }
+
+    private static class ColumnSamples extends AbstractList<Object> implements RandomAccess {
+
+        private final Blocks blocks;
+        private final int column;
+
+        ColumnSamples(Blocks blocks, int column) {
+            this.blocks = blocks;
+            this.column = column;
+        }
+
+        @Override
+        public Object get(int index) {
+            checkIndex(index, blocks.sampleCount);
+            return blocks.getSample(column, index);
+        }
+
+        @Override
+        public int size() {
+            return blocks.sampleCount;
+        }
+    }
+
+    private static class LogProbSamples extends AbstractList<Double> implements RandomAccess {
+
+        private final Blocks blocks;
+
+        LogProbSamples(Blocks blocks) {
+            this.blocks = blocks;
+        }
+
+        @Override
+        public Double get(int index) {
+            checkIndex(index, blocks.sampleCount);
+            return blocks.getLogProb(index);
+        }
+
+        @Override
+        public int size() {
+            return blocks.sampleCount;
+        }
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for " + size + " samples");
+        }
+    }
+}
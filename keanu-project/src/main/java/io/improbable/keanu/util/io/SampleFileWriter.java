@@ -0,0 +1,282 @@
+package io.improbable.keanu.util.io;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends network samples to a binary sample file as they are taken, so that a chain of any length can be sampled
+ * with a bounded amount of memory. Read the file back with {@link SampleFileReader}.
+ * <p>
+ * The samples are buffered in blocks and each full block is written to the file, as is the last block when the
+ * writer is flushed. Within a block the values of each variable, and then the log probabilities, are stored as a
+ * column of primitives, so the file can be memory mapped and a sample read without parsing. If the writer is not
+ * closed, e.g. because the JVM dies, the file still holds every block written before then.
+ * <p>
+ * The file starts with a header that holds the type and shape of each variable, taken from its value when the
+ * writer is created. Every sample of a variable must have that type and shape.
+ */
+public class SampleFileWriter implements Closeable {
+
+    static final int MAGIC = 0x4b534d50;
+    static final int VERSION = 1;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * The size of a block is chosen so that it takes about this many bytes, unless a single sample is larger.
+     */
+    private static final int TARGET_BLOCK_BYTES = 1 << 22;
+    private static final int MAX_SAMPLES_PER_BLOCK = 1 << 12;
+
+    private final FileChannel channel;
+    private final List<VariableReference> references;
+    private final List<SampleFileColumn> columns;
+    private final int samplesPerBlock;
+    private final ByteBuffer[] columnBuffers;
+    private final ByteBuffer logProbBuffer;
+    private final ByteBuffer blockHeader;
+
+    private int samplesInBlock;
+    private long sampleCount;
+
+    /**
+     * @param file      the file to write the samples to. It is replaced if it exists.
+     * @param variables the variables whose samples to write, in the order they are stored in the file
+     * @throws IOException if the file could not be created
+     */
+    public SampleFileWriter(Path file, List<? extends Variable> variables) throws IOException {
+        this(file, variables, samplesPerBlockFor(columnsOf(variables)));
+    }
+
+    /**
+     * @param file            the file to write the samples to. It is replaced if it exists.
+     * @param variables       the variables whose samples to write, in the order they are stored in the file
+     * @param samplesPerBlock the number of samples to buffer before writing them to the file
+     * @throws IOException if the file could not be created
+     */
+    public SampleFileWriter(Path file, List<? extends Variable> variables, int samplesPerBlock) throws IOException {
+        this(variables, columnsOf(variables), checkSamplesPerBlock(samplesPerBlock), 0, FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE
+        ));
+        try {
+            writeHeader();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private SampleFileWriter(List<? extends Variable> variables,
+                             List<SampleFileColumn> columns,
+                             int samplesPerBlock,
+                             long sampleCount,
+                             FileChannel channel) {
+        this.channel = channel;
+        this.sampleCount = sampleCount;
+        this.columns = columns;
+        this.samplesPerBlock = samplesPerBlock;
+        this.references = new ArrayList<>(variables.size());
+        for (Variable variable : variables) {
+            references.add(variable.getReference());
+        }
+
+        this.columnBuffers = new ByteBuffer[columns.size()];
+        for (int i = 0; i < columnBuffers.length; i++) {
+            columnBuffers[i] = ByteBuffer.allocate(Math.multiplyExact(samplesPerBlock, columns.get(i).bytesPerSample()))
+                .order(BYTE_ORDER);
+        }
+        this.logProbBuffer = ByteBuffer.allocate(samplesPerBlock * Double.BYTES).order(BYTE_ORDER);
+        this.blockHeader = ByteBuffer.allocate(Integer.BYTES).order(BYTE_ORDER);
+    }
+
+    /**
+     * Opens a sample file to append more samples to the first ones in it, e.g. to carry on a run from a checkpoint.
+     * Anything in the file after those samples is discarded.
+     *
+     * @param file        a file written by a SampleFileWriter
+     * @param variables   the variables the file was written with, in the same order
+     * @param position    the {@link #getPosition() position} of the writer when the samples to keep were flushed
+     * @param sampleCount the number of samples to keep
+     * @return a writer that appends samples after the ones kept
+     * @throws IOException if the file is not a sample file or is shorter than the given position
+     */
+    public static SampleFileWriter resume(Path file,
+                                          List<? extends Variable> variables,
+                                          long position,
+                                          long sampleCount) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(4 * Integer.BYTES).order(BYTE_ORDER);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException(file + " is not a sample file");
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(file + " is not a sample file of version " + VERSION);
+            }
+            int headerBytes = header.getInt();
+            int samplesPerBlock = header.getInt();
+            if (position < headerBytes || position > channel.size()) {
+                throw new IOException("Cannot resume writing " + file + " at position " + position);
+            }
+
+            channel.truncate(position);
+            channel.position(position);
+            return new SampleFileWriter(variables, columnsOf(variables), samplesPerBlock, sampleCount, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param sample a sample that includes a value for each of the variables of the file
+     * @throws IOException              if a full block could not be written
+     * @throws IllegalArgumentException if a value does not have the type and shape of its variable
+     */
+    public void append(NetworkSample sample) throws IOException {
+        try {
+            for (int i = 0; i < columns.size(); i++) {
+                columns.get(i).write(columnBuffers[i], sample.get(references.get(i)));
+            }
+        } catch (IllegalArgumentException e) {
+            for (int i = 0; i < columns.size(); i++) {
+                columnBuffers[i].position(samplesInBlock * columns.get(i).bytesPerSample());
+            }
+            throw e;
+        }
+        logProbBuffer.putDouble(sample.getLogOfMasterP());
+        samplesInBlock++;
+        sampleCount++;
+
+        if (samplesInBlock == samplesPerBlock) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * @return the number of samples appended so far
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return the number of bytes written to the file so far. After a {@link #flush()} this is the end of the last
+     * sample appended.
+     * @throws IOException if the position could not be read
+     */
+    public long getPosition() throws IOException {
+        return channel.position();
+    }
+
+    /**
+     * Writes the samples that have not been written yet, as a block that may not be full.
+     *
+     * @throws IOException if the samples could not be written
+     */
+    public void flush() throws IOException {
+        if (samplesInBlock > 0) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Writes the samples that have not been written yet and closes the file.
+     *
+     * @throws IOException if the samples could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (samplesInBlock > 0) {
+                writeBlock();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        int headerBytes = 5 * Integer.BYTES;
+        for (SampleFileColumn column : columns) {
+            headerBytes += column.headerBytes();
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(headerBytes).order(BYTE_ORDER);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(headerBytes);
+        header.putInt(samplesPerBlock);
+        header.putInt(columns.size());
+        for (SampleFileColumn column : columns) {
+            column.writeHeader(header);
+        }
+
+        header.flip();
+        writeFully(header);
+    }
+
+    private void writeBlock() throws IOException {
+        blockHeader.clear();
+        blockHeader.putInt(samplesInBlock);
+        blockHeader.flip();
+        writeFully(blockHeader);
+
+        for (ByteBuffer columnBuffer : columnBuffers) {
+            columnBuffer.flip();
+            writeFully(columnBuffer);
+            columnBuffer.clear();
+        }
+
+        logProbBuffer.flip();
+        writeFully(logProbBuffer);
+        logProbBuffer.clear();
+
+        samplesInBlock = 0;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static List<SampleFileColumn> columnsOf(List<? extends Variable> variables) {
+        Preconditions.checkArgument(!variables.isEmpty(), "List of variables to write samples of is empty");
+
+        List<SampleFileColumn> columns = new ArrayList<>(variables.size());
+        for (Variable<?, ?> variable : variables) {
+            columns.add(SampleFileColumn.of(variable));
+        }
+        return columns;
+    }
+
+    private static int checkSamplesPerBlock(int samplesPerBlock) {
+        Preconditions.checkArgument(samplesPerBlock > 0,
+            "Samples per block of %s is invalid. It must be positive.", samplesPerBlock
+        );
+        return samplesPerBlock;
+    }
+
+    private static int samplesPerBlockFor(List<SampleFileColumn> columns) {
+        long bytesPerSample = Double.BYTES;
+        for (SampleFileColumn column : columns) {
+            bytesPerSample += column.bytesPerSample();
+        }
+        return (int) Math.max(1, Math.min(MAX_SAMPLES_PER_BLOCK, TARGET_BLOCK_BYTES / bytesPerSample));
+    }
+}
@@ -8,19 +8,30 @@ public class ProbabilityCalculator {
     public static double calculateLogProbFor(Collection<? extends Vertex> vertices) {
         double sum = 0.0;
         for (Vertex<?> vertex : vertices) {
-            if (vertex instanceof Probabilistic) {
-                sum += ((Probabilistic) vertex).logProbAtValue();
-            } else if (vertex instanceof NonProbabilistic) {
-                if (((NonProbabilistic) vertex).contradictsObservation()) {
-                    return Double.NEGATIVE_INFINITY;
-                }
-            } else {
-                throw new IllegalArgumentException("Found a vertex that is neither Probabilistic nor Non-Probabilistic");
+            double logProb = calculateLogProbFor(vertex);
+            if (logProb == Double.NEGATIVE_INFINITY && vertex instanceof NonProbabilistic) {
+                return Double.NEGATIVE_INFINITY;
             }
+            sum += logProb;
         }
         return sum;
     }
 
+    /**
+     * @param vertex a probabilistic vertex or an observed non-probabilistic vertex
+     * @return the log prob of a probabilistic vertex at its value. For a non-probabilistic vertex this is
+     * -Infinity if it contradicts its observation and 0 otherwise.
+     */
+    public static double calculateLogProbFor(Vertex<?> vertex) {
+        if (vertex instanceof Probabilistic) {
+            return ((Probabilistic) vertex).logProbAtValue();
+        } else if (vertex instanceof NonProbabilistic) {
+            return ((NonProbabilistic) vertex).contradictsObservation() ? Double.NEGATIVE_INFINITY : 0.0;
+        } else {
+            throw new IllegalArgumentException("Found a vertex that is neither Probabilistic nor Non-Probabilistic");
+        }
+    }
+
     /**
      * Tells you if a value of log probability is impossible, i.e. -Infinity.
      * It also includes the case where it is NaN.
@@ -13,9 +13,10 @@ import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.generic.nonprobabilistic.PrintVertex;
 import io.improbable.keanu.vertices.intgr.IntegerVertex;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -24,10 +25,16 @@ public abstract class Vertex<T> implements Observable<T>, Variable<T, VertexStat
     private final VertexId id = new VertexId();
     private final long[] initialShape;
 
-    private Set<Vertex> children = Collections.emptySet();
-    private Set<Vertex> parents = Collections.emptySet();
+    /**
+     * Adjacency is held in insertion ordered arrays that are only allocated on the first insertion, so that adding
+     * a child or parent is amortised O(1) and a vertex without any costs nothing. The getters return immutable
+     * snapshots that share the array, so they are O(1) to take and do not copy it.
+     */
+    private VertexAdjacency children;
+    private VertexAdjacency parents;
     private VertexState<T> state;
     private VertexLabel label = null;
+    private long topologyVersion;
 
     public Vertex() {
         this(Tensor.SCALAR_SHAPE);
@@ -36,6 +43,7 @@ public abstract class Vertex<T> implements Observable<T>, Variable<T, VertexStat
     public Vertex(long[] initialShape) {
         this.initialShape = initialShape;
         this.state = VertexState.nullState();
+        VertexCreationRecorder.record(this);
     }
 
     /**
@@ -233,17 +241,50 @@ public abstract class Vertex<T> implements Observable<T>, Variable<T, VertexStat
         return id.getIndentation();
     }
 
+    /**
+     * The topology version of a vertex is incremented whenever a parent or child is added to or removed from it.
+     * Anything that caches a view of the graph structure around some vertices, e.g. a
+     * {@link io.improbable.keanu.algorithms.graphtraversal.CascadePlan}, can keep the versions of those vertices to
+     * find out whether it needs rebuilding. Changes to unrelated vertices, e.g. in another network, do not affect it.
+     *
+     * @return the current topology version of this vertex
+     */
+    public long getTopologyVersion() {
+        return topologyVersion;
+    }
+
+    /**
+     * @return an immutable snapshot of the children of this vertex, which is not affected by later changes
+     */
     public Set<Vertex> getChildren() {
-        return children;
+        return snapshotOf(children);
     }
 
     public void addChild(Vertex<?> v) {
-        children = ImmutableSet.<Vertex>builder().addAll(children).add(v).build();
+        if (children == null) {
+            children = new VertexAdjacency();
+        }
+        children.add(v);
+        topologyVersion++;
+    }
+
+    /**
+     * Removes a vertex from the children of this vertex without changing the parents of the removed vertex. This is
+     * used to detach vertices that are being discarded, so that they are no longer reachable from this vertex.
+     *
+     * @param v the child to remove
+     */
+    public void removeChild(Vertex<?> v) {
+        if (children != null && children.remove(v)) {
+            topologyVersion++;
+        }
     }
 
     public void setParents(Collection<? extends Vertex> parents) {
-        this.parents = Collections.emptySet();
-        addParents(parents);
+        List<? extends Vertex> newParents = new ArrayList<>(parents);
+        this.parents = null;
+        topologyVersion++;
+        addParents(newParents);
     }
 
     public void setParents(Vertex<?>... parents) {
@@ -251,7 +292,13 @@ public abstract class Vertex<T> implements Observable<T>, Variable<T, VertexStat
     }
 
     public void addParents(Collection<? extends Vertex> parents) {
-        this.parents = ImmutableSet.<Vertex>builder().addAll(this.getParents()).addAll(parents).build();
+        if (this.parents == null) {
+            this.parents = new VertexAdjacency();
+        }
+        for (Vertex<?> parent : parents) {
+            this.parents.add(parent);
+        }
+        topologyVersion++;
         parents.forEach(p -> p.addChild(this));
     }
 
@@ -259,12 +306,23 @@ public abstract class Vertex<T> implements Observable<T>, Variable<T, VertexStat
         addParents(ImmutableSet.of(parent));
     }
 
+    /**
+     * @return an immutable snapshot of the parents of this vertex, which is not affected by later changes
+     */
     public Set<Vertex> getParents() {
-        return parents;
+        return snapshotOf(parents);
     }
 
     public int getDegree() {
-        return children.size() + parents.size();
+        return sizeOf(children) + sizeOf(parents);
+    }
+
+    private static Set<Vertex> snapshotOf(VertexAdjacency adjacent) {
+        return adjacent == null ? VertexAdjacency.emptySnapshot() : adjacent.snapshot();
+    }
+
+    private static int sizeOf(VertexAdjacency adjacent) {
+        return adjacent == null ? 0 : adjacent.size();
     }
 
     @Override
@@ -0,0 +1,143 @@
+package io.improbable.keanu.vertices;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The children or parents of a vertex, in insertion order, held in a single array.
+ * <p>
+ * Vertices are only ever appended to the array in place, and a removal copies it, so a snapshot is just the array and
+ * the size at the time it was taken. Taking one is O(1) and it is not affected by later changes. Membership is
+ * checked by scanning the array until it grows past {@link #INDEXED_SIZE}, after which a hash set is kept as well so
+ * that adding to a vertex with many children stays amortised O(1). Snapshots are only meant to be iterated, so their
+ * membership checks always scan.
+ */
+final class VertexAdjacency {
+
+    static final int INDEXED_SIZE = 8;
+
+    private static final Vertex[] EMPTY = new Vertex[0];
+    private static final Snapshot EMPTY_SNAPSHOT = new Snapshot(EMPTY, 0);
+
+    private Vertex[] vertices = EMPTY;
+    private int size;
+    private Set<Vertex> index;
+    private Snapshot snapshot = EMPTY_SNAPSHOT;
+
+    static Set<Vertex> emptySnapshot() {
+        return EMPTY_SNAPSHOT;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(Vertex<?> vertex) {
+        if (index != null) {
+            return index.contains(vertex);
+        }
+        return indexOf(vertices, size, vertex) >= 0;
+    }
+
+    /**
+     * @return true if the vertex was not already adjacent
+     */
+    boolean add(Vertex<?> vertex) {
+        if (contains(vertex)) {
+            return false;
+        }
+        if (size == vertices.length) {
+            vertices = Arrays.copyOf(vertices, Math.max(2, size * 2));
+        }
+        vertices[size++] = vertex;
+        if (index != null) {
+            index.add(vertex);
+        } else if (size > INDEXED_SIZE) {
+            index = new HashSet<>(Arrays.asList(vertices).subList(0, size));
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the vertex was adjacent
+     */
+    boolean remove(Vertex<?> vertex) {
+        int position = indexOf(vertices, size, vertex);
+        if (position < 0) {
+            return false;
+        }
+        Vertex[] remaining = new Vertex[Math.max(2, size - 1)];
+        System.arraycopy(vertices, 0, remaining, 0, position);
+        System.arraycopy(vertices, position + 1, remaining, position, size - position - 1);
+        vertices = remaining;
+        size--;
+        if (index != null) {
+            index.remove(vertex);
+        }
+        return true;
+    }
+
+    /**
+     * @return an immutable snapshot of the adjacent vertices, which is not affected by later changes
+     */
+    Set<Vertex> snapshot() {
+        if (snapshot.size != size || (size > 0 && snapshot.vertices != vertices)) {
+            snapshot = new Snapshot(vertices, size);
+        }
+        return snapshot;
+    }
+
+    private static int indexOf(Vertex[] vertices, int size, Object vertex) {
+        for (int i = 0; i < size; i++) {
+            if (vertices[i].equals(vertex)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static final class Snapshot extends AbstractSet<Vertex> {
+
+        private final Vertex[] vertices;
+        private final int size;
+
+        private Snapshot(Vertex[] vertices, int size) {
+            this.vertices = vertices;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(vertices, size, o) >= 0;
+        }
+
+        @Override
+        public Iterator<Vertex> iterator() {
+            return new Iterator<Vertex>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                @Override
+                public Vertex next() {
+                    if (next >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    return vertices[next++];
+                }
+            };
+        }
+    }
+}
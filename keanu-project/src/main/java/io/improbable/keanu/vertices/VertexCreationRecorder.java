@@ -0,0 +1,61 @@
+package io.improbable.keanu.vertices;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Records the vertices that are created on the current thread while it is open, so that the vertices made by a
+ * piece of code, e.g. a plate factory, can be told apart from the vertices it only refers to.
+ * <p>
+ * Recorders can be nested, in which case a vertex is recorded by every recorder that is open.
+ */
+public class VertexCreationRecorder implements AutoCloseable {
+
+    private static final ThreadLocal<VertexCreationRecorder> OPEN_RECORDER = new ThreadLocal<>();
+
+    private final VertexCreationRecorder enclosingRecorder;
+    private final List<Vertex<?>> createdVertices = new ArrayList<>();
+
+    private VertexCreationRecorder(VertexCreationRecorder enclosingRecorder) {
+        this.enclosingRecorder = enclosingRecorder;
+    }
+
+    /**
+     * @return a recorder of the vertices created on this thread until it is closed
+     */
+    public static VertexCreationRecorder open() {
+        VertexCreationRecorder recorder = new VertexCreationRecorder(OPEN_RECORDER.get());
+        OPEN_RECORDER.set(recorder);
+        return recorder;
+    }
+
+    static void record(Vertex<?> vertex) {
+        for (VertexCreationRecorder recorder = OPEN_RECORDER.get(); recorder != null; recorder = recorder.enclosingRecorder) {
+            recorder.createdVertices.add(vertex);
+        }
+    }
+
+    /**
+     * @return the vertices created while this recorder was open, in the order they were created
+     */
+    public List<Vertex<?>> getCreatedVertices() {
+        return Collections.unmodifiableList(createdVertices);
+    }
+
+    /**
+     * Stops recording. Recorders must be closed in the reverse order to the one they were opened in.
+     */
+    @Override
+    public void close() {
+        Preconditions.checkState(OPEN_RECORDER.get() == this, "Only the most recently opened recorder can be closed");
+
+        if (enclosingRecorder == null) {
+            OPEN_RECORDER.remove();
+        } else {
+            OPEN_RECORDER.set(enclosingRecorder);
+        }
+    }
+}
@@ -1,34 +1,83 @@
 package io.improbable.keanu.vertices.dbl;
 
+import io.improbable.keanu.algorithms.ColumnarSampleList;
 import io.improbable.keanu.algorithms.Samples;
 import io.improbable.keanu.algorithms.statistics.Autocorrelation;
+import io.improbable.keanu.tensor.TensorShape;
 import io.improbable.keanu.tensor.TensorShapeValidation;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 
 import java.util.List;
 
+/**
+ * The samples of a double tensor variable. When the samples are stored as columns of doubles, see
+ * {@link ColumnarSampleList}, the statistics are calculated directly on the columns without creating a tensor
+ * per sample.
+ */
 public class DoubleVertexSamples extends Samples<DoubleTensor> {
     private final long sampleShape[];
+    private final ColumnarSampleList<DoubleTensor> columns;
 
     public DoubleVertexSamples(List<DoubleTensor> samples) {
-        super(samples);
+        super(ColumnarSampleList.of(samples));
+        this.columns = (ColumnarSampleList<DoubleTensor>) this.samples;
         sampleShape = samples.iterator().next().getShape();
     }
 
     public DoubleTensor getAverages() {
-        return this.samples.stream()
-            .reduce(DoubleTensor.zeros(sampleShape), DoubleTensor::plusInPlace)
-            .divInPlace(samples.size());
+        if (!columns.isDoubleColumns()) {
+            return this.samples.stream()
+                .reduce(DoubleTensor.zeros(sampleShape), DoubleTensor::plusInPlace)
+                .divInPlace(samples.size());
+        }
+
+        double[] averages = new double[columns.getSampleLength()];
+        columns.forEachDoubleSample((chunk, offset) -> {
+            for (int j = 0; j < averages.length; j++) {
+                averages[j] += chunk[offset + j];
+            }
+        });
+
+        for (int j = 0; j < averages.length; j++) {
+            averages[j] /= samples.size();
+        }
+
+        return DoubleTensor.create(averages, sampleShape);
     }
 
     public DoubleTensor getVariances() {
-        DoubleTensor sumOfSquares = this.samples.stream()
-            .reduce(DoubleTensor.zeros(sampleShape), (l, r) -> l.plusInPlace(r.pow(2)));
-        return sumOfSquares
-            .divInPlace(samples.size())
-            .minusInPlace(getAverages().pow(2))
-            .timesInPlace(samples.size())
-            .divInPlace(samples.size() - 1.);
+        if (!columns.isDoubleColumns()) {
+            DoubleTensor sumOfSquares = this.samples.stream()
+                .reduce(DoubleTensor.zeros(sampleShape), (l, r) -> l.plusInPlace(r.pow(2)));
+            return sumOfSquares
+                .divInPlace(samples.size())
+                .minusInPlace(getAverages().pow(2))
+                .timesInPlace(samples.size())
+                .divInPlace(samples.size() - 1.);
+        }
+
+        //Welford's algorithm, which unlike the sum of squares does not lose precision when the variance is small
+        //relative to the mean
+        int length = columns.getSampleLength();
+        double[] mean = new double[length];
+        double[] sumOfSquaredDeviations = new double[length];
+        int[] count = {0};
+
+        columns.forEachDoubleSample((chunk, offset) -> {
+            count[0]++;
+            for (int j = 0; j < length; j++) {
+                double value = chunk[offset + j];
+                double delta = value - mean[j];
+                mean[j] += delta / count[0];
+                sumOfSquaredDeviations[j] += delta * (value - mean[j]);
+            }
+        });
+
+        for (int j = 0; j < length; j++) {
+            sumOfSquaredDeviations[j] /= samples.size() - 1.;
+        }
+
+        return DoubleTensor.create(sumOfSquaredDeviations, sampleShape);
     }
 
     /**
@@ -40,9 +89,15 @@ public class DoubleVertexSamples extends Samples<DoubleTensor> {
     public DoubleTensor getAutocorrelation(long... index) {
         TensorShapeValidation.checkIndexIsValid(sampleShape, index);
         long[] indexToGet = getCorrectIndexIfScalar(index);
-        double[] sampleValuesAtIndex = samples.stream()
-            .mapToDouble(x -> x.getValue(indexToGet))
-            .toArray();
+        double[] sampleValuesAtIndex;
+        if (columns.isDoubleColumns()) {
+            long flatIndex = sampleShape.length == 0 ? 0 : TensorShape.getFlatIndex(sampleShape, TensorShape.getRowFirstStride(sampleShape), index);
+            sampleValuesAtIndex = columns.getDoubleColumn(Math.toIntExact(flatIndex));
+        } else {
+            sampleValuesAtIndex = samples.stream()
+                .mapToDouble(x -> x.getValue(indexToGet))
+                .toArray();
+        }
         double[] autocorr = Autocorrelation.calculate(sampleValuesAtIndex);
         return DoubleTensor.create(autocorr);
     }
@@ -53,6 +108,10 @@ public class DoubleVertexSamples extends Samples<DoubleTensor> {
 
 
     public DoubleTensor asTensor() {
-        return DoubleTensor.stack(0, samples.stream().toArray(DoubleTensor[]::new));
+        if (!columns.isDoubleColumns()) {
+            return DoubleTensor.stack(0, samples.stream().toArray(DoubleTensor[]::new));
+        }
+
+        return DoubleTensor.create(columns.asFlatDoubleArray(), TensorShape.concat(new long[]{samples.size()}, sampleShape));
     }
 }
@@ -0,0 +1,9 @@
+package io.improbable.keanu.vertices.dbl;
+
+/**
+ * Marks a non-probabilistic vertex whose value is calculated element by element from the broadcast values of its
+ * parents. Such a vertex gives the correct result when its parents' values have extra leading dimensions, which
+ * allows it to be calculated for many points at once.
+ */
+public interface Elementwise {
+}
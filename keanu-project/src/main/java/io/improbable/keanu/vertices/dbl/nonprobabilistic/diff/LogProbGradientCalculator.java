@@ -1,159 +1,278 @@
 package io.improbable.keanu.vertices.dbl.nonprobabilistic.diff;
 
 import com.google.common.base.Preconditions;
-import io.improbable.keanu.network.LambdaSection;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.Probabilistic;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.VertexId;
-import io.improbable.keanu.vertices.dbl.Differentiator;
+import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
+/**
+ * Calculates the gradient of the joint log prob of some vertices with respect to some latent vertices.
+ * <p>
+ * On construction the differentiable operations between the log prob vertices and the latent vertices are recorded
+ * once onto a flat tape, ordered so that every operation comes before its parents. A gradient calculation then seeds
+ * the dLogProb of every log prob vertex into a buffer of adjoints and sweeps the tape a single time, so that a
+ * subgraph shared by many log prob vertices is only backpropagated through once.
+ * <p>
+ * The tape describes the graph as it was when it was recorded. It keeps the {@link Vertex#getTopologyVersion() topology
+ * version} and observed state of every vertex it visited, and is recorded again before a calculation if any of them
+ * has changed since, like a {@link io.improbable.keanu.algorithms.graphtraversal.CascadePlan}.
+ * <p>
+ * The adjoint buffer is reused between calculations and the tape may be recorded again during one, so a calculator is
+ * not thread-safe and must not be used from more than one thread at a time.
+ */
 public class LogProbGradientCalculator {
 
-    private final Set<? extends Vertex<?>> logProbOfVertices;
+    private final Vertex<?>[] logProbOfVertices;
     private final Set<? extends Vertex<?>> wrtVertices;
 
-    private final Map<Vertex, Set<DoubleVertex>> parentToLatentLookup;
-    private final Map<Vertex, Set<DoubleVertex>> verticesWithNonzeroDiffWrtLatent;
+    /**
+     * The parents of each log prob vertex, and the vertex itself if it is latent, that the dLogProb is needed for.
+     */
+    private List<Set<Vertex>> verticesWithNonzeroDiff;
+
+    /**
+     * The differentiable operations in an order where each comes before its parents, followed by the vertices that
+     * gradients are accumulated for.
+     */
+    private Vertex<?>[] tape;
+    private int operationCount;
+    private Map<Vertex<?>, Integer> tapeIndex;
+    private PartialDerivative[] adjoints;
+
+    /**
+     * Every vertex that was visited to record the tape, with its topology version and observed state at the time.
+     */
+    private Vertex<?>[] recordedVertices;
+    private long[] recordedTopologyVersions;
+    private boolean[] recordedObserved;
 
     public LogProbGradientCalculator(List<? extends Vertex> logProbOfVerticesList, List<? extends Vertex<?>> wrtVerticesList) {
-        this.logProbOfVertices = new HashSet<>((List<Vertex<?>>) logProbOfVerticesList);
+        Set<Vertex<?>> logProbOf = new LinkedHashSet<>((List<Vertex<?>>) logProbOfVerticesList);
+        this.logProbOfVertices = logProbOf.toArray(new Vertex<?>[0]);
         this.wrtVertices = new HashSet<>(wrtVerticesList);
 
-        parentToLatentLookup = getParentsThatAreConnectedToWrtVertices(logProbOfVertices);
-        verticesWithNonzeroDiffWrtLatent = getVerticesWithNonzeroDiffWrt(logProbOfVertices, parentToLatentLookup);
+        recordTape();
     }
 
     /**
-     * @return the partial derivatives with respect to a given set of latent vertices
+     * @return true if a vertex that the tape was recorded from has gained or lost a parent or child, or been observed
+     * or unobserved, since the tape was recorded
      */
-    public Map<VertexId, DoubleTensor> getJointLogProbGradientWrtLatents() {
-        LogProbGradients totalLogProbGradients = new LogProbGradients();
+    public boolean isStale() {
+        for (int i = 0; i < recordedVertices.length; i++) {
+            if (recordedVertices[i].getTopologyVersion() != recordedTopologyVersions[i]
+                || recordedVertices[i].isObserved() != recordedObserved[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        for (final Vertex<?> ofVertex : logProbOfVertices) {
-            LogProbGradients logProbGradientOfVertex = reverseModeLogProbGradientWrtLatents(ofVertex);
-            totalLogProbGradients.add(logProbGradientOfVertex);
+    private void recordTape() {
+        Set<Vertex<?>> terminals = new LinkedHashSet<>();
+        for (Vertex<?> ofVertex : logProbOfVertices) {
+            if (!ofVertex.isObserved()) {
+                terminals.add(ofVertex);
+            }
         }
 
-        return totalLogProbGradients.getPartials();
-    }
+        Map<Vertex<?>, Boolean> reachesWrt = new HashMap<>();
+        List<Vertex<?>> operations = new ArrayList<>();
+        for (Vertex<?> ofVertex : logProbOfVertices) {
+            for (Vertex<?> parent : ofVertex.getParents()) {
+                recordUpstream(parent, reachesWrt, operations, terminals);
+            }
+        }
+        Collections.reverse(operations);
 
-    /**
-     * The dLogProb(x) method on Vertex returns a partial derivative of the Log Prob with respect to each
-     * of its arguments and with respect to its value, x. This method searches these partials for any that
-     * are parents of the vertices we are taking the derivative with respect to
-     *
-     * @param ofVertices          the vertices that the derivative is being calculated "of" with respect to the wrtVertices
-     * @param parentToWrtVertices a lookup
-     * @return a map for a given vertex to a set of the wrt vertices that it is connected to
-     */
-    private Map<Vertex, Set<DoubleVertex>> getVerticesWithNonzeroDiffWrt(Set<? extends Vertex<?>> ofVertices, Map<Vertex, Set<DoubleVertex>> parentToWrtVertices) {
-        return ofVertices.stream()
-            .collect(Collectors.toMap(
-                v -> v,
-                v -> {
-                    Set<DoubleVertex> parents = v.getParents().stream()
-                        .map(parent -> (DoubleVertex) parent)
-                        .filter(parentToWrtVertices::containsKey)
-                        .collect(Collectors.toSet());
-
-                    if (!v.isObserved()) {
-                        parents.add((DoubleVertex) v);
-                    }
+        this.operationCount = operations.size();
+        this.tape = new Vertex<?>[operationCount + terminals.size()];
+        this.tapeIndex = new HashMap<>();
 
-                    return parents;
+        int index = 0;
+        for (Vertex<?> operation : operations) {
+            tape[index] = operation;
+            tapeIndex.put(operation, index++);
+        }
+        for (Vertex<?> terminal : terminals) {
+            tape[index] = terminal;
+            tapeIndex.put(terminal, index++);
+        }
+        this.adjoints = new PartialDerivative[tape.length];
+
+        this.verticesWithNonzeroDiff = new ArrayList<>(logProbOfVertices.length);
+        for (Vertex<?> ofVertex : logProbOfVertices) {
+            Set<Vertex> withNonzeroDiff = new HashSet<>();
+            for (Vertex<?> parent : ofVertex.getParents()) {
+                if (reachesWrt.getOrDefault(parent, false)) {
+                    withNonzeroDiff.add(parent);
                 }
-            ));
+            }
+            if (!ofVertex.isObserved()) {
+                withNonzeroDiff.add(ofVertex);
+            }
+            verticesWithNonzeroDiff.add(withNonzeroDiff);
+        }
+
+        Set<Vertex<?>> visited = new LinkedHashSet<>(Arrays.asList(logProbOfVertices));
+        visited.addAll(reachesWrt.keySet());
+        this.recordedVertices = visited.toArray(new Vertex<?>[0]);
+        this.recordedTopologyVersions = new long[recordedVertices.length];
+        this.recordedObserved = new boolean[recordedVertices.length];
+        for (int i = 0; i < recordedVertices.length; i++) {
+            recordedTopologyVersions[i] = recordedVertices[i].getTopologyVersion();
+            recordedObserved[i] = recordedVertices[i].isObserved();
+        }
     }
 
     /**
-     * This method finds connections between a vertex's parents and any vertices that we are taking the derivative
-     * wrt to
-     *
-     * @param ofVertices the vertices that the derivative is being calculated "of" with respect to the wrtVertices
-     * @return a map for a given vertex to a set of vertices that are directly connected to the dLogProb result
-     * of the ofVertices and a vertex that we are finding the gradient with respect to.
+     * @return the partial derivatives with respect to a given set of latent vertices
      */
-    private Map<Vertex, Set<DoubleVertex>> getParentsThatAreConnectedToWrtVertices(Set<? extends Vertex> ofVertices) {
+    public Map<VertexId, DoubleTensor> getJointLogProbGradientWrtLatents() {
+        if (isStale()) {
+            recordTape();
+        }
+        Arrays.fill(adjoints, null);
 
-        Map<Vertex, Set<DoubleVertex>> probabilisticParentLookup = new HashMap<>();
+        for (int i = 0; i < logProbOfVertices.length; i++) {
+            seedLogProbGradient(logProbOfVertices[i], verticesWithNonzeroDiff.get(i));
+        }
 
-        for (Vertex<?> probabilisticVertex : ofVertices) {
+        for (int i = 0; i < operationCount; i++) {
+            PartialDerivative adjoint = adjoints[i];
 
-            Set<? extends Vertex> parents = probabilisticVertex.getParents();
+            if (adjoint != null) {
+                Map<Vertex, PartialDerivative> partials = ((Differentiable) tape[i]).reverseModeAutoDifferentiation(adjoint);
 
-            for (Vertex parent : parents) {
+                for (Map.Entry<Vertex, PartialDerivative> partial : partials.entrySet()) {
+                    Integer parentIndex = tapeIndex.get(partial.getKey());
+                    if (parentIndex != null) {
+                        accumulate(parentIndex, partial.getValue());
+                    }
+                }
 
-                LambdaSection upstreamLambdaSection = LambdaSection.getUpstreamLambdaSection(parent, false);
+                adjoints[i] = null;
+            }
+        }
 
-                Set<Vertex> latentAndObservedVertices = upstreamLambdaSection.getLatentAndObservedVertices();
-                Set<DoubleVertex> latentVertices = latentAndObservedVertices.stream()
-                    .filter(this::isLatentDoubleVertexAndInWrtTo)
-                    .map(v -> (DoubleVertex) v)
-                    .collect(Collectors.toSet());
+        Map<VertexId, DoubleTensor> gradients = new HashMap<>();
+        for (int i = operationCount; i < tape.length; i++) {
+            PartialDerivative adjoint = adjoints[i];
 
-                if (!latentVertices.isEmpty()) {
-                    probabilisticParentLookup.put(parent, latentVertices);
-                }
+            if (adjoint != null && adjoint.isPresent()) {
+                gradients.put(tape[i].getId(), adjoint.get().duplicate());
             }
+            adjoints[i] = null;
         }
 
-        return probabilisticParentLookup;
+        return gradients;
     }
 
-    private boolean isLatentDoubleVertexAndInWrtTo(Vertex v) {
-        return !v.isObserved() && wrtVertices.contains(v) && v instanceof DoubleVertex;
-    }
-
-    /**
-     * @param ofVertex the vertex we are taking the derivative of
-     * @return partial derivatives of the "ofVertex" wrt to any "this.wrtVertices" that it descends.
-     */
-    private LogProbGradients reverseModeLogProbGradientWrtLatents(final Vertex ofVertex) {
+    private void seedLogProbGradient(Vertex<?> ofVertex, Set<Vertex> withNonzeroDiff) {
         Preconditions.checkArgument(
             ofVertex instanceof Probabilistic<?>,
             "Cannot get logProb gradient on non-probabilistic vertex %s", ofVertex
         );
 
-        Set<DoubleVertex> verticesWithNonzeroDiff = verticesWithNonzeroDiffWrtLatent.get(ofVertex);
-        final Map<Vertex, DoubleTensor> dlogProbOfVertexWrtVertices = ((Probabilistic<?>) ofVertex).dLogProbAtValue(verticesWithNonzeroDiff);
-
-        LogProbGradients dOfWrtLatentsAccumulated = new LogProbGradients();
+        final Map<Vertex, DoubleTensor> dlogProbOfVertexWrtVertices = ((Probabilistic<?>) ofVertex).dLogProbAtValue(withNonzeroDiff);
 
         for (Map.Entry<Vertex, DoubleTensor> dlogProbWrtVertex : dlogProbOfVertexWrtVertices.entrySet()) {
 
-            DoubleVertex vertexWithDiff = (DoubleVertex) dlogProbWrtVertex.getKey();
-            DoubleTensor dLogProbOfWrtVertexWithDiff = dlogProbWrtVertex.getValue();
+            Vertex<?> vertexWithDiff = dlogProbWrtVertex.getKey();
+            PartialDerivative partialWrtVertexWithDiff = new PartialDerivative(dlogProbWrtVertex.getValue());
 
-            if (vertexWithDiff.equals(ofVertex)) {
-                dOfWrtLatentsAccumulated.putWithRespectTo(vertexWithDiff.getId(), dLogProbOfWrtVertexWithDiff);
-            } else {
+            if (!vertexWithDiff.equals(ofVertex)) {
+                partialWrtVertexWithDiff = AutoDiffBroadcast.correctForBroadcastPartialReverse(
+                    partialWrtVertexWithDiff, ofVertex.getShape(), vertexWithDiff.getShape()
+                );
+            }
+
+            Integer index = tapeIndex.get(vertexWithDiff);
+            if (index != null) {
+                accumulate(index, partialWrtVertexWithDiff);
+            }
+        }
+    }
+
+    private void accumulate(int index, PartialDerivative partial) {
+        PartialDerivative existing = adjoints[index];
+        adjoints[index] = existing == null ? partial : existing.add(partial);
+    }
 
-                PartialDerivative partialWrtVertexWithDiff = new PartialDerivative(dLogProbOfWrtVertexWithDiff);
+    /**
+     * Records the differentiable operations upstream of a vertex, stopping at probabilistic vertices and at the
+     * vertices that gradients are taken with respect to. Operations that cannot reach any of those vertices are left
+     * off the tape. The operations are appended after all of their parents.
+     */
+    private void recordUpstream(Vertex<?> start,
+                                Map<Vertex<?>, Boolean> reachesWrt,
+                                List<Vertex<?>> operations,
+                                Set<Vertex<?>> terminals) {
 
-                PartialDerivative correctForScalarReverse = AutoDiffBroadcast.correctForBroadcastPartialReverse(partialWrtVertexWithDiff, ofVertex.getShape(), vertexWithDiff.getShape());
+        Deque<Vertex<?>> stack = new ArrayDeque<>();
+        Set<Vertex<?>> expanded = new HashSet<>();
+        stack.push(start);
 
-                PartialsOf dOfWrtLatentsContributionFromParent = Differentiator
-                    .reverseModeAutoDiff(
-                        vertexWithDiff,
-                        correctForScalarReverse,
-                        this.parentToLatentLookup.get(vertexWithDiff)
-                    );
+        while (!stack.isEmpty()) {
+            Vertex<?> visiting = stack.peek();
 
-                dOfWrtLatentsAccumulated = dOfWrtLatentsAccumulated.add(dOfWrtLatentsContributionFromParent);
+            if (reachesWrt.containsKey(visiting)) {
+                stack.pop();
+                continue;
             }
 
+            if (isLatentDoubleVertexAndInWrtTo(visiting)) {
+                terminals.add(visiting);
+                reachesWrt.put(visiting, true);
+                stack.pop();
+                continue;
+            }
+
+            if (visiting.isProbabilistic() || !visiting.isDifferentiable()) {
+                reachesWrt.put(visiting, false);
+                stack.pop();
+                continue;
+            }
+
+            if (expanded.add(visiting)) {
+                for (Vertex<?> parent : visiting.getParents()) {
+                    if (!reachesWrt.containsKey(parent)) {
+                        stack.push(parent);
+                    }
+                }
+            } else {
+                stack.pop();
+
+                boolean anyParentReachesWrt = false;
+                for (Vertex<?> parent : visiting.getParents()) {
+                    anyParentReachesWrt |= reachesWrt.getOrDefault(parent, false);
+                }
+
+                reachesWrt.put(visiting, anyParentReachesWrt);
+                if (anyParentReachesWrt) {
+                    operations.add(visiting);
+                }
+            }
         }
+    }
 
-        return dOfWrtLatentsAccumulated;
+    private boolean isLatentDoubleVertexAndInWrtTo(Vertex v) {
+        return !v.isObserved() && wrtVertices.contains(v) && v instanceof DoubleVertex;
     }
 
 }
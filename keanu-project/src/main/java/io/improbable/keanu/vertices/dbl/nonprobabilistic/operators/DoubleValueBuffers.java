@@ -0,0 +1,45 @@
+package io.improbable.keanu.vertices.dbl.nonprobabilistic.operators;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+
+import java.util.Arrays;
+import java.util.function.UnaryOperator;
+
+/**
+ * The two tensors that an operator vertex alternates between when it reuses its value buffers.
+ * <p>
+ * A new value is always written into the tensor that is not the vertex's current value, so the current value stays
+ * intact while the new one is calculated and can be restored if the new one is rejected, e.g. by
+ * {@link io.improbable.keanu.algorithms.mcmc.RollBackToCachedValuesOnRejection}.
+ */
+public class DoubleValueBuffers {
+
+    private final DoubleTensor[] buffers = new DoubleTensor[2];
+
+    /**
+     * @param currentValue the current value of the vertex, which is not written to
+     * @param shape        the shape of the new value
+     * @param writeInto    writes the new value into the tensor it is given and returns it
+     * @return the new value
+     */
+    public DoubleTensor write(DoubleTensor currentValue, long[] shape, UnaryOperator<DoubleTensor> writeInto) {
+        int slot = buffers[0] == currentValue ? 1 : 0;
+
+        DoubleTensor buffer = buffers[slot];
+        if (buffer == null || !Arrays.equals(buffer.getShape(), shape)) {
+            buffer = DoubleTensor.zeros(shape);
+        }
+
+        buffers[slot] = writeInto.apply(buffer);
+        return buffers[slot];
+    }
+
+    /**
+     * @param target the tensor to overwrite. It must have the shape that source broadcasts to.
+     * @param source the values to copy
+     * @return target, holding the values of source
+     */
+    public static DoubleTensor copyInto(DoubleTensor target, DoubleTensor source) {
+        return target.setAllInPlace(source);
+    }
+}
@@ -0,0 +1,51 @@
+package io.improbable.keanu.vertices.dbl.nonprobabilistic.operators;
+
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.bool.BooleanVertex;
+import io.improbable.keanu.vertices.intgr.IntegerVertex;
+
+import java.util.Collection;
+
+/**
+ * A vertex that can write its value in place into tensors it keeps between calculations rather than allocating a new
+ * tensor every time it is calculated. This is off by default.
+ * <p>
+ * While it is on, a value of the vertex is only valid until the vertex has been calculated twice more, so a value
+ * that needs to be kept for longer, e.g. as a sample, must be duplicated.
+ */
+public interface ReusesValueBuffers {
+
+    void setReuseValueBuffers(boolean reuseValueBuffers);
+
+    boolean isReusingValueBuffers();
+
+    /**
+     * Turns on the reuse of value buffers for every vertex that supports it, unless a child of the vertex may keep
+     * its value by reference.
+     * <p>
+     * A child that is not probabilistic, does not reuse value buffers itself and does not have a boolean or integer
+     * value, e.g. a reshape or a slice, may hold a view of its parent's value, which would be overwritten along with
+     * the parent's buffer.
+     * Children that are added after this is called are not checked, so it should be called on a complete graph.
+     *
+     * @param vertices the vertices to turn it on for, e.g. the latent or observed vertices' connected graph
+     */
+    static void enableFor(Collection<? extends Vertex> vertices) {
+        for (Vertex<?> vertex : vertices) {
+            if (vertex instanceof ReusesValueBuffers && vertex.getChildren().stream().noneMatch(ReusesValueBuffers::mayKeepValueOfParent)) {
+                ((ReusesValueBuffers) vertex).setReuseValueBuffers(true);
+            }
+        }
+    }
+
+    /**
+     * @param child a child of a vertex with a double value
+     * @return true if the value of the child may be, or be a view of, the value of its parent
+     */
+    static boolean mayKeepValueOfParent(Vertex<?> child) {
+        return !child.isProbabilistic()
+            && !(child instanceof ReusesValueBuffers)
+            && !(child instanceof BooleanVertex)
+            && !(child instanceof IntegerVertex);
+    }
+}
@@ -7,16 +7,19 @@ import io.improbable.keanu.vertices.LoadVertexParam;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.Elementwise;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.AutoDiffBroadcast;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.ReusesValueBuffers;
 
 import java.util.HashMap;
 import java.util.Map;
 
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkIsBroadcastable;
+import static io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.DoubleValueBuffers.copyInto;
 
 @DisplayInformationForOutput(displayName = "+")
-public class AdditionVertex extends DoubleBinaryOpVertex implements Differentiable {
+public class AdditionVertex extends DoubleBinaryOpVertex implements Differentiable, Elementwise, ReusesValueBuffers {
 
     /**
      * Adds one vertex to another
@@ -35,6 +38,11 @@ public class AdditionVertex extends DoubleBinaryOpVertex implements Differentiab
         return l.plus(r);
     }
 
+    @Override
+    protected DoubleTensor opInto(DoubleTensor result, DoubleTensor l, DoubleTensor r) {
+        return copyInto(result, l).plusInPlace(r);
+    }
+
     @Override
     public PartialDerivative forwardModeAutoDifferentiation(Map<Vertex, PartialDerivative> derivativeOfParentsWithRespectToInput) {
         PartialDerivative dLeftWrtInput = derivativeOfParentsWithRespectToInput.getOrDefault(left, PartialDerivative.EMPTY);
@@ -6,13 +6,17 @@ import io.improbable.keanu.vertices.LoadVertexParam;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.Elementwise;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.AutoDiffBroadcast;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.ReusesValueBuffers;
 
 import java.util.HashMap;
 import java.util.Map;
 
-public class ArcTan2Vertex extends DoubleBinaryOpVertex implements Differentiable {
+import static io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.DoubleValueBuffers.copyInto;
+
+public class ArcTan2Vertex extends DoubleBinaryOpVertex implements Differentiable, Elementwise, ReusesValueBuffers {
 
     private static final String X_NAME = LEFT_NAME;
     private static final String Y_NAME = RIGHT_NAME;
@@ -34,6 +38,11 @@ public class ArcTan2Vertex extends DoubleBinaryOpVertex implements Differentiabl
         return x.atan2(y);
     }
 
+    @Override
+    protected DoubleTensor opInto(DoubleTensor result, DoubleTensor x, DoubleTensor y) {
+        return copyInto(result, x).atan2InPlace(y);
+    }
+
     @Override
     public PartialDerivative forwardModeAutoDifferentiation(Map<Vertex, PartialDerivative> derivativeOfParentsWithRespectToInput) {
         PartialDerivative dxWrtInput = derivativeOfParentsWithRespectToInput.getOrDefault(left, PartialDerivative.EMPTY);
@@ -1,10 +1,13 @@
 package io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.binary;
 
 
+import io.improbable.keanu.tensor.TensorShape;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.NonProbabilistic;
 import io.improbable.keanu.vertices.SaveVertexParam;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.DoubleValueBuffers;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.ReusesValueBuffers;
 
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkHasOneNonLengthOneShapeOrAllLengthOne;
 
@@ -15,6 +18,8 @@ public abstract class DoubleBinaryOpVertex extends DoubleVertex implements NonPr
     protected static final String LEFT_NAME = "left";
     protected static final String RIGHT_NAME = "right";
 
+    private DoubleValueBuffers valueBuffers;
+
     /**
      * A vertex that performs a user defined operation on two vertices
      *
@@ -43,7 +48,28 @@ public abstract class DoubleBinaryOpVertex extends DoubleVertex implements NonPr
 
     @Override
     public DoubleTensor calculate() {
-        return op(left.getValue(), right.getValue());
+        DoubleTensor l = left.getValue();
+        DoubleTensor r = right.getValue();
+
+        if (valueBuffers == null) {
+            return op(l, r);
+        }
+
+        long[] resultShape = TensorShape.getBroadcastResultShape(l.getShape(), r.getShape());
+        return valueBuffers.write(getState().getValue(), resultShape, buffer -> opInto(buffer, l, r));
+    }
+
+    /**
+     * Only has an effect on vertices that can write their value in place, which implement {@link ReusesValueBuffers}.
+     *
+     * @param reuseValueBuffers whether to write the value into tensors kept between calculations
+     */
+    public void setReuseValueBuffers(boolean reuseValueBuffers) {
+        valueBuffers = reuseValueBuffers ? new DoubleValueBuffers() : null;
+    }
+
+    public boolean isReusingValueBuffers() {
+        return valueBuffers != null;
     }
 
     @SaveVertexParam(LEFT_NAME)
@@ -57,4 +83,17 @@ public abstract class DoubleBinaryOpVertex extends DoubleVertex implements NonPr
     }
 
     protected abstract DoubleTensor op(DoubleTensor l, DoubleTensor r);
+
+    /**
+     * Performs the same operation as {@link #op(DoubleTensor, DoubleTensor)} but writes the result into a tensor
+     * owned by this vertex.
+     *
+     * @param result a tensor with the broadcast shape of l and r, whose values are overwritten
+     * @param l      the left operand
+     * @param r      the right operand
+     * @return the result of the operation, which is result if the operation was done in place
+     */
+    protected DoubleTensor opInto(DoubleTensor result, DoubleTensor l, DoubleTensor r) {
+        return op(l, r);
+    }
 }
@@ -6,13 +6,17 @@ import io.improbable.keanu.vertices.LoadVertexParam;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.Elementwise;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.AutoDiffBroadcast;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.ReusesValueBuffers;
 
 import java.util.HashMap;
 import java.util.Map;
 
-public class PowerVertex extends DoubleBinaryOpVertex implements Differentiable {
+import static io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.DoubleValueBuffers.copyInto;
+
+public class PowerVertex extends DoubleBinaryOpVertex implements Differentiable, Elementwise, ReusesValueBuffers {
 
     private static final String BASE_NAME = LEFT_NAME;
     private static final String EXPONENT_NAME = RIGHT_NAME;
@@ -42,6 +46,11 @@ public class PowerVertex extends DoubleBinaryOpVertex implements Differentiable
         return base.pow(exponent);
     }
 
+    @Override
+    protected DoubleTensor opInto(DoubleTensor result, DoubleTensor base, DoubleTensor exponent) {
+        return copyInto(result, base).powInPlace(exponent);
+    }
+
     @Override
     public PartialDerivative forwardModeAutoDifferentiation(Map<Vertex, PartialDerivative> derivativeOfParentsWithRespectToInput) {
         PartialDerivative dBaseWrtInput = derivativeOfParentsWithRespectToInput.getOrDefault(left, PartialDerivative.EMPTY);
@@ -6,12 +6,16 @@ import io.improbable.keanu.vertices.LoadVertexParam;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.Elementwise;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.ReusesValueBuffers;
 
 import java.util.HashMap;
 import java.util.Map;
 
-public class ArcTanVertex extends DoubleUnaryOpVertex implements Differentiable {
+import static io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.DoubleValueBuffers.copyInto;
+
+public class ArcTanVertex extends DoubleUnaryOpVertex implements Differentiable, Elementwise, ReusesValueBuffers {
 
     /**
      * Takes the inverse tan of a vertex, Arctan(vertex)
@@ -28,6 +32,11 @@ public class ArcTanVertex extends DoubleUnaryOpVertex implements Differentiable
         return value.atan();
     }
 
+    @Override
+    protected DoubleTensor opInto(DoubleTensor result, DoubleTensor value) {
+        return copyInto(result, value).atanInPlace();
+    }
+
     @Override
     public PartialDerivative forwardModeAutoDifferentiation(Map<Vertex, PartialDerivative> derivativeOfParentsWithRespectToInput) {
         PartialDerivative derivativeOfParentWithRespectToInputs = derivativeOfParentsWithRespectToInput.get(inputVertex);
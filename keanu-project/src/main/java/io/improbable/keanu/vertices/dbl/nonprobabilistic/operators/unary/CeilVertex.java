@@ -4,9 +4,12 @@ import io.improbable.keanu.annotation.ExportVertexToPythonBindings;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.LoadVertexParam;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.Elementwise;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.ReusesValueBuffers;
 
+import static io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.DoubleValueBuffers.copyInto;
 
-public class CeilVertex extends DoubleUnaryOpVertex {
+public class CeilVertex extends DoubleUnaryOpVertex implements Elementwise, ReusesValueBuffers {
 
     /**
      * Applies the Ceiling operator to a vertex.
@@ -23,4 +26,9 @@ public class CeilVertex extends DoubleUnaryOpVertex {
     protected DoubleTensor op(DoubleTensor value) {
         return value.ceil();
     }
+
+    @Override
+    protected DoubleTensor opInto(DoubleTensor result, DoubleTensor value) {
+        return copyInto(result, value).ceilInPlace();
+    }
 }
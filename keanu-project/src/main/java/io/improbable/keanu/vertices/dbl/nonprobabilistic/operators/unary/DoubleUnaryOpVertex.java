@@ -4,12 +4,16 @@ import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.NonProbabilistic;
 import io.improbable.keanu.vertices.SaveVertexParam;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.DoubleValueBuffers;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.ReusesValueBuffers;
 
 public abstract class DoubleUnaryOpVertex extends DoubleVertex implements NonProbabilistic<DoubleTensor> {
 
     protected final DoubleVertex inputVertex;
     protected static final String INPUT_VERTEX_NAME = "inputVertex";
 
+    private DoubleValueBuffers valueBuffers;
+
     /**
      * A vertex that performs a user defined operation on a single input vertex
      *
@@ -38,8 +42,39 @@ public abstract class DoubleUnaryOpVertex extends DoubleVertex implements NonPro
 
     @Override
     public DoubleTensor calculate() {
-        return op(inputVertex.getValue());
+        DoubleTensor value = inputVertex.getValue();
+
+        if (valueBuffers == null) {
+            return op(value);
+        }
+
+        return valueBuffers.write(getState().getValue(), value.getShape(), buffer -> opInto(buffer, value));
+    }
+
+    /**
+     * Only has an effect on vertices that can write their value in place, which implement {@link ReusesValueBuffers}.
+     *
+     * @param reuseValueBuffers whether to write the value into tensors kept between calculations
+     */
+    public void setReuseValueBuffers(boolean reuseValueBuffers) {
+        valueBuffers = reuseValueBuffers ? new DoubleValueBuffers() : null;
+    }
+
+    public boolean isReusingValueBuffers() {
+        return valueBuffers != null;
     }
 
     protected abstract DoubleTensor op(DoubleTensor value);
+
+    /**
+     * Performs the same operation as {@link #op(DoubleTensor)} but writes the result into a tensor owned by this
+     * vertex.
+     *
+     * @param result a tensor with the shape of value, whose values are overwritten
+     * @param value  the value of the input vertex
+     * @return the result of the operation, which is result if the operation was done in place
+     */
+    protected DoubleTensor opInto(DoubleTensor result, DoubleTensor value) {
+        return op(value);
+    }
 }
@@ -4,9 +4,12 @@ import io.improbable.keanu.annotation.ExportVertexToPythonBindings;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.LoadVertexParam;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.Elementwise;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.ReusesValueBuffers;
 
+import static io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.DoubleValueBuffers.copyInto;
 
-public class FloorVertex extends DoubleUnaryOpVertex {
+public class FloorVertex extends DoubleUnaryOpVertex implements Elementwise, ReusesValueBuffers {
 
     /**
      * Applies the Floor operator to a vertex.
@@ -23,4 +26,9 @@ public class FloorVertex extends DoubleUnaryOpVertex {
     protected DoubleTensor op(DoubleTensor value) {
         return value.floor();
     }
+
+    @Override
+    protected DoubleTensor opInto(DoubleTensor result, DoubleTensor value) {
+        return copyInto(result, value).floorInPlace();
+    }
 }
@@ -28,7 +28,7 @@ import static io.improbable.keanu.distributions.hyperparam.Diffs.X;
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkHasOneNonLengthOneShapeOrAllLengthOne;
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkTensorsMatchNonLengthOneShapeOrAreLengthOne;
 
-public class BetaVertex extends DoubleVertex implements Differentiable, ProbabilisticDouble, SamplableWithManyScalars<DoubleTensor>, LogProbGraphSupplier {
+public class BetaVertex extends DoubleVertex implements Differentiable, ProbabilisticDouble, ElementwiseLogProb, SamplableWithManyScalars<DoubleTensor>, LogProbGraphSupplier {
 
     private final DoubleVertex alpha;
     private final DoubleVertex beta;
@@ -107,8 +107,13 @@ public class BetaVertex extends DoubleVertex implements Differentiable, Probabil
 
     @Override
     public double logProb(DoubleTensor value) {
+        return elementwiseLogProb(value).sum();
+    }
+
+    @Override
+    public DoubleTensor elementwiseLogProb(DoubleTensor value) {
         DoubleTensor logPdfs = distribution().logProb(value);
-        return logPdfs.sum();
+        return logPdfs;
     }
 
     @Override
@@ -27,7 +27,7 @@ import static io.improbable.keanu.distributions.hyperparam.Diffs.X;
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkHasOneNonLengthOneShapeOrAllLengthOne;
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkTensorsMatchNonLengthOneShapeOrAreLengthOne;
 
-public class CauchyVertex extends DoubleVertex implements Differentiable, ProbabilisticDouble, SamplableWithManyScalars<DoubleTensor>, LogProbGraphSupplier {
+public class CauchyVertex extends DoubleVertex implements Differentiable, ProbabilisticDouble, ElementwiseLogProb, SamplableWithManyScalars<DoubleTensor>, LogProbGraphSupplier {
 
     private final DoubleVertex location;
     private final DoubleVertex scale;
@@ -95,13 +95,18 @@ public class CauchyVertex extends DoubleVertex implements Differentiable, Probab
 
     @Override
     public double logProb(DoubleTensor value) {
+        return elementwiseLogProb(value).sum();
+    }
+
+    @Override
+    public DoubleTensor elementwiseLogProb(DoubleTensor value) {
 
         DoubleTensor locationValues = location.getValue();
         DoubleTensor scaleValues = scale.getValue();
 
         DoubleTensor logPdfs = Cauchy.withParameters(locationValues, scaleValues).logProb(value);
 
-        return logPdfs.sum();
+        return logPdfs;
     }
 
     @Override
@@ -0,0 +1,18 @@
+package io.improbable.keanu.vertices.dbl.probabilistic;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+
+/**
+ * A probabilistic vertex whose log prob is the sum of independent log densities, one for each element of its value.
+ * <p>
+ * The log densities are calculated with the broadcast values of the vertex's parameters, so they can also be
+ * calculated for a value or parameters that have extra leading dimensions, e.g. when evaluating many points at once.
+ */
+public interface ElementwiseLogProb {
+
+    /**
+     * @param value the value to calculate the log densities of
+     * @return the log density of every element, before they are summed into the log prob
+     */
+    DoubleTensor elementwiseLogProb(DoubleTensor value);
+}
@@ -26,7 +26,7 @@ import static io.improbable.keanu.distributions.hyperparam.Diffs.X;
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkHasOneNonLengthOneShapeOrAllLengthOne;
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkTensorsMatchNonLengthOneShapeOrAreLengthOne;
 
-public class ExponentialVertex extends DoubleVertex implements Differentiable, ProbabilisticDouble, SamplableWithManyScalars<DoubleTensor>, LogProbGraphSupplier {
+public class ExponentialVertex extends DoubleVertex implements Differentiable, ProbabilisticDouble, ElementwiseLogProb, SamplableWithManyScalars<DoubleTensor>, LogProbGraphSupplier {
 
     private final DoubleVertex rate;
     private static final String RATE_NAME = "rate";
@@ -71,12 +71,17 @@ public class ExponentialVertex extends DoubleVertex implements Differentiable, P
 
     @Override
     public double logProb(DoubleTensor value) {
+        return elementwiseLogProb(value).sum();
+    }
+
+    @Override
+    public DoubleTensor elementwiseLogProb(DoubleTensor value) {
 
         DoubleTensor lambdaValues = rate.getValue();
 
         DoubleTensor logPdfs = Exponential.withParameters(lambdaValues).logProb(value);
 
-        return logPdfs.sum();
+        return logPdfs;
     }
 
     @Override
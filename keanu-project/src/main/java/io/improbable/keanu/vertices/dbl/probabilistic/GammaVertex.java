@@ -27,7 +27,7 @@ import static io.improbable.keanu.distributions.hyperparam.Diffs.X;
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkHasOneNonLengthOneShapeOrAllLengthOne;
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkTensorsMatchNonLengthOneShapeOrAreLengthOne;
 
-public class GammaVertex extends DoubleVertex implements Differentiable, ProbabilisticDouble, SamplableWithManyScalars<DoubleTensor>, LogProbGraphSupplier {
+public class GammaVertex extends DoubleVertex implements Differentiable, ProbabilisticDouble, ElementwiseLogProb, SamplableWithManyScalars<DoubleTensor>, LogProbGraphSupplier {
 
     private final DoubleVertex theta;
     private final DoubleVertex k;
@@ -90,11 +90,16 @@ public class GammaVertex extends DoubleVertex implements Differentiable, Probabi
 
     @Override
     public double logProb(DoubleTensor value) {
+        return elementwiseLogProb(value).sum();
+    }
+
+    @Override
+    public DoubleTensor elementwiseLogProb(DoubleTensor value) {
         DoubleTensor thetaValues = theta.getValue();
         DoubleTensor kValues = k.getValue();
 
         DoubleTensor logPdfs = Gamma.withParameters(thetaValues, kValues).logProb(value);
-        return logPdfs.sum();
+        return logPdfs;
     }
 
     @Override
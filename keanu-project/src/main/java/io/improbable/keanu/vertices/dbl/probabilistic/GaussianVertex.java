@@ -27,7 +27,7 @@ import static io.improbable.keanu.distributions.hyperparam.Diffs.X;
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkHasOneNonLengthOneShapeOrAllLengthOne;
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkTensorsMatchNonLengthOneShapeOrAreLengthOne;
 
-public class GaussianVertex extends DoubleVertex implements Differentiable, ProbabilisticDouble, SamplableWithManyScalars<DoubleTensor>, LogProbGraphSupplier {
+public class GaussianVertex extends DoubleVertex implements Differentiable, ProbabilisticDouble, ElementwiseLogProb, SamplableWithManyScalars<DoubleTensor>, LogProbGraphSupplier {
 
     private final DoubleVertex mu;
     private final DoubleVertex sigma;
@@ -95,13 +95,18 @@ public class GaussianVertex extends DoubleVertex implements Differentiable, Prob
 
     @Override
     public double logProb(DoubleTensor value) {
+        return elementwiseLogProb(value).sum();
+    }
+
+    @Override
+    public DoubleTensor elementwiseLogProb(DoubleTensor value) {
 
         DoubleTensor muValues = mu.getValue();
         DoubleTensor sigmaValues = sigma.getValue();
 
         DoubleTensor logPdfs = Gaussian.withParameters(muValues, sigmaValues).logProb(value);
 
-        return logPdfs.sum();
+        return logPdfs;
     }
 
     @Override
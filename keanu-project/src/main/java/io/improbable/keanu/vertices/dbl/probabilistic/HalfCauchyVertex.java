@@ -8,6 +8,7 @@ import io.improbable.keanu.vertices.LoadVertexParam;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
 
@@ -49,6 +50,18 @@ public class HalfCauchyVertex extends CauchyVertex {
         return Double.NEGATIVE_INFINITY;
     }
 
+    @Override
+    public DoubleTensor elementwiseLogProb(DoubleTensor value) {
+        DoubleTensor logPdfs = super.elementwiseLogProb(value).plusInPlace(LOG_TWO);
+        DoubleTensor isNegative = value.getLessThanMask(DoubleTensor.scalar(LOC_ZERO));
+
+        if (!Arrays.equals(isNegative.getShape(), logPdfs.getShape())) {
+            isNegative = DoubleTensor.zeros(logPdfs.getShape()).plusInPlace(isNegative);
+        }
+
+        return logPdfs.setWithMaskInPlace(isNegative, Double.NEGATIVE_INFINITY);
+    }
+
     @Override
     public Map<Vertex, DoubleTensor> dLogProb(DoubleTensor value, Set<? extends Vertex> withRespectTo) {
         Map<Vertex, DoubleTensor> logProb = super.dLogProb(value, withRespectTo);
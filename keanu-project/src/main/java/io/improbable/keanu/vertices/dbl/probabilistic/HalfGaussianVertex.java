@@ -9,6 +9,7 @@ import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.ConstantDoubleVertex;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
 
@@ -50,6 +51,18 @@ public class HalfGaussianVertex extends GaussianVertex {
         return Double.NEGATIVE_INFINITY;
     }
 
+    @Override
+    public DoubleTensor elementwiseLogProb(DoubleTensor value) {
+        DoubleTensor logPdfs = super.elementwiseLogProb(value).plusInPlace(LOG_TWO);
+        DoubleTensor isNegative = value.getLessThanMask(DoubleTensor.scalar(MU_ZERO));
+
+        if (!Arrays.equals(isNegative.getShape(), logPdfs.getShape())) {
+            isNegative = DoubleTensor.zeros(logPdfs.getShape()).plusInPlace(isNegative);
+        }
+
+        return logPdfs.setWithMaskInPlace(isNegative, Double.NEGATIVE_INFINITY);
+    }
+
     @Override
     public Map<Vertex, DoubleTensor> dLogProb(DoubleTensor value, Set<? extends Vertex> withRespectTo) {
         Map<Vertex, DoubleTensor> logProb = super.dLogProb(value, withRespectTo);
@@ -24,7 +24,7 @@ import static io.improbable.keanu.tensor.TensorShapeValidation.checkHasOneNonLen
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkTensorsMatchNonLengthOneShapeOrAreLengthOne;
 import static java.util.Collections.singletonMap;
 
-public class UniformVertex extends DoubleVertex implements Differentiable, ProbabilisticDouble, SamplableWithManyScalars<DoubleTensor>, LogProbGraphSupplier {
+public class UniformVertex extends DoubleVertex implements Differentiable, ProbabilisticDouble, ElementwiseLogProb, SamplableWithManyScalars<DoubleTensor>, LogProbGraphSupplier {
 
     private final DoubleVertex xMin;
     private final DoubleVertex xMax;
@@ -99,7 +99,12 @@ public class UniformVertex extends DoubleVertex implements Differentiable, Proba
 
     @Override
     public double logProb(DoubleTensor value) {
-        return Uniform.withParameters(xMin.getValue(), xMax.getValue()).logProb(value).sum();
+        return elementwiseLogProb(value).sum();
+    }
+
+    @Override
+    public DoubleTensor elementwiseLogProb(DoubleTensor value) {
+        return Uniform.withParameters(xMin.getValue(), xMax.getValue()).logProb(value);
     }
 
     @Override
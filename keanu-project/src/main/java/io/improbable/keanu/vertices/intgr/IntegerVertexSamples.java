@@ -1,6 +1,8 @@
 package io.improbable.keanu.vertices.intgr;
 
+import io.improbable.keanu.algorithms.ColumnarSampleList;
 import io.improbable.keanu.algorithms.Samples;
+import io.improbable.keanu.tensor.TensorShape;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.tensor.intgr.IntegerTensor;
 
@@ -11,10 +13,17 @@ import java.util.Optional;
 import static java.util.Comparator.comparing;
 import static java.util.stream.Collectors.groupingBy;
 
+/**
+ * The samples of an integer tensor variable. When the samples are stored as columns of integers, see
+ * {@link ColumnarSampleList}, the average and the stacked tensor are calculated directly on the columns.
+ */
 public class IntegerVertexSamples extends Samples<IntegerTensor> {
 
+    private final ColumnarSampleList<IntegerTensor> columns;
+
     public IntegerVertexSamples(List<IntegerTensor> samples) {
-        super(samples);
+        super(ColumnarSampleList.of(samples));
+        this.columns = (ColumnarSampleList<IntegerTensor>) this.samples;
     }
 
     public DoubleTensor getAverages() {
@@ -22,6 +31,21 @@ public class IntegerVertexSamples extends Samples<IntegerTensor> {
             throw new IllegalStateException("No samples exist for averaging.");
         }
 
+        if (columns.isIntegerColumns()) {
+            double[] averages = new double[columns.getSampleLength()];
+            columns.forEachIntegerSample((chunk, offset) -> {
+                for (int j = 0; j < averages.length; j++) {
+                    averages[j] += chunk[offset + j];
+                }
+            });
+
+            for (int j = 0; j < averages.length; j++) {
+                averages[j] /= samples.size();
+            }
+
+            return DoubleTensor.create(averages, columns.getSampleShape());
+        }
+
         long[] shape = samples.iterator().next().getShape();
 
         return this.samples.stream()
@@ -57,6 +81,11 @@ public class IntegerVertexSamples extends Samples<IntegerTensor> {
     }
 
     public IntegerTensor asTensor() {
+        if (columns.isIntegerColumns()) {
+            long[] shape = TensorShape.concat(new long[]{samples.size()}, columns.getSampleShape());
+            return IntegerTensor.create(columns.asFlatIntegerArray(), shape);
+        }
+
         return IntegerTensor.stack(0, samples.toArray(new IntegerTensor[0]));
     }
 }
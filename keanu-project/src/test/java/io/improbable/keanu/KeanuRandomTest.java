@@ -54,4 +54,18 @@ public class KeanuRandomTest {
         assertEquals(keanuRandom.nextDouble(), new MersenneTwister(1L).nextDouble());
         assertEquals(keanuRandom.nextDouble(), 0.41782887182714457, 1e-16);
     }
+
+    @Test
+    public void canResumeFromASavedState() {
+        random.nextDouble();
+        byte[] state = random.getState();
+        double[] expected = {random.nextDouble(), random.nextGaussian(), random.nextDouble()};
+
+        KeanuRandom resumed = new KeanuRandom(2);
+        resumed.setState(state);
+
+        assertEquals(expected[0], resumed.nextDouble());
+        assertEquals(expected[1], resumed.nextGaussian());
+        assertEquals(expected[2], resumed.nextDouble());
+    }
 }
@@ -0,0 +1,100 @@
+package io.improbable.keanu.algorithms;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ColumnarSampleListTest {
+
+    @Test
+    public void storesDoubleTensorsAsColumns() {
+        List<DoubleTensor> expected = new ArrayList<>();
+        ColumnarSampleList<DoubleTensor> samples = new ColumnarSampleList<>();
+
+        for (int i = 0; i < 100000; i++) {
+            DoubleTensor sample = DoubleTensor.create(new double[]{i, -i, 0.5 * i}, 3, 1);
+            expected.add(sample);
+            samples.add(sample);
+        }
+
+        assertTrue(samples.isDoubleColumns());
+        assertArrayEquals(new long[]{3, 1}, samples.getSampleShape());
+        assertEquals(expected.size(), samples.size());
+        assertEquals(expected.get(0), samples.get(0));
+        assertEquals(expected.get(54321), samples.get(54321));
+        assertEquals(expected.get(99999), samples.get(99999));
+    }
+
+    @Test
+    public void storesIntegerTensorsAsColumns() {
+        ColumnarSampleList<IntegerTensor> samples = new ColumnarSampleList<>();
+        samples.add(IntegerTensor.create(1, 2));
+        samples.add(IntegerTensor.create(3, 4));
+
+        assertTrue(samples.isIntegerColumns());
+        assertArrayEquals(new int[]{1, 2, 3, 4}, samples.asFlatIntegerArray());
+        assertEquals(IntegerTensor.create(3, 4), samples.get(1));
+    }
+
+    @Test
+    public void storesDoublesAsAColumn() {
+        ColumnarSampleList<Double> samples = new ColumnarSampleList<>();
+        samples.addAll(Arrays.asList(1.0, 2.0, 3.0));
+
+        assertTrue(samples.isDoubleColumns());
+        assertEquals(Arrays.asList(1.0, 2.0, 3.0), samples);
+        assertArrayEquals(new double[]{1.0, 2.0, 3.0}, samples.getDoubleColumn(0), 0.0);
+    }
+
+    @Test
+    public void keepsSamplesAsObjectsWhenTheShapeChanges() {
+        ColumnarSampleList<DoubleTensor> samples = new ColumnarSampleList<>();
+        samples.add(DoubleTensor.create(1, 2));
+        samples.add(DoubleTensor.scalar(3));
+
+        assertFalse(samples.isDoubleColumns());
+        assertEquals(Arrays.asList(DoubleTensor.create(1, 2), DoubleTensor.scalar(3)), samples);
+    }
+
+    @Test
+    public void keepsOtherTypesAsObjects() {
+        ColumnarSampleList<Boolean> samples = new ColumnarSampleList<>();
+        samples.add(true);
+        samples.add(false);
+
+        assertFalse(samples.isDoubleColumns());
+        assertEquals(Arrays.asList(true, false), samples);
+    }
+
+    @Test
+    public void canCopyARangeAndDownSample() {
+        ColumnarSampleList<DoubleTensor> samples = new ColumnarSampleList<>();
+        for (int i = 0; i < 10; i++) {
+            samples.add(DoubleTensor.create(i, i + 1));
+        }
+
+        ColumnarSampleList<DoubleTensor> dropped = samples.copyOfRange(4, 10);
+        ColumnarSampleList<DoubleTensor> downSampled = samples.downSample(3);
+
+        assertEquals(samples.subList(4, 10), dropped);
+        assertEquals(Arrays.asList(samples.get(0), samples.get(3), samples.get(6), samples.get(9)), downSampled);
+        assertTrue(downSampled.isDoubleColumns());
+    }
+
+    @Test
+    public void returnsTheSameListIfItIsAlreadyColumnar() {
+        ColumnarSampleList<Double> samples = new ColumnarSampleList<>();
+        samples.add(1.0);
+
+        assertTrue(samples == ColumnarSampleList.of(samples));
+    }
+}
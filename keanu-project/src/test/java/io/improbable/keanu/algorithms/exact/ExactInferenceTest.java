@@ -0,0 +1,196 @@
+package io.improbable.keanu.algorithms.exact;
+
+import com.google.common.collect.ImmutableMap;
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import io.improbable.keanu.vertices.ConstantVertex;
+import io.improbable.keanu.vertices.bool.BooleanVertex;
+import io.improbable.keanu.vertices.bool.probabilistic.BernoulliVertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import io.improbable.keanu.vertices.generic.nonprobabilistic.ConditionalProbabilityTable;
+import io.improbable.keanu.vertices.generic.probabilistic.discrete.CategoricalVertex;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class ExactInferenceTest {
+
+    private static final BooleanTensor TRUE = BooleanTensor.scalar(true);
+    private static final BooleanTensor FALSE = BooleanTensor.scalar(false);
+
+    private BernoulliVertex rain;
+    private BernoulliVertex sprinkler;
+    private BernoulliVertex wetGrass;
+
+    private void createSprinklerNetwork() {
+        rain = new BernoulliVertex(0.2);
+        sprinkler = new BernoulliVertex(ConditionalProbabilityTable.of(rain)
+            .when(true).then(0.01)
+            .orDefault(0.4)
+        );
+        wetGrass = new BernoulliVertex(ConditionalProbabilityTable.of(sprinkler, rain)
+            .when(true, true).then(0.99)
+            .when(true, false).then(0.9)
+            .when(false, true).then(0.8)
+            .orDefault(0.0)
+        );
+    }
+
+    @Test
+    public void canCalculateTheMarginalsOfTheSprinklerNetwork() {
+        createSprinklerNetwork();
+        wetGrass.observe(true);
+
+        ExactInference inference = ExactInference.of(new BayesianNetwork(rain.getConnectedGraph()));
+
+        double probabilityOfWetGrass = 0.2 * (0.01 * 0.99 + 0.99 * 0.8) + 0.8 * 0.4 * 0.9;
+        double probabilityOfRainAndWetGrass = 0.2 * (0.01 * 0.99 + 0.99 * 0.8);
+        assertEquals(probabilityOfRainAndWetGrass / probabilityOfWetGrass, inference.getMarginal(rain).get(TRUE), 1e-12);
+        assertEquals(1 - probabilityOfRainAndWetGrass / probabilityOfWetGrass, inference.getMarginal(rain).get(FALSE), 1e-12);
+        assertEquals(1.0, inference.getMarginal(wetGrass).get(TRUE), 0.0);
+        assertEquals(Math.log(probabilityOfWetGrass), inference.getLogProbOfObservations(), 1e-12);
+    }
+
+    @Test
+    public void canFindTheMostProbableStateOfTheSprinklerNetwork() {
+        createSprinklerNetwork();
+        wetGrass.observe(true);
+
+        NetworkSample mostProbable = ExactInference.of(new BayesianNetwork(rain.getConnectedGraph())).getMostProbableState();
+
+        assertEquals(FALSE, mostProbable.get(rain));
+        assertEquals(TRUE, mostProbable.get(sprinkler));
+        assertEquals(TRUE, mostProbable.get(wetGrass));
+        assertEquals(Math.log(0.8 * 0.4 * 0.9), mostProbable.getLogOfMasterP(), 1e-12);
+    }
+
+    @Test
+    public void theLogProbOfNoObservationsIsZero() {
+        createSprinklerNetwork();
+
+        ExactInference inference = ExactInference.of(new BayesianNetwork(rain.getConnectedGraph()));
+
+        assertEquals(0.0, inference.getLogProbOfObservations(), 1e-12);
+        assertEquals(0.2, inference.getMarginal(rain).get(TRUE), 1e-12);
+    }
+
+    @Test
+    public void matchesEnumerationOnANetworkWithALoop() {
+        double[] pB = {0.2, 0.7};
+        double[] pC = {0.5, 0.1};
+        double[][] pD = {{0.05, 0.3}, {0.6, 0.9}};
+
+        BernoulliVertex a = new BernoulliVertex(0.6);
+        BernoulliVertex b = new BernoulliVertex(ConditionalProbabilityTable.of(a).when(true).then(pB[1]).orDefault(pB[0]));
+        BernoulliVertex c = new BernoulliVertex(ConditionalProbabilityTable.of(a).when(true).then(pC[1]).orDefault(pC[0]));
+        BernoulliVertex d = new BernoulliVertex(ConditionalProbabilityTable.of(b, c)
+            .when(true, true).then(pD[1][1])
+            .when(true, false).then(pD[1][0])
+            .when(false, true).then(pD[0][1])
+            .orDefault(pD[0][0])
+        );
+        d.observe(true);
+
+        double[] joint = new double[8];
+        double total = 0;
+        for (int i = 0; i < 8; i++) {
+            int av = (i >> 2) & 1;
+            int bv = (i >> 1) & 1;
+            int cv = i & 1;
+            joint[i] = (av == 1 ? 0.6 : 0.4)
+                * (bv == 1 ? pB[av] : 1 - pB[av])
+                * (cv == 1 ? pC[av] : 1 - pC[av])
+                * pD[bv][cv];
+            total += joint[i];
+        }
+        double aTrue = 0;
+        double bTrue = 0;
+        double cTrue = 0;
+        for (int i = 0; i < 8; i++) {
+            aTrue += ((i >> 2) & 1) * joint[i];
+            bTrue += ((i >> 1) & 1) * joint[i];
+            cTrue += (i & 1) * joint[i];
+        }
+
+        ExactInference inference = ExactInference.of(new BayesianNetwork(a.getConnectedGraph()));
+
+        assertEquals(aTrue / total, inference.getMarginal(a).get(TRUE), 1e-12);
+        assertEquals(bTrue / total, inference.getMarginal(b).get(TRUE), 1e-12);
+        assertEquals(cTrue / total, inference.getMarginal(c).get(TRUE), 1e-12);
+        assertEquals(Math.log(total), inference.getLogProbOfObservations(), 1e-12);
+    }
+
+    @Test
+    public void canConditionOnACategoricalVertex() {
+        BernoulliVertex b = new BernoulliVertex(0.3);
+        DoubleVertex weightOfZero = ConditionalProbabilityTable.of(b).when(true).then(1.0).orDefault(2.0);
+        DoubleVertex weightOfTwo = ConditionalProbabilityTable.of(b).when(true).then(2.0).orDefault(1.0);
+        Map<Integer, DoubleVertex> weights = ImmutableMap.of(0, weightOfZero, 1, ConstantVertex.of(1.0), 2, weightOfTwo);
+        CategoricalVertex<Integer, IntegerTensor> category = new CategoricalVertex<>(weights);
+        category.observe(IntegerTensor.scalar(2));
+
+        ExactInference inference = ExactInference.of(new BayesianNetwork(b.getConnectedGraph()));
+
+        assertEquals(0.3 * 0.5 / (0.3 * 0.5 + 0.7 * 0.25), inference.getMarginal(b).get(TRUE), 1e-12);
+    }
+
+    @Test
+    public void canCalculateTheMarginalOfACategoricalVertex() {
+        CategoricalVertex<Integer, IntegerTensor> category = CategoricalVertex.of(ImmutableMap.of(0, 0.2, 1, 0.3, 2, 0.5));
+
+        Map<IntegerTensor, Double> marginal = ExactInference.of(new BayesianNetwork(category.getConnectedGraph()))
+            .getMarginal(category);
+
+        assertEquals(0.2, marginal.get(IntegerTensor.scalar(0)), 1e-12);
+        assertEquals(0.3, marginal.get(IntegerTensor.scalar(1)), 1e-12);
+        assertEquals(0.5, marginal.get(IntegerTensor.scalar(2)), 1e-12);
+    }
+
+    @Test
+    public void canObserveANonProbabilisticVertex() {
+        BernoulliVertex a = new BernoulliVertex(0.5);
+        BernoulliVertex b = new BernoulliVertex(0.5);
+        BooleanVertex aOrB = a.or(b);
+        aOrB.observe(true);
+
+        ExactInference inference = ExactInference.of(new BayesianNetwork(a.getConnectedGraph()));
+
+        assertEquals(2.0 / 3.0, inference.getMarginal(a).get(TRUE), 1e-12);
+        assertEquals(Math.log(0.75), inference.getLogProbOfObservations(), 1e-12);
+    }
+
+    @Test
+    public void leavesTheValuesOfTheNetworkAsTheyWere() {
+        createSprinklerNetwork();
+        rain.setValue(true);
+        sprinkler.setValue(false);
+        wetGrass.observe(true);
+
+        ExactInference.of(new BayesianNetwork(rain.getConnectedGraph()));
+
+        assertEquals(TRUE, rain.getValue());
+        assertEquals(FALSE, sprinkler.getValue());
+        assertEquals(0.01, sprinkler.getProbTrue().getValue().scalar(), 0.0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void itThrowsIfTheObservationsAreImpossible() {
+        BernoulliVertex a = new BernoulliVertex(0.0);
+        a.observe(true);
+
+        ExactInference.of(new BayesianNetwork(a.getConnectedGraph())).getMostProbableState();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void itThrowsIfTheNetworkHasAContinuousLatentVertex() {
+        GaussianVertex mu = new GaussianVertex(0, 1);
+        new GaussianVertex(mu, 1).observe(0.5);
+
+        ExactInference.of(new BayesianNetwork(mu.getConnectedGraph()));
+    }
+}
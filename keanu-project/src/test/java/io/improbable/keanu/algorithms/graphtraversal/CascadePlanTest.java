@@ -0,0 +1,154 @@
+package io.improbable.keanu.algorithms.graphtraversal;
+
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.improbable.keanu.vertices.TestGraphGenerator.addLinks;
+import static io.improbable.keanu.vertices.TestGraphGenerator.passThroughVertex;
+import static io.improbable.keanu.vertices.TestGraphGenerator.sumVertex;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@Slf4j
+public class CascadePlanTest {
+
+    @Test
+    public void cascadesFromSingleSourceWithTheSameWorkAsCascadeUpdate() {
+        AtomicInteger n = new AtomicInteger(0);
+        AtomicInteger m = new AtomicInteger(0);
+        DoubleVertex start = new GaussianVertex(0, 1);
+
+        int links = 20;
+        DoubleVertex end = addLinks(start, n, m, links);
+
+        CascadePlan plan = CascadePlan.compile(Collections.singletonList(start));
+        n.set(0);
+
+        start.setValue(2.0);
+        plan.cascadeUpdate(start);
+
+        assertEquals(Math.pow(2, links + 1), end.getValue().scalar(), 0.0);
+        assertEquals(3 * links, n.get());
+        assertEquals(3 * links + 1, plan.getCascadeSize(start.getId()));
+    }
+
+    @Test
+    public void doesNotPropagateThroughProbabilisticVertices() {
+        AtomicInteger n = new AtomicInteger(0);
+        AtomicInteger m = new AtomicInteger(0);
+        DoubleVertex start = new GaussianVertex(0, 1);
+
+        DoubleVertex end = addLinks(start, n, m, 1);
+        DoubleVertex nextLayerStart = new GaussianVertex(end, 1);
+        addLinks(nextLayerStart, n, m, 1);
+
+        CascadePlan plan = CascadePlan.compile(Collections.singletonList(start));
+        n.set(0);
+
+        start.setValue(3.0);
+        plan.cascadeUpdate(start);
+
+        assertEquals(6.0, end.getValue().scalar(), 0.0);
+        assertEquals(3, n.get());
+    }
+
+    @Test
+    public void mergesPlansWhenCascadingFromSeveralSources() {
+        AtomicInteger n = new AtomicInteger(0);
+        AtomicInteger m = new AtomicInteger(0);
+        DoubleVertex firstLayerStart = new GaussianVertex(0, 1);
+
+        DoubleVertex firstLayerEnd = addLinks(firstLayerStart, n, m, 1);
+
+        DoubleVertex secondLayerStart = new GaussianVertex(firstLayerEnd, 1);
+
+        DoubleVertex secondLayerLeft = sumVertex(secondLayerStart, firstLayerEnd, n, m, id -> log.info("OP on id: " + id));
+        DoubleVertex secondLayerRight = passThroughVertex(secondLayerStart, n, m, id -> log.info("OP on id: " + id));
+        DoubleVertex secondLayerEnd = sumVertex(secondLayerLeft, secondLayerRight, n, m, id -> log.info("OP on id: " + id));
+
+        CascadePlan plan = CascadePlan.compile(Arrays.asList(firstLayerStart, secondLayerStart));
+        n.set(0);
+
+        secondLayerStart.setValue(2.0);
+        firstLayerStart.setValue(3.0);
+        plan.cascadeUpdate(Arrays.asList(firstLayerStart, secondLayerStart));
+
+        assertEquals(6.0, firstLayerEnd.getValue().scalar(), 0.0);
+        assertEquals(10.0, secondLayerEnd.getValue().scalar(), 0.0);
+        assertEquals(6, n.get());
+
+        n.set(0);
+        firstLayerStart.setValue(1.0);
+        plan.cascadeUpdate(Arrays.asList(secondLayerStart, firstLayerStart));
+
+        assertEquals(2.0, firstLayerEnd.getValue().scalar(), 0.0);
+        assertEquals(6.0, secondLayerEnd.getValue().scalar(), 0.0);
+        assertEquals(6, n.get());
+    }
+
+    @Test
+    public void becomesStaleWhenTopologyChanges() {
+        DoubleVertex start = new GaussianVertex(0, 1);
+        DoubleVertex doubled = start.times(2);
+
+        CascadePlan plan = CascadePlan.compile(Collections.singletonList(start));
+        assertFalse(plan.isStale());
+
+        DoubleVertex tripled = start.times(3);
+        assertTrue(plan.isStale());
+
+        CascadePlan recompiled = CascadePlan.compile(Collections.singletonList(start));
+        start.setValue(2.0);
+        recompiled.cascadeUpdate(start);
+
+        assertEquals(4.0, doubled.getValue().scalar(), 0.0);
+        assertEquals(6.0, tripled.getValue().scalar(), 0.0);
+    }
+
+    @Test
+    public void doesNotBecomeStaleWhenAnotherNetworkChanges() {
+        DoubleVertex start = new GaussianVertex(0, 1);
+        start.times(2);
+
+        CascadePlan plan = CascadePlan.compile(Collections.singletonList(start));
+
+        DoubleVertex unrelated = new GaussianVertex(0, 1);
+        unrelated.times(2);
+
+        assertFalse(plan.isStale());
+    }
+
+    @Test
+    public void onlyThePlansOfTheChangedSourcesAreStale() {
+        DoubleVertex first = new GaussianVertex(0, 1);
+        DoubleVertex second = new GaussianVertex(0, 1);
+        DoubleVertex firstDoubled = first.times(2);
+        second.times(2);
+
+        CascadePlan plan = CascadePlan.compile(Arrays.asList(first, second));
+
+        firstDoubled.times(3);
+
+        assertTrue(plan.isStale());
+        assertTrue(plan.isStale(Collections.singletonList(first)));
+        assertFalse(plan.isStale(Collections.singletonList(second)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsIfCascadingFromAVertexThatIsNotASource() {
+        DoubleVertex start = new GaussianVertex(0, 1);
+        DoubleVertex other = new GaussianVertex(0, 1);
+
+        CascadePlan plan = CascadePlan.compile(Collections.singletonList(start));
+
+        assertFalse(plan.canCascadeFrom(other.getId()));
+        plan.cascadeUpdate(other);
+    }
+}
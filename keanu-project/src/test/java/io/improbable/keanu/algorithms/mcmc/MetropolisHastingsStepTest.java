@@ -12,6 +12,7 @@ import io.improbable.keanu.network.KeanuProbabilisticModel;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.testcategory.Slow;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.ReusesValueBuffers;
 import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
 import io.improbable.keanu.vertices.dbl.probabilistic.UniformVertex;
 import org.junit.Before;
@@ -132,6 +133,54 @@ public class MetropolisHastingsStepTest {
         assertEquals(0.5, A.getValue(0), 1e-10);
     }
 
+    @Test
+    public void doesRestoreReusedValueBuffersOnRejection() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        A.setValue(0.5);
+        DoubleVertex B = A.times(2).exp();
+        DoubleVertex C = new GaussianVertex(B, 1);
+        C.observe(5.0);
+        ReusesValueBuffers.enableFor(A.getConnectedGraph());
+        B.eval();
+        ProbabilisticModel model = new KeanuProbabilisticModel(A.getConnectedGraph());
+        double logProbBeforeStep = model.logProb();
+
+        MetropolisHastingsStep mhStep = stepFunctionWithConstantProposal(model, 10, alwaysReject);
+
+        MetropolisHastingsStep.StepResult result = mhStep.step(
+            Collections.singleton(A),
+            logProbBeforeStep
+        );
+
+        assertFalse(result.isAccepted());
+        assertEquals(Math.exp(1.0), B.getValue(0), 1e-10);
+        assertEquals(logProbBeforeStep, model.logProb(), 1e-10);
+    }
+
+    @Test
+    public void doesRestoreVerticesAddedToTheGraphAfterAnEarlierRejection() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        A.setValue(0.5);
+        new GaussianVertex(A, 1).observe(1.0);
+        RollBackToCachedValuesOnRejection rejectionStrategy = new RollBackToCachedValuesOnRejection();
+
+        ProbabilisticModel model = new KeanuProbabilisticModel(A.getConnectedGraph());
+        new MetropolisHastingsStep(model, constantProposal(10), rejectionStrategy, alwaysReject)
+            .step(Collections.singleton(A), model.logProb());
+
+        DoubleVertex B = A.times(2);
+        new GaussianVertex(B, 1).observe(1.0);
+        B.eval();
+
+        ProbabilisticModel grownModel = new KeanuProbabilisticModel(A.getConnectedGraph());
+        MetropolisHastingsStep.StepResult result = new MetropolisHastingsStep(grownModel, constantProposal(10), rejectionStrategy, alwaysReject)
+            .step(Collections.singleton(A), grownModel.logProb());
+
+        assertFalse(result.isAccepted());
+        assertEquals(0.5, A.getValue(0), 1e-10);
+        assertEquals(1.0, B.getValue(0), 1e-10);
+    }
+
     private MetropolisHastingsStep stepFunctionWithConstantProposal(ProbabilisticModel model, double constant, KeanuRandom random) {
 
         return new MetropolisHastingsStep(
@@ -2,9 +2,12 @@ package io.improbable.keanu.algorithms.mcmc;
 
 import io.improbable.keanu.DeterministicRule;
 import io.improbable.keanu.Keanu;
+import io.improbable.keanu.algorithms.NetworkSample;
 import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.mcmc.proposal.AdaptiveGaussianProposalDistribution;
 import io.improbable.keanu.algorithms.mcmc.proposal.GaussianProposalDistribution;
 import io.improbable.keanu.algorithms.mcmc.proposal.MHStepVariableSelector;
+import io.improbable.keanu.algorithms.mcmc.proposal.MarkovBlanketVariableSelector;
 import io.improbable.keanu.algorithms.mcmc.proposal.PriorProposalDistribution;
 import io.improbable.keanu.algorithms.mcmc.proposal.ProposalDistribution;
 import io.improbable.keanu.algorithms.mcmc.testcases.MCMCTestCase;
@@ -18,6 +21,7 @@ import io.improbable.keanu.testcategory.Slow;
 import io.improbable.keanu.vertices.bool.BooleanVertex;
 import io.improbable.keanu.vertices.bool.probabilistic.BernoulliVertex;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.ReusesValueBuffers;
 import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
 import org.junit.Rule;
 import org.junit.Test;
@@ -25,9 +29,12 @@ import org.junit.experimental.categories.Category;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 public class MetropolisHastingsTest {
 
@@ -56,6 +63,52 @@ public class MetropolisHastingsTest {
         testCase.assertExpected(posteriorSamples);
     }
 
+    @Test
+    public void samplesOfAVertexThatReusesItsValueBuffersAreNotOverwrittenByLaterSteps() {
+        DoubleVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex B = new GaussianVertex(0.0, 1.0);
+        DoubleVertex C = A.plus(B);
+        new GaussianVertex(C, 1.0).observe(1.0);
+        ReusesValueBuffers.enableFor(A.getConnectedGraph());
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(A.getConnectedGraph());
+
+        List<NetworkSample> samples = MetropolisHastings.builder()
+            .proposalDistribution(new PriorProposalDistribution())
+            .build()
+            .generatePosteriorSamples(model, Arrays.asList(A, B, C))
+            .stream()
+            .limit(50)
+            .collect(Collectors.toList());
+
+        for (NetworkSample sample : samples) {
+            assertEquals(sample.get(A).plus(sample.get(B)), sample.get(C));
+        }
+    }
+
+    @Test
+    public void samplesOfAVertexWhoseValueIsAViewOfAParentsValueAreNotOverwrittenByLaterSteps() {
+        DoubleVertex A = new GaussianVertex(new long[]{2}, 0.0, 1.0);
+        DoubleVertex B = new GaussianVertex(new long[]{2}, 0.0, 1.0);
+        DoubleVertex C = A.plus(B);
+        DoubleVertex D = C.reshape(2, 1);
+        new GaussianVertex(C, 1.0).observe(DoubleTensor.create(1.0, -1.0));
+        ReusesValueBuffers.enableFor(A.getConnectedGraph());
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(A.getConnectedGraph());
+
+        List<NetworkSample> samples = MetropolisHastings.builder()
+            .proposalDistribution(new PriorProposalDistribution())
+            .build()
+            .generatePosteriorSamples(model, Arrays.asList(A, B, D))
+            .stream()
+            .limit(50)
+            .collect(Collectors.toList());
+
+        assertFalse(((ReusesValueBuffers) C).isReusingValueBuffers());
+        for (NetworkSample sample : samples) {
+            assertEquals(sample.get(A).plus(sample.get(B)).reshape(2, 1), sample.get(D));
+        }
+    }
+
     @Test
     public void samplesContinuousPriorAllVariablesSelected() {
 
@@ -229,6 +282,41 @@ public class MetropolisHastingsTest {
         assertEquals(44.0, actual, 0.1);
     }
 
+    @Test
+    public void youCanUseAnAdaptiveBlockProposal() {
+
+        DoubleVertex A = new GaussianVertex(20.0, 1.0);
+        DoubleVertex B = new GaussianVertex(20.0, 1.0);
+
+        A.setValue(20.0);
+        B.setValue(20.0);
+
+        DoubleVertex Cobserved = new GaussianVertex(A.plus(B), 1.0);
+
+        Cobserved.observe(46.0);
+
+        BayesianNetwork bayesNet = new BayesianNetwork(Arrays.asList(A, B, Cobserved));
+        bayesNet.probeForNonZeroProbability(100);
+
+        int warmUp = 1000;
+        MetropolisHastings metropolisHastings = MetropolisHastings.builder()
+            .proposalDistribution(new AdaptiveGaussianProposalDistribution(1.0, warmUp))
+            .variableSelector(new MarkovBlanketVariableSelector(2))
+            .rejectionStrategy(new RollBackToCachedValuesOnRejection())
+            .build();
+
+        NetworkSamples posteriorSamples = metropolisHastings
+            .generatePosteriorSamples(new KeanuProbabilisticModel(bayesNet), Arrays.asList(A, B))
+            .dropCount(warmUp)
+            .generate(10000);
+
+        double averagePosteriorA = posteriorSamples.getDoubleTensorSamples(A).getAverages().scalar();
+        double averagePosteriorB = posteriorSamples.getDoubleTensorSamples(B).getAverages().scalar();
+
+        double actual = averagePosteriorA + averagePosteriorB;
+        assertEquals(44.0, actual, 0.1);
+    }
+
     @Test
     public void doesNotDoExtraWorkOnRejectionWhenRejectionCacheEnabled() {
         AtomicInteger n = new AtomicInteger(0);
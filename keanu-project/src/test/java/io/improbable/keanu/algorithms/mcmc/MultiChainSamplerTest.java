@@ -0,0 +1,150 @@
+package io.improbable.keanu.algorithms.mcmc;
+
+import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.Keanu;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.MultiChainNetworkSamples;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.mcmc.testcases.SumGaussianTestCase;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MultiChainSamplerTest {
+
+    @Rule
+    public DeterministicRule rule = new DeterministicRule();
+
+    private static MultiChainSampler.Chain sumGaussianChain(int chainIndex, KeanuRandom random) {
+        SumGaussianTestCase testCase = new SumGaussianTestCase();
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(testCase.getModel());
+        return new MultiChainSampler.Chain(
+            model,
+            Keanu.Sampling.MetropolisHastings.withDefaultConfig(random),
+            Arrays.asList(testCase.getA(), testCase.getB())
+        );
+    }
+
+    @Test
+    public void mergesSamplesFromEveryChain() {
+        int chainCount = 4;
+        int sampleCount = 2000;
+
+        MultiChainNetworkSamples samples = MultiChainSampler.builder()
+            .chainCount(chainCount)
+            .seed(1)
+            .dropCount(100)
+            .build()
+            .getPosteriorSamples(MultiChainSamplerTest::sumGaussianChain, sampleCount);
+
+        assertEquals(chainCount, samples.getChainCount());
+        assertEquals(chainCount * (sampleCount - 100), samples.size());
+        assertEquals(0, samples.getChainIndex(0));
+        assertEquals(chainCount - 1, samples.getChainIndex(samples.size() - 1));
+
+        NetworkSamples merged = samples.merged();
+        assertEquals(samples.size(), merged.size());
+    }
+
+    @Test
+    public void mergedSamplesConvergeToPosterior() {
+        SumGaussianTestCase[] testCases = new SumGaussianTestCase[3];
+
+        MultiChainNetworkSamples samples = MultiChainSampler.builder()
+            .chainCount(testCases.length)
+            .seed(1)
+            .build()
+            .getPosteriorSamples((chainIndex, random) -> {
+                testCases[chainIndex] = new SumGaussianTestCase();
+                return new MultiChainSampler.Chain(
+                    new KeanuProbabilisticModel(testCases[chainIndex].getModel()),
+                    Keanu.Sampling.MetropolisHastings.withDefaultConfig(random),
+                    Arrays.asList(testCases[chainIndex].getA(), testCases[chainIndex].getB())
+                );
+            }, 5000);
+
+        testCases[0].assertExpected(samples.merged());
+    }
+
+    @Test
+    public void chainsUseIndependentRandomStreams() {
+        MultiChainNetworkSamples samples = MultiChainSampler.builder()
+            .chainCount(2)
+            .seed(1)
+            .build()
+            .getPosteriorSamples(MultiChainSamplerTest::sumGaussianChain, 100);
+
+        NetworkSamples first = samples.getChain(0);
+        NetworkSamples second = samples.getChain(1);
+
+        boolean anyDifferent = false;
+        for (int i = 0; i < first.size(); i++) {
+            anyDifferent |= first.getLogOfMasterP(i) != second.getLogOfMasterP(i);
+        }
+        assertTrue(anyDifferent);
+    }
+
+    @Test
+    public void isReproducibleForAGivenSeedRegardlessOfThreadCount() {
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        ExecutorService manyThreads = Executors.newFixedThreadPool(4);
+
+        try {
+            NetworkSamples sequential = runWithExecutor(singleThread).merged();
+            NetworkSamples parallel = runWithExecutor(manyThreads).merged();
+
+            for (int i = 0; i < sequential.size(); i++) {
+                assertEquals(sequential.getLogOfMasterP(i), parallel.getLogOfMasterP(i), 0.0);
+            }
+        } finally {
+            singleThread.shutdown();
+            manyThreads.shutdown();
+        }
+    }
+
+    private MultiChainNetworkSamples runWithExecutor(ExecutorService executor) {
+        return MultiChainSampler.builder()
+            .chainCount(4)
+            .seed(42)
+            .executor(executor)
+            .build()
+            .getPosteriorSamples(MultiChainSamplerTest::sumGaussianChain, 200);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroChains() {
+        MultiChainSampler.builder().chainCount(0).build();
+    }
+
+    @Test
+    public void findsTheChainOfEveryMergedSampleWhenChainsHaveDifferentSizes() {
+        int[] chainSizes = new int[]{3, 0, 1, 5, 0, 2};
+        List<NetworkSamples> chains = new ArrayList<>();
+        List<List<Variable>> variablesPerChain = new ArrayList<>();
+        for (int chainSize : chainSizes) {
+            chains.add(new NetworkSamples(Collections.emptyMap(), Collections.nCopies(chainSize, 0.0), chainSize));
+            variablesPerChain.add(Collections.emptyList());
+        }
+
+        MultiChainNetworkSamples samples = new MultiChainNetworkSamples(chains, variablesPerChain);
+
+        int sampleIndex = 0;
+        for (int chain = 0; chain < chainSizes.length; chain++) {
+            for (int i = 0; i < chainSizes[chain]; i++) {
+                assertEquals(chain, samples.getChainIndex(sampleIndex++));
+            }
+        }
+        assertEquals(samples.size(), sampleIndex);
+    }
+}
@@ -0,0 +1,211 @@
+package io.improbable.keanu.algorithms.mcmc.checkpoint;
+
+import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.PosteriorSamplingAlgorithm;
+import io.improbable.keanu.algorithms.ProbabilisticModel;
+import io.improbable.keanu.algorithms.mcmc.MetropolisHastings;
+import io.improbable.keanu.algorithms.mcmc.gibbs.Gibbs;
+import io.improbable.keanu.algorithms.mcmc.metrics.MetricsSink;
+import io.improbable.keanu.algorithms.mcmc.metrics.SamplerMetrics;
+import io.improbable.keanu.algorithms.mcmc.nuts.NUTS;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.network.KeanuProbabilisticModelWithGradient;
+import io.improbable.keanu.util.io.SampleFileReader;
+import io.improbable.keanu.vertices.bool.probabilistic.BernoulliVertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SamplerCheckpointTest {
+
+    private static final int SAMPLE_COUNT = 100;
+    private static final int DROP_COUNT = 20;
+    private static final int CHECKPOINT_INTERVAL = 10;
+    private static final int INTERRUPT_AFTER_STEPS = 55;
+
+    @Rule
+    public DeterministicRule deterministicRule = new DeterministicRule();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void aResumedMetropolisHastingsRunTakesTheSameSamplesAsAnUninterruptedRun() throws IOException {
+        assertResumedRunMatchesUninterruptedRun(sink -> MetropolisHastings.builder()
+            .random(new KeanuRandom(1))
+            .metricsSink(sink)
+            .build()
+        );
+    }
+
+    @Test
+    public void aResumedNUTSRunTakesTheSameSamplesAsAnUninterruptedRun() throws IOException {
+        assertResumedRunMatchesUninterruptedRun(sink -> NUTS.builder()
+            .random(new KeanuRandom(1))
+            .adaptCount(50)
+            .metricsSink(sink)
+            .build()
+        );
+    }
+
+    @Test
+    public void theCheckpointDoesNotGrowWithTheNumberOfSamples() throws IOException {
+        Path shortRunCheckpoint = temporaryFolder.getRoot().toPath().resolve("short.checkpoint");
+        Path longRunCheckpoint = temporaryFolder.getRoot().toPath().resolve("long.checkpoint");
+
+        SumOfGaussians shortRunModel = new SumOfGaussians();
+        MetropolisHastings.builder().build()
+            .generatePosteriorSamples(shortRunModel.probabilisticModel, shortRunModel.latents)
+            .checkpoint(shortRunCheckpoint, CHECKPOINT_INTERVAL)
+            .generate(SAMPLE_COUNT);
+
+        SumOfGaussians longRunModel = new SumOfGaussians();
+        NetworkSamples longRunSamples = MetropolisHastings.builder().build()
+            .generatePosteriorSamples(longRunModel.probabilisticModel, longRunModel.latents)
+            .checkpoint(longRunCheckpoint, CHECKPOINT_INTERVAL)
+            .generate(10 * SAMPLE_COUNT);
+
+        assertEquals(Files.size(shortRunCheckpoint), Files.size(longRunCheckpoint));
+        assertEquals(
+            longRunSamples.size(),
+            SampleFileReader.open(SamplerCheckpoint.samplesFileOf(longRunCheckpoint), longRunModel.latents).size()
+        );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void itThrowsIfYouResumeARunWithDifferentSettings() throws IOException {
+        Path checkpointFile = temporaryFolder.getRoot().toPath().resolve("run.checkpoint");
+        SumOfGaussians model = new SumOfGaussians();
+        MetropolisHastings.builder().build()
+            .generatePosteriorSamples(model.probabilisticModel, model.latents)
+            .dropCount(DROP_COUNT)
+            .checkpoint(checkpointFile, CHECKPOINT_INTERVAL)
+            .generate(SAMPLE_COUNT);
+
+        SumOfGaussians resumedModel = new SumOfGaussians();
+        MetropolisHastings.builder().build()
+            .generatePosteriorSamples(resumedModel.probabilisticModel, resumedModel.latents)
+            .dropCount(DROP_COUNT + 1)
+            .checkpoint(checkpointFile, CHECKPOINT_INTERVAL)
+            .generate(SAMPLE_COUNT);
+    }
+
+    @Test
+    public void itThrowsWhenTheRunIsSetUpIfAMeteredAlgorithmCannotBeCheckpointed() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("cannot be checkpointed");
+
+        BernoulliVertex coin = new BernoulliVertex(0.5);
+        coin.setValue(true);
+        ProbabilisticModel model = new KeanuProbabilisticModel(coin.getConnectedGraph());
+
+        Gibbs.builder()
+            .metricsSink(new InterruptingMetricsSink(Integer.MAX_VALUE))
+            .build()
+            .generatePosteriorSamples(model, model.getLatentVariables())
+            .checkpoint(temporaryFolder.getRoot().toPath().resolve("run.checkpoint"), CHECKPOINT_INTERVAL);
+    }
+
+    private void assertResumedRunMatchesUninterruptedRun(Function<MetricsSink, PosteriorSamplingAlgorithm> algorithm) throws IOException {
+        Path checkpointFile = temporaryFolder.getRoot().toPath().resolve("run.checkpoint");
+
+        SumOfGaussians uninterruptedModel = new SumOfGaussians();
+        NetworkSamples uninterrupted = algorithm.apply(MetricsSink.NONE)
+            .generatePosteriorSamples(uninterruptedModel.probabilisticModel, uninterruptedModel.latents)
+            .dropCount(DROP_COUNT)
+            .generate(SAMPLE_COUNT);
+
+        SumOfGaussians interruptedModel = new SumOfGaussians();
+        try {
+            algorithm.apply(new InterruptingMetricsSink(INTERRUPT_AFTER_STEPS))
+                .generatePosteriorSamples(interruptedModel.probabilisticModel, interruptedModel.latents)
+                .dropCount(DROP_COUNT)
+                .checkpoint(checkpointFile, CHECKPOINT_INTERVAL)
+                .generate(SAMPLE_COUNT);
+            fail("The run was not interrupted");
+        } catch (Interrupted e) {
+            assertTrue(checkpointFile.toFile().exists());
+        }
+
+        SumOfGaussians resumedModel = new SumOfGaussians();
+        NetworkSamples resumed = algorithm.apply(MetricsSink.NONE)
+            .generatePosteriorSamples(resumedModel.probabilisticModel, resumedModel.latents)
+            .dropCount(DROP_COUNT)
+            .checkpoint(checkpointFile, CHECKPOINT_INTERVAL)
+            .generate(SAMPLE_COUNT);
+
+        assertEquals(uninterrupted.size(), resumed.size());
+        assertEquals(
+            uninterrupted.getDoubleTensorSamples(uninterruptedModel.A).asList(),
+            resumed.getDoubleTensorSamples(resumedModel.A).asList()
+        );
+        assertEquals(
+            uninterrupted.getDoubleTensorSamples(uninterruptedModel.B).asList(),
+            resumed.getDoubleTensorSamples(resumedModel.B).asList()
+        );
+        for (int i = 0; i < uninterrupted.size(); i++) {
+            assertEquals(uninterrupted.getLogOfMasterP(i), resumed.getLogOfMasterP(i), 0.0);
+        }
+    }
+
+    private static class SumOfGaussians {
+        final DoubleVertex A = new GaussianVertex(20.0, 1.0);
+        final DoubleVertex B = new GaussianVertex(20.0, 1.0);
+        final List<DoubleVertex> latents = Arrays.asList(A, B);
+        final ProbabilisticModel probabilisticModel;
+
+        SumOfGaussians() {
+            A.setValue(20.0);
+            B.setValue(20.0);
+            new GaussianVertex(A.plus(B), 1.0).observe(46.0);
+            probabilisticModel = new KeanuProbabilisticModelWithGradient(new BayesianNetwork(A.getConnectedGraph()));
+        }
+    }
+
+    private static class Interrupted extends RuntimeException {
+    }
+
+    private static class InterruptingMetricsSink implements MetricsSink {
+
+        private final int interruptAfterSteps;
+        private int steps;
+
+        InterruptingMetricsSink(int interruptAfterSteps) {
+            this.interruptAfterSteps = interruptAfterSteps;
+        }
+
+        @Override
+        public void incrementCounter(String name, long amount) {
+            if (SamplerMetrics.STEPS.equals(name)) {
+                steps += amount;
+                if (steps == interruptAfterSteps) {
+                    throw new Interrupted();
+                }
+            }
+        }
+
+        @Override
+        public void recordValue(String name, double value) {
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package io.improbable.keanu.algorithms.mcmc.gibbs;
+
+import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.exact.ExactInference;
+import io.improbable.keanu.algorithms.mcmc.ContinuousLatentSamplingAlgorithm;
+import io.improbable.keanu.algorithms.mcmc.MetropolisHastings;
+import io.improbable.keanu.algorithms.mcmc.nuts.NUTS;
+import io.improbable.keanu.algorithms.mcmc.proposal.GaussianProposalDistribution;
+import io.improbable.keanu.algorithms.mcmc.testcases.MCMCTestCase;
+import io.improbable.keanu.algorithms.mcmc.testcases.MultiVariateDiscreteTestCase;
+import io.improbable.keanu.algorithms.mcmc.testcases.SingleVariateDiscreteTestCase;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.network.KeanuProbabilisticModelWithGradient;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.ConstantVertex;
+import io.improbable.keanu.vertices.bool.BooleanVertex;
+import io.improbable.keanu.vertices.bool.probabilistic.BernoulliVertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import io.improbable.keanu.vertices.generic.nonprobabilistic.ConditionalProbabilityTable;
+import io.improbable.keanu.vertices.generic.nonprobabilistic.If;
+import io.improbable.keanu.vertices.intgr.probabilistic.BinomialVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.PoissonVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.UniformIntVertex;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class GibbsTest {
+
+    @Rule
+    public DeterministicRule rule = new DeterministicRule();
+
+    @Test
+    public void samplesSingleVariateDiscrete() {
+        assertSamplesTestCase(new SingleVariateDiscreteTestCase());
+    }
+
+    @Test
+    public void samplesMultiVariateDiscrete() {
+        assertSamplesTestCase(new MultiVariateDiscreteTestCase());
+    }
+
+    private void assertSamplesTestCase(MCMCTestCase testCase) {
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(testCase.getModel());
+
+        NetworkSamples posteriorSamples = Gibbs.builder().build()
+            .getPosteriorSamples(model, model.getLatentVertices(), 5000);
+
+        testCase.assertExpected(posteriorSamples);
+    }
+
+    @Test
+    public void matchesExactInferenceOnTheSprinklerNetwork() {
+        BernoulliVertex rain = new BernoulliVertex(0.2);
+        BernoulliVertex sprinkler = new BernoulliVertex(ConditionalProbabilityTable.of(rain)
+            .when(true).then(0.01)
+            .orDefault(0.4)
+        );
+        BernoulliVertex wetGrass = new BernoulliVertex(ConditionalProbabilityTable.of(sprinkler, rain)
+            .when(true, true).then(0.99)
+            .when(true, false).then(0.9)
+            .when(false, true).then(0.8)
+            .orDefault(0.0)
+        );
+        wetGrass.observe(true);
+        rain.setValue(true);
+        sprinkler.setValue(false);
+
+        BayesianNetwork network = new BayesianNetwork(rain.getConnectedGraph());
+        double expected = ExactInference.of(network).getMarginal(rain).get(BooleanTensor.scalar(true));
+
+        NetworkSamples samples = Gibbs.builder().build()
+            .getPosteriorSamples(new KeanuProbabilisticModel(network), Arrays.asList(rain, sprinkler), 10000);
+
+        assertEquals(expected, samples.get(rain).probability(BooleanTensor::scalar), 0.02);
+    }
+
+    @Test
+    public void samplesIntegerVerticesFromTheirSupport() {
+        UniformIntVertex n = new UniformIntVertex(1, 6);
+        BinomialVertex successes = new BinomialVertex(0.5, n);
+        successes.observe(3);
+        n.setValue(4);
+
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(n.getConnectedGraph());
+        NetworkSamples samples = Gibbs.builder().build()
+            .getPosteriorSamples(model, n, 10000);
+
+        double unnormalisedThree = 1.0 / 8;
+        double unnormalisedFour = 4.0 / 16;
+        double unnormalisedFive = 10.0 / 32;
+        double total = unnormalisedThree + unnormalisedFour + unnormalisedFive;
+
+        assertEquals(0.0, samples.get(n).probability(v -> v.scalar() < 3), 0.0);
+        assertEquals(unnormalisedFive / total, samples.get(n).probability(v -> v.scalar() == 5), 0.02);
+        assertEquals(unnormalisedThree / total, samples.get(n).probability(v -> v.scalar() == 3), 0.02);
+    }
+
+    @Test
+    public void givesNoWeightToAnImpossibleValueInTheMiddleOfTheSupport() {
+        UniformIntVertex n = new UniformIntVertex(1, 4);
+        BooleanVertex notTwo = n.notEqualTo(ConstantVertex.of(2));
+        notTwo.observe(true);
+        n.setValue(1);
+
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(n.getConnectedGraph());
+        NetworkSamples samples = Gibbs.builder().build()
+            .getPosteriorSamples(model, n, 10000);
+
+        assertEquals(0.0, samples.get(n).probability(v -> v.scalar() == 2), 0.0);
+        assertEquals(0.5, samples.get(n).probability(v -> v.scalar() == 1), 0.02);
+        assertEquals(0.5, samples.get(n).probability(v -> v.scalar() == 3), 0.02);
+    }
+
+    @Test
+    public void samplesAMixedModelWithNUTS() {
+        assertSamplesMixedModel(NUTS.builder().adaptCount(500).build());
+    }
+
+    @Test
+    public void samplesAMixedModelWithMetropolisHastings() {
+        assertSamplesMixedModel(MetropolisHastings.builder()
+            .proposalDistribution(new GaussianProposalDistribution(DoubleTensor.scalar(1.0)))
+            .build()
+        );
+    }
+
+    /**
+     * With z ~ Bernoulli(0.5), x ~ N(0, 1) and y ~ N(x + 3z, 1), y given z is N(3z, 2), so with y observed as 3 the
+     * posterior of z is 1 / (1 + exp(-9 / 4)). The mean of x given z and y is (y - 3z) / 2.
+     */
+    private void assertSamplesMixedModel(ContinuousLatentSamplingAlgorithm continuousLatentAlgorithm) {
+        BernoulliVertex z = new BernoulliVertex(0.5);
+        GaussianVertex x = new GaussianVertex(0, 1);
+        DoubleVertex offset = If.isTrue(z).then(3.0).orElse(0.0);
+        GaussianVertex y = new GaussianVertex(x.plus(offset), 1);
+        y.observe(3.0);
+
+        KeanuProbabilisticModelWithGradient model = new KeanuProbabilisticModelWithGradient(new BayesianNetwork(x.getConnectedGraph()));
+
+        NetworkSamples samples = Gibbs.builder()
+            .continuousLatentAlgorithm(continuousLatentAlgorithm)
+            .build()
+            .generatePosteriorSamples(model, Arrays.asList(x, z))
+            .dropCount(500)
+            .generate(5500);
+
+        double expectedProbOfZ = 1.0 / (1.0 + Math.exp(-9.0 / 4.0));
+        double expectedMeanOfX = (1 - expectedProbOfZ) * 1.5;
+
+        assertEquals(expectedProbOfZ, samples.get(z).probability(BooleanTensor::scalar), 0.03);
+        assertEquals(expectedMeanOfX, samples.getDoubleTensorSamples(x).getAverages().scalar(), 0.1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void itThrowsIfThereAreContinuousLatentsAndNoAlgorithmForThem() {
+        GaussianVertex x = new GaussianVertex(0, 1);
+        new GaussianVertex(x, 1).observe(0.5);
+
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(x.getConnectedGraph());
+        Gibbs.builder().build().generatePosteriorSamples(model, model.getLatentVertices());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void itThrowsIfADiscreteLatentCannotBeEnumerated() {
+        PoissonVertex count = new PoissonVertex(3.0);
+        count.setValue(2);
+
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(count.getConnectedGraph());
+        Gibbs.builder().build().generatePosteriorSamples(model, model.getLatentVertices());
+    }
+}
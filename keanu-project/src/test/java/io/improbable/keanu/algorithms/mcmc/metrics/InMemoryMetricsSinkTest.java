@@ -0,0 +1,158 @@
+package io.improbable.keanu.algorithms.mcmc.metrics;
+
+import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.ProbabilisticModel;
+import io.improbable.keanu.algorithms.ProbabilisticModelWithGradient;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.mcmc.MetropolisHastings;
+import io.improbable.keanu.algorithms.mcmc.nuts.NUTS;
+import io.improbable.keanu.algorithms.mcmc.proposal.PriorProposalDistribution;
+import io.improbable.keanu.algorithms.mcmc.proposal.Proposal;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.network.KeanuProbabilisticModelWithGradient;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.UniformVertex;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InMemoryMetricsSinkTest {
+
+    @Rule
+    public DeterministicRule deterministicRule = new DeterministicRule();
+
+    @Test
+    public void metropolisHastingsReportsStepsEvaluationsAndProposalOutcomes() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        DoubleVertex B = new GaussianVertex(0, 1);
+        DoubleVertex C = new GaussianVertex(A.plus(B), 1);
+        A.setLabel("A");
+        B.setLabel("B");
+        C.observe(1.0);
+        ProbabilisticModel model = new KeanuProbabilisticModel(new BayesianNetwork(A.getConnectedGraph()));
+        InMemoryMetricsSink sink = new InMemoryMetricsSink();
+        int sampleCount = 100;
+
+        MetropolisHastings.builder()
+            .metricsSink(sink)
+            .build()
+            .getPosteriorSamples(model, Arrays.asList(A, B), sampleCount);
+
+        assertEquals(sampleCount, sink.getCounter(SamplerMetrics.STEPS));
+        assertEquals(sampleCount, sink.getHistogram(SamplerMetrics.STEP_TIME_NANOS).getCount());
+        assertEquals(sampleCount + 1, sink.getCounter(SamplerMetrics.LOG_PROB_EVALUATIONS));
+
+        long proposals = 0;
+        for (String variable : new String[]{"A", "B"}) {
+            proposals += sink.getCounter(SamplerMetrics.ACCEPTED_PREFIX + variable);
+            proposals += sink.getCounter(SamplerMetrics.REJECTED_PREFIX + variable);
+        }
+        assertEquals(sampleCount, proposals);
+
+        InMemoryMetricsSink.Histogram cascadeSize = sink.getHistogram(SamplerMetrics.CASCADE_SIZE);
+        assertEquals(sampleCount, cascadeSize.getCount());
+        assertEquals(2.0, cascadeSize.getMax(), 0.0);
+    }
+
+    @Test
+    public void nutsReportsTreeDepthAndGradientEvaluations() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        new GaussianVertex(A, 1).observe(1.0);
+        ProbabilisticModelWithGradient model = new KeanuProbabilisticModelWithGradient(new BayesianNetwork(A.getConnectedGraph()));
+        InMemoryMetricsSink sink = new InMemoryMetricsSink();
+        int sampleCount = 20;
+        int maxTreeHeight = 4;
+
+        NUTS.builder()
+            .adaptEnabled(false)
+            .initialStepSize(0.5)
+            .maxTreeHeight(maxTreeHeight)
+            .metricsSink(sink)
+            .build()
+            .getPosteriorSamples(model, model.getLatentVariables(), sampleCount);
+
+        InMemoryMetricsSink.Histogram treeDepth = sink.getHistogram(SamplerMetrics.TREE_DEPTH);
+        assertEquals(sampleCount, sink.getCounter(SamplerMetrics.STEPS));
+        assertEquals(sampleCount, treeDepth.getCount());
+        assertTrue(treeDepth.getMin() >= 1 && treeDepth.getMax() <= maxTreeHeight);
+        assertTrue(sink.getCounter(SamplerMetrics.GRADIENT_EVALUATIONS) >= treeDepth.getSum());
+        assertEquals(0, sink.getCounter(SamplerMetrics.DIVERGENCES));
+    }
+
+    @Test
+    public void metropolisHastingsCountsTheAcceptedAndRejectedProposalsOfEachVariable() {
+        DoubleVertex A = new UniformVertex(0, 1);
+        DoubleVertex B = new GaussianVertex(0, 1);
+        A.setLabel("A");
+        B.setLabel("B");
+        A.setValue(0.5);
+        B.setValue(0.5);
+        ProbabilisticModel model = new KeanuProbabilisticModel(new BayesianNetwork(Arrays.asList(A, B)));
+        InMemoryMetricsSink sink = new InMemoryMetricsSink();
+        int sampleCount = 10;
+
+        MetropolisHastings.builder()
+            .proposalDistribution(new ImpossibleForAProposalDistribution(A))
+            .metricsSink(sink)
+            .build()
+            .getPosteriorSamples(model, Arrays.asList(A, B), sampleCount);
+
+        assertEquals(0, sink.getCounter(SamplerMetrics.ACCEPTED_PREFIX + "A"));
+        assertEquals(sampleCount / 2, sink.getCounter(SamplerMetrics.REJECTED_PREFIX + "A"));
+        assertEquals(sampleCount / 2, sink.getCounter(SamplerMetrics.ACCEPTED_PREFIX + "B"));
+        assertEquals(0, sink.getCounter(SamplerMetrics.REJECTED_PREFIX + "B"));
+    }
+
+    @Test
+    public void nutsCountsDivergentSteps() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        new GaussianVertex(A, 1).observe(1.0);
+        ProbabilisticModelWithGradient model = new KeanuProbabilisticModelWithGradient(new BayesianNetwork(A.getConnectedGraph()));
+        InMemoryMetricsSink sink = new InMemoryMetricsSink();
+        int sampleCount = 5;
+
+        NUTS.builder()
+            .adaptEnabled(false)
+            .initialStepSize(1000.0)
+            .metricsSink(sink)
+            .build()
+            .getPosteriorSamples(model, model.getLatentVariables(), sampleCount);
+
+        InMemoryMetricsSink.Histogram treeDepth = sink.getHistogram(SamplerMetrics.TREE_DEPTH);
+        assertEquals(sampleCount, sink.getCounter(SamplerMetrics.DIVERGENCES));
+        assertEquals(sampleCount, treeDepth.getCount());
+        assertEquals(1.0, treeDepth.getMax(), 0.0);
+    }
+
+    /**
+     * Proposes a value outside the support of one variable, which is always rejected, and zero for every other
+     * variable. Proposals are scored by the prior, so the proposals of zero are always accepted when nothing is
+     * observed.
+     */
+    private static class ImpossibleForAProposalDistribution extends PriorProposalDistribution {
+
+        private final Variable impossibleFor;
+
+        ImpossibleForAProposalDistribution(Variable impossibleFor) {
+            this.impossibleFor = impossibleFor;
+        }
+
+        @Override
+        public Proposal getProposal(Set<Variable> variables, KeanuRandom random) {
+            Proposal proposal = new Proposal();
+            for (Variable variable : variables) {
+                proposal.setProposal(variable, DoubleTensor.scalar(variable.equals(impossibleFor) ? -1.0 : 0.0));
+            }
+            return proposal;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package io.improbable.keanu.algorithms.mcmc.metrics;
+
+import com.google.common.collect.ImmutableMap;
+import io.improbable.keanu.algorithms.ProbabilisticModel;
+import io.improbable.keanu.algorithms.ProbabilisticModelWithGradient;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.network.KeanuProbabilisticModelWithGradient;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MeteredProbabilisticModelTest {
+
+    private DoubleVertex A;
+    private BayesianNetwork network;
+    private InMemoryMetricsSink sink;
+
+    @Before
+    public void setup() {
+        A = new GaussianVertex(0, 1);
+        A.setValue(0.5);
+        DoubleVertex B = A.times(2).exp();
+        new GaussianVertex(B, 1).observe(1.0);
+        network = new BayesianNetwork(A.getConnectedGraph());
+        sink = new InMemoryMetricsSink();
+    }
+
+    @Test
+    public void itCountsLogProbEvaluationsAndRecordsTheirCascadeSize() {
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(network);
+        ProbabilisticModel metered = MeteredProbabilisticModel.of(model, sink);
+        Map<VariableReference, DoubleTensor> inputs = ImmutableMap.of(A.getId(), DoubleTensor.scalar(0.2));
+
+        double logProb = metered.logProb(inputs);
+        double logProbAfter = metered.logProbAfter(ImmutableMap.of(A.getId(), DoubleTensor.scalar(0.3)), logProb);
+        double logLikelihood = metered.logLikelihood(inputs);
+
+        assertEquals(model.logProb(inputs), logProb, 1e-10);
+        assertEquals(model.logProb(ImmutableMap.of(A.getId(), DoubleTensor.scalar(0.3))), logProbAfter, 1e-10);
+        assertEquals(model.logLikelihood(inputs), logLikelihood, 1e-10);
+        assertEquals(3, sink.getCounter(SamplerMetrics.LOG_PROB_EVALUATIONS));
+
+        InMemoryMetricsSink.Histogram cascadeSize = sink.getHistogram(SamplerMetrics.CASCADE_SIZE);
+        assertEquals(3, cascadeSize.getCount());
+        assertEquals(model.getCascadeSize(Collections.singleton(A.getId())), cascadeSize.getMax(), 0.0);
+    }
+
+    @Test
+    public void itCountsOneLogProbEvaluationForEachPointOfABatch() {
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(network);
+        ProbabilisticModel metered = MeteredProbabilisticModel.of(model, sink);
+        List<Map<VariableReference, DoubleTensor>> points = Arrays.asList(
+            ImmutableMap.of(A.getId(), DoubleTensor.scalar(0.1)),
+            ImmutableMap.of(A.getId(), DoubleTensor.scalar(0.2)),
+            ImmutableMap.of(A.getId(), DoubleTensor.scalar(0.3))
+        );
+
+        double[] logProbs = metered.batchLogProb(points);
+
+        assertArrayEquals(model.batchLogProb(points), logProbs, 1e-10);
+        assertEquals(points.size(), sink.getCounter(SamplerMetrics.LOG_PROB_EVALUATIONS));
+    }
+
+    @Test
+    public void itCanOnlyCalculateGradientsIfTheMeteredModelCan() {
+        assertFalse(MeteredProbabilisticModel.of(new KeanuProbabilisticModel(network), sink) instanceof ProbabilisticModelWithGradient);
+        assertTrue(MeteredProbabilisticModel.of(new KeanuProbabilisticModelWithGradient(network), sink) instanceof ProbabilisticModelWithGradient);
+    }
+
+    @Test
+    public void itCountsGradientEvaluations() {
+        KeanuProbabilisticModelWithGradient model = new KeanuProbabilisticModelWithGradient(network);
+        ProbabilisticModelWithGradient metered = (ProbabilisticModelWithGradient) MeteredProbabilisticModel.of(model, sink);
+        Map<VariableReference, DoubleTensor> inputs = ImmutableMap.of(A.getId(), DoubleTensor.scalar(0.2));
+
+        DoubleTensor gradient = metered.logProbGradients(inputs).get(A.getId());
+        metered.logProbGradients();
+        metered.logLikelihoodGradients(inputs);
+        metered.batchLogProbGradients(Arrays.asList(inputs, inputs));
+
+        assertEquals(model.logProbGradients(inputs).get(A.getId()), gradient);
+        assertEquals(5, sink.getCounter(SamplerMetrics.GRADIENT_EVALUATIONS));
+        assertEquals(0, sink.getCounter(SamplerMetrics.LOG_PROB_EVALUATIONS));
+        assertEquals(2, sink.getHistogram(SamplerMetrics.CASCADE_SIZE).getCount());
+    }
+}
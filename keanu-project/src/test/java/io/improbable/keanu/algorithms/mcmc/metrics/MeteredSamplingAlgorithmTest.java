@@ -0,0 +1,75 @@
+package io.improbable.keanu.algorithms.mcmc.metrics;
+
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.mcmc.SamplingAlgorithm;
+import io.improbable.keanu.algorithms.mcmc.checkpoint.CheckpointableSamplingAlgorithm;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MeteredSamplingAlgorithmTest {
+
+    @Test
+    public void itCountsAndTimesEveryKindOfStep() {
+        SamplingAlgorithm algorithm = mock(SamplingAlgorithm.class);
+        NetworkSample sample = mock(NetworkSample.class);
+        when(algorithm.sample()).thenReturn(sample);
+        InMemoryMetricsSink sink = new InMemoryMetricsSink();
+        Map<VariableReference, List<?>> samples = new HashMap<>();
+        List<Double> logProbs = new ArrayList<>();
+
+        MeteredSamplingAlgorithm metered = MeteredSamplingAlgorithm.of(algorithm, sink);
+        metered.step();
+        metered.sample(samples, logProbs);
+        NetworkSample returned = metered.sample();
+
+        verify(algorithm).step();
+        verify(algorithm).sample(samples, logProbs);
+        verify(algorithm).sample();
+        assertSame(sample, returned);
+        assertEquals(3, sink.getCounter(SamplerMetrics.STEPS));
+        assertEquals(3, sink.getHistogram(SamplerMetrics.STEP_TIME_NANOS).getCount());
+        assertTrue(sink.getHistogram(SamplerMetrics.STEP_TIME_NANOS).getMin() >= 0);
+    }
+
+    @Test
+    public void itIsOnlyCheckpointableIfTheMeteredAlgorithmIs() {
+        InMemoryMetricsSink sink = new InMemoryMetricsSink();
+
+        assertFalse(MeteredSamplingAlgorithm.of(mock(SamplingAlgorithm.class), sink) instanceof CheckpointableSamplingAlgorithm);
+        assertTrue(MeteredSamplingAlgorithm.of(mock(CheckpointableSamplingAlgorithm.class), sink) instanceof CheckpointableSamplingAlgorithm);
+    }
+
+    @Test
+    public void itPassesCheckpointsThroughToTheMeteredAlgorithm() throws IOException {
+        CheckpointableSamplingAlgorithm algorithm = mock(CheckpointableSamplingAlgorithm.class);
+        DataOutput output = mock(DataOutput.class);
+        DataInput input = mock(DataInput.class);
+        InMemoryMetricsSink sink = new InMemoryMetricsSink();
+
+        CheckpointableSamplingAlgorithm metered = (CheckpointableSamplingAlgorithm) MeteredSamplingAlgorithm.of(algorithm, sink);
+        metered.saveState(output);
+        metered.loadState(input);
+        metered.getSampleFromVariables();
+
+        verify(algorithm).saveState(output);
+        verify(algorithm).loadState(input);
+        verify(algorithm).getSampleFromVariables();
+        assertEquals(0, sink.getCounter(SamplerMetrics.STEPS));
+    }
+}
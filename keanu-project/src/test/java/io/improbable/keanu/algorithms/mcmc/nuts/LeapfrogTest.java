@@ -3,20 +3,17 @@ package io.improbable.keanu.algorithms.mcmc.nuts;
 import io.improbable.keanu.algorithms.ProbabilisticModelWithGradient;
 import io.improbable.keanu.algorithms.VariableReference;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
-import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
-import org.hamcrest.Matchers;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
-import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertArrayEquals;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -28,24 +25,24 @@ public class LeapfrogTest {
     private DoubleVertex vertexA = new GaussianVertex(0, 1);
     private DoubleVertex vertexB = new GaussianVertex(0, 1);
 
-    private VariableReference aID = vertexA.getId();;
+    private VariableReference aID = vertexA.getId();
     private VariableReference bID = vertexB.getId();
 
-    private List<Vertex<DoubleTensor>> vertices = Arrays.asList(vertexA, vertexB);
-    private List<VariableReference> ids = Arrays.asList(aID, bID);
+    private LatentLayout layout = LatentLayout.of(Arrays.asList(vertexA, vertexB));
+    private MassMatrix massMatrix = MassMatrix.identity(2);
 
-    private Map<VariableReference, DoubleTensor> position = new HashMap<>();
-    private Map<VariableReference, DoubleTensor> momentum = new HashMap<>();
-    private Map<VariableReference, DoubleTensor> gradient = new HashMap<>();
+    private double[] position;
+    private double[] momentum;
+    private double[] gradient;
 
     private ProbabilisticModelWithGradient mockedGradientCalculator;
     private ProbabilisticModelWithGradient mockedReverseGradientCalculator;
 
     @Before
     public void setupGraphForLeapfrog() {
-        fillMap(position, DoubleTensor.scalar(0.0));
-        fillMap(momentum, DoubleTensor.scalar(1.0));
-        fillMap(gradient, DoubleTensor.scalar(2.0));
+        position = new double[]{0.0, 0.0};
+        momentum = new double[]{1.0, 1.0};
+        gradient = new double[]{2.0, 2.0};
     }
 
     @Before
@@ -69,45 +66,70 @@ public class LeapfrogTest {
     @Test
     public void canLeapForward() {
         Leapfrog start = new Leapfrog(position, momentum, gradient);
-        Leapfrog leap = start.step(vertices, mockedGradientCalculator, EPSILON);
+        Leapfrog leap = start.step(layout, massMatrix, mockedGradientCalculator, EPSILON);
 
-        Assert.assertEquals(2.0, leap.getPosition().get(aID).scalar(), 1e-6);
-        Assert.assertEquals(2.0, leap.getPosition().get(bID).scalar(), 1e-6);
+        assertArrayEquals(new double[]{2.0, 2.0}, leap.getPosition(), 1e-6);
+        assertArrayEquals(new double[]{2.5, 1.5}, leap.getMomentum(), 1e-6);
+        assertArrayEquals(new double[]{1.0, -1.0}, leap.getGradient(), 1e-6);
+    }
+
+    @Test
+    public void canLeapForwardAndBackToOriginalPosition() {
+        double[] startPosition = position.clone();
+        Leapfrog leapForward = new Leapfrog(position, momentum, gradient)
+            .step(layout, massMatrix, mockedGradientCalculator, EPSILON);
 
-        Assert.assertEquals(2.5, leap.getMomentum().get(aID).scalar(), 1e-6);
-        Assert.assertEquals(1.5, leap.getMomentum().get(bID).scalar(), 1e-6);
+        double[] momentum = leapForward.getMomentum().clone();
 
-        Assert.assertEquals(1.0, leap.getGradient().get(aID).scalar(), 1e-6);
-        Assert.assertEquals(-1.0, leap.getGradient().get(bID).scalar(), 1e-6);
+        Arrays.fill(leapForward.getMomentum(), -1.0);
+        Arrays.fill(leapForward.getGradient(), -2.0);
+
+        Leapfrog leapBackToStart = leapForward.step(layout, massMatrix, mockedReverseGradientCalculator, EPSILON);
+
+        assertArrayEquals(startPosition, leapBackToStart.getPosition(), 0.0);
+        assertArrayEquals(momentum, revertDirection(leapBackToStart.getMomentum()), 0.0);
     }
 
     @Test
-    public void canLeapForwardAndBackToOriginalPosition() {
+    public void stepsInPlace() {
         Leapfrog start = new Leapfrog(position, momentum, gradient);
-        Leapfrog leapForward = start.step(vertices, mockedGradientCalculator, EPSILON);
-
-        Map<VariableReference, DoubleTensor> momentum = new HashMap<>(leapForward.getMomentum());
+        Leapfrog leap = start.step(layout, massMatrix, mockedGradientCalculator, EPSILON);
 
-        fillMap(leapForward.getMomentum(), DoubleTensor.scalar(-1.0));
-        fillMap((Map<VariableReference, DoubleTensor>) leapForward.getGradient(), DoubleTensor.scalar(-2.0));
+        Assert.assertSame(start, leap);
+        Assert.assertSame(position, leap.getPosition());
+        assertArrayEquals(new double[]{2.0, 2.0}, position, 1e-6);
+        assertArrayEquals(new double[]{2.5, 1.5}, momentum, 1e-6);
+        assertArrayEquals(new double[]{1.0, -1.0}, gradient, 1e-6);
+    }
 
-        Leapfrog leapBackToStart = leapForward.step(vertices, mockedReverseGradientCalculator, EPSILON);
+    @Test
+    public void copyingALeapfrogDoesNotShareItsArrays() {
+        Leapfrog start = new Leapfrog(position, momentum, gradient);
+        Leapfrog copy = new Leapfrog(position.length).copyFrom(start);
+        copy.step(layout, massMatrix, mockedGradientCalculator, EPSILON);
 
-        assertThat(start.getPosition(), Matchers.equalTo(leapBackToStart.getPosition()));
-        assertThat(momentum, Matchers.equalTo(revertDirectionOfMap(leapBackToStart.getMomentum())));
+        assertArrayEquals(new double[]{0.0, 0.0}, start.getPosition(), 0.0);
+        assertArrayEquals(new double[]{1.0, 1.0}, start.getMomentum(), 0.0);
+        assertArrayEquals(new double[]{2.0, 2.0}, start.getGradient(), 0.0);
+        Assert.assertEquals(1.0, start.kineticEnergy(massMatrix), 0.0);
     }
 
-    private void fillMap(Map<VariableReference, DoubleTensor> map, DoubleTensor value) {
-        for (VariableReference id : ids) {
-            map.put(id, value);
-        }
+    @Test
+    public void movesPositionByVelocityOfTheMassMatrix() {
+        MassMatrix scaled = new DiagonalMassMatrix(new double[]{4.0, 0.25});
+
+        Leapfrog start = new Leapfrog(position, momentum, gradient);
+        Leapfrog leap = start.step(layout, scaled, mockedGradientCalculator, EPSILON);
+
+        assertArrayEquals(new double[]{8.0, 0.5}, leap.getPosition(), 1e-6);
+        assertArrayEquals(new double[]{2.5, 1.5}, leap.getMomentum(), 1e-6);
     }
 
-    private Map<VariableReference, DoubleTensor> revertDirectionOfMap(Map<VariableReference, DoubleTensor> map) {
-        for (DoubleTensor tensor : map.values()) {
-            tensor.timesInPlace(-1.);
+    private double[] revertDirection(double[] values) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] *= -1.;
         }
-        return map;
+        return values;
     }
 
-}
\ No newline at end of file
+}
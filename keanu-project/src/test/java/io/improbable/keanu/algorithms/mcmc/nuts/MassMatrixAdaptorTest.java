@@ -0,0 +1,89 @@
+package io.improbable.keanu.algorithms.mcmc.nuts;
+
+import io.improbable.keanu.KeanuRandom;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MassMatrixAdaptorTest {
+
+    private final KeanuRandom random = new KeanuRandom(1);
+
+    @Test
+    public void updatesAtTheEndOfEachDoublingWindow() {
+        MassMatrixAdaptor adaptor = new MassMatrixAdaptor(NUTS.MassMatrixAdaptation.DIAGONAL, 1, 200);
+
+        List<Integer> updates = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            if (adaptor.learn(new double[]{random.nextGaussian()})) {
+                updates.add(i);
+            }
+        }
+
+        assertEquals(Arrays.asList(99, 149), updates);
+    }
+
+    @Test
+    public void estimatesTheVarianceOfEachElement() {
+        MassMatrixAdaptor adaptor = new MassMatrixAdaptor(NUTS.MassMatrixAdaptation.DIAGONAL, 2, 5000);
+
+        for (int i = 0; i < 5000; i++) {
+            adaptor.learn(new double[]{10.0 * random.nextGaussian(), 0.1 * random.nextGaussian()});
+        }
+
+        double[] inverse = ((DiagonalMassMatrix) adaptor.getMassMatrix()).getInverseDiagonal();
+
+        assertEquals(100.0, inverse[0], 10.0);
+        assertEquals(0.01, inverse[1], 0.001);
+    }
+
+    @Test
+    public void estimatesTheCovarianceWhenDense() {
+        MassMatrixAdaptor adaptor = new MassMatrixAdaptor(NUTS.MassMatrixAdaptation.DENSE, 2, 5000);
+
+        for (int i = 0; i < 5000; i++) {
+            double x = random.nextGaussian();
+            double y = x + 0.5 * random.nextGaussian();
+            adaptor.learn(new double[]{x, y});
+        }
+
+        double[] inverse = ((DenseMassMatrix) adaptor.getMassMatrix()).getInverse();
+
+        assertArrayEquals(new double[]{1.0, 1.0, 1.0, 1.25}, inverse, 0.1);
+        assertEquals(inverse[1], inverse[2], 0.0);
+    }
+
+    @Test
+    public void keepsTheIdentityWhenWarmUpIsTooShort() {
+        MassMatrixAdaptor adaptor = new MassMatrixAdaptor(NUTS.MassMatrixAdaptation.DIAGONAL, 1, 19);
+        MassMatrix identity = adaptor.getMassMatrix();
+
+        for (int i = 0; i < 19; i++) {
+            assertFalse(adaptor.learn(new double[]{100.0 * random.nextGaussian()}));
+        }
+
+        assertSame(identity, adaptor.getMassMatrix());
+    }
+
+    @Test
+    public void doesNotAdaptWhenDisabled() {
+        MassMatrixAdaptor adaptor = new MassMatrixAdaptor(NUTS.MassMatrixAdaptation.NONE, 1, 200);
+
+        boolean updated = false;
+        for (int i = 0; i < 200; i++) {
+            updated |= adaptor.learn(new double[]{100.0 * random.nextGaussian()});
+        }
+
+        assertFalse(updated);
+        assertTrue(adaptor.getMassMatrix() instanceof DiagonalMassMatrix);
+        assertArrayEquals(new double[]{1.0}, ((DiagonalMassMatrix) adaptor.getMassMatrix()).getInverseDiagonal(), 0.0);
+    }
+}
@@ -0,0 +1,73 @@
+package io.improbable.keanu.algorithms.mcmc.nuts;
+
+import io.improbable.keanu.KeanuRandom;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class MassMatrixTest {
+
+    private final KeanuRandom random = new KeanuRandom(1);
+
+    @Test
+    public void identityGivesHalfTheSquaredMomentum() {
+        MassMatrix identity = MassMatrix.identity(3);
+
+        assertEquals(7.0, identity.kineticEnergy(new double[]{1.0, 2.0, 3.0}), 1e-10);
+    }
+
+    @Test
+    public void diagonalScalesKineticEnergyAndVelocity() {
+        MassMatrix diagonal = new DiagonalMassMatrix(new double[]{2.0, 0.5});
+        double[] velocity = new double[2];
+
+        diagonal.velocity(new double[]{1.0, 4.0}, velocity);
+
+        assertArrayEquals(new double[]{2.0, 2.0}, velocity, 1e-10);
+        assertEquals(0.5 * (2.0 + 8.0), diagonal.kineticEnergy(new double[]{1.0, 4.0}), 1e-10);
+    }
+
+    @Test
+    public void denseMatchesDiagonalForADiagonalMatrix() {
+        MassMatrix diagonal = new DiagonalMassMatrix(new double[]{2.0, 0.5});
+        MassMatrix dense = new DenseMassMatrix(new double[]{2.0, 0.0, 0.0, 0.5}, 2);
+        double[] momentum = {1.5, -3.0};
+        double[] vector = {0.5, 2.0};
+
+        assertEquals(diagonal.kineticEnergy(momentum), dense.kineticEnergy(momentum), 1e-10);
+        assertEquals(diagonal.dotVelocity(vector, momentum), dense.dotVelocity(vector, momentum), 1e-10);
+    }
+
+    @Test
+    public void denseSamplesMomentumWithTheInverseCovariance() {
+        double[] inverse = {2.0, 1.0, 1.0, 1.0};
+        MassMatrix dense = new DenseMassMatrix(inverse, 2);
+
+        int sampleCount = 20000;
+        double[] momentum = new double[2];
+        double[] secondMoment = new double[4];
+
+        for (int n = 0; n < sampleCount; n++) {
+            dense.sampleMomentum(momentum, random);
+            for (int i = 0; i < 2; i++) {
+                for (int j = 0; j < 2; j++) {
+                    secondMoment[i * 2 + j] += momentum[i] * momentum[j] / sampleCount;
+                }
+            }
+        }
+
+        //the inverse of [[2, 1], [1, 1]]
+        assertArrayEquals(new double[]{1.0, -1.0, -1.0, 2.0}, secondMoment, 0.1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void denseRejectsAMatrixThatIsNotPositiveDefinite() {
+        new DenseMassMatrix(new double[]{1.0, 2.0, 2.0, 1.0}, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void diagonalRejectsANonPositiveVariance() {
+        new DiagonalMassMatrix(new double[]{1.0, 0.0});
+    }
+}
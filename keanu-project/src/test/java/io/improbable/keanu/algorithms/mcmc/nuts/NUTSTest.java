@@ -11,6 +11,8 @@ import io.improbable.keanu.network.KeanuProbabilisticModelWithGradient;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.testcategory.Slow;
 import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.ReusesValueBuffers;
 import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
 import io.improbable.keanu.vertices.dbl.probabilistic.HalfGaussianVertex;
 import org.junit.Assert;
@@ -18,7 +20,10 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -72,6 +77,28 @@ public class NUTSTest {
         assertThat(treeSize, everyItem(lessThan(Math.pow(2, maxTreeHeight))));
     }
 
+    @Test
+    public void samplesOfAVertexThatReusesItsValueBuffersAreNotOverwrittenWhileTheTreeIsBuilt() {
+        GaussianVertex A = new GaussianVertex(0.0, 1.0);
+        GaussianVertex B = new GaussianVertex(0.0, 1.0);
+        DoubleVertex C = A.plus(B);
+        new GaussianVertex(C, 1.0).observe(1.0);
+        ReusesValueBuffers.enableFor(A.getConnectedGraph());
+        ProbabilisticModelWithGradient model = new KeanuProbabilisticModelWithGradient(new BayesianNetwork(A.getConnectedGraph()));
+
+        NetworkSamples samples = NUTS.builder()
+            .maxTreeHeight(4)
+            .build()
+            .getPosteriorSamples(model, Arrays.asList(A, B, C), 50);
+
+        List<DoubleTensor> aSamples = samples.getDoubleTensorSamples(A).asList();
+        List<DoubleTensor> bSamples = samples.getDoubleTensorSamples(B).asList();
+        List<DoubleTensor> cSamples = samples.getDoubleTensorSamples(C).asList();
+        for (int i = 0; i < samples.size(); i++) {
+            Assert.assertEquals(aSamples.get(i).plus(bSamples.get(i)).scalar(), cSamples.get(i).scalar(), 1e-10);
+        }
+    }
+
     @Category(Slow.class)
     @Test
     public void samplesGaussian() {
@@ -119,6 +146,34 @@ public class NUTSTest {
         MCMCTestDistributions.samplesMatchesSumOfGaussians(44.0, posteriorSamples.get(A).asList(), posteriorSamples.get(B).asList());
     }
 
+    @Category(Slow.class)
+    @Test
+    public void samplesBadlyScaledGaussiansWithAnAdaptedMassMatrix() {
+        GaussianVertex wide = new GaussianVertex(0.0, 100.0);
+        GaussianVertex narrow = new GaussianVertex(0.0, 0.01);
+        wide.setValue(1.0);
+        narrow.setValue(0.0);
+        Set<Vertex> vertices = new HashSet<>(wide.getConnectedGraph());
+        vertices.addAll(narrow.getConnectedGraph());
+        BayesianNetwork net = new BayesianNetwork(vertices);
+        ProbabilisticModelWithGradient model = new KeanuProbabilisticModelWithGradient(net);
+
+        int sampleCount = 2000;
+        NUTS nuts = NUTS.builder()
+            .adaptCount(sampleCount / 2)
+            .massMatrixAdaptation(NUTS.MassMatrixAdaptation.DIAGONAL)
+            .build();
+
+        NetworkSamples posteriorSamples = nuts.getPosteriorSamples(
+            model,
+            model.getLatentVariables(),
+            sampleCount
+        ).drop(sampleCount / 2);
+
+        MCMCTestDistributions.samplesMatchSimpleGaussian(0.0, 100.0, posteriorSamples.get(wide).asList(), 10.0);
+        MCMCTestDistributions.samplesMatchSimpleGaussian(0.0, 0.01, posteriorSamples.get(narrow).asList(), 0.001);
+    }
+
     @Category(Slow.class)
     @Test
     public void samplesFromDonut() {
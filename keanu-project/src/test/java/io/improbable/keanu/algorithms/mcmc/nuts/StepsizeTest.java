@@ -1,11 +1,9 @@
 package io.improbable.keanu.algorithms.mcmc.nuts;
 
 import io.improbable.keanu.KeanuRandom;
-import io.improbable.keanu.algorithms.VariableReference;
 import io.improbable.keanu.network.KeanuProbabilisticModelWithGradient;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.ProbabilityCalculator;
-import io.improbable.keanu.vertices.VertexId;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
 import org.hamcrest.Matchers;
@@ -15,7 +13,6 @@ import org.junit.Test;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.mock;
@@ -44,16 +41,17 @@ public class StepsizeTest {
         List<DoubleVertex> vertices = Arrays.asList(vertex);
         KeanuProbabilisticModelWithGradient model = new KeanuProbabilisticModelWithGradient(vertex.getConnectedGraph());
 
-        VertexId vertexId = vertex.getId();
+        LatentLayout layout = LatentLayout.of(vertices);
 
         vertex.setValue(DoubleTensor.scalar(startingValue));
-        Map<VariableReference, DoubleTensor> position = Collections.singletonMap(vertexId, vertex.getValue());
-        Map<? extends VariableReference, DoubleTensor> gradient = model.logProbGradients();
+        double[] position = layout.flatten(Collections.singletonMap(vertex.getId(), vertex.getValue()));
+        double[] gradient = layout.flatten(model.logProbGradients());
 
         return Stepsize.findStartingStepSize(
             position,
             gradient,
-            Collections.singletonList(vertex),
+            layout,
+            MassMatrix.identity(layout.size()),
             model,
             ProbabilityCalculator.calculateLogProbFor(vertices),
             random
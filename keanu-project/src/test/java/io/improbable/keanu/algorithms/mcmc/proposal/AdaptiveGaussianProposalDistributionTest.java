@@ -0,0 +1,178 @@
+package io.improbable.keanu.algorithms.mcmc.proposal;
+
+import com.google.common.collect.ImmutableSet;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.distributions.continuous.Gaussian;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.PoissonVertex;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class AdaptiveGaussianProposalDistributionTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private KeanuRandom random;
+    private GaussianVertex a;
+    private GaussianVertex b;
+
+    @Before
+    public void setup() {
+        random = new KeanuRandom(1);
+        a = new GaussianVertex(0.0, 1.0);
+        b = new GaussianVertex(0.0, 1.0);
+        a.setValue(0.0);
+        b.setValue(0.0);
+    }
+
+    @Test
+    public void shrinksTheProposalWhenProposalsAreRejected() {
+        AdaptiveGaussianProposalDistribution proposalDistribution = new AdaptiveGaussianProposalDistribution(1.0, 100);
+        Set<Variable> block = ImmutableSet.of(a);
+
+        for (int i = 0; i < 50; i++) {
+            proposalDistribution.getProposal(block, random);
+            proposalDistribution.onProposalRejected();
+        }
+
+        assertThat(proposalDistribution.getProposalCovariance(block).getValue(0, 0), lessThan(1.0));
+    }
+
+    @Test
+    public void growsTheProposalWhenProposalsAreAccepted() {
+        AdaptiveGaussianProposalDistribution proposalDistribution = new AdaptiveGaussianProposalDistribution(1.0, 100);
+        Set<Variable> block = ImmutableSet.of(a);
+
+        for (int i = 0; i < 50; i++) {
+            proposalDistribution.getProposal(block, random);
+        }
+
+        assertThat(proposalDistribution.getProposalCovariance(block).getValue(0, 0), greaterThan(1.0));
+    }
+
+    @Test
+    public void learnsTheCorrelationOfABlockFromItsHistory() {
+        AdaptiveGaussianProposalDistribution proposalDistribution = new AdaptiveGaussianProposalDistribution(1.0, 5000);
+        Set<Variable> block = ImmutableSet.of(a, b);
+        double rho = 0.9;
+
+        for (int i = 0; i < 5000; i++) {
+            double z1 = random.nextGaussian();
+            double z2 = random.nextGaussian();
+            a.setValue(z1);
+            b.setValue(rho * z1 + Math.sqrt(1 - rho * rho) * z2);
+            proposalDistribution.getProposal(block, random);
+        }
+
+        DoubleTensor covariance = proposalDistribution.getProposalCovariance(block);
+        double correlation = covariance.getValue(0, 1) / Math.sqrt(covariance.getValue(0, 0) * covariance.getValue(1, 1));
+        assertEquals(rho, correlation, 0.02);
+    }
+
+    @Test
+    public void stopsAdaptingAfterTheAdaptationSteps() {
+        AdaptiveGaussianProposalDistribution proposalDistribution = new AdaptiveGaussianProposalDistribution(1.0, 10);
+        Set<Variable> block = ImmutableSet.of(a, b);
+
+        for (int i = 0; i < 12; i++) {
+            a.setValue(random.nextGaussian());
+            b.setValue(random.nextGaussian());
+            proposalDistribution.getProposal(block, random);
+        }
+        double[] covarianceAfterAdaptation = proposalDistribution.getProposalCovariance(block).asFlatDoubleArray();
+
+        for (int i = 0; i < 10; i++) {
+            a.setValue(random.nextGaussian());
+            b.setValue(random.nextGaussian());
+            proposalDistribution.getProposal(block, random);
+            proposalDistribution.onProposalRejected();
+        }
+
+        assertArrayEquals(covarianceAfterAdaptation, proposalDistribution.getProposalCovariance(block).asFlatDoubleArray(), 0.0);
+    }
+
+    @Test
+    public void proposesForEveryVariableInTheBlockWithItsShape() {
+        GaussianVertex vector = new GaussianVertex(new long[]{2, 2}, 0.0, 1.0);
+        vector.setValue(DoubleTensor.create(new double[]{1, 2, 3, 4}, 2, 2));
+        AdaptiveGaussianProposalDistribution proposalDistribution = new AdaptiveGaussianProposalDistribution(1.0, 100);
+
+        Proposal proposal = proposalDistribution.getProposal(ImmutableSet.of(a, vector), random);
+
+        assertArrayEquals(new long[0], proposal.getProposalTo(a).getShape());
+        assertArrayEquals(new long[]{2, 2}, proposal.getProposalTo(vector).getShape());
+        assertEquals(0.0, proposalDistribution.logProbAtToGivenFrom(proposal), 0.0);
+        assertEquals(0.0, proposalDistribution.logProbAtFromGivenTo(proposal), 0.0);
+    }
+
+    @Test
+    public void theLogProbOfAVariableThatHasNotBeenProposedForUsesTheInitialSigma() {
+        AdaptiveGaussianProposalDistribution proposalDistribution = new AdaptiveGaussianProposalDistribution(2.0, 100);
+
+        double expected = Gaussian.withParameters(DoubleTensor.scalar(0.0), DoubleTensor.scalar(2.0))
+            .logProb(DoubleTensor.scalar(1.5)).sum();
+
+        assertEquals(expected, proposalDistribution.logProb(a, DoubleTensor.scalar(1.5), DoubleTensor.scalar(0.0)), 1e-10);
+    }
+
+    @Test
+    public void theLogProbOfAVariableIsTheMarginalOfItsBlocksProposal() {
+        AdaptiveGaussianProposalDistribution proposalDistribution = new AdaptiveGaussianProposalDistribution(1.0, 100);
+        Set<Variable> block = ImmutableSet.of(a, b);
+
+        for (int i = 0; i < 50; i++) {
+            a.setValue(random.nextGaussian());
+            b.setValue(random.nextGaussian());
+            proposalDistribution.getProposal(block, random);
+        }
+
+        double sigmaOfB = Math.sqrt(proposalDistribution.getProposalCovariance(block).getValue(1, 1));
+        double expected = Gaussian.withParameters(DoubleTensor.scalar(0.5), DoubleTensor.scalar(sigmaOfB))
+            .logProb(DoubleTensor.scalar(-0.25)).sum();
+
+        assertEquals(expected, proposalDistribution.logProb(b, DoubleTensor.scalar(-0.25), DoubleTensor.scalar(0.5)), 1e-10);
+    }
+
+    @Test
+    public void theLogProbIsSymmetric() {
+        GaussianVertex vector = new GaussianVertex(new long[]{2}, 0.0, 1.0);
+        vector.setValue(DoubleTensor.create(1.0, 2.0));
+        AdaptiveGaussianProposalDistribution proposalDistribution = new AdaptiveGaussianProposalDistribution(1.0, 100);
+        Set<Variable> block = ImmutableSet.of(a, vector);
+
+        for (int i = 0; i < 50; i++) {
+            vector.setValue(DoubleTensor.create(random.nextGaussian(), random.nextGaussian()));
+            proposalDistribution.getProposal(block, random);
+        }
+
+        DoubleTensor from = DoubleTensor.create(0.5, -1.0);
+        DoubleTensor to = DoubleTensor.create(1.5, 0.25);
+
+        assertEquals(
+            proposalDistribution.logProb(vector, to, from),
+            proposalDistribution.logProb(vector, from, to),
+            1e-10
+        );
+    }
+
+    @Test
+    public void itThrowsIfYouUseItOnADiscreteVariable() {
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("Gaussian proposal function cannot be used for discrete variable");
+        PoissonVertex poisson = new PoissonVertex(1.);
+        new AdaptiveGaussianProposalDistribution(1.0, 100).getProposal(ImmutableSet.of(poisson), random);
+    }
+}
@@ -0,0 +1,70 @@
+package io.improbable.keanu.algorithms.mcmc.proposal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.PoissonVertex;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class MarkovBlanketVariableSelectorTest {
+
+    private DoubleVertex x1;
+    private DoubleVertex x2;
+    private DoubleVertex x3;
+    private DoubleVertex x4;
+    private List<Vertex> latents;
+
+    @Before
+    public void setupChain() {
+        x1 = new GaussianVertex(0.0, 1.0);
+        x2 = new GaussianVertex(x1, 1.0);
+        x3 = new GaussianVertex(x2, 1.0);
+        x4 = new GaussianVertex(x3, 1.0);
+        new GaussianVertex(x4, 1.0).observe(1.0);
+
+        latents = ImmutableList.of(x1, x2, x3, x4);
+    }
+
+    @Test
+    public void groupsNeighboursInTheGraphUpToTheMaxBlockSize() {
+        List<Set<Variable>> blocks = MarkovBlanketVariableSelector.groupIntoBlocks(latents, 2);
+
+        assertEquals(ImmutableList.of(ImmutableSet.of(x1, x2), ImmutableSet.of(x3, x4)), blocks);
+    }
+
+    @Test
+    public void canGroupAConnectedGraphIntoOneBlock() {
+        List<Set<Variable>> blocks = MarkovBlanketVariableSelector.groupIntoBlocks(latents, 10);
+
+        assertEquals(ImmutableList.of(ImmutableSet.of(x1, x2, x3, x4)), blocks);
+    }
+
+    @Test
+    public void keepsUnrelatedAndDiscreteVariablesInBlocksOfTheirOwn() {
+        DoubleVertex unrelated = new GaussianVertex(0.0, 1.0);
+        PoissonVertex discrete = new PoissonVertex(x1.exp());
+        List<Vertex> variables = ImmutableList.of(x1, unrelated, discrete);
+
+        List<Set<Variable>> blocks = MarkovBlanketVariableSelector.groupIntoBlocks(variables, 10);
+
+        assertEquals(ImmutableList.of(ImmutableSet.of(x1), ImmutableSet.of(unrelated), ImmutableSet.of(discrete)), blocks);
+    }
+
+    @Test
+    public void selectsEachBlockInTurn() {
+        MHStepVariableSelector selector = new MarkovBlanketVariableSelector(2);
+
+        assertEquals(ImmutableSet.of(x1, x2), selector.select(latents, 0));
+        assertEquals(ImmutableSet.of(x3, x4), selector.select(latents, 1));
+        assertEquals(ImmutableSet.of(x1, x2), selector.select(latents, 2));
+    }
+}
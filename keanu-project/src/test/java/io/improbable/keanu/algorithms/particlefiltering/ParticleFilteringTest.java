@@ -1,6 +1,7 @@
 package io.improbable.keanu.algorithms.particlefiltering;
 
 import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.KeanuRandom;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
 import io.improbable.keanu.vertices.dbl.probabilistic.UniformVertex;
@@ -8,6 +9,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 @Slf4j
@@ -38,12 +43,11 @@ public class ParticleFilteringTest {
         thermometerD.observe(18.0);
 
         int numParticles = 1000;
-        int resamplingCycles = 3;
-        double resamplingProportion = 0.5;
+        double resamplingThreshold = 0.5;
         ParticleFilter particleFilter = ParticleFilter.ofVertexInGraph(temperature)
                 .withNumParticles(numParticles)
-                .withResamplingCycles(resamplingCycles)
-                .withResamplingProportion(resamplingProportion)
+                .withResamplingMethod(ResamplingMethod.SYSTEMATIC)
+                .withResamplingThreshold(resamplingThreshold)
                 .build();
 
         Particle mostProbableParticle = particleFilter.getMostProbableParticle();
@@ -56,4 +60,103 @@ public class ParticleFilteringTest {
         assertTrue(estimatedTemp > 18.0);
         assertTrue(estimatedTemp < 22.0);
     }
+
+    @Test
+    public void estimatesLogMarginalLikelihoodOfRandomWalk() {
+
+        double[] observations = randomWalkObservations(50);
+        List<DoubleVertex> states = buildRandomWalk(observations);
+
+        ParticleFilter particleFilter = ParticleFilter.ofVertexInGraph(states.get(0))
+            .withNumParticles(2000)
+            .withResamplingMethod(ResamplingMethod.STRATIFIED)
+            .build();
+
+        assertEquals(kalmanLogMarginalLikelihood(observations), particleFilter.getLogMarginalLikelihood(), 1.0);
+
+        Particle mostProbableParticle = particleFilter.getMostProbableParticle();
+        double lastState = mostProbableParticle.getScalarValueOfVertex(states.get(states.size() - 1));
+        assertEquals(observations[observations.length - 1], lastState, 3.0);
+    }
+
+    @Test
+    public void acceptsTheDeprecatedResamplingSettings() {
+
+        double[] observations = randomWalkObservations(30);
+        List<DoubleVertex> states = buildRandomWalk(observations);
+
+        ParticleFilter particleFilter = ParticleFilter.ofVertexInGraph(states.get(0))
+            .withNumParticles(1000)
+            .withResamplingCycles(3)
+            .withResamplingProportion(0.5)
+            .build();
+
+        assertEquals(kalmanLogMarginalLikelihood(observations), particleFilter.getLogMarginalLikelihood(), 1.0);
+    }
+
+    @Test
+    public void multiThreadedFilterIsReproducibleForAGivenSeedAndThreadCount() {
+
+        double[] observations = randomWalkObservations(30);
+
+        ParticleFilter first = buildMultiThreadedFilter(observations, 1);
+        ParticleFilter second = buildMultiThreadedFilter(observations, 1);
+
+        assertEquals(first.getLogMarginalLikelihood(), second.getLogMarginalLikelihood(), 0.0);
+        assertEquals(kalmanLogMarginalLikelihood(observations), first.getLogMarginalLikelihood(), 1.0);
+
+        List<Particle> firstParticles = first.getMostProbableParticles();
+        List<Particle> secondParticles = second.getMostProbableParticles();
+        for (int i = 0; i < firstParticles.size(); i++) {
+            assertEquals(firstParticles.get(i).logProb(), secondParticles.get(i).logProb(), 0.0);
+        }
+    }
+
+    private static ParticleFilter buildMultiThreadedFilter(double[] observations, long seed) {
+        List<DoubleVertex> states = buildRandomWalk(observations);
+        return ParticleFilter.ofVertexInGraph(states.get(0))
+            .withNumParticles(1000)
+            .withRandom(new KeanuRandom(seed))
+            .withThreads(4, replicaIndex -> buildRandomWalk(observations).get(0).getConnectedGraph())
+            .build();
+    }
+
+    private static double[] randomWalkObservations(int length) {
+        double[] observations = new double[length];
+        double x = 0.0;
+        for (int t = 0; t < observations.length; t++) {
+            x += Math.sin(t / 5.0);
+            observations[t] = x;
+        }
+        return observations;
+    }
+
+    private static List<DoubleVertex> buildRandomWalk(double[] observations) {
+        List<DoubleVertex> states = new ArrayList<>();
+        DoubleVertex state = new GaussianVertex(0.0, 1.0);
+        for (double observation : observations) {
+            states.add(state);
+            new GaussianVertex(state, 1.0).observe(observation);
+            state = new GaussianVertex(state, 1.0);
+        }
+        return states;
+    }
+
+    private static double kalmanLogMarginalLikelihood(double[] observations) {
+        double mean = 0.0;
+        double variance = 1.0;
+        double logMarginalLikelihood = 0.0;
+
+        for (double observation : observations) {
+            double predictiveVariance = variance + 1.0;
+            double residual = observation - mean;
+            logMarginalLikelihood += -0.5 * (Math.log(2 * Math.PI * predictiveVariance) + residual * residual / predictiveVariance);
+
+            double gain = variance / predictiveVariance;
+            mean += gain * residual;
+            variance = (1 - gain) * variance + 1.0;
+        }
+
+        return logMarginalLikelihood;
+    }
 }
@@ -0,0 +1,49 @@
+package io.improbable.keanu.algorithms.particlefiltering;
+
+import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.KeanuRandom;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ResamplingMethodTest {
+
+    @Rule
+    public DeterministicRule deterministicRule = new DeterministicRule();
+
+    private final double[] weights = new double[]{0.1, 0.0, 0.45, 0.05, 0.4};
+
+    @Test
+    public void systematicResamplingCopiesEachParticleInProportionToItsWeight() {
+        assertCopiesAreProportionalToWeights(ResamplingMethod.SYSTEMATIC, 1);
+    }
+
+    @Test
+    public void stratifiedResamplingCopiesEachParticleInProportionToItsWeight() {
+        assertCopiesAreProportionalToWeights(ResamplingMethod.STRATIFIED, 3);
+    }
+
+    @Test
+    public void ancestorsAreInIncreasingOrder() {
+        int[] ancestors = ResamplingMethod.STRATIFIED.resample(weights, 100, KeanuRandom.getDefaultRandom());
+        for (int i = 1; i < ancestors.length; i++) {
+            assertTrue(ancestors[i] >= ancestors[i - 1]);
+        }
+    }
+
+    private void assertCopiesAreProportionalToWeights(ResamplingMethod method, int tolerance) {
+        int count = 100;
+        int[] ancestors = method.resample(weights, count, KeanuRandom.getDefaultRandom());
+
+        int[] copies = new int[weights.length];
+        for (int ancestor : ancestors) {
+            copies[ancestor]++;
+        }
+
+        for (int i = 0; i < weights.length; i++) {
+            assertEquals(weights[i] * count, copies[i], tolerance);
+        }
+    }
+}
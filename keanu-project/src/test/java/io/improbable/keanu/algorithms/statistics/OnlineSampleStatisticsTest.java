@@ -0,0 +1,66 @@
+package io.improbable.keanu.algorithms.statistics;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class OnlineSampleStatisticsTest {
+
+    private final GaussianVertex a = new GaussianVertex(0, 1);
+    private final GaussianVertex b = new GaussianVertex(0, 1);
+
+    @Test
+    public void keepsStatisticsOfEachVariable() {
+        OnlineSampleStatistics statistics = new OnlineSampleStatistics(ImmutableList.of(a, b));
+
+        for (int i = 1; i <= 5; i++) {
+            statistics.accept(sample(i, 10 * i));
+        }
+
+        assertEquals(5, statistics.getSampleCount());
+        assertEquals(3.0, statistics.get(a).getMean().scalar(), 1e-10);
+        assertEquals(30.0, statistics.get(b).getMean().scalar(), 1e-10);
+        assertEquals(2.5, statistics.get(a).getVariance().scalar(), 1e-10);
+    }
+
+    @Test
+    public void mergesStatisticsOfSeparateChains() {
+        OnlineSampleStatistics first = new OnlineSampleStatistics(ImmutableList.of(a, b));
+        OnlineSampleStatistics second = new OnlineSampleStatistics(ImmutableList.of(a, b));
+
+        first.accept(sample(1, 2));
+        first.accept(sample(2, 4));
+        second.accept(sample(3, 6));
+        second.accept(sample(4, 8));
+
+        first.merge(second);
+
+        assertEquals(4, first.getSampleCount());
+        assertEquals(2.5, first.get(a).getMean().scalar(), 1e-10);
+        assertEquals(5.0, first.get(b).getMean().scalar(), 1e-10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesNotMergeStatisticsOfDifferentVariables() {
+        new OnlineSampleStatistics(ImmutableList.of(a)).merge(new OnlineSampleStatistics(ImmutableList.of(b)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cannotChangeWhatIsKeptAfterStarting() {
+        OnlineSampleStatistics statistics = new OnlineSampleStatistics(ImmutableList.of(a, b));
+        statistics.accept(sample(1, 2));
+        statistics.keepCovariance();
+    }
+
+    private NetworkSample sample(double aValue, double bValue) {
+        return new NetworkSample(ImmutableMap.of(
+            a.getId(), DoubleTensor.scalar(aValue),
+            b.getId(), DoubleTensor.scalar(bValue)
+        ), 0.0);
+    }
+}
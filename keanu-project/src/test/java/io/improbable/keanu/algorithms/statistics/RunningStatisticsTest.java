@@ -0,0 +1,142 @@
+package io.improbable.keanu.algorithms.statistics;
+
+import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class RunningStatisticsTest {
+
+    @Rule
+    public DeterministicRule deterministicRule = new DeterministicRule();
+
+    private static final long[] SHAPE = new long[]{2};
+
+    @Test
+    public void meanAndVarianceMatchThoseOfTheSamples() {
+        double[][] samples = randomSamples(1000);
+        RunningStatistics statistics = new RunningStatistics();
+        for (double[] sample : samples) {
+            statistics.add(DoubleTensor.create(sample, SHAPE));
+        }
+
+        assertEquals(samples.length, statistics.getCount());
+        assertArrayEquals(mean(samples), statistics.getMean().asFlatDoubleArray(), 1e-10);
+        assertArrayEquals(variance(samples), statistics.getVariance().asFlatDoubleArray(), 1e-10);
+    }
+
+    @Test
+    public void covarianceMatchesThatOfTheSamples() {
+        double[][] samples = randomSamples(1000);
+        RunningStatistics statistics = new RunningStatistics(true, false, TDigest.DEFAULT_COMPRESSION);
+        for (double[] sample : samples) {
+            statistics.add(sample, SHAPE);
+        }
+
+        double[] mean = mean(samples);
+        double coMoment = 0;
+        for (double[] sample : samples) {
+            coMoment += (sample[0] - mean[0]) * (sample[1] - mean[1]);
+        }
+        double covariance = coMoment / (samples.length - 1);
+        double[] variance = variance(samples);
+
+        assertArrayEquals(
+            new double[]{variance[0], covariance, covariance, variance[1]},
+            statistics.getCovariance().asFlatDoubleArray(),
+            1e-10
+        );
+    }
+
+    @Test
+    public void mergingIsTheSameAsAddingEverySample() {
+        double[][] samples = randomSamples(1000);
+        RunningStatistics all = new RunningStatistics(true, false, TDigest.DEFAULT_COMPRESSION);
+        RunningStatistics first = new RunningStatistics(true, false, TDigest.DEFAULT_COMPRESSION);
+        RunningStatistics second = new RunningStatistics(true, false, TDigest.DEFAULT_COMPRESSION);
+
+        for (int i = 0; i < samples.length; i++) {
+            all.add(samples[i], SHAPE);
+            (i < 300 ? first : second).add(samples[i], SHAPE);
+        }
+        first.merge(second);
+
+        assertEquals(all.getCount(), first.getCount());
+        assertArrayEquals(all.getMean().asFlatDoubleArray(), first.getMean().asFlatDoubleArray(), 1e-10);
+        assertArrayEquals(all.getVariance().asFlatDoubleArray(), first.getVariance().asFlatDoubleArray(), 1e-10);
+        assertArrayEquals(all.getCovariance().asFlatDoubleArray(), first.getCovariance().asFlatDoubleArray(), 1e-10);
+    }
+
+    @Test
+    public void canMergeIntoEmptyStatistics() {
+        RunningStatistics empty = new RunningStatistics();
+        RunningStatistics statistics = new RunningStatistics();
+        statistics.add(1.0);
+        statistics.add(3.0);
+
+        empty.merge(statistics);
+
+        assertEquals(2.0, empty.getMean().scalar(), 0.0);
+        assertEquals(2.0, empty.getVariance().scalar(), 0.0);
+    }
+
+    @Test
+    public void quantilesAreEstimatedForEachElement() {
+        RunningStatistics statistics = new RunningStatistics(false, true, TDigest.DEFAULT_COMPRESSION);
+        for (int i = 0; i <= 10000; i++) {
+            statistics.add(new double[]{i, -i}, SHAPE);
+        }
+
+        double[] median = statistics.getQuantile(0.5).asFlatDoubleArray();
+        assertEquals(5000, median[0], 50);
+        assertEquals(-5000, median[1], 50);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSamplesOfADifferentShape() {
+        RunningStatistics statistics = new RunningStatistics();
+        statistics.add(DoubleTensor.create(1.0, 2.0));
+        statistics.add(DoubleTensor.scalar(1.0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void needsTwoSamplesForAVariance() {
+        RunningStatistics statistics = new RunningStatistics();
+        statistics.add(1.0);
+        statistics.getVariance();
+    }
+
+    private static double[][] randomSamples(int count) {
+        KeanuRandom random = KeanuRandom.getDefaultRandom();
+        double[][] samples = new double[count][];
+        for (int i = 0; i < count; i++) {
+            double x = random.nextGaussian();
+            samples[i] = new double[]{5 + x, 2 * x + random.nextGaussian()};
+        }
+        return samples;
+    }
+
+    private static double[] mean(double[][] samples) {
+        double[] mean = new double[2];
+        for (double[] sample : samples) {
+            mean[0] += sample[0] / samples.length;
+            mean[1] += sample[1] / samples.length;
+        }
+        return mean;
+    }
+
+    private static double[] variance(double[][] samples) {
+        double[] mean = mean(samples);
+        double[] variance = new double[2];
+        for (double[] sample : samples) {
+            for (int i = 0; i < 2; i++) {
+                variance[i] += Math.pow(sample[i] - mean[i], 2) / (samples.length - 1);
+            }
+        }
+        return variance;
+    }
+}
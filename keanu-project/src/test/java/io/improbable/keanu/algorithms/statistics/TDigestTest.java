@@ -0,0 +1,67 @@
+package io.improbable.keanu.algorithms.statistics;
+
+import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.KeanuRandom;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TDigestTest {
+
+    @Rule
+    public DeterministicRule deterministicRule = new DeterministicRule();
+
+    @Test
+    public void estimatesQuantilesOfUniformValues() {
+        TDigest digest = new TDigest();
+        KeanuRandom random = KeanuRandom.getDefaultRandom();
+        double[] values = new double[100000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble();
+            digest.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double q : new double[]{0.001, 0.01, 0.1, 0.5, 0.9, 0.99, 0.999}) {
+            assertEquals(values[(int) (q * values.length)], digest.quantile(q), 0.01);
+        }
+    }
+
+    @Test
+    public void extremeQuantilesAreTheMinAndMax() {
+        TDigest digest = new TDigest();
+        for (int i = 1; i <= 1000; i++) {
+            digest.add(i);
+        }
+
+        assertEquals(1, digest.quantile(0), 0.0);
+        assertEquals(1000, digest.quantile(1), 0.0);
+        assertEquals(1000, digest.getCount(), 0.0);
+    }
+
+    @Test
+    public void mergedDigestEstimatesQuantilesOfAllValues() {
+        TDigest lower = new TDigest();
+        TDigest upper = new TDigest();
+        for (int i = 0; i < 5000; i++) {
+            lower.add(i);
+            upper.add(5000 + i);
+        }
+
+        lower.merge(upper);
+
+        assertEquals(10000, lower.getCount(), 0.0);
+        assertEquals(2500, lower.quantile(0.25), 50);
+        assertEquals(5000, lower.quantile(0.5), 50);
+        assertEquals(7500, lower.quantile(0.75), 50);
+    }
+
+    @Test
+    public void emptyDigestHasNoQuantiles() {
+        assertTrue(Double.isNaN(new TDigest().quantile(0.5)));
+    }
+}
@@ -0,0 +1,143 @@
+package io.improbable.keanu.algorithms.variational.advi;
+
+import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModelWithGradient;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import io.improbable.keanu.vertices.dbl.probabilistic.GammaVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.UniformVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.PoissonVertex;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ADVITest {
+
+    @Rule
+    public DeterministicRule rule = new DeterministicRule();
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    /**
+     * With mu ~ N(0, 1) and each y ~ N(mu, 1), the posterior of mu is N(sum(y) / (n + 1), 1 / (n + 1)).
+     */
+    @Test
+    public void fitsTheConjugatePosteriorOfAGaussianMean() {
+        GaussianVertex mu = new GaussianVertex(0, 1);
+        GaussianVertex y = new GaussianVertex(new long[]{4}, mu, 1);
+        y.observe(DoubleTensor.create(1.0, 2.0, 3.0, 2.0));
+
+        VariationalPosterior posterior = ADVI.builder()
+            .gradientSampleCount(5)
+            .build()
+            .fit(new KeanuProbabilisticModelWithGradient(new BayesianNetwork(mu.getConnectedGraph())));
+
+        assertEquals(8.0 / 5.0, posterior.getMedian(mu).scalar(), 0.05);
+        assertEquals(Math.sqrt(1.0 / 5.0), posterior.getUnconstrainedStandardDeviation(mu).scalar(), 0.05);
+        assertEquals(8.0 / 5.0, mu.getValue().scalar(), 0.05);
+    }
+
+    @Test
+    public void itsLogProbIsTheLogDensityOfTheFittedGaussian() {
+        GaussianVertex x = new GaussianVertex(2.0, 3.0);
+
+        VariationalPosterior posterior = ADVI.builder()
+            .gradientSampleCount(5)
+            .build()
+            .fit(new KeanuProbabilisticModelWithGradient(new BayesianNetwork(x.getConnectedGraph())));
+
+        NetworkSamples samples = posterior.sample(100);
+        GaussianVertex fitted = new GaussianVertex(
+            posterior.getUnconstrainedMean(x).scalar(),
+            posterior.getUnconstrainedStandardDeviation(x).scalar()
+        );
+
+        assertEquals(2.0, posterior.getMedian(x).scalar(), 0.15);
+        assertEquals(3.0, posterior.getUnconstrainedStandardDeviation(x).scalar(), 0.15);
+        for (int i = 0; i < samples.size(); i++) {
+            DoubleTensor value = samples.getNetworkState(i).get(x);
+            assertEquals(fitted.logProb(value), posterior.getLogOfMasterP(samples.getNetworkState(i)), 1e-6);
+            assertEquals(x.logProb(value), samples.getLogOfMasterP(i), 1e-6);
+        }
+    }
+
+    /**
+     * With lambda ~ Gamma(theta = 1, k = 2) and each x ~ Poisson(lambda), the posterior of lambda is Gamma with shape
+     * k + sum(x) and rate 1 / theta + n.
+     */
+    @Test
+    public void transformsPositiveLatentsSoThatSamplesAreInTheirSupport() {
+        GammaVertex lambda = new GammaVertex(1.0, 2.0);
+        PoissonVertex x = new PoissonVertex(new long[]{5}, lambda);
+        x.observe(IntegerTensor.create(3, 4, 5, 4, 4));
+
+        VariationalPosterior posterior = ADVI.builder()
+            .gradientSampleCount(5)
+            .build()
+            .fit(new KeanuProbabilisticModelWithGradient(new BayesianNetwork(lambda.getConnectedGraph())));
+
+        NetworkSamples samples = posterior.sample(2000);
+
+        double expectedMean = 22.0 / 6.0;
+        assertTrue(samples.getDoubleTensorSamples(lambda).asList().stream().allMatch(sample -> sample.scalar() > 0));
+        assertEquals(expectedMean, samples.getDoubleTensorSamples(lambda).getAverages().scalar(), 0.15);
+    }
+
+    /**
+     * With x, y ~ N(0, 1) and x + y observed with a small noise, x and y are strongly anti-correlated in the
+     * posterior, and each has a variance of 101 / 201.
+     */
+    @Test
+    public void fullRankCapturesCorrelationsThatMeanFieldMisses() {
+        GaussianVertex x = new GaussianVertex(0, 1);
+        GaussianVertex y = new GaussianVertex(0, 1);
+        new GaussianVertex(x.plus(y), 0.1).observe(1.0);
+
+        KeanuProbabilisticModelWithGradient model = new KeanuProbabilisticModelWithGradient(new BayesianNetwork(x.getConnectedGraph()));
+
+        VariationalPosterior fullRank = ADVI.builder()
+            .family(GaussianFamily.FULL_RANK)
+            .gradientSampleCount(5)
+            .build()
+            .fit(model);
+
+        VariationalPosterior meanField = ADVI.builder()
+            .family(GaussianFamily.MEAN_FIELD)
+            .gradientSampleCount(5)
+            .build()
+            .fit(model);
+
+        assertEquals(Math.sqrt(101.0 / 201.0), fullRank.getUnconstrainedStandardDeviation(x).scalar(), 0.1);
+        assertEquals(Math.sqrt(1.0 / 101.0), meanField.getUnconstrainedStandardDeviation(x).scalar(), 0.05);
+        assertTrue(fullRank.getElbo() > meanField.getElbo());
+    }
+
+    @Test
+    public void itThrowsIfThereAreDiscreteLatents() {
+        expectedException.expect(UnsupportedOperationException.class);
+
+        PoissonVertex count = new PoissonVertex(3.0);
+        count.setValue(2);
+
+        ADVI.builder().build().fit(new KeanuProbabilisticModelWithGradient(new BayesianNetwork(count.getConnectedGraph())));
+    }
+
+    @Test
+    public void itThrowsIfTheSupportDependsOnALatent() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("ADVI can only transform supports with constant bounds");
+
+        GaussianVertex upper = new GaussianVertex(10, 1);
+        UniformVertex x = new UniformVertex(0, upper);
+        x.setValue(5.0);
+
+        ADVI.builder().build().fit(new KeanuProbabilisticModelWithGradient(new BayesianNetwork(x.getConnectedGraph())));
+    }
+}
@@ -8,6 +8,10 @@ import org.apache.commons.lang3.mutable.MutableInt;
 import org.apache.commons.math3.exception.NotStrictlyPositiveException;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -94,6 +98,37 @@ public class AdamTest {
         assertFalse(adamOptimizer.getStatistics().didConverge());
     }
 
+    @Test
+    public void usesTheLearningRateScheduleAtEachStep() {
+
+        GradientOptimizationAlgorithmTestCase testCase = new SingleGaussianTestCase(ProbabilityFitness.MAP, new long[0]);
+
+        List<Integer> steps = new ArrayList<>();
+        Adam adamOptimizer = Adam.builder()
+            .maxEvaluations(5)
+            .convergenceChecker((theta, thetaNext) -> false)
+            .learningRateSchedule((learningRate, step) -> {
+                steps.add(step);
+                return LearningRateSchedule.inverseTimeDecay(0.5).getLearningRate(learningRate, step);
+            })
+            .build();
+
+        adamOptimizer.optimize(
+            testCase.getVariables(),
+            testCase.getFitnessFunction(),
+            testCase.getFitnessFunctionGradient()
+        );
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), steps);
+        assertEquals(0.05, LearningRateSchedule.inverseTimeDecay(0.5).getLearningRate(0.1, 2), 1e-10);
+        assertEquals(0.025, LearningRateSchedule.exponentialDecay(0.5, 10).getLearningRate(0.1, 20), 1e-10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsOnALearningRateScheduleThatGrows() {
+        LearningRateSchedule.exponentialDecay(1.5, 10);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void throwsOnNegativeBeta1() {
         validateParameters(10, 0.1, -0.1, 0.1, 0.1);
@@ -2,8 +2,10 @@ package io.improbable.keanu.algorithms.variational.optimizer.gradient;
 
 import io.improbable.keanu.Keanu;
 import io.improbable.keanu.algorithms.ProbabilisticModelWithGradient;
+import io.improbable.keanu.algorithms.variational.optimizer.MiniBatchSource;
 import io.improbable.keanu.algorithms.variational.optimizer.OptimizedResult;
 import io.improbable.keanu.network.KeanuProbabilisticModelWithGradient;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
 import io.improbable.keanu.vertices.dbl.probabilistic.HalfGaussianVertex;
 import io.improbable.keanu.vertices.dbl.probabilistic.UniformVertex;
@@ -118,4 +120,71 @@ public class GradientOptimizerTest {
 
         optimizer.maxAPosteriori();
     }
+
+    @Test
+    public void miniBatchesFindTheMaximumAPosterioriOfTheWholeDataset() {
+        int datasetSize = 100;
+        int batchSize = 10;
+        GaussianVertex mu = new GaussianVertex(0, 1);
+        GaussianVertex y = new GaussianVertex(new long[]{batchSize}, mu, 1);
+        AtomicInteger batchesLoaded = new AtomicInteger(0);
+
+        MiniBatchSource miniBatches = new MiniBatchSource() {
+            @Override
+            public void loadNextBatch() {
+                batchesLoaded.incrementAndGet();
+                y.observe(batchWithMeanOfTwo(batchSize));
+            }
+
+            @Override
+            public double getLikelihoodScale() {
+                return (double) datasetSize / batchSize;
+            }
+        };
+        miniBatches.loadNextBatch();
+
+        GradientOptimizer optimizer = Keanu.Optimizer.Gradient.builderFor(mu.getConnectedGraph())
+            .algorithm(Adam.builder()
+                .alpha(0.1)
+                .learningRateSchedule(LearningRateSchedule.inverseTimeDecay(0.01))
+                .convergenceChecker((theta, thetaNext) -> false)
+                .maxEvaluations(2000)
+                .build())
+            .miniBatches(miniBatches)
+            .build();
+
+        optimizer.maxAPosteriori();
+
+        assertEquals(2.0 * datasetSize / (datasetSize + 1), mu.getValue().scalar(), 1e-2);
+        assertEquals(2001, batchesLoaded.get());
+    }
+
+    private static DoubleTensor batchWithMeanOfTwo(int batchSize) {
+        double[] values = new double[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            values[i] = i % 5;
+        }
+        return DoubleTensor.create(values);
+    }
+
+    @Test
+    public void miniBatchesRequireAdam() {
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage("Mini-batch optimization requires the Adam algorithm.");
+
+        GaussianVertex A = new GaussianVertex(0, 1);
+        Keanu.Optimizer.Gradient.builderFor(A.getConnectedGraph())
+            .algorithm(ConjugateGradient.builder().build())
+            .miniBatches(new MiniBatchSource() {
+                @Override
+                public void loadNextBatch() {
+                }
+
+                @Override
+                public double getLikelihoodScale() {
+                    return 1.0;
+                }
+            })
+            .build();
+    }
 }
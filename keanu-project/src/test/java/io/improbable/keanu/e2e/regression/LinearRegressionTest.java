@@ -9,6 +9,9 @@ import io.improbable.keanu.algorithms.mcmc.proposal.GaussianProposalDistribution
 import io.improbable.keanu.algorithms.mcmc.proposal.MHStepVariableSelector;
 import io.improbable.keanu.algorithms.mcmc.proposal.ProposalDistribution;
 import io.improbable.keanu.algorithms.variational.optimizer.gradient.GradientOptimizer;
+import io.improbable.keanu.algorithms.variational.optimizer.gradient.LearningRateSchedule;
+import io.improbable.keanu.model.MiniBatchFitting;
+import io.improbable.keanu.model.MiniBatches;
 import io.improbable.keanu.model.SamplingModelFitting;
 import io.improbable.keanu.model.regression.RegressionModel;
 import io.improbable.keanu.network.BayesianNetwork;
@@ -21,6 +24,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.stream.IntStream;
+
 import static io.improbable.keanu.e2e.regression.LinearRegressionTestUtils.assertSampledWeightsAndInterceptMatchTestData;
 import static io.improbable.keanu.e2e.regression.LinearRegressionTestUtils.assertWeightsAndInterceptMatchTestData;
 
@@ -65,6 +70,37 @@ public class LinearRegressionTest {
         );
     }
 
+    @Category(Slow.class)
+    @Test
+    public void modelFindsParamsForOneWeightFromMiniBatches() {
+        int datasetSize = 10000;
+        LinearRegressionTestUtils.TestData data = LinearRegressionTestUtils.generateSingleFeatureData(datasetSize);
+
+        MiniBatches<Integer> batches = MiniBatches.fromStream(
+            () -> IntStream.range(0, datasetSize).boxed(),
+            datasetSize,
+            100
+        );
+
+        RegressionModel linearRegressionModel = RegressionModel.withMiniBatchTrainingData(
+            batches,
+            i -> new double[]{data.xTrain.getValue(i, 0)},
+            i -> data.yTrain.getValue(i, 0)
+        )
+            .withMiniBatchFitting(MiniBatchFitting.builder()
+                .epochs(50)
+                .learningRate(0.1)
+                .learningRateSchedule(LearningRateSchedule.inverseTimeDecay(0.01))
+                .build())
+            .build();
+
+        assertWeightsAndInterceptMatchTestData(
+            linearRegressionModel.getWeightVertex(),
+            linearRegressionModel.getInterceptVertex(),
+            data
+        );
+    }
+
     @Category(Slow.class)
     @Test
     public void manuallyBuiltGraphFindsParamsForTwoWeights() {
@@ -0,0 +1,77 @@
+package io.improbable.keanu.model;
+
+import io.improbable.keanu.util.csv.ReadCsv;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MiniBatchesTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void batchesFromAStreamContinueIntoTheNextPass() {
+        MiniBatches<Integer> batches = MiniBatches.fromStream(() -> IntStream.range(0, 5).boxed(), 5, 2);
+
+        assertTrue(batches.isRepeatable());
+        assertEquals(2, batches.getBatchesPerEpoch());
+        assertEquals(2.5, batches.getLikelihoodScale(), 0.0);
+        assertThat(batches.next(), contains(0, 1));
+        assertThat(batches.next(), contains(2, 3));
+        assertThat(batches.next(), contains(4, 0));
+        assertThat(batches.next(), contains(1, 2));
+    }
+
+    @Test
+    public void peekDoesNotMoveOnToTheNextBatch() {
+        MiniBatches<Integer> batches = MiniBatches.fromStream(() -> IntStream.range(0, 4).boxed(), 4, 2);
+
+        List<Integer> peeked = batches.peek();
+
+        assertThat(batches.peek(), sameInstance(peeked));
+        assertThat(batches.next(), sameInstance(peeked));
+        assertThat(batches.next(), contains(2, 3));
+    }
+
+    @Test
+    public void batchesFromAnIteratorThrowWhenTheRowsRunOut() {
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage("The rows ran out and cannot be read again");
+
+        MiniBatches<Integer> batches = MiniBatches.fromIterator(Arrays.asList(0, 1, 2, 3).iterator(), 4, 2);
+
+        assertFalse(batches.isRepeatable());
+        assertThat(batches.next(), contains(0, 1));
+        assertThat(batches.next(), contains(2, 3));
+        batches.next();
+    }
+
+    @Test
+    public void batchesCanBeReadFromACsv() {
+        MiniBatches<List<String>> batches = MiniBatches.fromCsv(
+            ReadCsv.fromString("x,y\n1,2\n3,4\n5,6\n"),
+            3,
+            2
+        );
+
+        assertThat(batches.next(), contains(Arrays.asList("1", "2"), Arrays.asList("3", "4")));
+        assertThat(batches.next(), contains(Arrays.asList("5", "6"), Arrays.asList("1", "2")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsIfTheBatchIsBiggerThanTheDataset() {
+        MiniBatches.fromStream(() -> IntStream.range(0, 4).boxed(), 4, 5);
+    }
+}
@@ -0,0 +1,140 @@
+package io.improbable.keanu.network;
+
+import com.google.common.collect.ImmutableMap;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.ConstantVertex;
+import io.improbable.keanu.vertices.bool.BooleanVertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchLogProbCalculatorTest {
+
+    private GaussianVertex A;
+    private GaussianVertex B;
+    private DoubleVertex D;
+
+    private DoubleTensor initialA;
+    private DoubleTensor initialB;
+
+    @Before
+    public void setup() {
+        initialA = DoubleTensor.create(0.5, -1.0);
+        initialB = DoubleTensor.create(1.5, 2.0);
+
+        A = new GaussianVertex(new long[]{2}, 0.0, 1.0);
+        B = new GaussianVertex(new long[]{2}, 0.0, 1.0);
+        D = new GaussianVertex(A.plus(B).times(2.0), 1.0);
+
+        A.setValue(initialA);
+        B.setValue(initialB);
+        D.observe(DoubleTensor.create(3.0, 1.0));
+    }
+
+    @Test
+    public void matchesTheLogProbOfEachPoint() {
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(D.getConnectedGraph());
+
+        assertBatchMatchesEachPoint(model, somePoints());
+    }
+
+    @Test
+    public void matchesTheLogProbOfEachPointWhenTheGraphIsNotElementwise() {
+        GaussianVertex E = new GaussianVertex(A.sum(), 1.0);
+        E.observe(0.5);
+
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(E.getConnectedGraph());
+
+        assertBatchMatchesEachPoint(model, somePoints());
+    }
+
+    @Test
+    public void includesObservedConstraintsDownstreamOfTheInputs() {
+        BooleanVertex constraint = A.sum().greaterThan(ConstantVertex.of(0.0));
+        constraint.observe(true);
+
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(D.getConnectedGraph());
+        double[] batch = model.batchLogProb(somePoints());
+
+        assertEquals(Double.NEGATIVE_INFINITY, batch[0], 0.0);
+        assertTrue(batch[1] > Double.NEGATIVE_INFINITY);
+        assertEquals(Double.NEGATIVE_INFINITY, batch[2], 0.0);
+        assertBatchMatchesEachPoint(model, somePoints());
+    }
+
+    @Test
+    public void usesTheCurrentValueOfInputsMissingFromAPoint() {
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(D.getConnectedGraph());
+
+        List<Map<VariableReference, ?>> points = new ArrayList<>();
+        points.add(ImmutableMap.of(A.getId(), DoubleTensor.create(1.0, 2.0)));
+        points.add(ImmutableMap.of(B.getId(), DoubleTensor.create(-1.0, 0.0)));
+
+        assertBatchMatchesEachPoint(model, points);
+    }
+
+    @Test
+    public void restoresTheValuesOfTheModel() {
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(D.getConnectedGraph());
+        double logProbBefore = model.logProb();
+
+        model.batchLogProb(somePoints());
+
+        assertEquals(initialA, A.getValue());
+        assertEquals(initialB, B.getValue());
+        assertEquals(logProbBefore, model.logProb(), 1e-10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAPointWithAnUnknownInput() {
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(A.getConnectedGraph());
+        GaussianVertex unknown = new GaussianVertex(0.0, 1.0);
+
+        model.batchLogProb(Arrays.asList(ImmutableMap.of(unknown.getId(), DoubleTensor.scalar(1.0))));
+    }
+
+    @Test
+    public void matchesTheLogProbGradientsOfEachPoint() {
+        KeanuProbabilisticModelWithGradient model = new KeanuProbabilisticModelWithGradient(D.getConnectedGraph());
+        List<Map<VariableReference, ?>> points = somePoints();
+
+        List<Map<? extends VariableReference, DoubleTensor>> batch = model.batchLogProbGradients(points);
+
+        assertEquals(initialA, A.getValue());
+        for (int i = 0; i < points.size(); i++) {
+            Map<? extends VariableReference, DoubleTensor> expected = model.logProbGradients(points.get(i));
+            assertEquals(expected.get(A.getId()), batch.get(i).get(A.getId()));
+            assertEquals(expected.get(B.getId()), batch.get(i).get(B.getId()));
+        }
+    }
+
+    private List<Map<VariableReference, ?>> somePoints() {
+        List<Map<VariableReference, ?>> points = new ArrayList<>();
+        points.add(ImmutableMap.of(A.getId(), initialA, B.getId(), initialB));
+        points.add(ImmutableMap.of(A.getId(), DoubleTensor.create(1.0, 2.0), B.getId(), DoubleTensor.create(-0.5, 0.25)));
+        points.add(ImmutableMap.of(A.getId(), DoubleTensor.create(-3.0, 0.0), B.getId(), DoubleTensor.create(4.0, -2.0)));
+        return points;
+    }
+
+    private static void assertBatchMatchesEachPoint(KeanuProbabilisticModel model, List<Map<VariableReference, ?>> points) {
+        double[] batch = model.batchLogProb(points);
+
+        double[] expected = new double[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            expected[i] = model.logProb(points.get(i));
+        }
+
+        assertArrayEquals(expected, batch, 1e-8);
+    }
+}
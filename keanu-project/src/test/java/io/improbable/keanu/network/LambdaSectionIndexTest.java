@@ -0,0 +1,134 @@
+package io.improbable.keanu.network;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LambdaSectionIndexTest {
+
+    private AtomicInteger logProbCount;
+    private GaussianVertex A;
+    private GaussianVertex B;
+    private DoubleVertex D;
+
+    @Before
+    public void setup() {
+        logProbCount = new AtomicInteger(0);
+
+        A = new GaussianVertex(0.0, 1.0);
+        B = new GaussianVertex(0.0, 1.0);
+        D = new GaussianVertex(A.plus(B), 1.0) {
+            @Override
+            public double logProb(DoubleTensor value) {
+                logProbCount.incrementAndGet();
+                return super.logProb(value);
+            }
+        };
+
+        A.setValue(2.0);
+        B.setValue(3.0);
+        D.observe(6.0);
+        new BayesianNetwork(D.getConnectedGraph()).cascadeObservations();
+    }
+
+    @Test
+    public void matchesLambdaSectionSnapshot() {
+        LambdaSectionIndex index = LambdaSectionIndex.build(Arrays.asList(A, B, D));
+        LambdaSectionSnapshot snapshot = new LambdaSectionSnapshot();
+
+        assertEquals(snapshot.logProb(ImmutableSet.of(A)), index.logProb(Collections.singletonList(A)), 1e-10);
+        assertEquals(snapshot.logProb(ImmutableSet.of(A, B)), index.logProb(Arrays.asList(A, B)), 1e-10);
+
+        A.setAndCascade(DoubleTensor.scalar(1.5));
+
+        assertEquals(snapshot.logProb(ImmutableSet.of(A)), index.logProb(Collections.singletonList(A)), 1e-10);
+        assertEquals(snapshot.logProb(ImmutableSet.of(A, B)), index.logProb(Arrays.asList(A, B)), 1e-10);
+    }
+
+    @Test
+    public void reusesCachedLogProbWhileStateIsUnchanged() {
+        LambdaSectionIndex index = LambdaSectionIndex.build(Arrays.asList(A, B));
+        List<Vertex> sources = Collections.singletonList(A);
+
+        index.logProb(sources);
+        index.logProb(sources);
+        assertEquals(1, logProbCount.get());
+
+        A.setAndCascade(DoubleTensor.scalar(1.5));
+        index.logProb(sources);
+        assertEquals(2, logProbCount.get());
+    }
+
+    @Test
+    public void reusesCachedLogProbAfterRollingBack() {
+        LambdaSectionIndex index = LambdaSectionIndex.build(Arrays.asList(A, B));
+        List<Vertex> sources = Collections.singletonList(A);
+        NetworkSnapshot snapshot = NetworkSnapshot.create(ImmutableSet.of(A, A.getChildren().iterator().next(), D));
+
+        double before = index.logProb(sources);
+        A.setAndCascade(DoubleTensor.scalar(1.5));
+        index.logProb(sources);
+        snapshot.apply();
+
+        assertEquals(before, index.logProb(sources), 0.0);
+        assertEquals(2, logProbCount.get());
+    }
+
+    @Test
+    public void isStaleAfterTopologyChanges() {
+        LambdaSectionIndex index = LambdaSectionIndex.build(Arrays.asList(A, B));
+
+        new GaussianVertex(A, 1.0);
+
+        assertTrue(index.isStale());
+    }
+
+    @Test
+    public void isNotStaleWhenAnotherNetworkChanges() {
+        LambdaSectionIndex index = LambdaSectionIndex.build(Arrays.asList(A, B));
+
+        new GaussianVertex(new GaussianVertex(0.0, 1.0), 1.0);
+
+        assertFalse(index.isStale());
+    }
+
+    @Test
+    public void onlyTheSectionsOfTheChangedSourcesAreStale() {
+        LambdaSectionIndex index = LambdaSectionIndex.build(Arrays.asList(A, B));
+
+        new GaussianVertex(B, 1.0);
+
+        assertTrue(index.isStale(Collections.singletonList(B)));
+        assertFalse(index.isStale(Collections.singletonList(A)));
+    }
+
+    @Test
+    public void logProbAfterMatchesFullLogProb() {
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(D.getConnectedGraph());
+
+        double logProbBefore = model.logProb();
+        double logProbAfter = model.logProbAfter(ImmutableMap.of(A.getId(), DoubleTensor.scalar(0.5)), logProbBefore);
+
+        assertEquals(model.logProb(), logProbAfter, 1e-10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsIfSourceWasNotIndexed() {
+        LambdaSectionIndex index = LambdaSectionIndex.build(Collections.singletonList(A));
+        index.logProb(Collections.singletonList(B));
+    }
+}
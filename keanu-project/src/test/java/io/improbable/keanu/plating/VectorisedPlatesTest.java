@@ -0,0 +1,234 @@
+package io.improbable.keanu.plating;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.ConstantVertex;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexLabel;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.DoubleProxyVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.ExponentialVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class VectorisedPlatesTest {
+
+    private static class Row {
+        public final double x;
+        public final double y;
+
+        public Row(double x, double y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private static final VertexLabel X_LABEL = new VertexLabel("x");
+    private static final VertexLabel Y_LABEL = new VertexLabel("y");
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private List<Row> rows;
+    private GaussianVertex m;
+    private GaussianVertex b;
+
+    @Before
+    public void setup() {
+        rows = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            rows.add(new Row(i, 2.0 * i + 1.0 + 0.1 * Math.sin(i)));
+        }
+
+        m = new GaussianVertex(0, 1);
+        m.setValue(2.5);
+        b = new GaussianVertex(0, 1);
+        b.setValue(0.5);
+    }
+
+    private void regression(Plate plate, Row row) {
+        DoubleVertex x = ConstantVertex.of(row.x);
+        x.setLabel(X_LABEL);
+        GaussianVertex y = new GaussianVertex(x.times(m).plus(b), 1.0);
+        y.setLabel(Y_LABEL);
+        y.observe(row.y);
+        plate.addAll(x, y);
+    }
+
+    @Test
+    public void itHasTheSameLogProbAsSeparatePlates() {
+        Plates plates = new PlateBuilder<Row>()
+            .fromIterator(rows.iterator())
+            .withFactory(this::regression)
+            .build();
+
+        double expectedLogProb = 0.0;
+        for (Plate plate : plates) {
+            GaussianVertex y = plate.get(Y_LABEL);
+            expectedLogProb += y.logProb(y.getValue());
+        }
+
+        VectorisedPlates vectorisedPlates = new PlateBuilder<Row>()
+            .fromIterator(rows.iterator())
+            .withFactory(this::regression)
+            .buildVectorised();
+
+        GaussianVertex y = vectorisedPlates.get(Y_LABEL);
+
+        assertEquals(rows.size(), vectorisedPlates.size());
+        assertArrayEquals(new long[]{rows.size()}, y.getShape());
+        assertEquals(expectedLogProb, y.logProb(y.getValue()), 1e-10);
+    }
+
+    @Test
+    public void itStacksTheValuesOfEachPlateAndHasAViewOfEachPlate() {
+        VectorisedPlates vectorisedPlates = new PlateBuilder<Row>()
+            .fromIterator(rows.iterator())
+            .withFactory(this::regression)
+            .buildVectorised();
+
+        DoubleVertex y = vectorisedPlates.get(Y_LABEL);
+        DoubleVertex yOfThirdPlate = vectorisedPlates.get(Y_LABEL, 3);
+
+        assertArrayEquals(rows.stream().mapToDouble(row -> row.y).toArray(), y.getValue().asFlatDoubleArray(), 0.0);
+        assertEquals(rows.get(3).y, yOfThirdPlate.getValue().scalar(), 0.0);
+        assertEquals(Y_LABEL.withExtraNamespace("Plate_3"), yOfThirdPlate.getLabel());
+        assertThat(vectorisedPlates.get(Y_LABEL, 3), sameInstance(yOfThirdPlate));
+        assertEquals(rows.get(5).x, vectorisedPlates.<DoubleVertex>get(X_LABEL, 5).getValue().scalar(), 0.0);
+    }
+
+    @Test
+    public void itDetachesEachPlateFromTheVerticesOutsideIt() {
+        VectorisedPlates vectorisedPlates = new PlateBuilder<Row>()
+            .fromIterator(rows.iterator())
+            .withFactory(this::regression)
+            .buildVectorised();
+
+        DoubleVertex y = vectorisedPlates.get(Y_LABEL);
+        Vertex<?> mean = y.getParents().iterator().next();
+
+        assertThat(b.getChildren(), contains(mean));
+        assertEquals(1, m.getChildren().size());
+    }
+
+    @Test
+    public void itBatchesVerticesWithNonScalarValuesFromACount() {
+        VertexLabel zLabel = new VertexLabel("z");
+        VectorisedPlates vectorisedPlates = new PlateBuilder<>()
+            .count(4)
+            .withFactory(plate -> {
+                GaussianVertex z = new GaussianVertex(new long[]{2}, m, 1.0);
+                z.setLabel(zLabel);
+                z.setValue(DoubleTensor.create(1.0, 2.0));
+                plate.add(z);
+            })
+            .buildVectorised();
+
+        DoubleVertex z = vectorisedPlates.get(zLabel);
+        DoubleVertex zOfLastPlate = vectorisedPlates.get(zLabel, 3);
+
+        assertArrayEquals(new long[]{4, 2}, z.getShape());
+        assertArrayEquals(new long[]{2}, zOfLastPlate.getShape());
+        assertArrayEquals(new double[]{1.0, 2.0}, zOfLastPlate.getValue().asFlatDoubleArray(), 0.0);
+    }
+
+    @Test
+    public void itAlignsTheBatchDimensionOfTheParentsOfProbabilisticVertices() {
+        VertexLabel zLabel = new VertexLabel("z");
+        VectorisedPlates vectorisedPlates = new PlateBuilder<Row>()
+            .fromIterator(rows.iterator())
+            .withFactory((plate, row) -> {
+                DoubleVertex x = ConstantVertex.of(row.x);
+                GaussianVertex z = new GaussianVertex(new long[]{2}, x, 1.0);
+                z.setLabel(zLabel);
+                z.observe(DoubleTensor.create(row.y, -row.y));
+                plate.add(z);
+            })
+            .buildVectorised();
+
+        double expectedLogProb = 0.0;
+        for (Row row : rows) {
+            GaussianVertex z = new GaussianVertex(new long[]{2}, row.x, 1.0);
+            expectedLogProb += z.logProb(DoubleTensor.create(row.y, -row.y));
+        }
+
+        GaussianVertex z = vectorisedPlates.get(zLabel);
+
+        assertArrayEquals(new long[]{rows.size(), 2}, z.getShape());
+        assertEquals(expectedLogProb, z.logProb(z.getValue()), 1e-10);
+    }
+
+    @Test
+    public void itThrowsIfAVertexWasCreatedOutsideThePlateFactory() {
+        expectedException.expect(PlateConstructionException.class);
+        expectedException.expectMessage("was created outside the plate factory");
+
+        GaussianVertex y = new GaussianVertex(m, 1.0);
+        y.setLabel(Y_LABEL);
+
+        new PlateBuilder<>()
+            .count(2)
+            .withFactory(plate -> plate.add(y))
+            .buildVectorised();
+    }
+
+    @Test
+    public void itThrowsIfThePlatesHaveDifferentStructures() {
+        expectedException.expect(PlateConstructionException.class);
+        expectedException.expectMessage("does not have the same structure as the first plate");
+
+        new PlateBuilder<Row>()
+            .fromIterator(rows.iterator())
+            .withFactory((plate, row) -> {
+                DoubleVertex y = row.x < 5 ? new GaussianVertex(m, 1.0) : new ExponentialVertex(1.0);
+                y.setLabel(Y_LABEL);
+                y.observe(row.y);
+                plate.add(y);
+            })
+            .buildVectorised();
+    }
+
+    @Test
+    public void itThrowsIfAVertexCannotBeBatched() {
+        expectedException.expect(PlateConstructionException.class);
+        expectedException.expectMessage("cannot be vectorised");
+
+        new PlateBuilder<Row>()
+            .fromIterator(rows.iterator())
+            .withFactory((plate, row) -> {
+                DoubleVertex y = new GaussianVertex(new long[]{2}, m, 1.0).sum();
+                y.setLabel(Y_LABEL);
+                plate.add(y);
+            })
+            .buildVectorised();
+    }
+
+    @Test
+    public void itThrowsIfThePlatesHaveProxyVertices() {
+        expectedException.expect(PlateConstructionException.class);
+        expectedException.expectMessage("Plates with transition proxies cannot be vectorised");
+
+        new PlateBuilder<Row>()
+            .withInitialState(Y_LABEL, m)
+            .fromIterator(rows.iterator())
+            .withFactory((plate, row) -> {
+                DoubleVertex previousY = new DoubleProxyVertex(PlateBuilder.proxyFor(Y_LABEL));
+                plate.add(previousY);
+                GaussianVertex y = new GaussianVertex(previousY, 1.0);
+                y.setLabel(Y_LABEL);
+                plate.add(y);
+            })
+            .buildVectorised();
+    }
+}
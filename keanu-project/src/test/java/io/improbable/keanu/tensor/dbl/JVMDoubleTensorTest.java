@@ -0,0 +1,281 @@
+package io.improbable.keanu.tensor.dbl;
+
+import com.google.common.collect.ImmutableList;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JVMDoubleTensorTest {
+
+    private static final long[][][] BROADCASTABLE_SHAPES = new long[][][]{
+        {{2, 3}, {2, 3}},
+        {{2, 3}, {3}},
+        {{3}, {2, 3}},
+        {{2, 2, 2, 1}, {2, 2, 1, 1}},
+        {{2, 3}, {1}},
+        {{1}, {2, 3}}
+    };
+
+    private final long originalMaxLength = JVMDoubleTensor.getMaxLength();
+
+    @After
+    public void restoreMaxLength() {
+        JVMDoubleTensor.setMaxLength(originalMaxLength);
+    }
+
+    @Test
+    public void factoriesChooseJVMTensorsForSmallShapesAndNd4jForLargeOnes() {
+        JVMDoubleTensor.setMaxLength(10);
+
+        assertThat(DoubleTensor.create(1, 2, 3), instanceOf(JVMDoubleTensor.class));
+        assertThat(DoubleTensor.zeros(2, 5), instanceOf(JVMDoubleTensor.class));
+        assertThat(KeanuRandom.getDefaultRandom().nextGaussian(new long[]{2, 3}), instanceOf(JVMDoubleTensor.class));
+
+        assertThat(DoubleTensor.ones(3, 4), instanceOf(Nd4jDoubleTensor.class));
+        assertThat(KeanuRandom.getDefaultRandom().nextGaussian(new long[]{11}), instanceOf(Nd4jDoubleTensor.class));
+        assertThat(DoubleTensor.scalar(1.0), instanceOf(ScalarDoubleTensor.class));
+    }
+
+    @Test
+    public void canBroadcastLikeNd4j() {
+        for (long[][] shapes : BROADCASTABLE_SHAPES) {
+            DoubleTensor left = DoubleTensor.arange(1, 1 + TensorShape.getLength(shapes[0])).reshape(shapes[0]);
+            DoubleTensor right = DoubleTensor.arange(2, 2 + TensorShape.getLength(shapes[1])).reshape(shapes[1]);
+            DoubleTensor nd4jLeft = Nd4jDoubleTensor.create(left.asFlatDoubleArray(), shapes[0]);
+            DoubleTensor nd4jRight = Nd4jDoubleTensor.create(right.asFlatDoubleArray(), shapes[1]);
+
+            assertMatchesNd4j(nd4jLeft.plus(nd4jRight), left.plus(right));
+            assertMatchesNd4j(nd4jLeft.minus(nd4jRight), left.minus(right));
+            assertMatchesNd4j(nd4jLeft.times(nd4jRight), left.times(right));
+            assertMatchesNd4j(nd4jLeft.div(nd4jRight), left.div(right));
+            assertMatchesNd4j(nd4jLeft.duplicate().minusInPlace(nd4jRight), left.duplicate().minusInPlace(right));
+        }
+    }
+
+    @Test
+    public void inPlaceOperationsMatchNd4jWhenBroadcasting() {
+        List<BinaryOperator<DoubleTensor>> broadcastingOperations = ImmutableList.of(
+            DoubleTensor::plusInPlace,
+            DoubleTensor::minusInPlace,
+            DoubleTensor::timesInPlace,
+            DoubleTensor::divInPlace
+        );
+        List<BinaryOperator<DoubleTensor>> elementwiseOperations = ImmutableList.of(
+            DoubleTensor::powInPlace,
+            DoubleTensor::minInPlace,
+            DoubleTensor::maxInPlace
+        );
+
+        for (long[][] shapes : BROADCASTABLE_SHAPES) {
+            DoubleTensor left = DoubleTensor.arange(1, 1 + TensorShape.getLength(shapes[0])).reshape(shapes[0]).div(4);
+            DoubleTensor right = DoubleTensor.arange(2, 2 + TensorShape.getLength(shapes[1])).reshape(shapes[1]).div(3);
+            DoubleTensor nd4jLeft = Nd4jDoubleTensor.create(left.asFlatDoubleArray(), shapes[0]);
+            DoubleTensor nd4jRight = Nd4jDoubleTensor.create(right.asFlatDoubleArray(), shapes[1]);
+
+            List<BinaryOperator<DoubleTensor>> operations = new ArrayList<>(broadcastingOperations);
+            if (Arrays.equals(shapes[0], shapes[1]) || left.getLength() == 1 || right.getLength() == 1) {
+                operations.addAll(elementwiseOperations);
+            }
+
+            for (BinaryOperator<DoubleTensor> operation : operations) {
+                DoubleTensor expected = operation.apply(nd4jLeft.duplicate(), nd4jRight);
+
+                assertMatchesNd4j(expected, operation.apply(left.duplicate(), right));
+                assertMatchesNd4j(expected, operation.apply(left.duplicate(), nd4jRight));
+                assertMatchesNd4j(expected, operation.apply(nd4jLeft.duplicate(), right));
+            }
+        }
+    }
+
+    @Test
+    public void unaryInPlaceOperationsMatchNd4j() {
+        List<UnaryOperator<DoubleTensor>> operations = ImmutableList.of(
+            DoubleTensor::absInPlace, DoubleTensor::acosInPlace, DoubleTensor::asinInPlace,
+            DoubleTensor::atanInPlace, DoubleTensor::ceilInPlace, DoubleTensor::cosInPlace,
+            DoubleTensor::expInPlace, DoubleTensor::floorInPlace, DoubleTensor::logInPlace,
+            DoubleTensor::reciprocalInPlace, DoubleTensor::sigmoidInPlace, DoubleTensor::sinInPlace,
+            DoubleTensor::sqrtInPlace, DoubleTensor::tanInPlace, DoubleTensor::unaryMinusInPlace,
+            x -> x.plusInPlace(2.0), x -> x.timesInPlace(3.0), x -> x.powInPlace(2.0), x -> x.setAllInPlace(5.0)
+        );
+
+        double[] values = new double[]{0.1, 0.35, 0.6, 0.85, 0.2, 0.45};
+        DoubleTensor jvm = JVMDoubleTensor.create(values, new long[]{2, 3});
+        DoubleTensor nd4j = Nd4jDoubleTensor.create(values, new long[]{2, 3});
+
+        for (UnaryOperator<DoubleTensor> operation : operations) {
+            DoubleTensor jvmInput = jvm.duplicate();
+            DoubleTensor result = operation.apply(jvmInput);
+
+            assertTrue(result == jvmInput);
+            assertMatchesNd4j(operation.apply(nd4j.duplicate()), result);
+        }
+    }
+
+    @Test
+    public void canBroadcastBothOperands() {
+        DoubleTensor column = DoubleTensor.create(new double[]{1, 2}, 2, 1);
+        DoubleTensor row = DoubleTensor.create(new double[]{10, 20, 30}, 1, 3);
+
+        DoubleTensor result = column.plus(row);
+
+        assertArrayEquals(new long[]{2, 3}, result.getShape());
+        assertArrayEquals(new double[]{11, 21, 31, 12, 22, 32}, result.asFlatDoubleArray(), 0.0);
+    }
+
+    @Test
+    public void canMixWithNd4jAndScalarTensors() {
+        DoubleTensor jvm = JVMDoubleTensor.create(new double[]{1, 2, 3, 4}, new long[]{2, 2});
+        DoubleTensor nd4j = Nd4jDoubleTensor.create(new double[]{10, 20}, new long[]{1, 2});
+
+        assertArrayEquals(new double[]{11, 22, 13, 24}, jvm.plus(nd4j).asFlatDoubleArray(), 0.0);
+        assertArrayEquals(new double[]{11, 22, 13, 24}, nd4j.plus(jvm).asFlatDoubleArray(), 0.0);
+        assertArrayEquals(new double[]{1, 0, -1, -2}, DoubleTensor.scalar(2).minus(jvm).asFlatDoubleArray(), 0.0);
+        assertArrayEquals(new long[]{2, 2}, DoubleTensor.scalar(2).minus(jvm).getShape());
+    }
+
+    @Test
+    public void isEqualToAnNd4jTensorWithTheSameValuesAndHasTheSameHashCode() {
+        DoubleTensor jvm = JVMDoubleTensor.create(new double[]{1, 2, 3, 4}, new long[]{2, 2});
+        DoubleTensor nd4j = Nd4jDoubleTensor.create(new double[]{1, 2, 3, 4}, new long[]{2, 2});
+
+        assertEquals(nd4j, jvm);
+        assertEquals(jvm, nd4j);
+        assertEquals(nd4j.hashCode(), jvm.hashCode());
+    }
+
+    @Test
+    public void equalsAndHashCodeCompareValuesExactly() {
+        DoubleTensor nd4j = Nd4jDoubleTensor.create(new double[]{1, 2, 3, 4}, new long[]{2, 2});
+        DoubleTensor nearlyTheSame = Nd4jDoubleTensor.create(new double[]{1, 2, 3, 4 + 1e-9}, new long[]{2, 2});
+        DoubleTensor negativeZero = Nd4jDoubleTensor.create(new double[]{-0.0}, new long[]{1, 1});
+        DoubleTensor positiveZero = Nd4jDoubleTensor.create(new double[]{0.0}, new long[]{1, 1});
+
+        assertNotEquals(nd4j, nearlyTheSame);
+        assertNotEquals(negativeZero, positiveZero);
+        assertNotEquals(JVMDoubleTensor.create(new double[]{0.0}, new long[]{1, 1}), negativeZero);
+        assertEquals(nd4j, Nd4jDoubleTensor.create(new double[]{1, 2, 3, 4}, new long[]{2, 2}));
+        assertEquals(nd4j.hashCode(), Nd4jDoubleTensor.create(new double[]{1, 2, 3, 4}, new long[]{2, 2}).hashCode());
+    }
+
+    @Test
+    public void viewsOfNd4jTensorsHaveTheSameHashCodeAsEqualJVMTensors() {
+        DoubleTensor nd4jTranspose = Nd4jDoubleTensor.create(new double[]{1, 2, 3, 4, 5, 6}, new long[]{2, 3}).transpose();
+        DoubleTensor jvmTranspose = JVMDoubleTensor.create(new double[]{1, 2, 3, 4, 5, 6}, new long[]{2, 3}).transpose();
+
+        assertEquals(jvmTranspose, nd4jTranspose);
+        assertEquals(nd4jTranspose, jvmTranspose);
+        assertEquals(jvmTranspose.hashCode(), nd4jTranspose.hashCode());
+    }
+
+    @Test
+    public void aScalarHasTheSameHashCodeAsAnEqualJVMTensor() {
+        DoubleTensor scalar = DoubleTensor.scalar(2.5).reshape(1, 1);
+        DoubleTensor jvm = JVMDoubleTensor.create(new double[]{2.5}, new long[]{1, 1});
+
+        assertEquals(jvm, scalar);
+        assertEquals(scalar, jvm);
+        assertEquals(jvm.hashCode(), scalar.hashCode());
+    }
+
+    @Test
+    public void canSumOverDimensions() {
+        DoubleTensor x = DoubleTensor.arange(0, 24).reshape(2, 3, 4);
+        DoubleTensor expected = Nd4jDoubleTensor.arange(0, 24).reshape(2, 3, 4);
+
+        assertMatchesNd4j(expected.sum(0), x.sum(0));
+        assertMatchesNd4j(expected.sum(1, 2), x.sum(1, 2));
+        assertMatchesNd4j(expected.sum(-1), x.sum(-1));
+        assertEquals(0, x.sum(0, 1, 2).getRank());
+    }
+
+    @Test
+    public void canPermuteTransposeSliceAndSplit() {
+        DoubleTensor x = DoubleTensor.arange(0, 24).reshape(2, 3, 4);
+        DoubleTensor expected = Nd4jDoubleTensor.arange(0, 24).reshape(2, 3, 4);
+
+        assertMatchesNd4j(expected.permute(2, 0, 1), x.permute(2, 0, 1));
+        assertMatchesNd4j(expected.transpose(), x.transpose());
+        assertMatchesNd4j(expected.slice(1, 2), x.slice(1, 2));
+
+        List<DoubleTensor> expectedSplits = expected.split(2, 1, 4);
+        List<DoubleTensor> splits = x.split(2, 1, 4);
+        for (int i = 0; i < splits.size(); i++) {
+            assertMatchesNd4j(expectedSplits.get(i), splits.get(i));
+        }
+    }
+
+    @Test
+    public void canArgMaxAlongAxis() {
+        DoubleTensor x = DoubleTensor.create(new double[]{1, 5, 3, 7, 2, 0}, 2, 3);
+
+        assertEquals(IntegerTensor.create(new int[]{1, 0, 0}, 3), x.argMax(0));
+        assertEquals(IntegerTensor.create(new int[]{1, 0}, 2), x.argMax(1));
+        assertEquals(3, x.argMax());
+    }
+
+    @Test
+    public void canConcatAndStack() {
+        DoubleTensor a = DoubleTensor.arange(0, 6).reshape(2, 3);
+        DoubleTensor b = DoubleTensor.arange(6, 12).reshape(2, 3);
+
+        DoubleTensor concatenated = DoubleTensor.concat(1, a, b);
+        assertArrayEquals(new long[]{2, 6}, concatenated.getShape());
+        assertArrayEquals(new double[]{0, 1, 2, 6, 7, 8, 3, 4, 5, 9, 10, 11}, concatenated.asFlatDoubleArray(), 0.0);
+
+        DoubleTensor stacked = DoubleTensor.stack(0, a, b);
+        assertArrayEquals(new long[]{2, 2, 3}, stacked.getShape());
+        assertArrayEquals(DoubleTensor.arange(0, 12).asFlatDoubleArray(), stacked.asFlatDoubleArray(), 0.0);
+    }
+
+    @Test
+    public void delegatesMatrixOperationsToNd4j() {
+        DoubleTensor a = DoubleTensor.create(new double[]{4, 2, 2, 3}, 2, 2);
+        DoubleTensor expectedA = Nd4jDoubleTensor.create(new double[]{4, 2, 2, 3}, new long[]{2, 2});
+
+        assertMatchesNd4j(expectedA.matrixMultiply(expectedA), a.matrixMultiply(a));
+        assertMatchesNd4j(expectedA.matrixInverse(), a.matrixInverse());
+        assertEquals(expectedA.determinant(), a.determinant(), 1e-10);
+        assertThat(a.matrixMultiply(a), instanceOf(JVMDoubleTensor.class));
+    }
+
+    @Test
+    public void inPlaceOperationsMutateTheTensor() {
+        DoubleTensor x = DoubleTensor.create(1, 2, 3);
+        DoubleTensor result = x.timesInPlace(DoubleTensor.create(2, 2, 2)).plusInPlace(1.0);
+
+        assertTrue(result == x);
+        assertArrayEquals(new double[]{3, 5, 7}, x.asFlatDoubleArray(), 0.0);
+    }
+
+    @Test
+    public void roundsHalvesAwayFromZero() {
+        DoubleTensor x = DoubleTensor.create(-2.5, -1.4, 0.5, 2.5);
+        assertArrayEquals(new double[]{-3, -1, 1, 3}, x.round().asFlatDoubleArray(), 0.0);
+    }
+
+    @Test
+    public void canReshapeWithAWildcardDimension() {
+        DoubleTensor x = DoubleTensor.arange(0, 12).reshape(3, -1);
+        assertArrayEquals(new long[]{3, 4}, x.getShape());
+    }
+
+    private static void assertMatchesNd4j(DoubleTensor expected, DoubleTensor actual) {
+        assertArrayEquals(expected.getShape(), actual.getShape());
+        assertArrayEquals(expected.asFlatDoubleArray(), actual.asFlatDoubleArray(), 1e-10);
+    }
+}
@@ -0,0 +1,103 @@
+package io.improbable.keanu.util;
+
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.PoissonVertex;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class Py4jSampleExporterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final GaussianVertex matrix = new GaussianVertex(new long[]{2, 2}, 0, 1);
+    private final PoissonVertex count = new PoissonVertex(1.0);
+
+    private NetworkSamples samples() {
+        matrix.setLabel("matrix");
+
+        List<NetworkSample> networkSamples = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Map<VariableReference, Object> values = new HashMap<>();
+            values.put(matrix.getId(), DoubleTensor.create(new double[]{i, i + 0.25, i + 0.5, i + 0.75}, 2, 2));
+            values.put(count.getId(), IntegerTensor.scalar(10 * i));
+            networkSamples.add(new NetworkSample(values, 0.0));
+        }
+        return NetworkSamples.from(networkSamples);
+    }
+
+    @Test
+    public void writesHeaderAndSamplesOfEachVariable() {
+        byte[] bytes = Py4jSampleExporter.toByteArray(samples(), Arrays.asList(matrix, count));
+        assertExported(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    @Test
+    public void writesTheSameBytesToAFile() throws Exception {
+        NetworkSamples samples = samples();
+        File file = temporaryFolder.newFile("samples.bin");
+
+        Py4jSampleExporter.toFile(samples, Arrays.asList(matrix, count), file.getPath());
+
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        assertArrayEquals(Py4jSampleExporter.toByteArray(samples, Arrays.asList(matrix, count)), bytes);
+    }
+
+    private void assertExported(ByteBuffer buffer) {
+        assertEquals(2, buffer.getInt());
+        assertEquals(3, buffer.getInt());
+
+        assertEquals("matrix", readLabel(buffer));
+        assertEquals(Py4jSampleExporter.FLOAT64, buffer.getInt());
+        assertEquals(2, buffer.getInt());
+        assertArrayEquals(new long[]{2, 2}, new long[]{buffer.getLong(), buffer.getLong()});
+        long matrixOffset = buffer.getLong();
+
+        readLabel(buffer);
+        assertEquals(Py4jSampleExporter.INT32, buffer.getInt());
+        assertEquals(0, buffer.getInt());
+        long countOffset = buffer.getLong();
+
+        assertEquals(0, matrixOffset % 8);
+        assertEquals(0, countOffset % 8);
+
+        buffer.position((int) matrixOffset);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, buffer.getDouble(), 0.0);
+            assertEquals(i + 0.25, buffer.getDouble(), 0.0);
+            assertEquals(i + 0.5, buffer.getDouble(), 0.0);
+            assertEquals(i + 0.75, buffer.getDouble(), 0.0);
+        }
+
+        buffer.position((int) countOffset);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(10 * i, buffer.getInt());
+        }
+    }
+
+    private static String readLabel(ByteBuffer buffer) {
+        byte[] label = new byte[buffer.getInt()];
+        buffer.get(label);
+        return new String(label, StandardCharsets.UTF_8);
+    }
+}
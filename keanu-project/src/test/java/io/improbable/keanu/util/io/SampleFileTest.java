@@ -0,0 +1,221 @@
+package io.improbable.keanu.util.io;
+
+import com.google.common.collect.ImmutableMap;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.mcmc.MetropolisHastings;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import io.improbable.keanu.vertices.bool.probabilistic.BernoulliVertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.PoissonVertex;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SampleFileTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path file;
+    private GaussianVertex gaussian;
+    private PoissonVertex poisson;
+    private BernoulliVertex bernoulli;
+    private List<? extends Variable> variables;
+
+    @Before
+    public void setup() throws IOException {
+        file = temporaryFolder.newFile("samples.bin").toPath();
+        createModel();
+    }
+
+    private void createModel() {
+        gaussian = new GaussianVertex(new long[]{2}, 0.0, 1.0);
+        poisson = new PoissonVertex(1.0);
+        bernoulli = new BernoulliVertex(0.5);
+        gaussian.setValue(DoubleTensor.create(0.0, 0.0));
+        poisson.setValue(IntegerTensor.scalar(0));
+        bernoulli.setValue(BooleanTensor.scalar(false));
+        variables = Arrays.asList(gaussian, poisson, bernoulli);
+    }
+
+    @Test
+    public void canReadBackSamplesThatSpanSeveralBlocks() throws IOException {
+        int sampleCount = 10;
+        try (SampleFileWriter writer = new SampleFileWriter(file, variables, 3)) {
+            for (int i = 0; i < sampleCount; i++) {
+                writer.append(sample(i));
+            }
+        }
+
+        NetworkSamples samples = SampleFileReader.open(file, variables);
+
+        assertEquals(sampleCount, samples.size());
+        for (int i = 0; i < sampleCount; i++) {
+            assertSampleIs(i, samples, i);
+        }
+    }
+
+    @Test
+    public void canReadTheWrittenBlocksOfAFileThatIsStillBeingWritten() throws IOException {
+        try (SampleFileWriter writer = new SampleFileWriter(file, variables, 3)) {
+            for (int i = 0; i < 7; i++) {
+                writer.append(sample(i));
+            }
+
+            NetworkSamples samples = SampleFileReader.open(file, variables);
+
+            assertEquals(6, samples.size());
+            assertSampleIs(5, samples, 5);
+        }
+    }
+
+    @Test
+    public void canResumeWritingAFileAfterTheSamplesThatWereFlushed() throws IOException {
+        long position;
+        try (SampleFileWriter writer = new SampleFileWriter(file, variables, 3)) {
+            for (int i = 0; i < 4; i++) {
+                writer.append(sample(i));
+            }
+            writer.flush();
+            position = writer.getPosition();
+            for (int i = 0; i < 3; i++) {
+                writer.append(sample(-1));
+            }
+        }
+
+        try (SampleFileWriter writer = SampleFileWriter.resume(file, variables, position, 4)) {
+            for (int i = 4; i < 9; i++) {
+                writer.append(sample(i));
+            }
+            assertEquals(9, writer.getSampleCount());
+        }
+
+        NetworkSamples samples = SampleFileReader.open(file, variables);
+
+        assertEquals(9, samples.size());
+        for (int i = 0; i < 9; i++) {
+            assertSampleIs(i, samples, i);
+        }
+    }
+
+    @Test
+    public void canReadSamplesWithVariablesFromAnotherCopyOfTheModel() throws IOException {
+        try (SampleFileWriter writer = new SampleFileWriter(file, variables, 3)) {
+            for (int i = 0; i < 4; i++) {
+                writer.append(sample(i));
+            }
+        }
+
+        createModel();
+        NetworkSamples samples = SampleFileReader.open(file, variables);
+
+        assertSampleIs(3, samples, 3);
+    }
+
+    @Test
+    public void canDropAndDownSampleSamplesBackedByAFile() throws IOException {
+        try (SampleFileWriter writer = new SampleFileWriter(file, variables, 4)) {
+            for (int i = 0; i < 10; i++) {
+                writer.append(sample(i));
+            }
+        }
+
+        NetworkSamples samples = SampleFileReader.open(file, variables).drop(2).downSample(3);
+
+        assertEquals(2, samples.size());
+        assertSampleIs(2, samples, 0);
+        assertSampleIs(5, samples, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void itThrowsIfASampleHasTheWrongShape() throws IOException {
+        try (SampleFileWriter writer = new SampleFileWriter(file, variables)) {
+            writer.append(new NetworkSample(ImmutableMap.of(
+                gaussian.getReference(), DoubleTensor.create(1.0, 2.0, 3.0),
+                poisson.getReference(), IntegerTensor.scalar(1),
+                bernoulli.getReference(), BooleanTensor.scalar(true)
+            ), 0.0));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void itThrowsIfTheFileHasSamplesOfOtherVariables() throws IOException {
+        new SampleFileWriter(file, variables).close();
+
+        SampleFileReader.open(file, Arrays.asList(gaussian, poisson));
+    }
+
+    @Test
+    public void aGeneratorCanWriteSamplesToAFileAsTheyAreTaken() {
+        List<DoubleVertex> inMemoryLatents = sumOfGaussiansLatents();
+        NetworkSamples inMemory = MetropolisHastings.builder()
+            .random(new KeanuRandom(1))
+            .build()
+            .generatePosteriorSamples(modelOf(inMemoryLatents), inMemoryLatents)
+            .dropCount(10)
+            .generate(100);
+
+        List<DoubleVertex> onDiskLatents = sumOfGaussiansLatents();
+        NetworkSamples onDisk = MetropolisHastings.builder()
+            .random(new KeanuRandom(1))
+            .build()
+            .generatePosteriorSamples(modelOf(onDiskLatents), onDiskLatents)
+            .dropCount(10)
+            .generateToFile(100, file, onDiskLatents);
+
+        assertEquals(inMemory.size(), onDisk.size());
+        for (int i = 0; i < inMemoryLatents.size(); i++) {
+            assertEquals(
+                inMemory.getDoubleTensorSamples(inMemoryLatents.get(i)).asList(),
+                onDisk.getDoubleTensorSamples(onDiskLatents.get(i)).asList()
+            );
+        }
+        for (int i = 0; i < inMemory.size(); i++) {
+            assertEquals(inMemory.getLogOfMasterP(i), onDisk.getLogOfMasterP(i), 0.0);
+        }
+    }
+
+    private static List<DoubleVertex> sumOfGaussiansLatents() {
+        DoubleVertex A = new GaussianVertex(20.0, 1.0);
+        DoubleVertex B = new GaussianVertex(20.0, 1.0);
+        A.setValue(20.0);
+        B.setValue(20.0);
+        new GaussianVertex(A.plus(B), 1.0).observe(46.0);
+        return Arrays.asList(A, B);
+    }
+
+    private static KeanuProbabilisticModel modelOf(List<DoubleVertex> latents) {
+        return new KeanuProbabilisticModel(new BayesianNetwork(latents.get(0).getConnectedGraph()));
+    }
+
+    private NetworkSample sample(int i) {
+        return new NetworkSample(ImmutableMap.of(
+            gaussian.getReference(), DoubleTensor.create(i, -i),
+            poisson.getReference(), IntegerTensor.scalar(i),
+            bernoulli.getReference(), BooleanTensor.scalar(i % 2 == 0)
+        ), -i);
+    }
+
+    private void assertSampleIs(int expected, NetworkSamples samples, int index) {
+        assertEquals(DoubleTensor.create(expected, -expected), samples.get(gaussian).asList().get(index));
+        assertEquals(IntegerTensor.scalar(expected), samples.get(poisson).asList().get(index));
+        assertEquals(BooleanTensor.scalar(expected % 2 == 0), samples.get(bernoulli).asList().get(index));
+        assertEquals(-expected, samples.getLogOfMasterP(index), 0.0);
+    }
+}
@@ -0,0 +1,141 @@
+package io.improbable.keanu.vertices;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class VertexAdjacencyTest {
+
+    @Test
+    public void keepsChildrenInTheOrderTheyWereAdded() {
+        DoubleVertex mu = new GaussianVertex(0, 1);
+
+        List<Vertex> children = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            children.add(new GaussianVertex(mu, 1));
+        }
+
+        assertEquals(children, new ArrayList<>(mu.getChildren()));
+        assertEquals(100 + mu.getParents().size(), mu.getDegree());
+    }
+
+    @Test
+    public void doesNotAddTheSameParentTwice() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        DoubleVertex B = A.plus(A);
+
+        assertEquals(1, B.getParents().size());
+        assertEquals(1, A.getChildren().size());
+    }
+
+    @Test
+    public void canSetParentsToItsOwnParents() {
+        DoubleVertex mu = new GaussianVertex(0, 1);
+        DoubleVertex sigma = new GaussianVertex(1, 1);
+        GaussianVertex A = new GaussianVertex(mu, sigma);
+
+        A.setParents(A.getParents());
+
+        assertEquals(ImmutableList.of(mu, sigma), new ArrayList<>(A.getParents()));
+    }
+
+    @Test
+    public void aVertexWithoutChildrenHasNone() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+
+        assertTrue(A.getChildren().isEmpty());
+    }
+
+    @Test
+    public void theChildrenAreASnapshotThatLaterChangesDoNotAffect() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        DoubleVertex B = A.plus(1.0);
+
+        Set<Vertex> children = A.getChildren();
+        DoubleVertex C = A.times(2.0);
+        A.removeChild(B);
+
+        assertEquals(ImmutableSet.of(B), children);
+        assertEquals(ImmutableSet.of(C), A.getChildren());
+    }
+
+    @Test
+    public void canRemoveChildrenWhileIteratingOverThem() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        A.plus(1.0);
+        A.times(2.0);
+
+        for (Vertex child : A.getChildren()) {
+            A.removeChild(child);
+        }
+
+        assertTrue(A.getChildren().isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void childrenCannotBeModifiedDirectly() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        A.plus(1.0);
+
+        A.getChildren().clear();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void parentsCannotBeModifiedDirectly() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+
+        A.plus(1.0).getParents().add(A);
+    }
+
+    @Test
+    public void doesNotAddTheSameChildTwiceOnceItHasManyChildren() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        List<Vertex> children = new ArrayList<>();
+        for (int i = 0; i < 2 * VertexAdjacency.INDEXED_SIZE; i++) {
+            children.add(A.plus(i));
+        }
+
+        Vertex removed = children.remove(0);
+        A.removeChild(removed);
+        for (Vertex child : children) {
+            A.addChild(child);
+        }
+
+        assertEquals(children, new ArrayList<>(A.getChildren()));
+        assertFalse(A.getChildren().contains(removed));
+    }
+
+    @Test
+    public void snapshotsTakenBeforeAndAfterGrowingAreNotAffectedByEachOther() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        List<Set<Vertex>> snapshots = new ArrayList<>();
+        List<Vertex> children = new ArrayList<>();
+        for (int i = 0; i < 2 * VertexAdjacency.INDEXED_SIZE; i++) {
+            snapshots.add(A.getChildren());
+            children.add(A.plus(i));
+        }
+
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertEquals(children.subList(0, i), new ArrayList<>(snapshots.get(i)));
+        }
+    }
+
+    @Test
+    public void repeatedReadsWithoutChangesReturnTheSameSnapshot() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        A.plus(1.0);
+
+        assertSame(A.getChildren(), A.getChildren());
+    }
+}
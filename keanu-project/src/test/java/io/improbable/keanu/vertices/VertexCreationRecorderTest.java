@@ -0,0 +1,70 @@
+package io.improbable.keanu.vertices;
+
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VertexCreationRecorderTest {
+
+    @Test
+    public void recordsTheVerticesCreatedWhileItIsOpenInTheOrderTheyWereCreated() {
+        DoubleVertex before = new GaussianVertex(0, 1);
+        VertexCreationRecorder recorder = VertexCreationRecorder.open();
+        DoubleVertex sum = before.plus(before);
+        DoubleVertex exp = sum.exp();
+        recorder.close();
+        new GaussianVertex(0, 1);
+
+        assertEquals(Arrays.asList(sum, exp), recorder.getCreatedVertices());
+    }
+
+    @Test
+    public void nestedRecordersAllRecordTheVerticesCreatedWhileTheyAreOpen() {
+        List<Vertex<?>> outerVertices;
+        List<Vertex<?>> innerVertices;
+        DoubleVertex first;
+        DoubleVertex second;
+
+        try (VertexCreationRecorder outer = VertexCreationRecorder.open()) {
+            first = ConstantVertex.of(1.0);
+            try (VertexCreationRecorder inner = VertexCreationRecorder.open()) {
+                second = ConstantVertex.of(2.0);
+                innerVertices = inner.getCreatedVertices();
+            }
+            outerVertices = outer.getCreatedVertices();
+        }
+
+        assertEquals(Collections.singletonList(second), innerVertices);
+        assertEquals(Arrays.asList(first, second), outerVertices);
+    }
+
+    @Test
+    public void doesNotRecordVerticesCreatedOnOtherThreads() throws InterruptedException {
+        try (VertexCreationRecorder recorder = VertexCreationRecorder.open()) {
+            Thread thread = new Thread(() -> ConstantVertex.of(1.0));
+            thread.start();
+            thread.join();
+
+            assertTrue(recorder.getCreatedVertices().isEmpty());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void throwsIfAnOuterRecorderIsClosedBeforeAnInnerOne() {
+        VertexCreationRecorder outer = VertexCreationRecorder.open();
+        VertexCreationRecorder inner = VertexCreationRecorder.open();
+        try {
+            outer.close();
+        } finally {
+            inner.close();
+            outer.close();
+        }
+    }
+}
@@ -6,6 +6,7 @@ import io.improbable.keanu.distributions.continuous.Gaussian;
 import io.improbable.keanu.distributions.hyperparam.Diffs;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.ConstantVertex;
+import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.VertexId;
 import io.improbable.keanu.vertices.dbl.Differentiator;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
@@ -13,12 +14,16 @@ import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.unary.SumVert
 import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class LogProbGradientCalculatorTest {
 
@@ -162,4 +167,101 @@ public class LogProbGradientCalculatorTest {
         assertEquals(expectedDJLogProbWrtBValue, dJLogProbWrtBValue);
     }
 
+    @Test
+    public void sumsGradientsThroughASubgraphSharedByManyObservations() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        A.setValue(0.3);
+        DoubleVertex B = new GaussianVertex(0, 1);
+        B.setValue(-0.7);
+        DoubleVertex shared = A.times(B).plus(A.exp());
+
+        List<Vertex> observations = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            GaussianVertex observation = new GaussianVertex(shared.times(i), 1);
+            observation.observe(0.1 * i);
+            observations.add(observation);
+        }
+
+        LogProbGradientCalculator calculator = new LogProbGradientCalculator(observations, ImmutableList.of(A, B));
+        Map<VertexId, DoubleTensor> gradient = calculator.getJointLogProbGradientWrtLatents();
+
+        double expectedWrtA = 0.0;
+        double expectedWrtB = 0.0;
+        for (Vertex observation : observations) {
+            Map<VertexId, DoubleTensor> single = new LogProbGradientCalculator(ImmutableList.of(observation), ImmutableList.of(A, B))
+                .getJointLogProbGradientWrtLatents();
+            expectedWrtA += single.get(A.getId()).scalar();
+            expectedWrtB += single.get(B.getId()).scalar();
+        }
+
+        assertEquals(expectedWrtA, gradient.get(A.getId()).scalar(), 1e-10);
+        assertEquals(expectedWrtB, gradient.get(B.getId()).scalar(), 1e-10);
+        assertEquals(expectedWrtA, calculator.getJointLogProbGradientWrtLatents().get(A.getId()).scalar(), 1e-10);
+    }
+
+    @Test
+    public void doesNotFindGradientWrtLatentsThatAreNotRequested() {
+        GaussianVertex A = new GaussianVertex(0, 1);
+        A.setValue(0.5);
+        GaussianVertex B = new GaussianVertex(A.times(2), 1);
+        B.setValue(0.2);
+
+        LogProbGradientCalculator calculator = new LogProbGradientCalculator(ImmutableList.of(A, B), ImmutableList.of(B));
+        Map<VertexId, DoubleTensor> gradient = calculator.getJointLogProbGradientWrtLatents();
+
+        DoubleTensor expectedDLogProbWrtA = A.dLogProbAtValue(A).get(A);
+
+        assertEquals(expectedDLogProbWrtA, gradient.get(A.getId()));
+        assertEquals(B.dLogProbAtValue(B).get(B), gradient.get(B.getId()));
+    }
+
+    @Test
+    public void isStaleAfterTheGraphChanges() {
+        GaussianVertex A = new GaussianVertex(0, 1);
+        GaussianVertex B = new GaussianVertex(A.times(2), 1);
+        B.setValue(0.2);
+
+        LogProbGradientCalculator calculator = new LogProbGradientCalculator(ImmutableList.of(B), ImmutableList.of(A));
+        assertFalse(calculator.isStale());
+
+        new GaussianVertex(A, 1);
+
+        assertTrue(calculator.isStale());
+    }
+
+    @Test
+    public void isNotStaleWhenAnotherNetworkChanges() {
+        GaussianVertex A = new GaussianVertex(0, 1);
+        GaussianVertex B = new GaussianVertex(A, 1);
+        B.setValue(0.2);
+
+        LogProbGradientCalculator calculator = new LogProbGradientCalculator(ImmutableList.of(B), ImmutableList.of(A));
+
+        new GaussianVertex(new GaussianVertex(0, 1), 1);
+
+        assertFalse(calculator.isStale());
+    }
+
+    @Test
+    public void recordsTheTapeAgainWhenAVertexIsObserved() {
+        GaussianVertex A = new GaussianVertex(0, 1);
+        A.setValue(0.5);
+        GaussianVertex B = new GaussianVertex(A.times(2), 1);
+        B.setValue(0.2);
+
+        LogProbGradientCalculator calculator = new LogProbGradientCalculator(ImmutableList.of(A, B), ImmutableList.of(A, B));
+        assertTrue(calculator.getJointLogProbGradientWrtLatents().containsKey(B.getId()));
+
+        B.observe(DoubleTensor.scalar(0.2));
+
+        assertTrue(calculator.isStale());
+        Map<VertexId, DoubleTensor> gradient = calculator.getJointLogProbGradientWrtLatents();
+        Map<VertexId, DoubleTensor> expected = new LogProbGradientCalculator(ImmutableList.of(A, B), ImmutableList.of(A, B))
+            .getJointLogProbGradientWrtLatents();
+
+        assertFalse(gradient.containsKey(B.getId()));
+        assertEquals(expected, gradient);
+        assertFalse(calculator.isStale());
+    }
+
 }
@@ -0,0 +1,85 @@
+package io.improbable.keanu.vertices.dbl.nonprobabilistic.operators;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.binary.ArcTan2Vertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DoubleValueBuffersTest {
+
+    @Test
+    public void alternatesBetweenTwoTensors() {
+        DoubleVertex A = new GaussianVertex(new long[]{2, 2}, 0, 1);
+        DoubleVertex C = new GaussianVertex(new long[]{2}, 0, 1);
+        C.setValue(DoubleTensor.create(0.5, -0.5));
+        DoubleVertex B = A.plus(C).times(A).sigmoid();
+        ReusesValueBuffers.enableFor(A.getConnectedGraph());
+
+        A.setValue(DoubleTensor.create(new double[]{1, 2, 3, 4}, 2, 2));
+        DoubleTensor first = B.eval();
+
+        A.setAndCascade(DoubleTensor.create(new double[]{5, 6, 7, 8}, 2, 2));
+        DoubleTensor second = B.getValue();
+        DoubleTensor expectedSecond = A.getValue().plus(C.getValue()).times(A.getValue()).sigmoid();
+
+        A.setAndCascade(DoubleTensor.create(new double[]{-1, -2, -3, -4}, 2, 2));
+        DoubleTensor third = B.getValue();
+        DoubleTensor expectedThird = A.getValue().plus(C.getValue()).times(A.getValue()).sigmoid();
+
+        assertNotSame(first, second);
+        assertSame(first, third);
+        assertArrayEquals(expectedSecond.asFlatDoubleArray(), second.asFlatDoubleArray(), 1e-10);
+        assertArrayEquals(expectedThird.asFlatDoubleArray(), third.asFlatDoubleArray(), 1e-10);
+    }
+
+    @Test
+    public void copiesEveryValueExactly() {
+        DoubleTensor target = DoubleTensor.create(1.0, 2.0, 3.0);
+
+        DoubleTensor copy = DoubleValueBuffers.copyInto(target, DoubleTensor.create(-0.0, Double.NaN, 4.0));
+
+        assertSame(target, copy);
+        assertEquals(Double.NEGATIVE_INFINITY, 1.0 / copy.getValue(0), 0.0);
+        assertTrue(Double.isNaN(copy.getValue(1)));
+        assertEquals(4.0, copy.getValue(2), 0.0);
+    }
+
+    @Test
+    public void broadcastsTheValuesItCopies() {
+        DoubleTensor target = DoubleTensor.zeros(2, 2);
+
+        DoubleValueBuffers.copyInto(target, DoubleTensor.create(1.0, 2.0));
+
+        assertArrayEquals(new double[]{1, 2, 1, 2}, target.asFlatDoubleArray(), 0.0);
+    }
+
+    @Test
+    public void givesTheSameValuesAsAllocatingNewTensors() {
+        DoubleVertex A = new GaussianVertex(new long[]{3}, 0, 1);
+        DoubleVertex C = new GaussianVertex(0, 1);
+        A.setValue(DoubleTensor.create(0.2, 0.5, 0.9));
+        C.setValue(2.0);
+
+        DoubleVertex[] operations = new DoubleVertex[]{
+            A.plus(C), A.minus(C), A.times(C), A.div(C), A.pow(C), new ArcTan2Vertex(A, C),
+            A.abs(), A.acos(), A.asin(), A.atan(), A.ceil(), A.cos(), A.exp(), A.floor(),
+            A.logGamma(), A.log(), A.round(), A.sigmoid(), A.sin(), A.tan()
+        };
+
+        for (DoubleVertex operation : operations) {
+            DoubleTensor expected = operation.eval().duplicate();
+            ((ReusesValueBuffers) operation).setReuseValueBuffers(true);
+
+            DoubleTensor actual = operation.eval();
+            assertArrayEquals(expected.getShape(), actual.getShape());
+            assertArrayEquals(expected.asFlatDoubleArray(), actual.asFlatDoubleArray(), 1e-10);
+        }
+    }
+}
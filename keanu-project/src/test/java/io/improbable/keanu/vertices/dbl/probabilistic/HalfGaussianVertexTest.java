@@ -65,6 +65,18 @@ public class HalfGaussianVertexTest {
         ProbabilisticDoubleTensorContract.matchesKnownLogDensityOfVector(tensorGaussianVertex, new double[]{-0.25, 0.75}, Double.NEGATIVE_INFINITY);
     }
 
+    @Test
+    public void elementwiseLogProbSumsToLogProb() {
+
+        HalfGaussianVertex vertex = new HalfGaussianVertex(new long[]{2}, 1.5);
+        DoubleTensor positive = DoubleTensor.create(0.25, 0.75);
+        DoubleTensor mixed = DoubleTensor.create(-0.25, 0.75);
+
+        assertEquals(vertex.logProb(positive), vertex.elementwiseLogProb(positive).sum(), 1e-10);
+        assertEquals(Double.NEGATIVE_INFINITY, vertex.elementwiseLogProb(mixed).getValue(0), 0.0);
+        assertEquals(vertex.logProb(mixed), vertex.elementwiseLogProb(mixed).sum(), 0.0);
+    }
+
     @Test
     public void matchesKnownDerivativeLogDensityOfScalar() {
 
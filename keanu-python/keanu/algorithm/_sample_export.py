@@ -0,0 +1,56 @@
+import struct
+from typing import List, Tuple, Dict, Any
+
+import numpy as np
+from py4j.java_collections import JavaList
+from py4j.java_gateway import java_import, JavaObject
+
+from keanu.context import KeanuContext
+
+k = KeanuContext()
+
+java_import(k.jvm_view(), "io.improbable.keanu.util.Py4jSampleExporter")
+
+# These match the dtype codes in io.improbable.keanu.util.Py4jSampleExporter
+_EXPORTED_DTYPES: Dict[int, Any] = {0: np.float64, 1: np.int32, 2: np.bool_}
+
+
+def export_samples(network_samples: JavaObject, vertices_unwrapped: JavaList) -> List[Tuple[str, np.ndarray]]:
+    """
+    Fetches the samples of every vertex from Java in a single call.
+
+    :param network_samples: The Java NetworkSamples to fetch the samples from.
+    :param vertices_unwrapped: The Java vertices to fetch the samples of.
+    :return: The label of each vertex and an array of its samples with shape (sample count,) + vertex shape,
+        in the order of `vertices_unwrapped`.
+    """
+    buffer = k.jvm_view().Py4jSampleExporter.toByteArray(network_samples, vertices_unwrapped)
+    return read_exported_samples(buffer)
+
+
+def read_exported_samples(buffer: bytes) -> List[Tuple[str, np.ndarray]]:
+    variable_count, sample_count = struct.unpack_from("<ii", buffer, 0)
+    position = 8
+
+    exported = []
+    for _ in range(variable_count):
+        (label_length,) = struct.unpack_from("<i", buffer, position)
+        position += 4
+        label = buffer[position:position + label_length].decode("utf-8")
+        position += label_length
+
+        dtype, rank = struct.unpack_from("<ii", buffer, position)
+        position += 8
+        shape = struct.unpack_from("<%dq" % rank, buffer, position)
+        position += 8 * rank
+        (offset,) = struct.unpack_from("<q", buffer, position)
+        position += 8
+
+        length = 1
+        for dimension in shape:
+            length *= dimension
+
+        values = np.frombuffer(buffer, dtype=_EXPORTED_DTYPES[dtype], count=sample_count * length, offset=offset)
+        exported.append((label, values.reshape((sample_count,) + tuple(shape))))
+
+    return exported
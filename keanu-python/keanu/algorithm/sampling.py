@@ -1,3 +1,4 @@
+import itertools
 from collections import defaultdict
 from typing import Any, Iterable, Dict, List, Tuple
 
@@ -6,6 +7,7 @@ from py4j.java_collections import JavaList
 from py4j.java_gateway import java_import, JavaObject
 
 from keanu.algorithm._proposal_distribution import ProposalDistribution
+from keanu.algorithm._sample_export import export_samples
 from keanu.context import KeanuContext
 from keanu.net import BayesNet, ProbabilisticModel, ProbabilisticModelWithGradient
 from keanu.plots import traceplot
@@ -268,31 +270,25 @@ def __check_if_vertices_are_labelled(vertices: List[Vertex]) -> Dict[Tuple[int,
 def __create_single_indexed_samples(network_samples: JavaObject, vertices_unwrapped: JavaList,
                                     id_to_label: Dict[Tuple[int, ...], str]) -> sample_types:
     vertex_samples: sample_types = {}
-    for vertex_unwrapped in vertices_unwrapped:
+    exported = export_samples(network_samples, vertices_unwrapped)
+    for vertex_unwrapped, (_, samples_for_vertex) in zip(vertices_unwrapped, exported):
         vertex_label = id_to_label[Vertex._get_python_id(vertex_unwrapped)]
-        samples_for_vertex = network_samples.get(vertex_unwrapped).asList()
-        is_primitive = [True] * len(samples_for_vertex)
-        samples_as_ndarray = map(Tensor._to_scalar_or_ndarray, samples_for_vertex, is_primitive)
-        vertex_samples[vertex_label] = list(samples_as_ndarray)
+        vertex_samples[vertex_label] = samples_for_vertex.tolist()
     return vertex_samples
 
 
 def __create_multi_indexed_samples(vertices_unwrapped: JavaList, network_samples: JavaObject,
                                    id_to_label: Dict[Tuple[int, ...], str]) -> sample_types:
-    vertex_samples_multi: Dict = {}
-    for vertex in vertices_unwrapped:
-        vertex_label = id_to_label[Vertex._get_python_id(vertex)]
-        vertex_samples_multi[vertex_label] = defaultdict(list)
-        samples_for_vertex = network_samples.get(vertex).asList()
-        is_primitive = [True] * len(samples_for_vertex)
-        samples_as_ndarray = map(Tensor._to_scalar_or_ndarray, samples_for_vertex, is_primitive)
-        samples = list(samples_as_ndarray)
-        for sample in samples:
-            __add_sample_to_dict(sample, vertex_samples_multi[vertex_label])
-
-    tuple_hierarchy: Dict = {(vertex_label, shape_index): values
-                             for vertex_label, tensor_index in vertex_samples_multi.items()
-                             for shape_index, values in tensor_index.items()}
+    tuple_hierarchy: Dict = {}
+    exported = export_samples(network_samples, vertices_unwrapped)
+    for vertex_unwrapped, (_, samples_for_vertex) in zip(vertices_unwrapped, exported):
+        vertex_label = id_to_label[Vertex._get_python_id(vertex_unwrapped)]
+        sample_shape = samples_for_vertex.shape[1:]
+        if sample_shape == ():
+            tuple_hierarchy[(vertex_label, COLUMN_HEADER_FOR_SCALAR)] = samples_for_vertex.tolist()
+        else:
+            for index in itertools.product(*(range(dimension) for dimension in sample_shape)):
+                tuple_hierarchy[(vertex_label, index)] = samples_for_vertex[(slice(None),) + index].tolist()
 
     return tuple_hierarchy
 
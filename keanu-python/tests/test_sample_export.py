@@ -0,0 +1,32 @@
+import struct
+
+import numpy as np
+
+from keanu.algorithm._sample_export import read_exported_samples
+
+
+def test_reads_header_and_samples_of_each_variable() -> None:
+    label = "matrix".encode("utf-8")
+    header = struct.pack("<ii", 2, 3)
+    header += struct.pack("<i", len(label)) + label + struct.pack("<ii", 0, 2) + struct.pack("<qq", 2, 2)
+    matrix_offset_position = len(header)
+    header += struct.pack("<q", 0)
+    header += struct.pack("<i", 0) + struct.pack("<ii", 1, 0)
+    count_offset_position = len(header)
+    header += struct.pack("<q", 0)
+
+    matrix_offset = (len(header) + 7) // 8 * 8
+    matrix = np.arange(12, dtype=np.float64)
+    count_offset = matrix_offset + matrix.nbytes
+    count = np.array([0, 10, 20], dtype=np.int32)
+
+    buffer = bytearray(header)
+    struct.pack_into("<q", buffer, matrix_offset_position, matrix_offset)
+    struct.pack_into("<q", buffer, count_offset_position, count_offset)
+    buffer += bytes(matrix_offset - len(header)) + matrix.tobytes() + count.tobytes()
+
+    exported = read_exported_samples(bytes(buffer))
+
+    assert [label for label, _ in exported] == ["matrix", ""]
+    np.testing.assert_array_equal(exported[0][1], matrix.reshape((3, 2, 2)))
+    np.testing.assert_array_equal(exported[1][1], count)